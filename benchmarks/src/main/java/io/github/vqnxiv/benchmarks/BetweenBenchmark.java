@@ -0,0 +1,114 @@
+package io.github.vqnxiv.benchmarks;
+
+
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Area queries on a {@link io.github.vqnxiv.structure.impl.CoordinatesList}
+ * and a {@link io.github.vqnxiv.structure.impl.CoordinatesMatrix}, 
+ * with a view sized window at a different position on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx12g" })
+public class BetweenBenchmark {
+
+    /**
+     * Number of precomputed query windows.
+     */
+    private static final int WINDOWS = 1 << 10;
+
+
+    /**
+     * Number of elements.
+     */
+    @Param({ "10000", "1000000", "10000000" })
+    public int size;
+
+    /**
+     * Distribution of the elements.
+     */
+    @Param({ "UNIFORM", "CLUSTERED" })
+    public Datasets.Distribution distribution;
+
+    /**
+     * Structure to query.
+     */
+    @Param({ "LIST", "MATRIX" })
+    public Datasets.Kind kind;
+
+    /**
+     * The structure.
+     */
+    private CoordinatesStructure<Integer> structure;
+
+    /**
+     * Top left corners of the query windows.
+     */
+    private double[] windows;
+
+    /**
+     * Index of the next window.
+     */
+    private int next;
+
+
+    /**
+     * Creates the structure and the windows.
+     */
+    @Setup
+    public void setup() {
+        structure = Datasets.structure(kind, Datasets.elements(size, distribution, 42L));
+        windows = Datasets.windows(WINDOWS, 7L);
+    }
+
+
+    /**
+     * {@link CoordinatesStructure#between(double, double, double, double)}.
+     *
+     * @param bh Blackhole.
+     */
+    @Benchmark
+    public void between(Blackhole bh) {
+        int i = 2 * (next++ & (WINDOWS - 1));
+        bh.consume(
+            structure.between(
+                windows[i], windows[i + 1],
+                windows[i] + Datasets.VIEW_WIDTH, windows[i + 1] + Datasets.VIEW_HEIGHT
+            )
+        );
+    }
+
+    /**
+     * {@link CoordinatesStructure#forEachBetween(double, double, double, double, java.util.function.Consumer)}.
+     *
+     * @param bh Blackhole.
+     */
+    @Benchmark
+    public void forEachBetween(Blackhole bh) {
+        int i = 2 * (next++ & (WINDOWS - 1));
+        structure.forEachBetween(
+            windows[i], windows[i + 1],
+            windows[i] + Datasets.VIEW_WIDTH, windows[i + 1] + Datasets.VIEW_HEIGHT,
+            bh::consume
+        );
+    }
+}
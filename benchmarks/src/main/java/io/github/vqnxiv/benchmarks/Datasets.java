@@ -0,0 +1,185 @@
+package io.github.vqnxiv.benchmarks;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.impl.CoordinatesList;
+import io.github.vqnxiv.structure.impl.CoordinatesMatrix;
+import io.github.vqnxiv.structure.impl.MutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+
+/**
+ * Generates the elements and query windows used by the benchmarks.
+ */
+public final class Datasets {
+
+    /**
+     * Width and height of the area in which elements are generated.
+     */
+    public static final double EXTENT = 100_000d;
+
+    /**
+     * Width of a query window, i.e a typical view.
+     */
+    public static final double VIEW_WIDTH = 1_920d;
+
+    /**
+     * Height of a query window, i.e a typical view.
+     */
+    public static final double VIEW_HEIGHT = 1_080d;
+
+    /**
+     * Number of clusters in {@link Distribution#CLUSTERED}.
+     */
+    private static final int CLUSTERS = 32;
+
+    /**
+     * Standard deviation of a cluster, relative to {@link #EXTENT}.
+     */
+    private static final double CLUSTER_SPREAD = 0.02d;
+
+
+    /**
+     * How coordinates are distributed.
+     */
+    public enum Distribution {
+        /**
+         * Uniformly over the whole area.
+         */
+        UNIFORM,
+        /**
+         * Around a few gaussian clusters, which is closer to a laid out graph.
+         */
+        CLUSTERED
+    }
+
+    /**
+     * Kind of structure to benchmark.
+     */
+    public enum Kind {
+        /**
+         * {@link CoordinatesList}.
+         */
+        LIST,
+        /**
+         * {@link CoordinatesMatrix}.
+         */
+        MATRIX
+    }
+
+
+    /**
+     * Utility class.
+     */
+    private Datasets() { }
+
+
+    /**
+     * Generates elements.
+     *
+     * @param n            Number of elements.
+     * @param distribution Distribution of their coordinates.
+     * @param seed         Random seed.
+     * @return The elements.
+     */
+    public static List<CoordinatesElement<Integer>> elements(int n, Distribution distribution, long seed) {
+        var rnd = new SplittableRandom(seed);
+        var l = new ArrayList<CoordinatesElement<Integer>>(n);
+
+        double[] centers = new double[CLUSTERS * 2];
+        for(int i = 0; i < centers.length; i++) {
+            centers[i] = rnd.nextDouble(EXTENT);
+        }
+
+        for(int i = 0; i < n; i++) {
+            double x;
+            double y;
+            if(distribution == Distribution.UNIFORM) {
+                x = rnd.nextDouble(EXTENT);
+                y = rnd.nextDouble(EXTENT);
+            }
+            else {
+                int c = rnd.nextInt(CLUSTERS);
+                x = clamp(centers[2 * c] + gaussian(rnd) * CLUSTER_SPREAD * EXTENT);
+                y = clamp(centers[2 * c + 1] + gaussian(rnd) * CLUSTER_SPREAD * EXTENT);
+            }
+            l.add(new CoordinatesElement<>(i, x, y));
+        }
+
+        return l;
+    }
+
+    /**
+     * Generates new coordinates for the given elements, uniformly over the whole area.
+     *
+     * @param n    Number of coordinates.
+     * @param seed Random seed.
+     * @return Pairs of coordinates, i.e {@code x0, y0, x1, y1...}.
+     */
+    public static double[] coordinates(int n, long seed) {
+        var rnd = new SplittableRandom(seed);
+        double[] d = new double[n * 2];
+        for(int i = 0; i < d.length; i++) {
+            d[i] = rnd.nextDouble(EXTENT);
+        }
+        return d;
+    }
+
+    /**
+     * Generates the top left corners of query windows of size
+     * {@link #VIEW_WIDTH} * {@link #VIEW_HEIGHT}.
+     *
+     * @param n    Number of windows.
+     * @param seed Random seed.
+     * @return Pairs of coordinates, i.e {@code x0, y0, x1, y1...}.
+     */
+    public static double[] windows(int n, long seed) {
+        var rnd = new SplittableRandom(seed);
+        double[] d = new double[n * 2];
+        for(int i = 0; i < n; i++) {
+            d[2 * i] = rnd.nextDouble(EXTENT - VIEW_WIDTH);
+            d[2 * i + 1] = rnd.nextDouble(EXTENT - VIEW_HEIGHT);
+        }
+        return d;
+    }
+
+    /**
+     * Creates a structure which contains the given elements.
+     *
+     * @param kind     Kind of structure.
+     * @param elements The elements.
+     * @return The structure.
+     */
+    public static CoordinatesStructure<Integer> structure(Kind kind, List<CoordinatesElement<Integer>> elements) {
+        var source = new MutableList<Integer>(List.of());
+        source.addAllCoordinates(elements);
+
+        return (kind == Kind.LIST) ? new CoordinatesList<>(source) : new CoordinatesMatrix<>(source);
+    }
+
+    /**
+     * Standard normal value (Box-Muller).
+     *
+     * @param rnd Random generator.
+     * @return The value.
+     */
+    private static double gaussian(SplittableRandom rnd) {
+        double u = 1d - rnd.nextDouble();
+        double v = rnd.nextDouble();
+        return Math.sqrt(-2d * Math.log(u)) * Math.cos(2d * Math.PI * v);
+    }
+
+    /**
+     * Clamps a coordinate in the generation area.
+     *
+     * @param d The coordinate.
+     * @return The clamped coordinate.
+     */
+    private static double clamp(double d) {
+        return Math.max(0d, Math.min(EXTENT - 1d, d));
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.vqnxiv.benchmarks;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.impl.MutableList;
+import io.github.vqnxiv.structure.impl.MutableMatrix;
+import javafx.geometry.Point2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bulk changes: {@link MutableStructure#repositionAllTo(Map)} of every element,
+ * and {@link MutableStructure#addAllCoordinates(java.util.Collection)}
+ * into an empty structure.
+ * <p>
+ * Each invocation needs a fresh structure, so the setup happens 
+ * at {@link Level#Invocation}. This is fine here as a single invocation 
+ * takes far longer than the setup overhead JMH warns about.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class MutationBenchmark {
+
+    /**
+     * Number of elements.
+     */
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    /**
+     * Structure to change.
+     */
+    @Param({ "LIST", "MATRIX" })
+    public Datasets.Kind kind;
+
+    /**
+     * Elements.
+     */
+    private List<CoordinatesElement<Integer>> elements;
+
+    /**
+     * New coordinates of the elements.
+     */
+    private double[] coordinates;
+
+    /**
+     * Structure which contains {@link #elements}.
+     */
+    private MutableStructure<Integer> filled;
+
+    /**
+     * Empty structure.
+     */
+    private MutableStructure<Integer> empty;
+
+    /**
+     * Elements mapped to their new coordinates.
+     */
+    private Map<CoordinatesElement<Integer>, Point2D> moves;
+
+
+    /**
+     * Generates the elements.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        elements = Datasets.elements(size, Datasets.Distribution.UNIFORM, 42L);
+        coordinates = Datasets.coordinates(size, 7L);
+    }
+
+    /**
+     * Creates the structures and the moves.
+     */
+    @Setup(Level.Invocation)
+    public void setup() {
+        var copies = elements.stream().map(CoordinatesElement::new).toList();
+        filled = newStructure();
+        filled.addAllCoordinates(copies);
+        empty = newStructure();
+
+        moves = new HashMap<>(size * 2);
+        for(int i = 0; i < size; i++) {
+            moves.put(new CoordinatesElement<>(copies.get(i)), new Point2D(coordinates[2 * i], coordinates[2 * i + 1]));
+        }
+    }
+
+    /**
+     * Creates an empty structure.
+     *
+     * @return The structure.
+     */
+    private MutableStructure<Integer> newStructure() {
+        return (kind == Datasets.Kind.LIST) ? new MutableList<>(List.of()) : new MutableMatrix<>(List.of());
+    }
+
+
+    /**
+     * Repositions every element.
+     *
+     * @return The structure.
+     */
+    @Benchmark
+    public MutableStructure<Integer> repositionAllTo() {
+        filled.repositionAllTo(moves);
+        return filled;
+    }
+
+    /**
+     * Adds every element.
+     *
+     * @return The structure.
+     */
+    @Benchmark
+    public MutableStructure<Integer> addAllCoordinates() {
+        empty.addAllCoordinates(elements);
+        return empty;
+    }
+}
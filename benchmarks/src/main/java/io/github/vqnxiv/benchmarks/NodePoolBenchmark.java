@@ -0,0 +1,106 @@
+package io.github.vqnxiv.benchmarks;
+
+
+import io.github.vqnxiv.node.DecoratedNode;
+import io.github.vqnxiv.node.DecoratedNodePool;
+import io.github.vqnxiv.node.SetNodePool;
+import io.github.vqnxiv.node.TimedNodePool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Get/release churn on node pools: a sliding window of {@link #live} decorators
+ * is kept in use, each operation releasing the oldest node and getting
+ * one for a new decorator, like a view being panned.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NodePoolBenchmark {
+
+    /**
+     * Kind of pool.
+     */
+    public enum Pool {
+        /**
+         * {@link SetNodePool}.
+         */
+        SET,
+        /**
+         * {@link TimedNodePool}.
+         */
+        TIMED
+    }
+
+
+    /**
+     * Pool to benchmark.
+     */
+    @Param({ "SET", "TIMED" })
+    public Pool pool;
+
+    /**
+     * Number of nodes in use at any time.
+     */
+    @Param({ "1000", "10000" })
+    public int live;
+
+    /**
+     * The pool.
+     */
+    private DecoratedNodePool<Integer> nodePool;
+
+    /**
+     * Nodes in use, oldest first.
+     */
+    private Deque<DecoratedNode<Integer>> used;
+
+    /**
+     * Next decorator.
+     */
+    private int next;
+
+
+    /**
+     * Creates the pool and fills the window.
+     */
+    @Setup
+    public void setup() {
+        nodePool = (pool == Pool.SET) ? new SetNodePool<>(StubNode::new) : new TimedNodePool<>(StubNode::new);
+        used = new ArrayDeque<>(live);
+        for(next = 0; next < live; next++) {
+            nodePool.get(next).ifPresent(used::addLast);
+        }
+    }
+
+
+    /**
+     * Releases the oldest node and gets a new one.
+     *
+     * @return The new node.
+     */
+    @Benchmark
+    public DecoratedNode<Integer> churn() {
+        nodePool.release(used.pollFirst());
+        var n = nodePool.get(next++).orElseThrow();
+        used.addLast(n);
+        return n;
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.vqnxiv.benchmarks;
+
+
+import io.github.vqnxiv.node.SetNodePool;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.view.NodeVirtualizer;
+import javafx.scene.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * {@link NodeVirtualizer} refreshes under simulated pans.
+ * <p>
+ * The JavaFX toolkit is not started: the virtualizer only lays out
+ * {@link StubNode}s on its internal pane, which does not require it.
+ * This measures the structure queries, pool churn and relocations 
+ * but not the rendering.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Djava.awt.headless=true" })
+public class RefreshBenchmark {
+
+    /**
+     * Number of steps of a pan before it goes back.
+     */
+    private static final int STEPS = 256;
+
+
+    /**
+     * Number of elements.
+     */
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    /**
+     * Distribution of the elements.
+     */
+    @Param({ "UNIFORM", "CLUSTERED" })
+    public Datasets.Distribution distribution;
+
+    /**
+     * Structure displayed by the virtualizer.
+     */
+    @Param({ "LIST", "MATRIX" })
+    public Datasets.Kind kind;
+
+    /**
+     * Distance of a single pan step, in both directions.
+     */
+    @Param({ "10", "400" })
+    public double step;
+
+    /**
+     * The virtualizer.
+     */
+    private NodeVirtualizer virtualizer;
+
+    /**
+     * Number of steps done in the current direction.
+     */
+    private int steps;
+
+    /**
+     * Current direction.
+     */
+    private double direction = -1d;
+
+
+    /**
+     * Creates the virtualizer.
+     */
+    @Setup
+    public void setup() {
+        var structure = Datasets.structure(kind, Datasets.elements(size, distribution, 42L));
+        var pool = new SetNodePool<CoordinatesElement<Integer>>(StubNode::new);
+
+        virtualizer = new NodeVirtualizer(List.of(new NodeVirtualizer.StructureToPool<>(structure, pool)));
+        virtualizer.viewWidth().set(Datasets.VIEW_WIDTH);
+        virtualizer.viewHeight().set(Datasets.VIEW_HEIGHT);
+        virtualizer.widthOffset().set(Datasets.EXTENT / 2d);
+        virtualizer.heightOffset().set(Datasets.EXTENT / 2d);
+    }
+
+
+    /**
+     * Pans the view diagonally by one step, which refreshes it.
+     *
+     * @return The view.
+     */
+    @Benchmark
+    public Node pan() {
+        if(++steps == STEPS) {
+            steps = 0;
+            direction = -direction;
+        }
+        virtualizer.shiftBy(direction * step, direction * step);
+        return virtualizer.getView();
+    }
+}
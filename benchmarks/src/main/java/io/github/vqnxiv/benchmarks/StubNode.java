@@ -0,0 +1,77 @@
+package io.github.vqnxiv.benchmarks;
+
+
+import io.github.vqnxiv.node.DecoratedNode;
+import javafx.scene.Node;
+import javafx.scene.shape.Rectangle;
+
+import java.util.Optional;
+
+
+/**
+ * Minimal {@link DecoratedNode} backed by a {@link Rectangle}, which can be
+ * created and laid out without starting the JavaFX toolkit.
+ *
+ * @param <D> Type of decorator.
+ */
+public final class StubNode<D> implements DecoratedNode<D> {
+
+    /**
+     * The node.
+     */
+    private final Rectangle rectangle = new Rectangle(10d, 10d);
+
+    /**
+     * The decorator, {@code null} if none.
+     */
+    private D decorator;
+
+
+    /**
+     * Constructor.
+     *
+     * @param d Decorator.
+     */
+    public StubNode(D d) {
+        decorator = d;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The node.
+     */
+    @Override
+    public Node getNode() {
+        return rectangle;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The decorator.
+     */
+    @Override
+    public Optional<D> getDecorator() {
+        return Optional.ofNullable(decorator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param d The decorator.
+     */
+    @Override
+    public void setDecorator(D d) {
+        decorator = d;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearDecoration() {
+        decorator = null;
+    }
+}
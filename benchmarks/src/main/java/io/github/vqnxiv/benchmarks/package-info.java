@@ -0,0 +1,5 @@
+/**
+ * JMH benchmarks of the hot paths: structure queries and changes,
+ * node pools and virtualizer refreshes.
+ */
+package io.github.vqnxiv.benchmarks;
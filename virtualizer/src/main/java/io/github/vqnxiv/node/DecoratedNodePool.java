@@ -1,7 +1,9 @@
 package io.github.vqnxiv.node;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -35,7 +37,13 @@ public interface DecoratedNodePool<D> {
      * @return Multiple instances of DecoratedNode.
      */
     default Collection<DecoratedNode<D>> getAll(Collection<D> ds) {
-        return ds.stream().map(this::get).flatMap(Optional::stream).toList();
+        List<DecoratedNode<D>> l = new ArrayList<>(ds.size());
+        
+        for(D d : ds) {
+            get(d).ifPresent(l::add);
+        }
+        
+        return l;
     }
 
     /**
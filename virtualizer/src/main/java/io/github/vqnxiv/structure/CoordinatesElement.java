@@ -98,6 +98,60 @@ public class CoordinatesElement<E> {
         return isIn(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY());
     }
 
+    /**
+     * Whether any part of this element intersects with the given area.
+     * <p>
+     * An element covers {@code [x, x + width] * [y, y + height]}, so
+     * for an element without extents ({@link #getWidth()} and {@link #getHeight()}
+     * are both {@code 0}) this is the same as
+     * {@link #isIn(double, double, double, double)}.
+     *
+     * @param topLeftX      Top left corner X coordinate.
+     * @param topLeftY      Top left corner Y coordinate.
+     * @param bottomRightX  Bottom right corner X coordinate.
+     * @param bottomRightY  Bottom right corner Y coordinate.
+     * @return {@code true} if this element intersects with the area.
+     */
+    public boolean intersects(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        return x <= bottomRightX && x + getWidth() >= topLeftX
+            && y <= bottomRightY && y + getHeight() >= topLeftY;
+    }
+
+    /**
+     * Whether any part of this element intersects with the given area.
+     *
+     * @param topLeft       Top left corner.
+     * @param bottomRight   Bottom right corner.
+     * @return {@code true} if this element intersects with the area.
+     */
+    public boolean intersects(Point2D topLeft, Point2D bottomRight) {
+        return intersects(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY());
+    }
+
+    /**
+     * Getter for the width of the element, i.e how far it extends
+     * to the right of its coordinates. Elements are points by default.
+     *
+     * @return The width, {@code 0}.
+     * 
+     * @see SizedCoordinatesElement
+     */
+    public double getWidth() {
+        return 0d;
+    }
+
+    /**
+     * Getter for the height of the element, i.e how far it extends
+     * below its coordinates. Elements are points by default.
+     *
+     * @return The height, {@code 0}.
+     *
+     * @see SizedCoordinatesElement
+     */
+    public double getHeight() {
+        return 0d;
+    }
+
     /**
      * Getter for the element.
      *
@@ -173,6 +227,18 @@ public class CoordinatesElement<E> {
         y = p.getY();
     }
 
+    /**
+     * Copies this element with other coordinates. Subclasses override it
+     * so that the copy keeps their type and properties.
+     *
+     * @param x X coordinate of the copy.
+     * @param y Y coordinate of the copy.
+     * @return The copy.
+     */
+    public CoordinatesElement<E> copyAt(double x, double y) {
+        return new CoordinatesElement<>(element, x, y);
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -187,9 +253,15 @@ public class CoordinatesElement<E> {
         return false;
     }
 
+    /**
+     * Only depends on the element, so that the hash code does not change
+     * when the coordinates do, e.g while this element is in a hash set.
+     * 
+     * @return The hash code of the element.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(element, x, y);
+        return Objects.hashCode(element);
     }
 
     @Override
@@ -4,10 +4,19 @@ package io.github.vqnxiv.structure;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.geometry.Point2D;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -77,6 +86,253 @@ public interface CoordinatesStructure<E> extends CoordinatesIterable<Coordinates
         return between(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY(), condition);
     }
 
+    /**
+     * Performs the given action for each element between the given coordinates.
+     * <p>
+     * Unlike {@link #between(double, double, double, double)}, implementations
+     * should not allocate an intermediary collection, so that this can be
+     * called on every frame. The structure should not be modified
+     * by the action.
+     *
+     * @param topLeftX      Top left corner X coordinate.
+     * @param topLeftY      Top left corner Y coordinate.
+     * @param bottomRightX  Bottom right corner X coordinate.
+     * @param bottomRightY  Bottom right corner Y coordinate.
+     * @param action        The action to perform.
+     */
+    default void forEachBetween(double topLeftX, double topLeftY,
+                                double bottomRightX, double bottomRightY,
+                                Consumer<? super CoordinatesElement<E>> action) {
+        between(topLeftX, topLeftY, bottomRightX, bottomRightY).forEach(action);
+    }
+
+    /**
+     * Creates a stream of the elements between the given coordinates.
+     * The stream can be made parallel, and the structure should not
+     * be modified while it is used.
+     * <p>
+     * The default implementation streams {@link #between(double, double, double, double)}.
+     *
+     * @param topLeftX      Top left corner X coordinate.
+     * @param topLeftY      Top left corner Y coordinate.
+     * @param bottomRightX  Bottom right corner X coordinate.
+     * @param bottomRightY  Bottom right corner Y coordinate.
+     * @return A sequential stream of all elements within the area.
+     */
+    default Stream<CoordinatesElement<E>> streamBetween(double topLeftX, double topLeftY,
+                                                        double bottomRightX, double bottomRightY) {
+        return between(topLeftX, topLeftY, bottomRightX, bottomRightY).stream();
+    }
+
+    /**
+     * Creates a stream of the elements between the given coordinates.
+     *
+     * @param topLeft       Top left corner.
+     * @param bottomRight   Bottom right corner.
+     * @return A sequential stream of all elements within the area.
+     * 
+     * @see #streamBetween(double, double, double, double) 
+     */
+    default Stream<CoordinatesElement<E>> streamBetween(Point2D topLeft, Point2D bottomRight) {
+        return streamBetween(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY());
+    }
+
+    /**
+     * Counts the elements between the given coordinates, i.e the size of
+     * {@link #between(double, double, double, double)} without creating it.
+     *
+     * @param topLeftX      Top left corner X coordinate.
+     * @param topLeftY      Top left corner Y coordinate.
+     * @param bottomRightX  Bottom right corner X coordinate.
+     * @param bottomRightY  Bottom right corner Y coordinate.
+     * @return The number of elements within the area.
+     */
+    default int countBetween(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        int[] count = new int[1];
+        forEachBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, c -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Counts the elements between the given coordinates.
+     *
+     * @param topLeft       Top left corner.
+     * @param bottomRight   Bottom right corner.
+     * @return The number of elements within the area.
+     * 
+     * @see #countBetween(double, double, double, double) 
+     */
+    default int countBetween(Point2D topLeft, Point2D bottomRight) {
+        return countBetween(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY());
+    }
+
+    /**
+     * Counts the elements in each bin of a grid which divides the given area
+     * in {@code columns} bins along the X axis and {@code rows} bins along
+     * the Y axis, e.g to draw a heat map.
+     * <p>
+     * The element at {@code (x, y)} is in the column
+     * {@code min(columns - 1, (int) ((x - topLeftX) / (bottomRightX - topLeftX) * columns))},
+     * and likewise for its row, so the elements on the right and bottom bounds
+     * of the area are in the last column and row. The bins contain the same
+     * elements as {@link #between(double, double, double, double)}.
+     *
+     * @param topLeftX      Top left corner X coordinate.
+     * @param topLeftY      Top left corner Y coordinate.
+     * @param bottomRightX  Bottom right corner X coordinate.
+     * @param bottomRightY  Bottom right corner Y coordinate.
+     * @param columns       Number of bins along the X axis.
+     * @param rows          Number of bins along the Y axis.
+     * @return The number of elements in each bin, in row major order:
+     * the bin at {@code (column, row)} is at index {@code row * columns + column}.
+     * @throws IllegalArgumentException If {@code columns} or {@code rows} is less than {@code 1}.
+     */
+    default int[] densityGrid(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                              int columns, int rows) {
+        if(columns < 1 || rows < 1) {
+            throw new IllegalArgumentException();
+        }
+        
+        int[] grid = new int[columns * rows];
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return grid;
+        }
+        
+        double width = bottomRightX - topLeftX;
+        double height = bottomRightY - topLeftY;
+        forEachBetween(
+            topLeftX, topLeftY, bottomRightX, bottomRightY, 
+            c -> {
+                int column = Math.min(columns - 1, (int) ((c.getX() - topLeftX) / width * columns));
+                int row = Math.min(rows - 1, (int) ((c.getY() - topLeftY) / height * rows));
+                grid[row * columns + column]++;
+            }
+        );
+        return grid;
+    }
+
+    /**
+     * Counts the elements in each bin of a grid over the given area.
+     *
+     * @param topLeft       Top left corner.
+     * @param bottomRight   Bottom right corner.
+     * @param columns       Number of bins along the X axis.
+     * @param rows          Number of bins along the Y axis.
+     * @return The number of elements in each bin, in row major order.
+     * 
+     * @see #densityGrid(double, double, double, double, int, int) 
+     */
+    default int[] densityGrid(Point2D topLeft, Point2D bottomRight, int columns, int rows) {
+        return densityGrid(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY(), columns, rows);
+    }
+
+    /**
+     * Gets the element which is the nearest to the given coordinates.
+     * 
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return The nearest element, or an empty optional if this structure is empty.
+     */
+    default Optional<CoordinatesElement<E>> nearest(double x, double y) {
+        var l = kNearest(x, y, 1);
+        return l.isEmpty() ? Optional.empty() : Optional.of(l.get(0));
+    }
+
+    /**
+     * Gets the element which is the nearest to the given coordinates.
+     *
+     * @param p Coordinates.
+     * @return The nearest element, or an empty optional if this structure is empty.
+     */
+    default Optional<CoordinatesElement<E>> nearest(Point2D p) {
+        return nearest(p.getX(), p.getY());
+    }
+
+    /**
+     * Gets the {@code k} elements which are the nearest to the given coordinates.
+     * <p>
+     * The default implementation compares every element of this structure;
+     * localized implementations should only look at the elements around
+     * the coordinates.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param k Maximum number of elements.
+     * @return The nearest elements, sorted from the nearest to the farthest.
+     */
+    default List<CoordinatesElement<E>> kNearest(double x, double y, int k) {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(k == 0) {
+            return new ArrayList<>();
+        }
+        
+        Comparator<CoordinatesElement<E>> byDistance = Comparator.comparingDouble(
+            c -> (c.getX() - x) * (c.getX() - x) + (c.getY() - y) * (c.getY() - y)
+        );
+        var farthest = new PriorityQueue<>(byDistance.reversed());
+        
+        for(var c : this) {
+            farthest.add(c);
+            if(farthest.size() > k) {
+                farthest.poll();
+            }
+        }
+        
+        var l = new ArrayList<>(farthest);
+        l.sort(byDistance);
+        return l;
+    }
+
+    /**
+     * Gets the {@code k} elements which are the nearest to the given coordinates.
+     *
+     * @param p Coordinates.
+     * @param k Maximum number of elements.
+     * @return The nearest elements, sorted from the nearest to the farthest.
+     */
+    default List<CoordinatesElement<E>> kNearest(Point2D p, int k) {
+        return kNearest(p.getX(), p.getY(), k);
+    }
+
+    /**
+     * Gets all the elements within the given distance of the given coordinates,
+     * i.e a hit test for elements displayed as discs.
+     *
+     * @param x      X coordinate.
+     * @param y      Y coordinate.
+     * @param radius Maximum distance (inclusive).
+     * @return Collection of all elements within the distance.
+     */
+    default Collection<CoordinatesElement<E>> within(double x, double y, double radius) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+        if(!(radius >= 0)) {
+            return l;
+        }
+        
+        forEachBetween(x - radius, y - radius, x + radius, y + radius, c -> {
+            double dx = c.getX() - x;
+            double dy = c.getY() - y;
+            // not compared to radius^2, which may be rounded below the squared distance
+            if(Math.sqrt(dx * dx + dy * dy) <= radius) {
+                l.add(c);
+            }
+        });
+        return l;
+    }
+
+    /**
+     * Gets all the elements within the given distance of the given coordinates.
+     *
+     * @param p      Coordinates.
+     * @param radius Maximum distance (inclusive).
+     * @return Collection of all elements within the distance.
+     */
+    default Collection<CoordinatesElement<E>> within(Point2D p, double radius) {
+        return within(p.getX(), p.getY(), radius);
+    }
+
     /**
      * Minimum width of this structure.
      *
@@ -141,6 +397,40 @@ public interface CoordinatesStructure<E> extends CoordinatesIterable<Coordinates
      */
     ReadOnlyDoubleProperty maximumHeight();
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default implementation wraps {@link #iterator()} and reports
+     * {@link #size()}, so it only splits in batches of elements; structures
+     * should override it to split along their own layout.
+     *
+     * @return A spliterator over the elements of this structure.
+     */
+    @Override
+    default Spliterator<CoordinatesElement<E>> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.NONNULL);
+    }
+
+    /**
+     * Creates a sequential stream of the elements of this structure.
+     * The structure should not be modified while it is used.
+     *
+     * @return A sequential stream of the elements.
+     */
+    default Stream<CoordinatesElement<E>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Creates a parallel stream of the elements of this structure.
+     * The structure should not be modified while it is used.
+     *
+     * @return A parallel stream of the elements.
+     */
+    default Stream<CoordinatesElement<E>> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     /**
      * Returns {@code true} if this structure contains no elements.
      * 
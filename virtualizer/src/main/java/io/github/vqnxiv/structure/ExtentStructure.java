@@ -0,0 +1,69 @@
+package io.github.vqnxiv.structure;
+
+
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+
+/**
+ * Structure which indexes the extents of its elements
+ * (see {@link CoordinatesElement#getWidth()} and {@link CoordinatesElement#getHeight()})
+ * and not only their coordinates.
+ * <p>
+ * The {@code between} lookups only test the coordinates of the elements,
+ * i.e their top left corner. The {@code intersecting} lookups find all the
+ * elements which have any part in the given area, including the ones whose
+ * top left corner is outside of it, so that no margin has to be guessed
+ * around an area to find everything which should be displayed in it.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see SizedCoordinatesElement
+ */
+public interface ExtentStructure<E> extends CoordinatesStructure<E> {
+
+    /**
+     * Gets all elements which intersect with the given area.
+     *
+     * @param topLeftX      Top left corner X coordinate.
+     * @param topLeftY      Top left corner Y coordinate.
+     * @param bottomRightX  Bottom right corner X coordinate.
+     * @param bottomRightY  Bottom right corner Y coordinate.
+     * @return Collection of all elements which intersect with the area.
+     */
+    default Collection<CoordinatesElement<E>> intersecting(double topLeftX, double topLeftY,
+                                                           double bottomRightX, double bottomRightY) {
+        var l = new ArrayList<CoordinatesElement<E>>();
+        forEachIntersecting(topLeftX, topLeftY, bottomRightX, bottomRightY, l::add);
+        return l;
+    }
+
+    /**
+     * Gets all elements which intersect with the given area.
+     *
+     * @param topLeft       Top left corner.
+     * @param bottomRight   Bottom right corner.
+     * @return Collection of all elements which intersect with the area.
+     */
+    default Collection<CoordinatesElement<E>> intersecting(Point2D topLeft, Point2D bottomRight) {
+        return intersecting(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY());
+    }
+
+    /**
+     * Performs the given action for each element which intersects with
+     * the given area, without allocating an intermediary collection.
+     * The structure should not be modified by the action.
+     *
+     * @param topLeftX      Top left corner X coordinate.
+     * @param topLeftY      Top left corner Y coordinate.
+     * @param bottomRightX  Bottom right corner X coordinate.
+     * @param bottomRightY  Bottom right corner Y coordinate.
+     * @param action        The action to perform.
+     */
+    void forEachIntersecting(double topLeftX, double topLeftY,
+                             double bottomRightX, double bottomRightY,
+                             Consumer<? super CoordinatesElement<E>> action);
+}
@@ -56,6 +56,24 @@ public interface LayoutableStructure<E> extends CoordinatesStructure<E> {
      */
     void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m);
 
+    /**
+     * Performs the given changes as a single batch. The dimension properties
+     * are only updated once the batch ends, and the events of the changes are
+     * merged so that listeners are notified once per kind of change
+     * instead of once per change.
+     * <p>
+     * Batches can be nested, in which case everything is dispatched when
+     * the outermost one ends. During a batch, the dimension properties
+     * may not reflect the changes which already happened.
+     * <p>
+     * The default implementation simply runs the action.
+     * 
+     * @param action The changes to perform.
+     */
+    default void batch(Runnable action) {
+        action.run();
+    }
+
 
     /**
      * The structure will perform the given action when one or more
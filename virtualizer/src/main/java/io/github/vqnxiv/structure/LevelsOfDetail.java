@@ -0,0 +1,72 @@
+package io.github.vqnxiv.structure;
+
+
+/**
+ * Levels of detail of a structure, each of which is a structure of
+ * aggregates meant to be displayed within a range of scales, so that
+ * zoomed out views don't have to materialize every element.
+ * <p>
+ * Level {@code 0} is the finest one. The ranges of the levels are contiguous,
+ * and below {@link #getFullDetailScale()}: at larger scales the elements
+ * themselves should be displayed.
+ *
+ * @param <A> Type of the aggregates.
+ *
+ * @see io.github.vqnxiv.structure.impl.ClusterPyramid
+ */
+public interface LevelsOfDetail<A> {
+
+    /**
+     * Number of levels.
+     *
+     * @return The number of levels.
+     */
+    int levelCount();
+
+    /**
+     * Gets a level.
+     *
+     * @param i Index of the level, {@code 0} being the finest one.
+     * @return The aggregates of the level.
+     */
+    CoordinatesStructure<A> level(int i);
+
+    /**
+     * Scale under which the elements are aggregated.
+     *
+     * @return The full detail scale.
+     */
+    double getFullDetailScale();
+
+    /**
+     * Smallest scale at which a level should be displayed.
+     *
+     * @param i Index of the level.
+     * @return The minimum scale, inclusive.
+     */
+    double minScale(int i);
+
+    /**
+     * Scale from which a level should no longer be displayed.
+     *
+     * @param i Index of the level.
+     * @return The maximum scale, exclusive.
+     */
+    double maxScale(int i);
+
+    /**
+     * Level which should be displayed at a scale.
+     *
+     * @param scale The scale.
+     * @return The index of the level, or {@code -1} if the
+     * elements themselves should be displayed.
+     */
+    default int levelFor(double scale) {
+        for(int i = 0; i < levelCount(); i++) {
+            if(scale >= minScale(i) && scale < maxScale(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
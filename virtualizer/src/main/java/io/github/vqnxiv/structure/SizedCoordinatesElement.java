@@ -0,0 +1,124 @@
+package io.github.vqnxiv.structure;
+
+
+import javafx.geometry.Point2D;
+
+
+/**
+ * {@link CoordinatesElement} which also has a width and a height,
+ * i.e which covers the area {@code [x, x + width] * [y, y + height]}
+ * instead of a single point.
+ * <p>
+ * The extents can not be changed once the element is created, as
+ * structures which index them (see {@link ExtentStructure}) would
+ * otherwise not be notified of the change. Like the element itself,
+ * they are not taken into account by {@link #equals(Object)}
+ * and {@link #hashCode()}.
+ *
+ * @param <E> The type of object.
+ *
+ * @see ExtentStructure
+ */
+public class SizedCoordinatesElement<E> extends CoordinatesElement<E> {
+
+    /**
+     * The width of the element.
+     */
+    private final double width;
+
+    /**
+     * The height of the element.
+     */
+    private final double height;
+
+
+    /**
+     * Constructor.
+     *
+     * @param e      Element.
+     * @param width  Width.
+     * @param height Height.
+     */
+    public SizedCoordinatesElement(E e, double width, double height) {
+        this(e, 0d, 0d, width, height);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param e      Element.
+     * @param x      X coordinate.
+     * @param y      Y coordinate.
+     * @param width  Width.
+     * @param height Height.
+     */
+    public SizedCoordinatesElement(E e, double x, double y, double width, double height) {
+        super(e, x, y);
+
+        if(width < 0 || height < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param e      Element.
+     * @param p      Coordinates.
+     * @param width  Width.
+     * @param height Height.
+     */
+    public SizedCoordinatesElement(E e, Point2D p, double width, double height) {
+        this(e, p.getX(), p.getY(), width, height);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param c The sized coordinates element to copy.
+     */
+    public SizedCoordinatesElement(SizedCoordinatesElement<E> c) {
+        this(c.getElement(), c.getX(), c.getY(), c.width, c.height);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The width.
+     */
+    @Override
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The height.
+     */
+    @Override
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param x X coordinate of the copy.
+     * @param y Y coordinate of the copy.
+     * @return The copy, with the same extents.
+     */
+    @Override
+    public SizedCoordinatesElement<E> copyAt(double x, double y) {
+        return new SizedCoordinatesElement<>(getElement(), x, y, width, height);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%.1f, %.1f) [%.1f x %.1f] ", getX(), getY(), width, height) + getElement().toString();
+    }
+}
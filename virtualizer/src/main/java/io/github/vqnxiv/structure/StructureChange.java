@@ -3,6 +3,8 @@ package io.github.vqnxiv.structure;
 
 import javafx.geometry.Point2D;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,10 +18,15 @@ import java.util.Map;
  *     <li>removing one or more elements.</li>
  * </ul>
  * <p>
- * Changes are created through the three factory methods
+ * Changes are created through the factory methods
  * {@link #moved(LayoutableStructure, Map, Point2D, Point2D)},
+ * {@link #moved(LayoutableStructure, List, double[], Point2D, Point2D, boolean)},
  * {@link #added(MutableStructure, List, Point2D, Point2D)} and
  * {@link #removed(MutableStructure, List, Point2D, Point2D)}.
+ * <p>
+ * A {@link DirtyRegion}, created with {@link #dirty(CoordinatesStructure, Point2D, Point2D)},
+ * replaces changes which could not be given one by one to a slow consumer:
+ * it only tells that anything within its area may have changed.
  */
 /*
     Possibility of merging all three subclass into one?
@@ -50,6 +57,34 @@ public abstract class StructureChange {
         return new Move<>(structure, elements, topLeft, bottomRight);
     }
 
+    /**
+     * Factory method for a move change, which does not create an object per
+     * moved element. The coordinates of the {@code i}-th element are stored
+     * in the given array at indexes {@code 4i} (old X), {@code 4i + 1} (old Y),
+     * {@code 4i + 2} (new X) and {@code 4i + 3} (new Y).
+     * <p>
+     * Neither the list nor the array are copied, and they should not be
+     * modified afterwards.
+     *
+     * @param structure   The structure in which the change happened.
+     * @param elements    The concerned elements. Only their {@link CoordinatesElement#getElement()} is used.
+     * @param coordinates Their old and new coordinates.
+     * @param topLeft     The top left coordinates of the area in which the change happened.
+     * @param bottomRight The bottom right coordinates of the area in which the change happened.
+     * @param movedAll    Whether every element of the structure moved.
+     * @param <E> The type of elements in the structure.
+     * @return A change object containing the above information.
+     */
+    public static <E> Move<E> moved(LayoutableStructure<E> structure, List<CoordinatesElement<E>> elements,
+                                    double[] coordinates, Point2D topLeft, Point2D bottomRight, 
+                                    boolean movedAll) {
+        if(coordinates.length < 4 * elements.size()) {
+            throw new IllegalArgumentException();
+        }
+        
+        return new Move<>(structure, elements, coordinates, topLeft, bottomRight, movedAll);
+    }
+
     /**
      * Factory method for an addition change.
      *
@@ -80,6 +115,20 @@ public abstract class StructureChange {
         return new Removal<>(structure, elements, topLeft, bottomRight);
     }
 
+    /**
+     * Factory method for a dirty region change.
+     *
+     * @param structure   The structure in which the changes happened.
+     * @param topLeft     The top left coordinates of the area in which the changes happened.
+     * @param bottomRight The bottom right coordinates of the area in which the changes happened.
+     * @param <E> The type of elements in the structure.
+     * @return A change object containing the above information.
+     */
+    public static <E> DirtyRegion<E> dirty(CoordinatesStructure<E> structure, 
+                                           Point2D topLeft, Point2D bottomRight) {
+        return new DirtyRegion<>(structure, topLeft, bottomRight);
+    }
+
 
     /**
      * Top left coordinates.
@@ -123,8 +172,37 @@ public abstract class StructureChange {
     }
 
     
+    /**
+     * Action performed on each moved element of a {@link Move},
+     * without creating any object.
+     * 
+     * @param <E> Type of elements in the structure.
+     */
+    @FunctionalInterface
+    public interface MoveAction<E> {
+
+        /**
+         * Performs this action on a moved element.
+         * 
+         * @param element The element.
+         * @param oldX    Its X coordinate before the move.
+         * @param oldY    Its Y coordinate before the move.
+         * @param newX    Its X coordinate after the move.
+         * @param newY    Its Y coordinate after the move.
+         */
+        void accept(E element, double oldX, double oldY, double newX, double newY);
+    }
+    
+    
     /**
      * Concrete implementation of {@link StructureChange}.
+     * <p>
+     * Moves are either created from a map, or from a list of elements
+     * and an array of coordinates, in which case the map returned by
+     * {@link #elements()} is only created when it is first called.
+     * Listeners which handle many moved elements should prefer
+     * {@link #forEachMoved(MoveAction)}, and {@link #movedAll()} to
+     * know whether every element of the structure moved.
      * 
      * @param <E> Type of elements in the structure.
      */
@@ -136,9 +214,26 @@ public abstract class StructureChange {
         private final LayoutableStructure<E> structure;
 
         /**
-         * The elements.
+         * The elements, or {@code null} if not created yet. Volatile as the
+         * change may be given to listeners on other threads.
+         */
+        private volatile Map<CoordinatesElement<E>, Point2D> elements;
+
+        /**
+         * The moved elements, or {@code null} if this change was created from a map.
          */
-        private final Map<CoordinatesElement<E>, Point2D> elements;
+        private final List<CoordinatesElement<E>> moved;
+
+        /**
+         * Old and new coordinates of {@link #moved}, see
+         * {@link #moved(LayoutableStructure, List, double[], Point2D, Point2D, boolean)}.
+         */
+        private final double[] coordinates;
+
+        /**
+         * Whether every element of the structure moved.
+         */
+        private final boolean all;
 
 
         /**
@@ -154,6 +249,28 @@ public abstract class StructureChange {
             super(topLeft, bottomRight);
             this.structure = structure;
             this.elements = Map.copyOf(elements);
+            moved = null;
+            coordinates = null;
+            all = false;
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param structure   The structure in which the change happened.
+         * @param moved       The concerned elements.
+         * @param coordinates Their old and new coordinates.
+         * @param topLeft     The top left coordinates of the area in which the change happened.
+         * @param bottomRight The bottom right coordinates of the area in which the change happened.
+         * @param all         Whether every element of the structure moved.
+         */
+        private Move(LayoutableStructure<E> structure, List<CoordinatesElement<E>> moved, double[] coordinates,
+                     Point2D topLeft, Point2D bottomRight, boolean all) {
+            super(topLeft, bottomRight);
+            this.structure = structure;
+            this.moved = moved;
+            this.coordinates = coordinates;
+            this.all = all;
         }
 
         
@@ -167,19 +284,91 @@ public abstract class StructureChange {
         }
 
         /**
-         * The concerned elements.
+         * The concerned elements, with their old coordinates
+         * mapped to their new coordinates.
          *
          * @return The concerned elements.
          */
         public Map<CoordinatesElement<E>, Point2D> elements() {
-            return elements;
+            var e = elements;
+            if(e == null) {
+                var m = new HashMap<CoordinatesElement<E>, Point2D>(moved.size() * 4 / 3 + 1);
+                for(int i = 0; i < moved.size(); i++) {
+                    int k = 4 * i;
+                    m.put(
+                        moved.get(i).copyAt(coordinates[k], coordinates[k + 1]),
+                        new Point2D(coordinates[k + 2], coordinates[k + 3])
+                    );
+                }
+                e = Collections.unmodifiableMap(m);
+                elements = e;
+            }
+            
+            return e;
+        }
+
+        /**
+         * Number of moved elements.
+         * 
+         * @return The number of moved elements.
+         */
+        public int size() {
+            return (moved != null) ? moved.size() : elements().size();
+        }
+
+        /**
+         * Whether every element of the structure moved, e.g after a new layout
+         * was applied. Listeners may then refresh everything rather than
+         * handling each element. This is given by the structure when the change 
+         * is created, and is always {@code false} for a change created from a map.
+         * 
+         * @return {@code true} if every element of the structure moved.
+         */
+        public boolean movedAll() {
+            return all;
+        }
+
+        /**
+         * Performs the given action on each moved element.
+         * 
+         * @param action The action.
+         */
+        public void forEachMoved(MoveAction<? super E> action) {
+            forEachMovedElement((c, oldX, oldY, newX, newY) -> action.accept(c.getElement(), oldX, oldY, newX, newY));
+        }
+
+        /**
+         * Performs the given action on each moved element, given as the 
+         * {@link CoordinatesElement} of the structure rather than its value.
+         * Its own coordinates should not be used, as they may have changed 
+         * since the move.
+         * 
+         * @param action The action.
+         */
+        public void forEachMovedElement(MoveAction<? super CoordinatesElement<E>> action) {
+            if(moved == null) {
+                for(var e : elements().entrySet()) {
+                    action.accept(
+                        e.getKey(), e.getKey().getX(), e.getKey().getY(), 
+                        e.getValue().getX(), e.getValue().getY()
+                    );
+                }
+                return;
+            }
+            
+            for(int i = 0; i < moved.size(); i++) {
+                int k = 4 * i;
+                action.accept(
+                    moved.get(i), coordinates[k], coordinates[k + 1], coordinates[k + 2], coordinates[k + 3]
+                );
+            }
         }
 
         @Override
         public String toString() {
             return "Move {" +
                 "structure = " + structure +
-                ", elements = " + elements +
+                ", elements = " + elements() +
                 '}';
         }
 
@@ -188,7 +377,7 @@ public abstract class StructureChange {
             if(this == o) return true;
             
             if(o instanceof Move<?> m) {
-                return structure.equals(m.structure) && elements.equals(m.elements);
+                return structure.equals(m.structure) && elements().equals(m.elements());
             }
             
             return false;
@@ -197,7 +386,7 @@ public abstract class StructureChange {
         @Override
         public int hashCode() {
             int result = structure != null ? structure.hashCode() : 0;
-            result = 31 * result + (elements != null ? elements.hashCode() : 0);
+            result = 31 * result + elements().hashCode();
             return result;
         }
     }
@@ -360,4 +549,74 @@ public abstract class StructureChange {
             return false;
         }
     }
+
+
+    /**
+     * Change which replaces other changes that were coalesced, e.g because
+     * their consumer could not keep up with them. Any element within its
+     * area may have been moved, added or removed, and the elements
+     * in that area should be looked up again.
+     *
+     * @param <E> Type of elements in the structure.
+     */
+    public static class DirtyRegion<E> extends StructureChange {
+
+        /**
+         * The structure.
+         */
+        private final CoordinatesStructure<E> structure;
+
+
+        /**
+         * Constructor.
+         *
+         * @param structure   The structure in which the changes happened.
+         * @param topLeft     The top left coordinates of the area in which the changes happened.
+         * @param bottomRight The bottom right coordinates of the area in which the changes happened.
+         */
+        private DirtyRegion(CoordinatesStructure<E> structure, Point2D topLeft, Point2D bottomRight) {
+            super(topLeft, bottomRight);
+            this.structure = structure;
+        }
+
+
+        /**
+         * Getter for the structure in which the changes happened.
+         *
+         * @return The structure in which the changes happened.
+         */
+        public CoordinatesStructure<E> structure() {
+            return structure;
+        }
+
+
+        @Override
+        public String toString() {
+            return "DirtyRegion {" +
+                "structure = " + structure +
+                ", topLeft = " + topLeft() +
+                ", bottomRight = " + bottomRight() +
+                '}';
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+
+            if(o instanceof DirtyRegion<?> d) {
+                return structure.equals(d.structure) 
+                    && topLeft().equals(d.topLeft()) && bottomRight().equals(d.bottomRight());
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = structure != null ? structure.hashCode() : 0;
+            result = 31 * result + topLeft().hashCode();
+            result = 31 * result + bottomRight().hashCode();
+            return result;
+        }
+    }
 }
@@ -0,0 +1,571 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+
+/**
+ * Base class for immutable structures which store their elements by index,
+ * sorted by the cell of a uniform grid they belong to.
+ * <p>
+ * Implementations only have to give access to the coordinates and value
+ * of each index, and to the start index of each cell. There are no
+ * {@link CoordinatesElement} kept in memory: they are created when they
+ * are requested, e.g by {@link #iterator()} or when iterating over the view
+ * returned by {@link #between(double, double, double, double)}. Modifying
+ * them has no effect on the structure. {@link #forEachIndexBetween(double, double, double, double, IntConsumer)}
+ * together with {@link #getX(int)}, {@link #getY(int)} and {@link #getValue(int)}
+ * allow lookups without any allocation.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see CompactCoordinatesMatrix
+ * @see GridIndex
+ */
+public abstract class AbstractIndexedMatrix<E> implements CoordinatesStructure<E>, LocalizedStructure<E> {
+
+    /**
+     * Number of columns.
+     */
+    private final int cols;
+
+    /**
+     * Number of rows.
+     */
+    private final int rows;
+
+    /**
+     * Width of a column.
+     */
+    private final double cellWidth;
+
+    /**
+     * Height of a row.
+     */
+    private final double cellHeight;
+
+    /**
+     * Minimum width in this structure.
+     */
+    private final DoubleProperty minWidth = new SimpleDoubleProperty();
+
+    /**
+     * Minimum height in this structure.
+     */
+    private final DoubleProperty minHeight = new SimpleDoubleProperty();
+
+    /**
+     * Maximum width in this structure.
+     */
+    private final DoubleProperty maxWidth = new SimpleDoubleProperty();
+
+    /**
+     * Maximum height in this structure.
+     */
+    private final DoubleProperty maxHeight = new SimpleDoubleProperty();
+
+
+    /**
+     * Constructor.
+     *
+     * @param cols Number of columns.
+     * @param rows Number of rows.
+     * @param minX Minimum X coordinate.
+     * @param minY Minimum Y coordinate.
+     * @param maxX Maximum X coordinate.
+     * @param maxY Maximum Y coordinate.
+     */
+    protected AbstractIndexedMatrix(int cols, int rows, double minX, double minY, double maxX, double maxY) {
+        if(cols < 1 || rows < 1 || minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException();
+        }
+
+        this.cols = cols;
+        this.rows = rows;
+        cellWidth = (maxX > minX) ? (maxX - minX) / cols : 1d;
+        cellHeight = (maxY > minY) ? (maxY - minY) / rows : 1d;
+
+        minWidth.set(minX);
+        minHeight.set(minY);
+        maxWidth.set(maxX);
+        maxHeight.set(maxY);
+    }
+
+
+    /**
+     * Getter for the X coordinate of an index.
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The X coordinate.
+     */
+    public abstract double getX(int index);
+
+    /**
+     * Getter for the Y coordinate of an index.
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The Y coordinate.
+     */
+    public abstract double getY(int index);
+
+    /**
+     * Getter for the value of an index.
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The value.
+     */
+    public abstract E getValue(int index);
+
+    /**
+     * Getter for the first index of a cell. The indices of
+     * cell {@code c} are {@code [cellStart(c), cellStart(c + 1))}.
+     *
+     * @param cell The cell, between {@code 0} and {@code cols * rows}
+     *             (both inclusive).
+     * @return The first index of the cell.
+     */
+    protected abstract int cellStart(int cell);
+
+    /**
+     * Creates a new {@link CoordinatesElement} for an index.
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return A new element with the value and coordinates of the index.
+     */
+    public CoordinatesElement<E> elementAt(int index) {
+        return new CoordinatesElement<>(getValue(index), getX(index), getY(index));
+    }
+
+    /**
+     * Column of the given X coordinate, clamped to the grid.
+     *
+     * @param x X coordinate.
+     * @return Column index.
+     */
+    private int colOf(double x) {
+        int c = (int) ((x - minWidth.get()) / cellWidth);
+        return Math.max(0, Math.min(cols - 1, c));
+    }
+
+    /**
+     * Row of the given Y coordinate, clamped to the grid.
+     *
+     * @param y Y coordinate.
+     * @return Row index.
+     */
+    private int rowOf(double y) {
+        int r = (int) ((y - minHeight.get()) / cellHeight);
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    /**
+     * Whether the index is within the given area.
+     *
+     * @param i            The index.
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return {@code true} if it is within the area.
+     */
+    private boolean isIn(int i, double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        double x = getX(i);
+        double y = getY(i);
+        return x >= topLeftX && x <= bottomRightX && y >= topLeftY && y <= bottomRightY;
+    }
+
+    /**
+     * Gives all the indices within the given area to the given action.
+     * Cells which are entirely within the area are not checked index by index.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action.
+     */
+    public void forEachIndexBetween(double topLeftX, double topLeftY,
+                                    double bottomRightX, double bottomRightY, IntConsumer action) {
+        if(isEmpty() || topLeftX > bottomRightX || topLeftY > bottomRightY
+            || topLeftX > maxWidth.get() || topLeftY > maxHeight.get()
+            || bottomRightX < minWidth.get() || bottomRightY < minHeight.get()) {
+            return;
+        }
+
+        int minC = colOf(topLeftX);
+        int maxC = colOf(bottomRightX);
+        int minR = rowOf(topLeftY);
+        int maxR = rowOf(bottomRightY);
+
+        for(int r = minR; r <= maxR; r++) {
+            double y0 = minHeight.get() + r * cellHeight;
+            boolean rowIn = r > minR && r < maxR && y0 >= topLeftY && y0 + cellHeight <= bottomRightY;
+
+            for(int c = minC; c <= maxC; c++) {
+                double x0 = minWidth.get() + c * cellWidth;
+                boolean in = rowIn && c > minC && c < maxC && x0 >= topLeftX && x0 + cellWidth <= bottomRightX;
+
+                int end = cellStart(r * cols + c + 1);
+                for(int i = cellStart(r * cols + c); i < end; i++) {
+                    if(in || isIn(i, topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                        action.accept(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the indices within the given area as a view.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return View over the indices.
+     */
+    public IndexView indicesBetween(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        var v = new IndexView();
+        forEachIndexBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, v::add);
+        return v;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned collection is an {@link IndexView}.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY) {
+        return indicesBetween(topLeftX, topLeftY, bottomRightX, bottomRightY);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned collection is an {@link IndexView}.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY,
+                                                     Predicate<E> condition) {
+        var v = new IndexView();
+        forEachIndexBetween(
+            topLeftX, topLeftY, bottomRightX, bottomRightY,
+            i -> {
+                if(condition.test(getValue(i))) {
+                    v.add(i);
+                }
+            }
+        );
+        return v;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A new element is created for each index.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        forEachIndexBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, i -> action.accept(elementAt(i)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Min width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumWidth() {
+        return minWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Min height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumHeight() {
+        return minHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param c The element to check.
+     * @return {@code true} if it contains it; {@code false} otherwise.
+     */
+    @Override
+    public boolean containsCoordinates(CoordinatesElement<E> c) {
+        if(isEmpty() || !c.isIn(getMinimumWidth(), getMinimumHeight(), getMaximumWidth(), getMaximumHeight())) {
+            return false;
+        }
+
+        int cell = rowOf(c.getY()) * cols + colOf(c.getX());
+        int end = cellStart(cell + 1);
+        for(int i = cellStart(cell); i < end; i++) {
+            if(getX(i) == c.getX() && getY(i) == c.getY() && getValue(i).equals(c.getElement())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to find.
+     * @return The coordinates of the given element if it is in the structure.
+     */
+    @Override
+    public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        for(int i = 0; i < size(); i++) {
+            if(getValue(i).equals(element)) {
+                return Optional.of(elementAt(i));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The elements to find.
+     * @return The coordinates of the given elements that are in the structure.
+     */
+    @Override
+    public Map<E, CoordinatesElement<E>> coordinatesOf(Collection<E> elements) {
+        var m = new HashMap<E, CoordinatesElement<E>>();
+
+        for(var e : elements) {
+            coordinatesOf(e).ifPresent(
+                c -> m.put(e, c)
+            );
+        }
+
+        return m;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return an Iterator.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new CoordinatesIterator<>() {
+
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public CoordinatesElement<E> next() {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return elementAt(next++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("[");
+        for(int i = 0; i < size(); i++) {
+            sb.append((i == 0) ? "" : ", ").append(elementAt(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+
+        if(o instanceof AbstractIndexedMatrix<?> m && m.size() == size()) {
+            for(int i = 0; i < size(); i++) {
+                if(m.getX(i) != getX(i) || m.getY(i) != getY(i) || !m.getValue(i).equals(getValue(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for(int i = 0; i < size(); i++) {
+            h = 31 * h + elementAt(i).hashCode();
+        }
+        return h;
+    }
+
+
+    /**
+     * Lightweight collection of indices of the structure. It only holds
+     * an {@code int} array; the {@link CoordinatesElement} are created
+     * when iterating over it.
+     */
+    public final class IndexView extends AbstractCollection<CoordinatesElement<E>> {
+
+        /**
+         * The indices.
+         */
+        private int[] indices = new int[16];
+
+        /**
+         * Number of indices.
+         */
+        private int size;
+
+
+        /**
+         * Constructor.
+         */
+        private IndexView() { }
+
+
+        /**
+         * Adds an index to this view.
+         *
+         * @param index The index.
+         */
+        private void add(int index) {
+            if(size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+
+        /**
+         * Getter for an index of this view.
+         *
+         * @param i Position in this view.
+         * @return The index in the structure.
+         */
+        public int indexAt(int i) {
+            if(i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException(i);
+            }
+            return indices[i];
+        }
+
+        /**
+         * Gives all the indices of this view to the given action.
+         *
+         * @param action The action.
+         */
+        public void forEachIndex(IntConsumer action) {
+            for(int i = 0; i < size; i++) {
+                action.accept(indices[i]);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the number of elements in this collection
+         */
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return an iterator over the elements contained in this collection
+         */
+        @Override
+        public Iterator<CoordinatesElement<E>> iterator() {
+            return new Iterator<>() {
+
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public CoordinatesElement<E> next() {
+                    if(!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return elementAt(indices[next++]);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Statistics and state of the adaptive mode of a {@link CoordinatesMatrix}.
+ * <p>
+ * The occupancy of the cells is sampled every so many modifications (sooner
+ * once an element was placed in a crowded cell), and the size of the areas
+ * given to the lookups is averaged. From these, {@link #shape(int, int, int, int, double, double)}
+ * computes the number of rows and columns the grid should move to: enough cells
+ * for the occupied ones to hold about {@link #getElementsPerCell()} elements each,
+ * but not so many that an average lookup visits more than {@link #MAX_CELLS_PER_QUERY}
+ * cells in each dimension. The grid moves toward that shape by steps of at most
+ * {@link #MAX_STEP} times its size, and only when it differs from the current one
+ * by at least {@link #MIN_CHANGE} times, so that it doesn't oscillate.
+ * <p>
+ * The new grid is bucketed on an {@link Executor} from a copy of the coordinates,
+ * then handed back as a {@link Regrid} which the matrix swaps in on its own thread,
+ * unless it was modified in between.
+ *
+ * @param <E> Type of elements.
+ */
+final class AdaptiveGrid<E> {
+
+    /**
+     * Grid bucketed in the background.
+     *
+     * @param cells    The cells.
+     * @param slots    Slots of the elements in the cells.
+     * @param modCount Modification count of the matrix when its coordinates were copied.
+     * @param <E> Type of elements.
+     */
+    record Regrid<E>(Collection<CoordinatesElement<E>>[][] cells, SlotIndex slots, int modCount) { }
+
+
+    /**
+     * Maximum number of cells an average lookup should visit in each dimension.
+     */
+    static final int MAX_CELLS_PER_QUERY = 32;
+
+    /**
+     * Maximum factor by which a dimension changes at once.
+     */
+    static final double MAX_STEP = 4d;
+
+    /**
+     * Minimum factor by which a dimension has to change for the grid to be rebuilt.
+     */
+    static final double MIN_CHANGE = 1.5d;
+
+    /**
+     * Maximum number of rows or columns.
+     */
+    static final int MAX_DIMENSION = 4_096;
+
+    /**
+     * Number of consecutive stale grids after which the matrix is
+     * re-gridded on its own thread.
+     */
+    static final int MAX_STALE = 2;
+
+    /**
+     * Minimum number of modifications between two samples.
+     */
+    private static final int MIN_CHANGES = 64;
+
+    /**
+     * Number of lookups between two samples.
+     */
+    private static final int QUERY_SAMPLE = 256;
+
+    /**
+     * Weight of a lookup in the average size of the lookups.
+     */
+    private static final double QUERY_WEIGHT = 0.05d;
+
+    /**
+     * Factor of {@link #elementsPerCell} from which a cell is crowded.
+     */
+    private static final int CROWDED = 4;
+
+
+    /**
+     * Target number of elements per occupied cell.
+     */
+    private final int elementsPerCell;
+
+    /**
+     * Executor on which the grids are bucketed.
+     */
+    private final Executor executor;
+
+    /**
+     * Modifications since the last sample.
+     */
+    private int changes = 0;
+
+    /**
+     * Lookups since the last sample.
+     */
+    private int queries = 0;
+
+    /**
+     * Average width of the lookups, {@code NaN} if there was none.
+     */
+    private double queryWidth = Double.NaN;
+
+    /**
+     * Average height of the lookups, {@code NaN} if there was none.
+     */
+    private double queryHeight = Double.NaN;
+
+    /**
+     * Whether an element was placed in a crowded cell since the last sample.
+     */
+    private boolean crowded = false;
+
+    /**
+     * Consecutive stale grids.
+     */
+    private int stale = 0;
+
+    /**
+     * Shape of a stale grid which should be bucketed again, {@code null} if there is none.
+     */
+    private int[] retry;
+
+    /**
+     * Whether a grid is being bucketed or waits to be swapped in or bucketed again.
+     */
+    private volatile boolean scheduled = false;
+
+    /**
+     * Bucketed grid which waits to be swapped in.
+     */
+    private volatile Regrid<E> pending;
+
+
+    /**
+     * Constructor.
+     *
+     * @param elementsPerCell Target number of elements per occupied cell, at least {@code 1}.
+     * @param executor        Executor on which the grids are bucketed.
+     */
+    AdaptiveGrid(int elementsPerCell, Executor executor) {
+        if(elementsPerCell < 1 || executor == null) {
+            throw new IllegalArgumentException();
+        }
+
+        this.elementsPerCell = elementsPerCell;
+        this.executor = executor;
+    }
+
+
+    /**
+     * Getter for the target number of elements per occupied cell.
+     *
+     * @return The number of elements per cell.
+     */
+    int getElementsPerCell() {
+        return elementsPerCell;
+    }
+
+    /**
+     * Getter for the executor.
+     *
+     * @return The executor.
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Records a modification.
+     *
+     * @param size Number of elements of the matrix.
+     * @return {@code true} if the grid should be sampled.
+     */
+    boolean changed(int size) {
+        changes++;
+        return changes >= (crowded ? size / 16 : size / 2) + MIN_CHANGES;
+    }
+
+    /**
+     * Records an element placed in a cell.
+     *
+     * @param cellSize Number of elements of the cell, including the new one.
+     */
+    void placed(int cellSize) {
+        if(cellSize > CROWDED * elementsPerCell) {
+            crowded = true;
+        }
+    }
+
+    /**
+     * Records a lookup.
+     *
+     * @param width  Width of its area.
+     * @param height Height of its area.
+     * @return {@code true} if the grid should be sampled.
+     */
+    boolean queried(double width, double height) {
+        if(width > 0 && height > 0 && Double.isFinite(width) && Double.isFinite(height)) {
+            if(Double.isNaN(queryWidth)) {
+                queryWidth = width;
+                queryHeight = height;
+            }
+            else {
+                queryWidth += (width - queryWidth) * QUERY_WEIGHT;
+                queryHeight += (height - queryHeight) * QUERY_WEIGHT;
+            }
+        }
+        return ++queries >= QUERY_SAMPLE;
+    }
+
+    /**
+     * Computes the next shape of the grid, and starts a new sample.
+     *
+     * @param size     Number of elements.
+     * @param rows     Current number of rows.
+     * @param cols     Current number of columns.
+     * @param nonEmpty Number of cells which hold at least one element.
+     * @param width    Width covered by the grid.
+     * @param height   Height covered by the grid.
+     * @return The new number of rows and columns, or {@code null} if the grid should not change.
+     */
+    int[] shape(int size, int rows, int cols, int nonEmpty, double width, double height) {
+        changes = 0;
+        queries = 0;
+        crowded = false;
+
+        if(size == 0 || nonEmpty == 0 || width <= 0 || height <= 0) {
+            return null;
+        }
+
+        // the occupied cells are split until they hold elementsPerCell elements each
+        double cells = (double) rows * cols * size / nonEmpty / elementsPerCell;
+        cells = Math.max(1d, Math.min(cells, 2d * size));
+        double side = Math.sqrt(width * height / cells);
+        double r = width / side;
+        double c = height / side;
+
+        if(!Double.isNaN(queryWidth)) {
+            r = Math.min(r, width / queryWidth * MAX_CELLS_PER_QUERY);
+            c = Math.min(c, height / queryHeight * MAX_CELLS_PER_QUERY);
+        }
+
+        int newRows = step(rows, r);
+        int newCols = step(cols, c);
+        if(newRows == rows && newCols == cols) {
+            return null;
+        }
+        return new int[] { newRows, newCols };
+    }
+
+    /**
+     * Moves a dimension toward its target.
+     *
+     * @param current Current value.
+     * @param target  Target value.
+     * @return The new value.
+     */
+    private static int step(int current, double target) {
+        double ratio = Math.max(1d, Math.min(MAX_DIMENSION, target)) / current;
+        if(ratio < MIN_CHANGE && ratio > 1d / MIN_CHANGE) {
+            return current;
+        }
+
+        ratio = Math.max(1d / MAX_STEP, Math.min(MAX_STEP, ratio));
+        return (int) Math.max(1, Math.min(MAX_DIMENSION, Math.round(current * ratio)));
+    }
+
+    /**
+     * Marks a grid as being bucketed.
+     *
+     * @return {@code false} if one already is.
+     */
+    boolean schedule() {
+        if(scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    /**
+     * Called once a grid was bucketed.
+     *
+     * @param regrid The grid.
+     */
+    void done(Regrid<E> regrid) {
+        pending = regrid;
+    }
+
+    /**
+     * Called if a grid could not be bucketed.
+     */
+    void failed() {
+        scheduled = false;
+    }
+
+    /**
+     * Takes the grid which waits to be swapped in, if any.
+     *
+     * @return The grid, or {@code null} if there is none.
+     */
+    Regrid<E> take() {
+        var r = pending;
+        if(r != null) {
+            pending = null;
+            scheduled = false;
+        }
+        return r;
+    }
+
+    /**
+     * Records that a grid should be bucketed again, once the current
+     * modification of the matrix is over.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     */
+    void retry(int rows, int cols) {
+        scheduled = true;
+        retry = new int[] { rows, cols };
+    }
+
+    /**
+     * Takes the shape of the grid which should be bucketed again, if any.
+     *
+     * @return The number of rows and columns, or {@code null} if there is none.
+     */
+    int[] takeRetry() {
+        var r = retry;
+        retry = null;
+        return r;
+    }
+
+    /**
+     * Records a grid which was swapped in.
+     */
+    void fresh() {
+        stale = 0;
+    }
+
+    /**
+     * Records a grid which was stale, i.e the matrix was modified
+     * while it was bucketed.
+     *
+     * @return {@code true} if too many stale grids were recorded in a row.
+     */
+    boolean stale() {
+        if(++stale >= MAX_STALE) {
+            stale = 0;
+            return true;
+        }
+        return false;
+    }
+}
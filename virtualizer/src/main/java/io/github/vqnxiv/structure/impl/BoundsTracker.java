@@ -0,0 +1,230 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+
+/**
+ * Keeps track of the bounds of a set of coordinates.
+ * <p>
+ * X and Y coordinates are each stored in a sorted multiset
+ * (coordinate mapped to its number of occurrences), so that additions,
+ * removals and moves update the extremes in {@code O(log n)} instead
+ * of requiring a scan of all the elements.
+ */
+final class BoundsTracker {
+
+    /**
+     * X coordinates mapped to their number of occurrences.
+     */
+    private final TreeMap<Double, Integer> xs = new TreeMap<>();
+
+    /**
+     * Y coordinates mapped to their number of occurrences.
+     */
+    private final TreeMap<Double, Integer> ys = new TreeMap<>();
+
+
+    /**
+     * Empty constructor.
+     */
+    BoundsTracker() { }
+
+    /**
+     * Constructor.
+     *
+     * @param elements Initial elements.
+     */
+    BoundsTracker(Iterable<? extends CoordinatesElement<?>> elements) {
+        elements.forEach(this::add);
+    }
+
+    /**
+     * Bulk constructor. The coordinates are sorted first, so that each 
+     * distinct coordinate is only inserted once and in order.
+     *
+     * @param coordinates X and Y coordinates of each element, interleaved.
+     * @param n           Number of elements.
+     */
+    BoundsTracker(double[] coordinates, int n) {
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for(int k = 0; k < n; k++) {
+            x[k] = coordinates[2 * k];
+            y[k] = coordinates[2 * k + 1];
+        }
+        
+        putSorted(xs, x);
+        putSorted(ys, y);
+    }
+
+
+    /**
+     * Adds the given coordinates to an empty multiset.
+     *
+     * @param m Multiset.
+     * @param d Coordinates, which are sorted.
+     */
+    private static void putSorted(TreeMap<Double, Integer> m, double[] d) {
+        for(int k = 0; k < d.length; k++) {
+            d[k] = normalize(d[k]);
+        }
+        Arrays.parallelSort(d);
+        
+        int k = 0;
+        while(k < d.length) {
+            int end = k + 1;
+            while(end < d.length && Double.compare(d[end], d[k]) == 0) {
+                end++;
+            }
+            m.put(d[k], end - k);
+            k = end;
+        }
+    }
+
+    /**
+     * Normalizes a coordinate, as {@code -0.0} and {@code 0.0} are equal
+     * coordinates but distinct keys.
+     *
+     * @param d Coordinate.
+     * @return The coordinate, {@code 0.0} if it was {@code -0.0}.
+     */
+    private static double normalize(double d) {
+        return d + 0.0d;
+    }
+
+    /**
+     * Increments the count of a coordinate.
+     *
+     * @param m Multiset.
+     * @param d Coordinate.
+     */
+    private static void increment(TreeMap<Double, Integer> m, double d) {
+        m.merge(normalize(d), 1, Integer::sum);
+    }
+
+    /**
+     * Decrements the count of a coordinate.
+     *
+     * @param m Multiset.
+     * @param d Coordinate.
+     */
+    private static void decrement(TreeMap<Double, Integer> m, double d) {
+        m.computeIfPresent(normalize(d), (k, v) -> (v == 1) ? null : v - 1);
+    }
+
+    /**
+     * Adds a pair of coordinates.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     */
+    void add(double x, double y) {
+        increment(xs, x);
+        increment(ys, y);
+    }
+
+    /**
+     * Adds the coordinates of an element.
+     *
+     * @param c The element.
+     */
+    void add(CoordinatesElement<?> c) {
+        add(c.getX(), c.getY());
+    }
+
+    /**
+     * Removes a pair of coordinates.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     */
+    void remove(double x, double y) {
+        decrement(xs, x);
+        decrement(ys, y);
+    }
+
+    /**
+     * Removes the coordinates of an element.
+     *
+     * @param c The element.
+     */
+    void remove(CoordinatesElement<?> c) {
+        remove(c.getX(), c.getY());
+    }
+
+    /**
+     * Replaces a pair of coordinates with another.
+     *
+     * @param oldX Old X coordinate.
+     * @param oldY Old Y coordinate.
+     * @param x    New X coordinate.
+     * @param y    New Y coordinate.
+     */
+    void move(double oldX, double oldY, double x, double y) {
+        if(oldX != x) {
+            decrement(xs, oldX);
+            increment(xs, x);
+        }
+        if(oldY != y) {
+            decrement(ys, oldY);
+            increment(ys, y);
+        }
+    }
+
+    /**
+     * Removes all coordinates.
+     */
+    void clear() {
+        xs.clear();
+        ys.clear();
+    }
+
+    /**
+     * Whether there are no coordinates.
+     *
+     * @return {@code true} if empty.
+     */
+    boolean isEmpty() {
+        return xs.isEmpty();
+    }
+
+    /**
+     * Minimum X coordinate.
+     *
+     * @return The minimum X coordinate, or {@code 0} if empty.
+     */
+    double minX() {
+        return xs.isEmpty() ? 0d : xs.firstKey();
+    }
+
+    /**
+     * Minimum Y coordinate.
+     *
+     * @return The minimum Y coordinate, or {@code 0} if empty.
+     */
+    double minY() {
+        return ys.isEmpty() ? 0d : ys.firstKey();
+    }
+
+    /**
+     * Maximum X coordinate.
+     *
+     * @return The maximum X coordinate, or {@code 0} if empty.
+     */
+    double maxX() {
+        return xs.isEmpty() ? 0d : xs.lastKey();
+    }
+
+    /**
+     * Maximum Y coordinate.
+     *
+     * @return The maximum Y coordinate, or {@code 0} if empty.
+     */
+    double maxY() {
+        return ys.isEmpty() ? 0d : ys.lastKey();
+    }
+}
@@ -0,0 +1,735 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.LevelsOfDetail;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+
+/**
+ * Pre-aggregated levels of detail of a structure, used to display
+ * zoomed out views without materializing every element.
+ * <p>
+ * Each level cuts the plane in square cells, twice as large as the cells
+ * of the previous level, and aggregates the elements of each occupied cell
+ * into a {@link Cluster}: its number of elements, their centroid and one of
+ * them as a representative. Each cluster also indexes its elements, so that
+ * another representative is found without looking up the source structure. Each level is exposed as a read only
+ * {@link CoordinatesStructure} of clusters placed at their centroid, so
+ * that it can be displayed like any other structure (see
+ * {@link io.github.vqnxiv.view.NodeVirtualizer#withLevelsOfDetail}).
+ * <p>
+ * Level {@code i} is meant to be displayed for scales within
+ * {@code [minScale(i), maxScale(i))}, i.e from the full detail scale
+ * divided by {@code 2^(i+1)} to the full detail scale divided by {@code 2^i},
+ * so that the number of displayed clusters stays about the same whatever
+ * the scale. The last level covers every smaller scale.
+ * <p>
+ * If the source structure is a {@link LayoutableStructure} or a
+ * {@link MutableStructure}, the pyramid is updated incrementally from its
+ * events, with {@code O(levels)} work per changed element. An element which
+ * moves within the cell of a level only updates the centroid of its cluster. {@link #dispose()}
+ * should then be called once the pyramid is no longer used.
+ * This class is <u>not</u> thread safe.
+ *
+ * @param <E> Type of elements.
+ */
+public class ClusterPyramid<E> implements LevelsOfDetail<ClusterPyramid.Cluster<E>> {
+
+    /**
+     * Aggregate of the elements of one cell of a level.
+     * Clusters are compared by identity.
+     *
+     * @param <E> Type of elements.
+     */
+    public static final class Cluster<E> {
+
+        /**
+         * Level of this cluster.
+         */
+        private final int level;
+
+        /**
+         * Number of elements.
+         */
+        private int count;
+
+        /**
+         * Sum of the X coordinates of the elements.
+         */
+        private double sumX;
+
+        /**
+         * Sum of the Y coordinates of the elements.
+         */
+        private double sumY;
+
+        /**
+         * One of the elements.
+         */
+        private E representative;
+
+        /**
+         * The elements mapped to their number of occurrences, in insertion order.
+         */
+        private final Map<E, Integer> members = new LinkedHashMap<>();
+
+
+        /**
+         * Constructor.
+         *
+         * @param level Level of this cluster.
+         */
+        private Cluster(int level) {
+            this.level = level;
+        }
+
+
+        /**
+         * Level of this cluster.
+         *
+         * @return The level.
+         */
+        public int level() {
+            return level;
+        }
+
+        /**
+         * Number of elements in this cluster.
+         *
+         * @return The number of elements.
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * One of the elements of this cluster.
+         *
+         * @return An element.
+         */
+        public E representative() {
+            return representative;
+        }
+
+        /**
+         * X coordinate of the centroid of the elements.
+         *
+         * @return The centroid's X coordinate.
+         */
+        public double centerX() {
+            return sumX / count;
+        }
+
+        /**
+         * Y coordinate of the centroid of the elements.
+         *
+         * @return The centroid's Y coordinate.
+         */
+        public double centerY() {
+            return sumY / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d x %s", count, representative);
+        }
+    }
+
+
+    /**
+     * Default width and height of the cells of the first level.
+     */
+    public static final double DEFAULT_CELL_SIZE = 64d;
+
+    /**
+     * Default number of levels.
+     */
+    public static final int DEFAULT_LEVELS = 6;
+
+    /**
+     * Default scale under which the elements are aggregated.
+     */
+    public static final double DEFAULT_FULL_DETAIL_SCALE = 0.5d;
+
+
+    /**
+     * Source structure.
+     */
+    private final CoordinatesStructure<E> source;
+
+    /**
+     * The levels, from the finest to the coarsest.
+     */
+    private final List<Level> levels;
+
+    /**
+     * Scale under which the elements are aggregated.
+     */
+    private final double fullDetailScale;
+
+
+    /**
+     * Constructor.
+     *
+     * @param source Source structure.
+     */
+    public ClusterPyramid(CoordinatesStructure<E> source) {
+        this(source, DEFAULT_CELL_SIZE, DEFAULT_LEVELS, DEFAULT_FULL_DETAIL_SCALE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param source          Source structure.
+     * @param cellSize        Width and height of the cells of the first level.
+     * @param levelCount      Number of levels.
+     * @param fullDetailScale Scale under which the elements are aggregated.
+     */
+    public ClusterPyramid(CoordinatesStructure<E> source, double cellSize, int levelCount, double fullDetailScale) {
+        if(!(cellSize > 0) || Double.isInfinite(cellSize) || levelCount < 1 || !(fullDetailScale > 0)) {
+            throw new IllegalArgumentException();
+        }
+
+        this.source = source;
+        this.fullDetailScale = fullDetailScale;
+
+        levels = new ArrayList<>(levelCount);
+        for(int i = 0; i < levelCount; i++) {
+            levels.add(new Level(i, cellSize * Math.pow(2, i)));
+        }
+
+        source.forEach(this::add);
+
+        if(source instanceof LayoutableStructure<E> l) {
+            l.addMoveListener(this, this::onMove);
+        }
+        if(source instanceof MutableStructure<E> m) {
+            m.addAdditionListener(this, this::onAddition);
+            m.addRemovalListener(this, this::onRemoval);
+        }
+    }
+
+
+    /**
+     * Adds an element to every level.
+     *
+     * @param c The element.
+     */
+    private void add(CoordinatesElement<E> c) {
+        for(int i = 0; i < levels.size(); i++) {
+            levels.get(i).add(c.getElement(), c.getX(), c.getY());
+        }
+    }
+
+    /**
+     * Removes an element from every level.
+     *
+     * @param c The element, with its coordinates when it was added.
+     */
+    private void remove(CoordinatesElement<E> c) {
+        for(int i = 0; i < levels.size(); i++) {
+            levels.get(i).remove(c.getElement(), c.getX(), c.getY());
+        }
+    }
+
+    /**
+     * Moves an element in every level.
+     *
+     * @param e    The element.
+     * @param oldX X coordinate before the move.
+     * @param oldY Y coordinate before the move.
+     * @param newX X coordinate after the move.
+     * @param newY Y coordinate after the move.
+     */
+    private void move(E e, double oldX, double oldY, double newX, double newY) {
+        for(int i = 0; i < levels.size(); i++) {
+            levels.get(i).move(e, oldX, oldY, newX, newY);
+        }
+    }
+
+    /**
+     * Updates the levels on a move.
+     *
+     * @param change The change.
+     */
+    private void onMove(StructureChange.Move<E> change) {
+        change.forEachMoved(this::move);
+    }
+
+    /**
+     * Updates the levels on an addition.
+     *
+     * @param change The change.
+     */
+    private void onAddition(StructureChange.Addition<E> change) {
+        change.elements().forEach(this::add);
+    }
+
+    /**
+     * Updates the levels on a removal.
+     *
+     * @param change The change.
+     */
+    private void onRemoval(StructureChange.Removal<E> change) {
+        change.elements().forEach(this::remove);
+    }
+
+
+    /**
+     * Stops listening to the source structure.
+     */
+    public void dispose() {
+        if(source instanceof LayoutableStructure<E> l) {
+            l.clearMoveListeners(this);
+        }
+        if(source instanceof MutableStructure<E> m) {
+            m.clearAdditionListeners(this);
+            m.clearRemovalListeners(this);
+        }
+    }
+
+    /**
+     * Getter for the source structure.
+     *
+     * @return The source structure.
+     */
+    public CoordinatesStructure<E> getSource() {
+        return source;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of levels.
+     */
+    @Override
+    public int levelCount() {
+        return levels.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param i Index of the level, {@code 0} being the finest one.
+     * @return The clusters of the level.
+     */
+    @Override
+    public CoordinatesStructure<Cluster<E>> level(int i) {
+        return levels.get(i);
+    }
+
+    /**
+     * Width and height of the cells of a level.
+     *
+     * @param i Index of the level.
+     * @return The size of its cells.
+     */
+    public double cellSize(int i) {
+        return levels.get(i).cellSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The full detail scale.
+     */
+    @Override
+    public double getFullDetailScale() {
+        return fullDetailScale;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param i Index of the level.
+     * @return The minimum scale, inclusive.
+     */
+    @Override
+    public double minScale(int i) {
+        return (i == levels.size() - 1) ? 0d : fullDetailScale / Math.pow(2, i + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param i Index of the level.
+     * @return The maximum scale, exclusive.
+     */
+    @Override
+    public double maxScale(int i) {
+        return fullDetailScale / Math.pow(2, i);
+    }
+
+
+    /**
+     * A level of the pyramid, i.e a sparse grid of clusters.
+     */
+    private final class Level implements CoordinatesStructure<Cluster<E>>, LocalizedStructure<Cluster<E>> {
+
+        /**
+         * Index of this level.
+         */
+        private final int index;
+
+        /**
+         * Width and height of a cell.
+         */
+        private final double cellSize;
+
+        /**
+         * Clusters of the occupied cells, see {@link CoordinatesHashGrid}.
+         */
+        private final Map<Long, CoordinatesElement<Cluster<E>>> cells = new HashMap<>();
+
+
+        /**
+         * Constructor.
+         *
+         * @param index    Index of this level.
+         * @param cellSize Width and height of a cell.
+         */
+        private Level(int index, double cellSize) {
+            this.index = index;
+            this.cellSize = cellSize;
+        }
+
+
+        /**
+         * Cell index of a coordinate.
+         *
+         * @param d The coordinate.
+         * @return The cell index.
+         */
+        private int indexOf(double d) {
+            return (int) Math.floor(d / cellSize);
+        }
+
+        /**
+         * Key of a cell.
+         *
+         * @param col Column of the cell.
+         * @param row Row of the cell.
+         * @return The key.
+         */
+        private long key(int col, int row) {
+            return ((long) col << 32) | (row & 0xFFFF_FFFFL);
+        }
+
+        /**
+         * Adds an element to its cluster.
+         *
+         * @param e The element.
+         * @param x Its X coordinate.
+         * @param y Its Y coordinate.
+         */
+        private void add(E e, double x, double y) {
+            var c = cells.computeIfAbsent(
+                key(indexOf(x), indexOf(y)), k -> new CoordinatesElement<>(new Cluster<>(index), x, y)
+            );
+            var cluster = c.getElement();
+
+            cluster.count++;
+            cluster.sumX += x;
+            cluster.sumY += y;
+            cluster.members.merge(e, 1, Integer::sum);
+            if(cluster.representative == null) {
+                cluster.representative = e;
+            }
+            c.setXY(cluster.centerX(), cluster.centerY());
+        }
+
+        /**
+         * Removes an element from its cluster.
+         *
+         * @param e The element.
+         * @param x Its X coordinate.
+         * @param y Its Y coordinate.
+         */
+        private void remove(E e, double x, double y) {
+            long k = key(indexOf(x), indexOf(y));
+            var c = cells.get(k);
+            if(c == null) {
+                return;
+            }
+
+            var cluster = c.getElement();
+            // the coordinates of the event may not be the recorded ones
+            if(!cluster.members.containsKey(e)) {
+                return;
+            }
+            if(--cluster.count == 0) {
+                cells.remove(k);
+                return;
+            }
+
+            cluster.sumX -= x;
+            cluster.sumY -= y;
+            c.setXY(cluster.centerX(), cluster.centerY());
+            if(cluster.members.merge(e, -1, Integer::sum) == 0) {
+                cluster.members.remove(e);
+                if(e.equals(cluster.representative)) {
+                    cluster.representative = cluster.members.keySet().iterator().next();
+                }
+            }
+        }
+
+        /**
+         * Moves an element. If it stays in the same cell, only the centroid
+         * of its cluster is updated.
+         *
+         * @param e    The element.
+         * @param oldX X coordinate before the move.
+         * @param oldY Y coordinate before the move.
+         * @param newX X coordinate after the move.
+         * @param newY Y coordinate after the move.
+         */
+        private void move(E e, double oldX, double oldY, double newX, double newY) {
+            long k = key(indexOf(oldX), indexOf(oldY));
+            var c = cells.get(k);
+            if(c == null || !c.getElement().members.containsKey(e) || k != key(indexOf(newX), indexOf(newY))) {
+                remove(e, oldX, oldY);
+                add(e, newX, newY);
+                return;
+            }
+
+            var cluster = c.getElement();
+            cluster.sumX += newX - oldX;
+            cluster.sumY += newY - oldY;
+            c.setXY(cluster.centerX(), cluster.centerY());
+        }
+
+        /**
+         * Gives all the clusters whose centroid is within the given
+         * area and match the given condition to the given action.
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @param condition    Filtering condition, may be {@code null}.
+         * @param action       Action.
+         */
+        private void collect(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                             Predicate<Cluster<E>> condition, Consumer<? super CoordinatesElement<Cluster<E>>> action) {
+            if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+                return;
+            }
+
+            int minCol = indexOf(topLeftX);
+            int maxCol = indexOf(bottomRightX);
+            int minRow = indexOf(topLeftY);
+            int maxRow = indexOf(bottomRightY);
+            double covered = ((double) maxCol - minCol + 1) * ((double) maxRow - minRow + 1);
+
+            if(covered > cells.size()) {
+                for(var c : cells.values()) {
+                    if(c.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)
+                        && (condition == null || condition.test(c.getElement()))) {
+                        action.accept(c);
+                    }
+                }
+                return;
+            }
+
+            for(long row = minRow; row <= maxRow; row++) {
+                for(long col = minCol; col <= maxCol; col++) {
+                    var c = cells.get(key((int) col, (int) row));
+                    if(c != null && c.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)
+                        && (condition == null || condition.test(c.getElement()))) {
+                        action.accept(c);
+                    }
+                }
+            }
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @return Collection of all clusters within the area.
+         */
+        @Override
+        public Collection<CoordinatesElement<Cluster<E>>> between(double topLeftX, double topLeftY,
+                                                                  double bottomRightX, double bottomRightY) {
+            var l = new ArrayList<CoordinatesElement<Cluster<E>>>();
+            collect(topLeftX, topLeftY, bottomRightX, bottomRightY, null, l::add);
+            return l;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @param condition    Filtering condition.
+         * @return Collection of all clusters within the area.
+         */
+        @Override
+        public Collection<CoordinatesElement<Cluster<E>>> between(double topLeftX, double topLeftY,
+                                                                  double bottomRightX, double bottomRightY,
+                                                                  Predicate<Cluster<E>> condition) {
+            var l = new ArrayList<CoordinatesElement<Cluster<E>>>();
+            collect(topLeftX, topLeftY, bottomRightX, bottomRightY, condition, l::add);
+            return l;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @param action       The action to perform.
+         */
+        @Override
+        public void forEachBetween(double topLeftX, double topLeftY,
+                                   double bottomRightX, double bottomRightY,
+                                   Consumer<? super CoordinatesElement<Cluster<E>>> action) {
+            collect(topLeftX, topLeftY, bottomRightX, bottomRightY, null, action);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The minimum width of the source structure.
+         */
+        @Override
+        public ReadOnlyDoubleProperty minimumWidth() {
+            return source.minimumWidth();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The minimum height of the source structure.
+         */
+        @Override
+        public ReadOnlyDoubleProperty minimumHeight() {
+            return source.minimumHeight();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The maximum width of the source structure.
+         */
+        @Override
+        public ReadOnlyDoubleProperty maximumWidth() {
+            return source.maximumWidth();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The maximum height of the source structure.
+         */
+        @Override
+        public ReadOnlyDoubleProperty maximumHeight() {
+            return source.maximumHeight();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The number of clusters in this level.
+         */
+        @Override
+        public int size() {
+            return cells.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param c The cluster to check.
+         * @return {@code true} if it contains it; {@code false} otherwise.
+         */
+        @Override
+        public boolean containsCoordinates(CoordinatesElement<Cluster<E>> c) {
+            return c.equals(cells.get(key(indexOf(c.getX()), indexOf(c.getY()))));
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param element The cluster to find.
+         * @return The coordinates of the given cluster if it is in this level.
+         */
+        @Override
+        public Optional<CoordinatesElement<Cluster<E>>> coordinatesOf(Cluster<E> element) {
+            if(element.level != index || element.count == 0) {
+                return Optional.empty();
+            }
+
+            var c = cells.get(key(indexOf(element.centerX()), indexOf(element.centerY())));
+            return (c != null && c.getElement() == element) ? Optional.of(c) : Optional.empty();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param elements The clusters to find.
+         * @return The coordinates of the given clusters that are in this level.
+         */
+        @Override
+        public Map<Cluster<E>, CoordinatesElement<Cluster<E>>> coordinatesOf(Collection<Cluster<E>> elements) {
+            var m = new HashMap<Cluster<E>, CoordinatesElement<Cluster<E>>>();
+            for(var e : elements) {
+                coordinatesOf(e).ifPresent(c -> m.put(e, c));
+            }
+            return m;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return an Iterator over a snapshot of the clusters.
+         */
+        @Override
+        public CoordinatesIterator<CoordinatesElement<Cluster<E>>> iterator() {
+            Iterator<CoordinatesElement<Cluster<E>>> itr = new ArrayList<>(cells.values()).iterator();
+
+            return new CoordinatesIterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return itr.hasNext();
+                }
+
+                @Override
+                public CoordinatesElement<Cluster<E>> next() {
+                    return itr.next();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return cells.values().toString();
+        }
+    }
+}
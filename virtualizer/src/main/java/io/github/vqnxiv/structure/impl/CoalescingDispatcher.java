@@ -0,0 +1,390 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.application.Platform;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * Relays the events of a structure to its own listeners on a given
+ * {@link Executor}, merging the events which happen in the meantime.
+ * <p>
+ * The structures call their listeners on the thread which modifies them,
+ * inside of the modifying call. This class instead records the events
+ * it receives, the same way {@link LayoutableStructure#batch(Runnable)}
+ * does, and schedules a single delivery on the executor: every event
+ * which happens until that delivery runs is merged into at most one
+ * event of each kind, whose area covers all of theirs. The delivery can
+ * be delayed by a window, so that a burst of small changes (e.g thousands
+ * of calls to {@link MutableStructure#addCoordinates(Object, javafx.geometry.Point2D)})
+ * results in a single event per window.
+ * <p>
+ * The events are delivered in the same order as at the end of a batch:
+ * moves, then removals, then additions. An element is only reported by one 
+ * of them: an element added then moved is reported as added at its latest 
+ * coordinates, and the moves of a removed element are dropped. The structure 
+ * may have been modified again by the time they are delivered.
+ *
+ * @param <E> Type of elements.
+ */
+public class CoalescingDispatcher<E> {
+
+    /**
+     * The structure.
+     */
+    private final CoordinatesStructure<E> structure;
+
+    /**
+     * Executor on which the events are delivered, after the window.
+     */
+    private final Executor executor;
+
+    /**
+     * Pending events, guarded by itself.
+     */
+    private final EventBatch<E> pending = new EventBatch<>();
+
+    /**
+     * Whether a delivery is scheduled, guarded by {@link #pending}.
+     */
+    private boolean scheduled = false;
+
+    /**
+     * On move consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Move<E>>>> moveConsumers = new ConcurrentHashMap<>();
+
+    /**
+     * On addition consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Addition<E>>>> addConsumers = new ConcurrentHashMap<>();
+
+    /**
+     * On removal consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Removal<E>>>> rmConsumers = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor. The events are delivered as soon as the executor runs
+     * the delivery.
+     *
+     * @param structure The structure.
+     * @param executor  Executor on which the events are delivered.
+     */
+    public CoalescingDispatcher(CoordinatesStructure<E> structure, Executor executor) {
+        this(structure, executor, Duration.ZERO);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param structure The structure.
+     * @param executor  Executor on which the events are delivered.
+     * @param window    Delay between the first event and its delivery,
+     *                  during which the following events are merged with it.
+     */
+    public CoalescingDispatcher(CoordinatesStructure<E> structure, Executor executor, Duration window) {
+        if(window.isNegative()) {
+            throw new IllegalArgumentException();
+        }
+
+        this.structure = structure;
+        this.executor = window.isZero() ? executor
+            : CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS, executor);
+
+        if(structure instanceof LayoutableStructure<E> l) {
+            l.addMoveListener(this, this::onMove);
+        }
+        if(structure instanceof MutableStructure<E> m) {
+            m.addAdditionListener(this, this::onAddition);
+            m.addRemovalListener(this, this::onRemoval);
+        }
+    }
+
+
+    /**
+     * Creates a dispatcher which delivers the events on the JFX thread.
+     * The events which happen until the JFX thread runs the delivery,
+     * e.g during a frame, are merged.
+     *
+     * @param structure The structure.
+     * @param <E> Type of elements.
+     * @return The dispatcher.
+     */
+    public static <E> CoalescingDispatcher<E> onFxThread(CoordinatesStructure<E> structure) {
+        return new CoalescingDispatcher<>(structure, Platform::runLater);
+    }
+
+
+    /**
+     * Getter for the structure.
+     *
+     * @return The structure.
+     */
+    public CoordinatesStructure<E> getStructure() {
+        return structure;
+    }
+
+    /**
+     * Stops listening to the structure. Pending events are still delivered.
+     */
+    public void dispose() {
+        if(structure instanceof LayoutableStructure<E> l) {
+            l.clearMoveListeners(this);
+        }
+        if(structure instanceof MutableStructure<E> m) {
+            m.clearAdditionListeners(this);
+            m.clearRemovalListeners(this);
+        }
+    }
+
+
+    /**
+     * Called when elements are moved in the structure.
+     *
+     * @param change The change.
+     */
+    private void onMove(StructureChange.Move<E> change) {
+        synchronized(pending) {
+            pending.moved(change);
+            schedule();
+        }
+    }
+
+    /**
+     * Called when elements are added to the structure.
+     *
+     * @param change The change.
+     */
+    private void onAddition(StructureChange.Addition<E> change) {
+        synchronized(pending) {
+            pending.added(change.elements(), change.topLeft(), change.bottomRight());
+            schedule();
+        }
+    }
+
+    /**
+     * Called when elements are removed from the structure.
+     *
+     * @param change The change.
+     */
+    private void onRemoval(StructureChange.Removal<E> change) {
+        synchronized(pending) {
+            pending.removed(change.elements(), change.topLeft(), change.bottomRight());
+            schedule();
+        }
+    }
+
+    /**
+     * Schedules a delivery if none is. Must be called while holding {@link #pending}.
+     */
+    private void schedule() {
+        if(!scheduled) {
+            scheduled = true;
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Delivers the pending events on the calling thread.
+     */
+    public void flush() {
+        StructureChange.Move<E> moved = null;
+        StructureChange.Removal<E> removed = null;
+        StructureChange.Addition<E> added = null;
+
+        synchronized(pending) {
+            scheduled = false;
+            if(structure instanceof LayoutableStructure<E> l) {
+                moved = pending.takeMoved(l);
+            }
+            if(structure instanceof MutableStructure<E> m) {
+                removed = pending.takeRemoved(m);
+                added = pending.takeAdded(m);
+            }
+        }
+
+        if(moved != null) {
+            for(var l : moveConsumers.values()) {
+                for(var c : l) {
+                    c.accept(moved);
+                }
+            }
+        }
+        if(removed != null) {
+            for(var l : rmConsumers.values()) {
+                for(var c : l) {
+                    c.accept(removed);
+                }
+            }
+        }
+        if(added != null) {
+            for(var l : addConsumers.values()) {
+                for(var c : l) {
+                    c.accept(added);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Adds a listener to the merged move events.
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     *
+     * @see LayoutableStructure#addMoveListener(Object, Consumer)
+     */
+    public void addMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        moveConsumers.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>()).add(action);
+    }
+
+    /**
+     * Removes a listener from the merged move events.
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    public void removeMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        var l = moveConsumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * Removes all the move listeners of an owner.
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners(Object owner) {
+        var l = moveConsumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * Removes all the move listeners.
+     *
+     * @return The removed listeners.
+     */
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Move<E>>>();
+        moveConsumers.values().forEach(l::addAll);
+        moveConsumers.clear();
+        return l;
+    }
+
+    /**
+     * Adds a listener to the merged addition events.
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     *
+     * @see MutableStructure#addAdditionListener(Object, Consumer)
+     */
+    public void addAdditionListener(Object owner, Consumer<? super StructureChange.Addition<E>> action) {
+        addConsumers.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>()).add(action);
+    }
+
+    /**
+     * Removes a listener from the merged addition events.
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    public void removeAdditionListener(Object owner, Consumer<? super StructureChange.Addition<E>> action) {
+        var l = addConsumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * Removes all the addition listeners of an owner.
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    public Collection<Consumer<? super StructureChange.Addition<E>>> clearAdditionListeners(Object owner) {
+        var l = addConsumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * Removes all the addition listeners.
+     *
+     * @return The removed listeners.
+     */
+    public Collection<Consumer<? super StructureChange.Addition<E>>> clearAdditionListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Addition<E>>>();
+        addConsumers.values().forEach(l::addAll);
+        addConsumers.clear();
+        return l;
+    }
+
+    /**
+     * Adds a listener to the merged removal events.
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     *
+     * @see MutableStructure#addRemovalListener(Object, Consumer)
+     */
+    public void addRemovalListener(Object owner, Consumer<? super StructureChange.Removal<E>> action) {
+        rmConsumers.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>()).add(action);
+    }
+
+    /**
+     * Removes a listener from the merged removal events.
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    public void removeRemovalListener(Object owner, Consumer<? super StructureChange.Removal<E>> action) {
+        var l = rmConsumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * Removes all the removal listeners of an owner.
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    public Collection<Consumer<? super StructureChange.Removal<E>>> clearRemovalListeners(Object owner) {
+        var l = rmConsumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * Removes all the removal listeners.
+     *
+     * @return The removed listeners.
+     */
+    public Collection<Consumer<? super StructureChange.Removal<E>>> clearRemovalListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Removal<E>>>();
+        rmConsumers.values().forEach(l::addAll);
+        rmConsumers.clear();
+        return l;
+    }
+}
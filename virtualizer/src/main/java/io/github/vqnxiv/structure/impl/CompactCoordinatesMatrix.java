@@ -0,0 +1,224 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.Layout;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+
+/**
+ * Immutable structure which stores its elements as a struct of arrays:
+ * the values in an {@code Object[]} and the coordinates in two
+ * parallel {@code double[]}, all sorted by the cell of a uniform grid.
+ * <p>
+ * Compared to {@link CoordinatesMatrix}, there is no {@link io.github.vqnxiv.structure.CoordinatesElement}
+ * nor cell collection kept per element, which roughly halves the memory
+ * used by large structures. The trade-off is that it can not be modified:
+ * it is meant to be built once (e.g from another structure after a layout)
+ * and then queried.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see AbstractIndexedMatrix
+ * @see CoordinatesMatrix
+ */
+public class CompactCoordinatesMatrix<E> extends AbstractIndexedMatrix<E> {
+
+    /**
+     * Values and coordinates extracted from a structure, in its iteration order.
+     *
+     * @param values Values.
+     * @param xs     X coordinates.
+     * @param ys     Y coordinates.
+     */
+    private record Columns(Object[] values, double[] xs, double[] ys) {
+
+        /**
+         * Extracts the columns of a structure.
+         *
+         * @param c The structure.
+         * @return The columns.
+         */
+        private static Columns of(CoordinatesStructure<?> c) {
+            var cols = new Columns(new Object[c.size()], new double[c.size()], new double[c.size()]);
+            int i = 0;
+            for(var e : c) {
+                cols.values[i] = e.getElement();
+                cols.xs[i] = e.getX();
+                cols.ys[i] = e.getY();
+                i++;
+            }
+            return cols;
+        }
+
+        /**
+         * Columns of elements which are all at [0, 0].
+         *
+         * @param el The elements.
+         * @return The columns.
+         */
+        private static Columns of(Collection<?> el) {
+            return new Columns(el.toArray(), new double[el.size()], new double[el.size()]);
+        }
+    }
+
+
+    /**
+     * Default average number of elements per cell.
+     */
+    public static final int DEFAULT_CELL_CAPACITY = 16;
+
+
+    /**
+     * Values, sorted by cell.
+     */
+    private final Object[] values;
+
+    /**
+     * X coordinates, sorted by cell.
+     */
+    private final double[] xs;
+
+    /**
+     * Y coordinates, sorted by cell.
+     */
+    private final double[] ys;
+
+    /**
+     * Start index of each cell.
+     */
+    private final int[] cellStart;
+
+
+    /**
+     * Constructor.
+     *
+     * @param c Columns.
+     * @param g Grid built from the columns.
+     */
+    private CompactCoordinatesMatrix(Columns c, GridIndex g) {
+        super(g.cols(), g.rows(), g.minX(), g.minY(), g.maxX(), g.maxY());
+
+        int n = c.values().length;
+        values = new Object[n];
+        xs = new double[n];
+        ys = new double[n];
+        cellStart = g.cellStart();
+
+        for(int i = 0; i < n; i++) {
+            int j = g.permutation()[i];
+            values[i] = c.values()[j];
+            xs[i] = c.xs()[j];
+            ys[i] = c.ys()[j];
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param c            Columns.
+     * @param cellCapacity Average number of elements per cell.
+     */
+    private CompactCoordinatesMatrix(Columns c, int cellCapacity) {
+        this(c, GridIndex.build(c.xs(), c.ys(), c.values().length, cellCapacity));
+    }
+
+    /**
+     * Constructor. All the elements are at [0, 0].
+     *
+     * @param el Elements.
+     */
+    public CompactCoordinatesMatrix(Collection<E> el) {
+        this(Columns.of(el), DEFAULT_CELL_CAPACITY);
+    }
+
+    /**
+     * Layout constructor. The layout is applied on an intermediary
+     * {@link CoordinatesMatrix}.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     */
+    public CompactCoordinatesMatrix(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+        this(new CoordinatesMatrix<>(el, layoutSupplier));
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c Structure to copy.
+     */
+    public CompactCoordinatesMatrix(CoordinatesStructure<E> c) {
+        this(c, DEFAULT_CELL_CAPACITY);
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c            Structure to copy.
+     * @param cellCapacity Average number of elements per cell.
+     */
+    public CompactCoordinatesMatrix(CoordinatesStructure<E> c, int cellCapacity) {
+        this(Columns.of(c), cellCapacity);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The X coordinate.
+     */
+    @Override
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The Y coordinate.
+     */
+    @Override
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The value.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E getValue(int index) {
+        return (E) values[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param cell The cell, between {@code 0} and {@code cols * rows}
+     *             (both inclusive).
+     * @return The first index of the cell.
+     */
+    @Override
+    protected int cellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this structure.
+     */
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
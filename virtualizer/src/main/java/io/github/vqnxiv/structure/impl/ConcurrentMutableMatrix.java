@@ -0,0 +1,1609 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.Layout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+
+/**
+ * Thread safe mutable coordinates structure backed by a uniform grid.
+ * <p>
+ * Each cell holds an immutable array of elements which is replaced
+ * (copy on write) whenever the cell is modified, so lookups such as
+ * {@link #between(double, double, double, double)} never lock and can run on
+ * the JFX thread while layouts or ingestion threads modify the structure.
+ * Writers lock the cells they modify through a fixed set of striped locks,
+ * so that modifications of distant cells don't contend with each other.
+ * Each stripe also keeps the bounds of the elements of its cells, from which
+ * the dimensions are published by whichever writer is not already doing it.
+ * <p>
+ * The grid covers {@code [0, DEFAULT_WIDTH) * [0, DEFAULT_HEIGHT)}
+ * (or the given initial area) and is doubled towards any element
+ * placed outside of it, so negative coordinates are supported. Once it
+ * has {@link #MAX_CELLS} cells, the cells are enlarged instead. Growing
+ * the grid is the only operation which blocks all the writers.
+ * <p>
+ * Lookups and iterators are weakly consistent: they reflect the state of
+ * each cell at the moment it is read, and never throw
+ * {@link java.util.ConcurrentModificationException}. An element which is
+ * moved from one cell to another while a lookup is in progress may be missed
+ * by that lookup, but is never returned twice by it.
+ * <p>
+ * Events and changes of the dimension properties are fired on the thread
+ * which modified the structure, e.g a {@link io.github.vqnxiv.view.ThrottledNodeVirtualizer}
+ * should be used to display it. {@link #batch(Runnable)} does not merge events.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see CoordinatesMatrix
+ * @see MutableMatrix
+ */
+public class ConcurrentMutableMatrix<E> implements MutableStructure<E>, LocalizedStructure<E> {
+
+    /**
+     * Lock of a set of cells, along with the bounds of their elements.
+     * The bounds are modified while holding the lock, or the write lock
+     * of the grid, and their extremes are published for the readers.
+     */
+    private static final class Stripe {
+
+        /**
+         * Lock of the cells.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Bounds of the elements of the cells.
+         */
+        private final BoundsTracker bounds = new BoundsTracker();
+
+        /**
+         * Published minimum X coordinate, {@code +Infinity} if empty.
+         */
+        private volatile double minX = Double.POSITIVE_INFINITY;
+
+        /**
+         * Published minimum Y coordinate, {@code +Infinity} if empty.
+         */
+        private volatile double minY = Double.POSITIVE_INFINITY;
+
+        /**
+         * Published maximum X coordinate, {@code -Infinity} if empty.
+         */
+        private volatile double maxX = Double.NEGATIVE_INFINITY;
+
+        /**
+         * Published maximum Y coordinate, {@code -Infinity} if empty.
+         */
+        private volatile double maxY = Double.NEGATIVE_INFINITY;
+
+
+        /**
+         * Acquires the lock of the cells.
+         */
+        private void lock() {
+            lock.lock();
+        }
+
+        /**
+         * Releases the lock of the cells.
+         */
+        private void unlock() {
+            lock.unlock();
+        }
+
+        /**
+         * Publishes the extremes of the bounds.
+         */
+        private void publish() {
+            boolean empty = bounds.isEmpty();
+            minX = empty ? Double.POSITIVE_INFINITY : bounds.minX();
+            minY = empty ? Double.POSITIVE_INFINITY : bounds.minY();
+            maxX = empty ? Double.NEGATIVE_INFINITY : bounds.maxX();
+            maxY = empty ? Double.NEGATIVE_INFINITY : bounds.maxY();
+        }
+    }
+
+
+    /**
+     * Geometry and cells of the grid. The geometry of a grid never changes,
+     * growing the structure replaces the whole grid.
+     *
+     * @param <E> Type of elements.
+     */
+    private static final class Grid<E> {
+
+        /**
+         * Left bound.
+         */
+        private final double x0;
+
+        /**
+         * Top bound.
+         */
+        private final double y0;
+
+        /**
+         * Width of a cell.
+         */
+        private final double cellWidth;
+
+        /**
+         * Height of a cell.
+         */
+        private final double cellHeight;
+
+        /**
+         * Number of columns.
+         */
+        private final int cols;
+
+        /**
+         * Number of rows.
+         */
+        private final int rows;
+
+        /**
+         * Elements of each cell, row by row.
+         */
+        private final AtomicReferenceArray<CoordinatesElement<E>[]> cells;
+
+
+        /**
+         * Constructor. All the cells are empty.
+         *
+         * @param x0         Left bound.
+         * @param y0         Top bound.
+         * @param cellWidth  Width of a cell.
+         * @param cellHeight Height of a cell.
+         * @param cols       Number of columns.
+         * @param rows       Number of rows.
+         */
+        private Grid(double x0, double y0, double cellWidth, double cellHeight, int cols, int rows) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.cellWidth = cellWidth;
+            this.cellHeight = cellHeight;
+            this.cols = cols;
+            this.rows = rows;
+
+            cells = new AtomicReferenceArray<>(cols * rows);
+            var empty = emptyArray();
+            for(int i = 0; i < cells.length(); i++) {
+                cells.set(i, empty);
+            }
+        }
+
+
+        /**
+         * Empty array of elements.
+         *
+         * @return An empty array.
+         */
+        @SuppressWarnings("unchecked")
+        private CoordinatesElement<E>[] emptyArray() {
+            return (CoordinatesElement<E>[]) new CoordinatesElement<?>[0];
+        }
+
+        /**
+         * Whether the grid covers the given coordinates.
+         *
+         * @param x X coordinate.
+         * @param y Y coordinate.
+         * @return {@code true} if the coordinates are within the grid.
+         */
+        private boolean contains(double x, double y) {
+            return x >= x0 && x < x0 + cols * cellWidth && y >= y0 && y < y0 + rows * cellHeight;
+        }
+
+        /**
+         * Column of the given X coordinate, clamped to the grid.
+         *
+         * @param x X coordinate.
+         * @return Column index.
+         */
+        private int colOf(double x) {
+            return Math.max(0, Math.min(cols - 1, (int) Math.floor((x - x0) / cellWidth)));
+        }
+
+        /**
+         * Row of the given Y coordinate, clamped to the grid.
+         *
+         * @param y Y coordinate.
+         * @return Row index.
+         */
+        private int rowOf(double y) {
+            return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - y0) / cellHeight)));
+        }
+
+        /**
+         * Cell of the given coordinates, clamped to the grid.
+         *
+         * @param x X coordinate.
+         * @param y Y coordinate.
+         * @return Cell index.
+         */
+        private int cellOf(double x, double y) {
+            return rowOf(y) * cols + colOf(x);
+        }
+
+        /**
+         * Adds an element to a cell. The caller has to hold the cell's lock.
+         *
+         * @param cell Cell index.
+         * @param c    The element.
+         */
+        private void append(int cell, CoordinatesElement<E> c) {
+            var a = cells.get(cell);
+            var n = Arrays.copyOf(a, a.length + 1);
+            n[a.length] = c;
+            cells.set(cell, n);
+        }
+
+        /**
+         * Removes an element from a cell. The caller has to hold the cell's lock.
+         *
+         * @param cell Cell index.
+         * @param c    An element equal to the one to remove.
+         * @return The removed element, or {@code null} if the cell does not hold it.
+         */
+        private CoordinatesElement<E> remove(int cell, CoordinatesElement<E> c) {
+            var a = cells.get(cell);
+            int i = indexOf(a, c);
+            if(i < 0) {
+                return null;
+            }
+
+            var n = Arrays.copyOf(a, a.length - 1);
+            System.arraycopy(a, i + 1, n, i, a.length - i - 1);
+            cells.set(cell, n);
+            return a[i];
+        }
+
+        /**
+         * Index of an element in an array of elements.
+         *
+         * @param a The array.
+         * @param c The element.
+         * @param <E> Type of elements.
+         * @return The index of the first equal element, or {@code -1}.
+         */
+        private static <E> int indexOf(CoordinatesElement<E>[] a, CoordinatesElement<E> c) {
+            for(int i = 0; i < a.length; i++) {
+                if(a[i].equals(c)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+
+    /**
+     * Default initial width.
+     */
+    public static final double DEFAULT_WIDTH = 1_000d;
+
+    /**
+     * Default initial height.
+     */
+    public static final double DEFAULT_HEIGHT = 1_000d;
+
+    /**
+     * Default width and height of a cell.
+     */
+    public static final double DEFAULT_CELL_SIZE = 200d;
+
+    /**
+     * Maximum number of cells, past which the cells are enlarged
+     * instead of adding more of them.
+     */
+    public static final int MAX_CELLS = 1 << 16;
+
+    /**
+     * Number of locks shared by the cells.
+     */
+    private static final int STRIPES = 64;
+
+
+    /**
+     * The grid. Lookups read it without locking.
+     */
+    private volatile Grid<E> grid;
+
+    /**
+     * Writers hold the read lock, growing the grid takes the write lock.
+     */
+    private final ReentrantReadWriteLock resizeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Locks of the cells, cell {@code c} uses {@code stripes[c % STRIPES]}.
+     */
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Number of elements.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Number of changes of the bounds of the stripes.
+     */
+    private final AtomicInteger boundsChanges = new AtomicInteger();
+
+    /**
+     * Whether a writer is setting the dimensions.
+     */
+    private final AtomicBoolean publishing = new AtomicBoolean();
+
+    /**
+     * Minimum width in this structure.
+     */
+    private final DoubleProperty minWidth = new SimpleDoubleProperty();
+
+    /**
+     * Minimum height in this structure.
+     */
+    private final DoubleProperty minHeight = new SimpleDoubleProperty();
+
+    /**
+     * Maximum width in this structure.
+     */
+    private final DoubleProperty maxWidth = new SimpleDoubleProperty();
+
+    /**
+     * Maximum height in this structure.
+     */
+    private final DoubleProperty maxHeight = new SimpleDoubleProperty();
+
+    /**
+     * On move consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Move<E>>>> moveConsumers = new ConcurrentHashMap<>();
+
+    /**
+     * On addition consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Addition<E>>>> addConsumers = new ConcurrentHashMap<>();
+
+    /**
+     * On removal consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Removal<E>>>> rmConsumers = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor.
+     *
+     * @param el Elements.
+     */
+    public ConcurrentMutableMatrix(Collection<E> el) {
+        this(el, DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     */
+    public ConcurrentMutableMatrix(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+        this(el);
+        layoutSupplier.apply(this).apply();
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c Structure to copy.
+     */
+    public ConcurrentMutableMatrix(CoordinatesStructure<E> c) {
+        this(c, DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el            Elements.
+     * @param initialWidth  Width.
+     * @param initialHeight Height.
+     * @param cellSize      Width and height of a cell.
+     */
+    public ConcurrentMutableMatrix(Collection<E> el, double initialWidth, double initialHeight, double cellSize) {
+        this(initialWidth, initialHeight, cellSize);
+
+        el.forEach(e -> place(new CoordinatesElement<>(e)));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el            Elements.
+     * @param initialWidth  Width.
+     * @param initialHeight Height.
+     * @param cellSize      Width and height of a cell.
+     */
+    public ConcurrentMutableMatrix(CoordinatesStructure<E> el, double initialWidth, double initialHeight,
+                                   double cellSize) {
+        this(initialWidth, initialHeight, cellSize);
+
+        el.forEach(this::place);
+    }
+
+    /**
+     * Custom values fields setter constructor.
+     *
+     * @param initialWidth  Width.
+     * @param initialHeight Height.
+     * @param cellSize      Width and height of a cell.
+     */
+    private ConcurrentMutableMatrix(double initialWidth, double initialHeight, double cellSize) {
+        if(initialWidth <= 0 || initialHeight <= 0 || !(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException();
+        }
+
+        for(int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        int cols = (int) Math.max(1, Math.min(MAX_CELLS, Math.ceil(initialWidth / cellSize)));
+        int rows = (int) Math.max(1, Math.min(MAX_CELLS / cols, Math.ceil(initialHeight / cellSize)));
+        grid = new Grid<>(0d, 0d, cellSize, cellSize, cols, rows);
+    }
+
+
+    /**
+     * Lock of a cell.
+     *
+     * @param cell Cell index.
+     * @return The lock.
+     */
+    private Stripe stripe(int cell) {
+        return stripes[cell & (STRIPES - 1)];
+    }
+
+    /**
+     * Checks that a pair of coordinates can be stored.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @throws IllegalArgumentException If a coordinate is infinite or NaN.
+     */
+    private static void checkFinite(double x, double y) {
+        if(!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Helper method which adds the given element to the structure.
+     *
+     * @param c The element to place.
+     */
+    private void place(CoordinatesElement<E> c) {
+        double x = c.getX();
+        double y = c.getY();
+        checkFinite(x, y);
+
+        while(true) {
+            resizeLock.readLock().lock();
+            try {
+                var g = grid;
+                if(g.contains(x, y)) {
+                    int cell = g.cellOf(x, y);
+                    var lock = stripe(cell);
+                    lock.lock();
+                    try {
+                        g.append(cell, c);
+                        lock.bounds.add(x, y);
+                        lock.publish();
+                    }
+                    finally {
+                        lock.unlock();
+                    }
+                    break;
+                }
+            }
+            finally {
+                resizeLock.readLock().unlock();
+            }
+            grow(x, y);
+        }
+
+        size.incrementAndGet();
+        updateDimensions();
+    }
+
+    /**
+     * Helper method which removes the given element from the structure.
+     *
+     * @param c The element to remove.
+     * @return The removed element, or {@code null} if it was not in the structure.
+     */
+    private CoordinatesElement<E> delete(CoordinatesElement<E> c) {
+        CoordinatesElement<E> removed;
+
+        resizeLock.readLock().lock();
+        try {
+            var g = grid;
+            if(!g.contains(c.getX(), c.getY())) {
+                return null;
+            }
+
+            int cell = g.cellOf(c.getX(), c.getY());
+            var lock = stripe(cell);
+            lock.lock();
+            try {
+                removed = g.remove(cell, c);
+                if(removed != null) {
+                    lock.bounds.remove(removed);
+                    lock.publish();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        finally {
+            resizeLock.readLock().unlock();
+        }
+
+        if(removed == null) {
+            return null;
+        }
+
+        size.decrementAndGet();
+        updateDimensions();
+        return removed;
+    }
+
+    /**
+     * Helper method which moves an existing element. The element held
+     * by the structure is never modified, as lookups may be reading it:
+     * it is replaced by a copy at its new coordinates, which is added to its
+     * new cell after it was removed from its old one, so that concurrent
+     * lookups never see it twice.
+     *
+     * @param c The element to move.
+     * @param x New X coordinate.
+     * @param y New Y coordinate.
+     * @return {@code true} if the element was present and successfully moved;
+     * {@code false} otherwise.
+     */
+    private boolean move(CoordinatesElement<E> c, double x, double y) {
+        checkFinite(x, y);
+        double oldX = c.getX();
+        double oldY = c.getY();
+
+        while(true) {
+            resizeLock.readLock().lock();
+            try {
+                var g = grid;
+                if(!g.contains(oldX, oldY)) {
+                    return false;
+                }
+
+                if(g.contains(x, y)) {
+                    if(!moveIn(g, c, oldX, oldY, x, y)) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+            finally {
+                resizeLock.readLock().unlock();
+            }
+            grow(x, y);
+        }
+
+        updateDimensions();
+        return true;
+    }
+
+    /**
+     * Moves an element within a grid which contains both its old and
+     * new coordinates. The locks of both cells are taken
+     * in the order of the stripes, to avoid deadlocks.
+     *
+     * @param g    The grid.
+     * @param c    The element to move.
+     * @param oldX Old X coordinate.
+     * @param oldY Old Y coordinate.
+     * @param x    New X coordinate.
+     * @param y    New Y coordinate.
+     * @return {@code true} if the element was found and moved.
+     */
+    private boolean moveIn(Grid<E> g, CoordinatesElement<E> c, double oldX, double oldY, double x, double y) {
+        int from = g.cellOf(oldX, oldY);
+        int to = g.cellOf(x, y);
+        int s1 = from & (STRIPES - 1);
+        int s2 = to & (STRIPES - 1);
+        var first = stripes[Math.min(s1, s2)];
+        var second = stripes[Math.max(s1, s2)];
+
+        first.lock();
+        if(second != first) {
+            second.lock();
+        }
+        try {
+            if(from == to) {
+                var a = g.cells.get(from);
+                int i = Grid.indexOf(a, c);
+                if(i < 0) {
+                    return false;
+                }
+                var n = a.clone();
+                n[i] = a[i].copyAt(x, y);
+                g.cells.set(from, n);
+            }
+            else {
+                var stored = g.remove(from, c);
+                if(stored == null) {
+                    return false;
+                }
+                g.append(to, stored.copyAt(x, y));
+            }
+
+            stripes[s1].bounds.remove(oldX, oldY);
+            stripes[s2].bounds.add(x, y);
+            stripes[s1].publish();
+            if(s2 != s1) {
+                stripes[s2].publish();
+            }
+            return true;
+        }
+        finally {
+            if(second != first) {
+                second.unlock();
+            }
+            first.unlock();
+        }
+    }
+
+    /**
+     * Grows the grid until it contains the given coordinates. The grid is
+     * doubled towards the coordinates every time, by doubling either the
+     * number of cells or their size once there are {@link #MAX_CELLS} cells.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     */
+    private void grow(double x, double y) {
+        resizeLock.writeLock().lock();
+        try {
+            var g = grid;
+            if(g.contains(x, y)) {
+                return;
+            }
+
+            double x0 = g.x0;
+            double y0 = g.y0;
+            double cw = g.cellWidth;
+            double ch = g.cellHeight;
+            int cols = g.cols;
+            int rows = g.rows;
+
+            while(x < x0 || x >= x0 + cols * cw) {
+                if(x < x0) {
+                    x0 -= cols * cw;
+                }
+                if((long) cols * 2 * rows <= MAX_CELLS) {
+                    cols *= 2;
+                }
+                else {
+                    cw *= 2;
+                }
+            }
+            while(y < y0 || y >= y0 + rows * ch) {
+                if(y < y0) {
+                    y0 -= rows * ch;
+                }
+                if((long) cols * rows * 2 <= MAX_CELLS) {
+                    rows *= 2;
+                }
+                else {
+                    ch *= 2;
+                }
+            }
+
+            var n = new Grid<E>(x0, y0, cw, ch, cols, rows);
+            var buckets = new HashMap<Integer, List<CoordinatesElement<E>>>();
+            for(int i = 0; i < g.cells.length(); i++) {
+                for(var c : g.cells.get(i)) {
+                    buckets.computeIfAbsent(n.cellOf(c.getX(), c.getY()), k -> new ArrayList<>()).add(c);
+                }
+            }
+            // cells move to other stripes, which have to track their bounds
+            for(var st : stripes) {
+                st.bounds.clear();
+            }
+            var empty = n.emptyArray();
+            buckets.forEach((cell, l) -> {
+                n.cells.set(cell, l.toArray(empty));
+                l.forEach(stripe(cell).bounds::add);
+            });
+            for(var st : stripes) {
+                st.publish();
+            }
+
+            grid = n;
+        }
+        finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Called after the bounds of a stripe changed. Writers never wait for
+     * each other here: only one of them sets the dimensions at a time, and
+     * it sets them again if the bounds changed in the meantime.
+     */
+    private void updateDimensions() {
+        boundsChanges.incrementAndGet();
+
+        while(publishing.compareAndSet(false, true)) {
+            int seen = boundsChanges.get();
+            try {
+                var b = bounds();
+                if(b[0] != minWidth.get()) {
+                    minWidth.set(b[0]);
+                }
+                if(b[1] != minHeight.get()) {
+                    minHeight.set(b[1]);
+                }
+                if(b[2] != maxWidth.get()) {
+                    maxWidth.set(b[2]);
+                }
+                if(b[3] != maxHeight.get()) {
+                    maxHeight.set(b[3]);
+                }
+            }
+            finally {
+                publishing.set(false);
+            }
+
+            if(boundsChanges.get() == seen) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Bounds of the elements, from the published bounds of the stripes.
+     *
+     * @return Minimum X, minimum Y, maximum X and maximum Y coordinates,
+     * all {@code 0} if the structure is empty.
+     */
+    private double[] bounds() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(var st : stripes) {
+            minX = Math.min(minX, st.minX);
+            minY = Math.min(minY, st.minY);
+            maxX = Math.max(maxX, st.maxX);
+            maxY = Math.max(maxY, st.maxY);
+        }
+
+        if(minX > maxX) {
+            return new double[4];
+        }
+        return new double[] { minX, minY, maxX, maxY };
+    }
+
+    /**
+     * Gives all the elements within the given area which match
+     * the given condition to the given action.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition, may be {@code null}.
+     * @param action       Action.
+     */
+    private void collect(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                         Predicate<E> condition, Consumer<? super CoordinatesElement<E>> action) {
+        var g = grid;
+        int minCol = g.colOf(topLeftX);
+        int maxCol = g.colOf(bottomRightX);
+        int minRow = g.rowOf(topLeftY);
+        int maxRow = g.rowOf(bottomRightY);
+
+        for(int row = minRow; row <= maxRow; row++) {
+            for(int col = minCol; col <= maxCol; col++) {
+                for(var c : g.cells.get(row * g.cols + col)) {
+                    if(c.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)
+                        && (condition == null || condition.test(c.getElement()))) {
+                        action.accept(c);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to add.
+     * @return {@code true} if it was successfully added.
+     */
+    @Override
+    public boolean addCoordinates(CoordinatesElement<E> element) {
+        place(element);
+        fireAddEvent(List.of(element), element.getXY(), element.getXY());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param coordinatesElements The elements to add.
+     * @return {@code true} if at least one element was successfully added.
+     */
+    @Override
+    public boolean addAllCoordinates(Collection<CoordinatesElement<E>> coordinatesElements) {
+        if(coordinatesElements.isEmpty()) {
+            return false;
+        }
+
+        var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+
+        for(var c : coordinatesElements) {
+            place(c);
+            l.add(c);
+            minX = Math.min(minX, c.getX());
+            maxX = Math.max(maxX, c.getX());
+            minY = Math.min(minY, c.getY());
+            maxY = Math.max(maxY, c.getY());
+        }
+
+        fireAddEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to remove.
+     * @return {@code true} if the element was successfully removed.
+     */
+    @Override
+    public boolean removeValue(E element) {
+        var c = coordinatesOf(element).map(this::delete).orElse(null);
+        if(c == null) {
+            return false;
+        }
+
+        fireRmEvent(List.of(c), c.getXY(), c.getXY());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The element to remove.
+     * @return {@code true} if at least one element was successfully removed.
+     */
+    @Override
+    public boolean removeAllValues(Collection<E> elements) {
+        return removeCoordinatesIf(c -> elements.contains(c.getElement()));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to remove.
+     * @return {@code true} if the element was successfully removed.
+     */
+    @Override
+    public boolean removeCoordinates(CoordinatesElement<E> element) {
+        var c = delete(element);
+        if(c == null) {
+            return false;
+        }
+
+        fireRmEvent(List.of(c), c.getXY(), c.getXY());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param coordinatesElements The element to remove.
+     * @return {@code true} if at least one element was successfully removed.
+     */
+    @Override
+    public boolean removeAllCoordinates(Collection<CoordinatesElement<E>> coordinatesElements) {
+        var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+
+        for(var e : coordinatesElements) {
+            var c = delete(e);
+            if(c == null) {
+                continue;
+            }
+            l.add(c);
+            minX = Math.min(minX, c.getX());
+            maxX = Math.max(maxX, c.getX());
+            minY = Math.min(minY, c.getY());
+            maxY = Math.max(maxY, c.getY());
+        }
+
+        if(l.isEmpty()) {
+            return false;
+        }
+
+        fireRmEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param condition Filtering condition.
+     * @return {@code true} if at least one element was successfully removed.
+     */
+    @Override
+    public boolean removeValuesIf(Predicate<? super E> condition) {
+        return removeCoordinatesIf(c -> condition.test(c.getElement()));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param condition Filtering condition.
+     * @return {@code true} if at least one element was successfully removed.
+     */
+    @Override
+    public boolean removeCoordinatesIf(Predicate<? super CoordinatesElement<E>> condition) {
+        var l = new ArrayList<CoordinatesElement<E>>();
+
+        for(var c : this) {
+            if(condition.test(c)) {
+                l.add(c);
+            }
+        }
+
+        return !(l.isEmpty()) && removeAllCoordinates(l);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Elements added concurrently may or may not be removed.
+     *
+     * @return {@code true} if it was modified as a result of calling this.
+     */
+    @Override
+    public boolean clear() {
+        var l = new ArrayList<CoordinatesElement<E>>();
+        Point2D p1;
+        Point2D p2;
+
+        resizeLock.writeLock().lock();
+        try {
+            var g = grid;
+            for(int i = 0; i < g.cells.length(); i++) {
+                l.addAll(Arrays.asList(g.cells.get(i)));
+            }
+            grid = new Grid<>(g.x0, g.y0, g.cellWidth, g.cellHeight, g.cols, g.rows);
+            size.set(0);
+
+            var b = bounds();
+            p1 = new Point2D(b[0], b[1]);
+            p2 = new Point2D(b[2], b[3]);
+            for(var st : stripes) {
+                st.bounds.clear();
+                st.publish();
+            }
+        }
+        finally {
+            resizeLock.writeLock().unlock();
+        }
+
+        updateDimensions();
+
+        if(l.isEmpty()) {
+            return false;
+        }
+
+        fireRmEvent(l, p1, p2);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param e The elements with its old coordinates.
+     * @param p The new coordinates for the element.
+     */
+    @Override
+    public void repositionTo(CoordinatesElement<E> e, Point2D p) {
+        var cp = e.copyAt(e.getX(), e.getY());
+        if(!move(e, p.getX(), p.getY())) {
+            return;
+        }
+
+        var pTL = new Point2D(Math.min(cp.getX(), p.getX()), Math.min(cp.getY(), p.getY()));
+        var pBR = new Point2D(Math.max(cp.getX(), p.getX()), Math.max(cp.getY(), p.getY()));
+        fireMoveEvent(Map.of(cp, p), pTL, pBR);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param m Elements with their old coordinates mapped to
+     *          their new coordinates.
+     */
+    @Override
+    public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
+        List<CoordinatesElement<E>> changed = new ArrayList<>(m.size());
+        double[] coordinates = new double[4 * m.size()];
+
+        double minChangedX = Double.MAX_VALUE;
+        double minChangedY = Double.MAX_VALUE;
+        double maxChangedX = -Double.MAX_VALUE;
+        double maxChangedY = -Double.MAX_VALUE;
+
+        for(var e : m.entrySet()) {
+            double oldX = e.getKey().getX();
+            double oldY = e.getKey().getY();
+            if(!move(e.getKey(), e.getValue().getX(), e.getValue().getY())) {
+                continue;
+            }
+
+            minChangedX = Math.min(minChangedX, Math.min(oldX, e.getValue().getX()));
+            minChangedY = Math.min(minChangedY, Math.min(oldY, e.getValue().getY()));
+            maxChangedX = Math.max(maxChangedX, Math.max(oldX, e.getValue().getX()));
+            maxChangedY = Math.max(maxChangedY, Math.max(oldY, e.getValue().getY()));
+            int k = 4 * changed.size();
+            coordinates[k] = oldX;
+            coordinates[k + 1] = oldY;
+            coordinates[k + 2] = e.getValue().getX();
+            coordinates[k + 3] = e.getValue().getY();
+            changed.add(e.getKey());
+        }
+
+        if(changed.isEmpty()) {
+            return;
+        }
+
+        fireMoveEvent(
+            changed, coordinates, changed.size() == size(),
+            new Point2D(minChangedX, minChangedY), new Point2D(maxChangedX, maxChangedY)
+        );
+    }
+
+
+    /**
+     * Notifies all the move consumers.
+     */
+    private void fireMoveEvent(Map<CoordinatesElement<E>, Point2D> m, Point2D topLeft, Point2D bottomRight) {
+        var e = StructureChange.moved(this, m, topLeft, bottomRight);
+        for(var l : moveConsumers.values()) {
+            l.forEach(c -> c.accept(e));
+        }
+    }
+
+    /**
+     * Notifies all the consumers.
+     */
+    private void fireMoveEvent(List<CoordinatesElement<E>> m, double[] coordinates, boolean all,
+                               Point2D topLeft, Point2D bottomRight) {
+        var e = StructureChange.moved(this, m, coordinates, topLeft, bottomRight, all);
+        for(var l : moveConsumers.values()) {
+            l.forEach(c -> c.accept(e));
+        }
+    }
+
+    /**
+     * Notifies all the addition consumers.
+     */
+    private void fireAddEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
+        var e = StructureChange.added(this, elts, topLeft, bottomRight);
+        for(var l : addConsumers.values()) {
+            l.forEach(c -> c.accept(e));
+        }
+    }
+
+    /**
+     * Notifies all the removal consumers.
+     */
+    private void fireRmEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
+        var e = StructureChange.removed(this, elts, topLeft, bottomRight);
+        for(var l : rmConsumers.values()) {
+            l.forEach(c -> c.accept(e));
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     */
+    @Override
+    public void addMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        moveConsumers.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>()).add(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    @Override
+    public void removeMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        var l = moveConsumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners(Object owner) {
+        var l = moveConsumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Move<E>>>();
+        moveConsumers.values().forEach(l::addAll);
+        moveConsumers.clear();
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     */
+    @Override
+    public void addAdditionListener(Object owner, Consumer<? super StructureChange.Addition<E>> action) {
+        addConsumers.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>()).add(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    @Override
+    public void removeAdditionListener(Object owner, Consumer<? super StructureChange.Addition<E>> action) {
+        var l = addConsumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Addition<E>>> clearAdditionListeners(Object owner) {
+        var l = addConsumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Addition<E>>> clearAdditionListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Addition<E>>>();
+        addConsumers.values().forEach(l::addAll);
+        addConsumers.clear();
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     */
+    @Override
+    public void addRemovalListener(Object owner, Consumer<? super StructureChange.Removal<E>> action) {
+        rmConsumers.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>()).add(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    @Override
+    public void removeRemovalListener(Object owner, Consumer<? super StructureChange.Removal<E>> action) {
+        var l = rmConsumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Removal<E>>> clearRemovalListeners(Object owner) {
+        var l = rmConsumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Removal<E>>> clearRemovalListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Removal<E>>>();
+        rmConsumers.values().forEach(l::addAll);
+        rmConsumers.clear();
+        return l;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        // fail fast
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collect(topLeftX, topLeftY, bottomRightX, bottomRightY, null, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY,
+                                                     Predicate<E> condition) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collect(topLeftX, topLeftY, bottomRightX, bottomRightY, condition, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return;
+        }
+
+        collect(topLeftX, topLeftY, bottomRightX, bottomRightY, null, action);
+    }
+
+    /**
+     * Minimum width of this structure.
+     *
+     * @return Min width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumWidth() {
+        return minWidth;
+    }
+
+    /**
+     * Minimum height of this structure.
+     *
+     * @return Min height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumHeight() {
+        return minHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this structure.
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param c The element to check.
+     * @return {@code true} if it contains it; {@code false} otherwise.
+     */
+    @Override
+    public boolean containsCoordinates(CoordinatesElement<E> c) {
+        var g = grid;
+        if(!g.contains(c.getX(), c.getY())) {
+            return false;
+        }
+
+        return Grid.indexOf(g.cells.get(g.cellOf(c.getX(), c.getY())), c) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to find.
+     * @return The coordinates of the given element if it is in the structure.
+     */
+    @Override
+    public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        for(var c : this) {
+            if(c.getElement().equals(element)) {
+                return Optional.of(c);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The elements to find.
+     * @return The coordinates of the given elements that are in the structure.
+     */
+    @Override
+    public Map<E, CoordinatesElement<E>> coordinatesOf(Collection<E> elements) {
+        var m = new HashMap<E, CoordinatesElement<E>>();
+
+        for(var c : this) {
+            if(elements.contains(c.getElement())) {
+                m.putIfAbsent(c.getElement(), c);
+            }
+        }
+
+        return m;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return a weakly consistent Iterator.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new WeaklyConsistentIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action The action to be performed for each element
+     */
+    @Override
+    public void forEach(Consumer<? super CoordinatesElement<E>> action) {
+        var g = grid;
+        for(int i = 0; i < g.cells.length(); i++) {
+            for(var c : g.cells.get(i)) {
+                action.accept(c);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        var l = new ArrayList<CoordinatesElement<E>>(size());
+        forEach(l::add);
+        return l.toString();
+    }
+
+
+    /**
+     * Iterator which reads the cells one by one as it reaches them.
+     * It never throws {@link java.util.ConcurrentModificationException}.
+     */
+    protected class WeaklyConsistentIterator implements CoordinatesIterator<CoordinatesElement<E>> {
+
+        /**
+         * Grid at the creation of the iterator.
+         */
+        private final Grid<E> g = grid;
+
+        /**
+         * Index of the next cell to read.
+         */
+        private int cell = 0;
+
+        /**
+         * Elements of the current cell.
+         */
+        private CoordinatesElement<E>[] current = g.emptyArray();
+
+        /**
+         * Index of the next element in the current cell.
+         */
+        private int i = 0;
+
+        /**
+         * Last seen element. {@code null} if {@link #reposition(double, double)}
+         * or {@link #remove()} were called.
+         */
+        private CoordinatesElement<E> last;
+
+
+        /**
+         * Constructor.
+         */
+        protected WeaklyConsistentIterator() { }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@code true} if the iteration has more elements
+         */
+        @Override
+        public boolean hasNext() {
+            while(i >= current.length && cell < g.cells.length()) {
+                current = g.cells.get(cell++);
+                i = 0;
+            }
+            return i < current.length;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the next element in the iteration
+         * @throws NoSuchElementException if the iteration has no more elements
+         */
+        @Override
+        public CoordinatesElement<E> next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = current[i++];
+            return last;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param x New X coordinate.
+         * @param y New Y coordinate.
+         */
+        @Override
+        public void reposition(double x, double y) {
+            if(last == null) {
+                throw new IllegalStateException();
+            }
+            repositionTo(last, x, y);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove() {
+            if(last == null) {
+                throw new IllegalStateException();
+            }
+            removeCoordinates(last);
+            last = null;
+        }
+    }
+}
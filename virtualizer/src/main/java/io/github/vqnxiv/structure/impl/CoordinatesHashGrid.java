@@ -0,0 +1,973 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.Layout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+
+/**
+ * Coordinates structure backed by a sparse grid, i.e a hash map of
+ * fixed size square cells in which only the occupied cells exist.
+ * <p>
+ * Unlike {@link CoordinatesMatrix}, it covers the whole plane: negative
+ * and very large coordinates are stored like any other ones, and elements
+ * drifting outwards never cause the whole structure to be reallocated, as
+ * placing an element only ever creates the one cell it falls in. Cells are
+ * removed once they are empty.
+ * <p>
+ * Lookups visit the cells covered by the area, or all the occupied cells
+ * when there are less of them than there are covered cells, so they are
+ * bounded by both the size of the area and the number of elements.
+ * Coordinates whose cell index doesn't fit an {@code int} share the
+ * outermost cells.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see CoordinatesMatrix
+ */
+public class CoordinatesHashGrid<E> implements CoordinatesStructure<E>, LocalizedStructure<E> {
+
+    /**
+     * Layoutable grid where {@link #repositionAllTo(Map)} doesn't check
+     * whether the structure already contains the elements.
+     * <p>
+     * It is only used for faster repositioning when creating a new grid
+     * with a layout (as all the elements are initially placed at [0, 0],
+     * which would put them all in the same cell).
+     *
+     * @param <E> Type of elements.
+     */
+    private static final class UncheckedLayoutableHashGrid<E> extends LayoutableHashGrid<E> {
+
+        /**
+         * Layout constructor.
+         *
+         * @param el             Elements.
+         * @param layoutSupplier Initial layout.
+         */
+        private UncheckedLayoutableHashGrid(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+            super(el);
+            layoutSupplier.apply(this).apply();
+        }
+
+        /**
+         * Layout constructor.
+         *
+         * @param el             Elements.
+         * @param layoutSupplier Initial layout.
+         * @param cellSize       Width and height of a cell.
+         */
+        private UncheckedLayoutableHashGrid(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier,
+                                            double cellSize) {
+            super(el, cellSize);
+            layoutSupplier.apply(this).apply();
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param m Elements with their old coordinates mapped to
+         *          their new coordinates.
+         */
+        @Override
+        public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
+            emptyElements();
+            m.forEach(CoordinatesElement::setXY);
+            placeAll(m.keySet());
+        }
+    }
+
+
+    /**
+     * Default width and height of a cell.
+     */
+    public static final double DEFAULT_CELL_SIZE = 100d;
+
+
+    /**
+     * Occupied cells, see {@link #key(int, int)}.
+     */
+    private final Map<Long, List<CoordinatesElement<E>>> cells;
+
+    /**
+     * Width and height of a cell.
+     */
+    private final double cellSize;
+
+    /**
+     * Number of elements in the grid.
+     */
+    private int size;
+
+    /**
+     * Bounds of the elements.
+     */
+    private final BoundsTracker bounds;
+
+    /**
+     * Minimum width in this structure.
+     */
+    private final DoubleProperty minWidth = new SimpleDoubleProperty();
+
+    /**
+     * Minimum height in this structure.
+     */
+    private final DoubleProperty minHeight = new SimpleDoubleProperty();
+
+    /**
+     * Maximum width in this structure.
+     */
+    private final DoubleProperty maxWidth = new SimpleDoubleProperty();
+
+    /**
+     * Maximum height in this structure.
+     */
+    private final DoubleProperty maxHeight = new SimpleDoubleProperty();
+
+    /**
+     * Concurrent modification checker for {@link HashGridIterator}.
+     */
+    private int modCount;
+
+    /**
+     * Depth of the current batch, {@code 0} if there is none.
+     *
+     * @see #beginBatch()
+     */
+    private int batchDepth;
+
+
+    /**
+     * Custom values fields setter constructor.
+     *
+     * @param cellSize Width and height of a cell.
+     */
+    private CoordinatesHashGrid(double cellSize) {
+        if(!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException();
+        }
+
+        this.cellSize = cellSize;
+        cells = new HashMap<>();
+        bounds = new BoundsTracker();
+    }
+
+    /**
+     * Shallow copy constructor.
+     *
+     * @param g       Grid to copy.
+     * @param ignored Ignored.
+     */
+    private CoordinatesHashGrid(CoordinatesHashGrid<E> g, boolean ignored) {
+        cells = g.cells;
+        cellSize = g.cellSize;
+        size = g.size;
+        bounds = g.bounds;
+        minWidth.set(g.getMinimumWidth());
+        minHeight.set(g.getMinimumHeight());
+        maxWidth.set(g.getMaximumWidth());
+        maxHeight.set(g.getMaximumHeight());
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param el Elements.
+     */
+    public CoordinatesHashGrid(Collection<E> el) {
+        this(el, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     */
+    public CoordinatesHashGrid(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+        this(new UncheckedLayoutableHashGrid<>(el, layoutSupplier), true);
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c Structure to copy.
+     */
+    public CoordinatesHashGrid(CoordinatesStructure<E> c) {
+        this(c, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param g Grid to copy.
+     */
+    public CoordinatesHashGrid(CoordinatesHashGrid<E> g) {
+        this(g, g.cellSize);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el       Elements.
+     * @param cellSize Width and height of a cell.
+     */
+    public CoordinatesHashGrid(Collection<E> el, double cellSize) {
+        this(cellSize);
+
+        var l = new ArrayList<CoordinatesElement<E>>(el.size());
+        el.forEach(e -> l.add(new CoordinatesElement<>(e)));
+        placeAll(l);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el       Elements.
+     * @param cellSize Width and height of a cell.
+     */
+    public CoordinatesHashGrid(CoordinatesStructure<E> el, double cellSize) {
+        this(cellSize);
+
+        var l = new ArrayList<CoordinatesElement<E>>(el.size());
+        el.forEach(c -> l.add(new CoordinatesElement<>(c)));
+        placeAll(l);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     * @param cellSize       Width and height of a cell.
+     */
+    public CoordinatesHashGrid(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier,
+                               double cellSize) {
+        this(new UncheckedLayoutableHashGrid<>(el, layoutSupplier, cellSize), true);
+    }
+
+
+    /**
+     * Key of a cell in {@link #cells}.
+     *
+     * @param col Column of the cell.
+     * @param row Row of the cell.
+     * @return The key.
+     */
+    private static long key(int col, int row) {
+        return ((long) col << 32) | (row & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * Cell index of a coordinate. {@code (int)} saturates, so that
+     * infinite and very large coordinates end up in the outermost cells.
+     *
+     * @param d The coordinate.
+     * @return The cell index.
+     */
+    private int indexOf(double d) {
+        return (int) Math.floor(d / cellSize);
+    }
+
+    /**
+     * Key of the cell of the given element.
+     *
+     * @param c The element.
+     * @return The key.
+     */
+    private long keyOf(CoordinatesElement<E> c) {
+        return key(indexOf(c.getX()), indexOf(c.getY()));
+    }
+
+    /**
+     * Should be called whenever the grid is modified.
+     */
+    private void modified() {
+        modCount++;
+    }
+
+    /**
+     * Adds an element to its cell.
+     *
+     * @param c The element.
+     */
+    private void insert(CoordinatesElement<E> c) {
+        cells.computeIfAbsent(keyOf(c), k -> new ArrayList<>(2)).add(c);
+    }
+
+    /**
+     * Removes an element from its cell, and the cell if it becomes empty.
+     *
+     * @param c An element equal to the one to remove.
+     * @return The removed element, or {@code null} if it is not in the grid.
+     */
+    private CoordinatesElement<E> extract(CoordinatesElement<E> c) {
+        long k = keyOf(c);
+        var l = cells.get(k);
+        if(l == null) {
+            return null;
+        }
+
+        int i = l.indexOf(c);
+        if(i < 0) {
+            return null;
+        }
+
+        var stored = l.get(i);
+        // order doesn't matter within a cell
+        l.set(i, l.get(l.size() - 1));
+        l.remove(l.size() - 1);
+        if(l.isEmpty()) {
+            cells.remove(k);
+        }
+        return stored;
+    }
+
+    /**
+     * Helper method which adds the given element to the grid.
+     *
+     * @param c The element to place.
+     * @return {@code true} if it was added; {@code false} otherwise.
+     */
+    protected final boolean place(CoordinatesElement<E> c) {
+        insert(c);
+        bounds.add(c);
+        size++;
+        updateDimensions();
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which adds all the given elements to the grid.
+     *
+     * @param c The elements to place.
+     */
+    protected final void placeAll(Collection<CoordinatesElement<E>> c) {
+        if(c.isEmpty()) {
+            return;
+        }
+
+        for(var e : c) {
+            insert(e);
+            bounds.add(e);
+        }
+
+        size += c.size();
+        updateDimensions();
+        modified();
+    }
+
+    /**
+     * Helper method which removes the given element from the grid.
+     *
+     * @param c The element to remove.
+     * @return {@code true} if it was removed; {@code false} otherwise.
+     */
+    protected final boolean delete(CoordinatesElement<E> c) {
+        var stored = extract(c);
+        if(stored == null) {
+            return false;
+        }
+
+        bounds.remove(stored);
+        size--;
+        updateDimensions();
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which moves an existing element.
+     *
+     * @param c The element to move.
+     * @param x New X coordinate.
+     * @param y New Y coordinate.
+     * @return {@code true} if the element was present and successfully moved;
+     * {@code false} otherwise.
+     */
+    protected final boolean move(CoordinatesElement<E> c, double x, double y) {
+        var stored = extract(c);
+        if(stored == null) {
+            return false;
+        }
+
+        bounds.move(stored.getX(), stored.getY(), x, y);
+        stored.setXY(x, y);
+        insert(stored);
+
+        updateDimensions();
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which moves an existing element.
+     *
+     * @param c The element to move.
+     * @param p The new coordinates.
+     * @return {@code true} if the element was present and successfully moved;
+     * {@code false} otherwise.
+     */
+    protected final boolean move(CoordinatesElement<E> c, Point2D p) {
+        return move(c, p.getX(), p.getY());
+    }
+
+    /**
+     * Empties the grid.
+     */
+    protected final void emptyElements() {
+        cells.clear();
+        bounds.clear();
+        size = 0;
+        modified();
+        setDimensions(0d, 0d, 0d, 0d);
+    }
+
+    /**
+     * Gives all the elements whose coordinates are within the given
+     * area and match the given condition to the given action.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition, may be {@code null}.
+     * @param action       Action.
+     */
+    private void collect(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                         Predicate<E> condition, Consumer<? super CoordinatesElement<E>> action) {
+        int minCol = indexOf(topLeftX);
+        int maxCol = indexOf(bottomRightX);
+        int minRow = indexOf(topLeftY);
+        int maxRow = indexOf(bottomRightY);
+
+        double covered = ((double) maxCol - minCol + 1) * ((double) maxRow - minRow + 1);
+
+        if(covered > cells.size()) {
+            for(var e : cells.entrySet()) {
+                int col = (int) (e.getKey() >> 32);
+                int row = (int) (long) e.getKey();
+                if(col >= minCol && col <= maxCol && row >= minRow && row <= maxRow) {
+                    collect(e.getValue(), topLeftX, topLeftY, bottomRightX, bottomRightY, condition, action);
+                }
+            }
+            return;
+        }
+
+        // long counters, as the outermost cells are at Integer.MAX_VALUE
+        for(long row = minRow; row <= maxRow; row++) {
+            for(long col = minCol; col <= maxCol; col++) {
+                var l = cells.get(key((int) col, (int) row));
+                if(l != null) {
+                    collect(l, topLeftX, topLeftY, bottomRightX, bottomRightY, condition, action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives all the elements of a cell whose coordinates are within the given
+     * area and match the given condition to the given action.
+     *
+     * @param l            Elements of the cell.
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition, may be {@code null}.
+     * @param action       Action.
+     */
+    private void collect(List<CoordinatesElement<E>> l,
+                         double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                         Predicate<E> condition, Consumer<? super CoordinatesElement<E>> action) {
+        for(var c : l) {
+            if(c.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)
+                && (condition == null || condition.test(c.getElement()))) {
+                action.accept(c);
+            }
+        }
+    }
+
+    /**
+     * Sets the dimensions.
+     *
+     * @param minW Potential new min width.
+     * @param minH Potential new min height.
+     * @param maxW Potential new max width.
+     * @param maxH Potential new max height.
+     */
+    protected final void setDimensions(double minW, double minH, double maxW, double maxH) {
+        if(batchDepth > 0) {
+            return;
+        }
+        if(minW != minWidth.get()) {
+            minWidth.set(minW);
+        }
+        if(minH != minHeight.get()) {
+            minHeight.set(minH);
+        }
+        if(maxW != maxWidth.get()) {
+            maxWidth.set(maxW);
+        }
+        if(maxH != maxHeight.get()) {
+            maxHeight.set(maxH);
+        }
+    }
+
+    /**
+     * Starts a batch. Until the matching {@link #endBatch()}, the dimension
+     * properties are not updated, so that they are only updated once
+     * no matter how many changes happen during the batch.
+     * <p>
+     * Batches can be nested, in which case only the outermost one matters.
+     */
+    protected final void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch. When the outermost batch ends, the dimension
+     * properties are updated and {@link #batchEnded()} is called.
+     *
+     * @throws IllegalStateException If there is no batch to end.
+     */
+    protected final void endBatch() {
+        if(batchDepth == 0) {
+            throw new IllegalStateException();
+        }
+        if(--batchDepth == 0) {
+            updateDimensions();
+            batchEnded();
+        }
+    }
+
+    /**
+     * Whether a batch is in progress.
+     *
+     * @return {@code true} if a batch was started and not ended yet.
+     */
+    protected final boolean inBatch() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Called when the outermost batch ends, after the dimension properties
+     * were updated. Does nothing by default.
+     */
+    protected void batchEnded() {
+        // to be overridden
+    }
+
+    /**
+     * Update dimensions properties from the bounds of the elements.
+     */
+    protected final void updateDimensions() {
+        setDimensions(bounds.minX(), bounds.minY(), bounds.maxX(), bounds.maxY());
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        // fail fast
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collect(topLeftX, topLeftY, bottomRightX, bottomRightY, null, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY,
+                                                     Predicate<E> condition) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collect(topLeftX, topLeftY, bottomRightX, bottomRightY, condition, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return;
+        }
+
+        collect(topLeftX, topLeftY, bottomRightX, bottomRightY, null, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cells are visited in rings of increasing size around the cell of the
+     * coordinates, until the distance to the next ring is greater than the distance
+     * to the farthest of the {@code k} nearest elements found. Once the rings cover more
+     * cells than there are occupied cells, the remaining occupied cells are scanned instead.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param k Maximum number of elements.
+     * @return The nearest elements, sorted from the nearest to the farthest.
+     */
+    @Override
+    public List<CoordinatesElement<E>> kNearest(double x, double y, int k) {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(k == 0 || size == 0) {
+            return new ArrayList<>();
+        }
+
+        var nearest = new NearestCollector<E>(x, y, k);
+        long ci = indexOf(x);
+        long cj = indexOf(y);
+
+        for(long r = 0; ; r++) {
+            if(r > 0) {
+                double d = Math.min(
+                    Math.min(x - (ci - r + 1) * cellSize, (ci + r) * cellSize - x),
+                    Math.min(y - (cj - r + 1) * cellSize, (cj + r) * cellSize - y)
+                );
+                d = Math.max(0d, d);
+                if(d * d > nearest.bound()) {
+                    break;
+                }
+            }
+
+            if((2 * r + 1) * (2 * r + 1) > cells.size()) {
+                for(var e : cells.entrySet()) {
+                    long col = (int) (e.getKey() >> 32);
+                    long row = (int) (long) e.getKey();
+                    if(Math.max(Math.abs(col - ci), Math.abs(row - cj)) >= r) {
+                        offerCell(nearest, col, row, e.getValue());
+                    }
+                }
+                break;
+            }
+
+            for(long col = ci - r; col <= ci + r; col++) {
+                // first and last columns of the ring are full, the others only have both ends
+                long step = (col == ci - r || col == ci + r) ? 1 : Math.max(1, 2 * r);
+                for(long row = cj - r; row <= cj + r; row += step) {
+                    if(col >= Integer.MIN_VALUE && col <= Integer.MAX_VALUE
+                        && row >= Integer.MIN_VALUE && row <= Integer.MAX_VALUE) {
+                        var l = cells.get(key((int) col, (int) row));
+                        if(l != null) {
+                            offerCell(nearest, col, row, l);
+                        }
+                    }
+                }
+            }
+        }
+
+        return nearest.result();
+    }
+
+    /**
+     * Gives the elements of a cell to a collector, unless the cell
+     * is farther than its farthest element.
+     *
+     * @param nearest The collector.
+     * @param col     Column of the cell.
+     * @param row     Row of the cell.
+     * @param l       Elements of the cell.
+     */
+    private void offerCell(NearestCollector<E> nearest, long col, long row, List<CoordinatesElement<E>> l) {
+        // the first and last indexes also hold the coordinates which saturate indexOf
+        double x0 = (col == Integer.MIN_VALUE) ? Double.NEGATIVE_INFINITY : col * cellSize;
+        double y0 = (row == Integer.MIN_VALUE) ? Double.NEGATIVE_INFINITY : row * cellSize;
+        double x1 = (col == Integer.MAX_VALUE) ? Double.POSITIVE_INFINITY : (col + 1) * cellSize;
+        double y1 = (row == Integer.MAX_VALUE) ? Double.POSITIVE_INFINITY : (row + 1) * cellSize;
+
+        if(nearest.distanceTo(x0, y0, x1, y1) <= nearest.bound()) {
+            nearest.offerAll(l);
+        }
+    }
+
+    /**
+     * Minimum width of this structure.
+     *
+     * @return Min width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumWidth() {
+        return minWidth;
+    }
+
+    /**
+     * Minimum height of this structure.
+     *
+     * @return Min height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumHeight() {
+        return minHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this structure.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param c The element to check.
+     * @return {@code true} if it contains it; {@code false} otherwise.
+     */
+    @Override
+    public boolean containsCoordinates(CoordinatesElement<E> c) {
+        var l = cells.get(keyOf(c));
+        return l != null && l.contains(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to find.
+     * @return The coordinates of the given element if it is in the structure.
+     */
+    @Override
+    public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        for(var l : cells.values()) {
+            for(var c : l) {
+                if(c.getElement().equals(element)) {
+                    return Optional.of(c);
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The elements to find.
+     * @return The coordinates of the given elements that are in the structure.
+     */
+    @Override
+    public Map<E, CoordinatesElement<E>> coordinatesOf(Collection<E> elements) {
+        var m = new HashMap<E, CoordinatesElement<E>>();
+
+        for(var e : elements) {
+            coordinatesOf(e).ifPresent(
+                c -> m.put(e, c)
+            );
+        }
+
+        return m;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return an Iterator.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new HashGridIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action The action to be performed for each element
+     */
+    @Override
+    public void forEach(Consumer<? super CoordinatesElement<E>> action) {
+        for(var l : cells.values()) {
+            l.forEach(action);
+        }
+    }
+
+    @Override
+    public String toString() {
+        var l = new ArrayList<CoordinatesElement<E>>(size());
+        forEach(l::add);
+        return l.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+
+        if(o instanceof CoordinatesHashGrid<?> g && g.size() == size()) {
+            @SuppressWarnings("unchecked")
+            var other = (CoordinatesHashGrid<E>) g;
+            for(var c : this) {
+                if(!other.containsCoordinates(c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for(var c : this) {
+            h += c.hashCode();
+        }
+        return h;
+    }
+
+
+    /**
+     * Wrapper over an arraylist iterator over a snapshot of the grid.
+     */
+    protected class HashGridIterator implements CoordinatesIterator<CoordinatesElement<E>> {
+
+        /**
+         * Current iterator.
+         */
+        private final Iterator<CoordinatesElement<E>> itr;
+
+        /**
+         * Expected modification count for concurrent modification.
+         */
+        private int expectedModCount;
+
+
+        /**
+         * Constructor.
+         */
+        protected HashGridIterator() {
+            expectedModCount = modCount;
+            var total = new ArrayList<CoordinatesElement<E>>(size());
+            forEach(total::add);
+            itr = total.iterator();
+        }
+
+
+        /**
+         * Sets the expected mod count to the current mod count.
+         */
+        protected void updateExpectedModCount() {
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Concurrent modification checker.
+         */
+        protected void checkForComod() {
+            if(expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@code true} if the iteration has more elements
+         */
+        @Override
+        public boolean hasNext() {
+            checkForComod();
+            return itr.hasNext();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the next element in the iteration
+         * @throws NoSuchElementException if the iteration has no more elements
+         */
+        @Override
+        public CoordinatesElement<E> next() {
+            checkForComod();
+            return itr.next();
+        }
+    }
+}
@@ -60,6 +60,25 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
      */
     private final DoubleProperty maxHeight = new SimpleDoubleProperty();
 
+    /**
+     * Optional value to element index, {@code null} if disabled.
+     * 
+     * @see #setValueIndexed(boolean) 
+     */
+    private ValueIndex<E> valueIndex;
+
+    /**
+     * Bounds of the elements, from which the dimensions are set.
+     */
+    private final BoundsTracker bounds;
+
+    /**
+     * Depth of the current batch, {@code 0} if there is none.
+     * 
+     * @see #beginBatch() 
+     */
+    private int batchDepth;
+
     
     /**
      * Constructor.
@@ -72,6 +91,7 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
         for(E e : el) {
             elements.add(new CoordinatesElement<>(e));
         }
+        bounds = new BoundsTracker(elements);
         
         minWidth.set(0);
         minHeight.set(0);
@@ -100,11 +120,12 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
         for(var e : el) {
             elements.add(new CoordinatesElement<>(e));
         }
+        bounds = new BoundsTracker(elements);
         
-        minWidth.set(el.getMinimumWidth());
-        minHeight.set(el.getMinimumHeight());
-        maxWidth.set(el.getMaximumWidth());
-        maxHeight.set(el.getMaximumHeight());
+        minWidth.set(bounds.minX());
+        minHeight.set(bounds.minY());
+        maxWidth.set(bounds.maxX());
+        maxHeight.set(bounds.maxY());
     }
 
 
@@ -118,36 +139,96 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
     }
 
     /**
-     * Update dimensions properties.
+     * Enables or disables the value index. When enabled, a hash index
+     * from values to elements is maintained on every modification,
+     * which makes {@link #coordinatesOf(Object)} and {@link #containsValue(Object)}
+     * constant time, at the cost of one map entry per element.
+     * 
+     * @param indexed Whether the values should be indexed.
      */
-    protected void updateDimensions() {
-        double minW = Double.MAX_VALUE;
-        double minH = Double.MAX_VALUE;
-        double maxW = Double.MIN_VALUE; 
-        double maxH = Double.MIN_VALUE;
-        
-        for(var c : elements) {
-            minW = Math.min(minW, c.getX());
-            minH = Math.min(minH, c.getY());
-            maxW = Math.max(maxW, c.getX());
-            maxH = Math.max(maxH, c.getY());
+    public void setValueIndexed(boolean indexed) {
+        if(indexed && valueIndex == null) {
+            valueIndex = new ValueIndex<>(elements);
         }
+        else if(!indexed) {
+            valueIndex = null;
+        }
+    }
 
-        setDimensions(minW, minH, maxW, maxH);
+    /**
+     * Whether the values are indexed.
+     * 
+     * @return {@code true} if the value index is enabled.
+     * @see #setValueIndexed(boolean) 
+     */
+    public boolean isValueIndexed() {
+        return valueIndex != null;
     }
 
     /**
-     * Checks if an element is out of the current bounds
-     * described by the dimensions properties.
+     * Should be called whenever an element was added to {@link #elements}.
+     * Updates the value index and the tracked bounds.
+     * 
+     * @param c The added element.
+     */
+    protected final void elementAdded(CoordinatesElement<E> c) {
+        if(valueIndex != null) {
+            valueIndex.add(c);
+        }
+        bounds.add(c);
+    }
+
+    /**
+     * Should be called whenever an element was removed from {@link #elements}.
+     * Updates the value index and the tracked bounds.
+     * 
+     * @param c The removed element.
+     */
+    protected final void elementRemoved(CoordinatesElement<E> c) {
+        if(valueIndex != null) {
+            valueIndex.remove(c);
+        }
+        bounds.remove(c);
+    }
+
+    /**
+     * Should be called whenever an element of {@link #elements} was moved.
+     * Updates the tracked bounds.
+     * 
+     * @param oldX Old X coordinate.
+     * @param oldY Old Y coordinate.
+     * @param c    The moved element, with its new coordinates.
+     */
+    protected final void elementMoved(double oldX, double oldY, CoordinatesElement<E> c) {
+        bounds.move(oldX, oldY, c.getX(), c.getY());
+    }
+
+    /**
+     * Should be called whenever {@link #elements} was cleared.
+     * Clears the value index and the tracked bounds.
+     */
+    protected final void elementsCleared() {
+        if(valueIndex != null) {
+            valueIndex.clear();
+        }
+        bounds.clear();
+    }
+
+    /**
+     * Update dimensions properties from the tracked bounds.
+     */
+    protected void updateDimensions() {
+        setDimensions(bounds.minX(), bounds.minY(), bounds.maxX(), bounds.maxY());
+    }
+
+    /**
+     * Updates the dimensions properties after an element 
+     * was added or moved.
      * 
      * @param c The element to check.
      */
     protected void setDimensionsIfOutside(CoordinatesElement<E> c) {
-        double minW = Math.min(minWidth.get(), c.getX());
-        double minH = Math.min(minHeight.get(), c.getY());
-        double maxW = Math.max(maxWidth.get(), c.getX());
-        double maxH = Math.max(maxHeight.get(), c.getY());
-        setDimensions(minW, minH, maxW, maxH);
+        updateDimensions();
     }
 
     /**
@@ -171,6 +252,9 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
      * @param maxH Potential new max height.
      */
     protected void setDimensions(double minW, double minH, double maxW, double maxH) {
+        if(batchDepth > 0) {
+            return;
+        }
         if(minW != minWidth.get()) {
             minWidth.set(minW);
         }
@@ -184,6 +268,50 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
             maxHeight.set(maxH);
         }
     }
+
+    /**
+     * Starts a batch. Until the matching {@link #endBatch()}, the dimension
+     * properties are not updated, so that they are only updated once
+     * no matter how many changes happen during the batch.
+     * <p>
+     * Batches can be nested, in which case only the outermost one matters.
+     */
+    protected final void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch. When the outermost batch ends, the dimension
+     * properties are updated and {@link #batchEnded()} is called.
+     * 
+     * @throws IllegalStateException If there is no batch to end.
+     */
+    protected final void endBatch() {
+        if(batchDepth == 0) {
+            throw new IllegalStateException();
+        }
+        if(--batchDepth == 0) {
+            updateDimensions();
+            batchEnded();
+        }
+    }
+
+    /**
+     * Whether a batch is in progress.
+     * 
+     * @return {@code true} if a batch was started and not ended yet.
+     */
+    protected final boolean inBatch() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Called when the outermost batch ends, after the dimension properties
+     * were updated. Does nothing by default.
+     */
+    protected void batchEnded() {
+        // to be overridden
+    }
     
     
     /**
@@ -202,12 +330,12 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
         // fail fast 
         if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
         || topLeftX >= maxWidth.get() || topLeftY >= maxHeight.get()
-        || bottomRightX <= 0 || bottomRightY <= 0) {
+        || bottomRightX < minWidth.get() || bottomRightY < minHeight.get()) {
             return l;
         }
         
         // everything
-        if(topLeftX <= 0 && topLeftY <= 0 && 
+        if(topLeftX <= minWidth.get() && topLeftY <= minHeight.get() && 
            bottomRightX >= maxWidth.get() && 
            bottomRightY >= maxHeight.get()) {
             l.addAll(elements);
@@ -241,7 +369,7 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
         
         if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
             || topLeftX >= maxWidth.get() || topLeftY >= maxHeight.get()
-            || bottomRightX <= 0 || bottomRightY <= 0) {
+            || bottomRightX < minWidth.get() || bottomRightY < minHeight.get()) {
             return l;
         }
         
@@ -254,6 +382,33 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
         return l;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
+            || topLeftX >= maxWidth.get() || topLeftY >= maxHeight.get()
+            || bottomRightX < minWidth.get() || bottomRightY < minHeight.get()) {
+            return;
+        }
+
+        for(int i = 0; i < elements.size(); i++) {
+            var e = elements.get(i);
+            if(e.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                action.accept(e);
+            }
+        }
+    }
+
     /**
      * Minimum width of this structure.
      *
@@ -323,6 +478,10 @@ public class CoordinatesList<E> implements CoordinatesStructure<E> {
      */
     @Override
     public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        if(valueIndex != null) {
+            return Optional.ofNullable(valueIndex.first(element));
+        }
+        
         for(var c : elements) {
             if(c.getElement().equals(element)) {
                 return Optional.of(c);
@@ -16,16 +16,26 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -75,6 +85,13 @@ import java.util.function.Predicate;
  * Conversely, one can set the maximum range increase to a value of {@code 1.0}
  * (the minimum accepted) so that this structure always resizes the internal
  * array without increasing the range.
+ * <p>
+ * The slot of each element in its list is indexed, so removing or moving
+ * an element does not search its list: the last element of the list
+ * takes its place instead.
+ * <p>
+ * The shape of the array can also follow the elements and the lookups,
+ * see {@link #setAdaptive(int, Executor)}.
  * 
  * @param <E> Type of elements.
  *           
@@ -159,12 +176,8 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
             emptyElements();
             ensureSize(layout.getMaxUsedWidth(), layout.getMaxUsedHeight());
-            m.forEach(
-                (k, v) -> {
-                    k.setXY(v);
-                    place(k);
-                }
-            );
+            m.forEach(CoordinatesElement::setXY);
+            placeAll(m.keySet());
             updateDimensions();
         }
     }
@@ -210,6 +223,17 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      */
     public static final double DEFAULT_MAX_HEIGHT = 1_000d;
 
+    /**
+     * Default target number of elements per cell in adaptive mode.
+     */
+    public static final int DEFAULT_ELEMENTS_PER_CELL = 16;
+
+    /**
+     * Number of elements from which bulk placement and re-bucketing
+     * are done in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
 
     /**
      * The elements.
@@ -286,6 +310,49 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      */
     private int size;
 
+    /**
+     * Optional value to element index, {@code null} if disabled.
+     * 
+     * @see #setValueIndexed(boolean) 
+     */
+    private ValueIndex<E> valueIndex;
+
+    /**
+     * Bounds of the elements, from which the dimensions are set.
+     */
+    private final BoundsTracker bounds;
+
+    /**
+     * Slot of each element in its cell, so that it can be removed
+     * from it in constant time.
+     */
+    private SlotIndex slots;
+
+    /**
+     * Summed area table of the sizes of the cells, see {@link #countCells(int, int, int, int)},
+     * or {@code null} if not created yet.
+     */
+    private int[] summedCounts;
+
+    /**
+     * Value of {@link #modCount} when {@link #summedCounts} was created.
+     */
+    private int summedCountsModCount;
+
+    /**
+     * State of the adaptive mode, {@code null} if disabled.
+     * 
+     * @see #setAdaptive(int, Executor) 
+     */
+    private AdaptiveGrid<E> adaptive;
+
+    /**
+     * Depth of the current batch, {@code 0} if there is none.
+     * 
+     * @see #beginBatch() 
+     */
+    private int batchDepth;
+
 
     /**
      * Default values fields setter constructor.
@@ -323,6 +390,8 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
 
         trueMaxWdith = initialWidth;
         trueMaxHeight = initialHeight;
+        bounds = new BoundsTracker();
+        slots = new SlotIndex();
 
         minWidth.set(0);
         minHeight.set(0);
@@ -351,6 +420,8 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      */
     private CoordinatesMatrix(CoordinatesMatrix<E> m, boolean ignored) {
         elements = m.elements;
+        bounds = m.bounds;
+        slots = m.slots;
         minWidth.set(m.getMinimumWidth());
         minHeight.set(m.getMinimumHeight());
         maxWidth.set(m.getMaximumWidth());
@@ -366,6 +437,38 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         size = m.size;
     }
 
+    /**
+     * Bulk loading constructor, used by {@link CoordinatesSnapshot}. The
+     * elements are already bucketed in the given array, as {@link #bucket(List, double, double, int, int)}
+     * would for the given width and height, and are not copied.
+     *
+     * @param cells  Bucketed elements.
+     * @param width  Total width.
+     * @param height Total height.
+     * @param bounds Bounds of the elements.
+     * @param size   Number of elements.
+     */
+    CoordinatesMatrix(Collection<CoordinatesElement<E>>[][] cells, double width, double height, 
+                      BoundsTracker bounds, int size) {
+        elements = cells;
+        this.bounds = bounds;
+        this.size = size;
+        slots = new SlotIndex();
+        indexSlots();
+        
+        maxRowRangeIncrease = DEFAULT_MAX_WIDTH_INCREASE;
+        maxColRangeIncrease = DEFAULT_MAX_HEIGHT_INCREASE;
+        maxRowNumber = Math.max(DEFAULT_MAX_ROW_NUMBER, cells.length);
+        maxColNumber = Math.max(DEFAULT_MAX_COL_NUMBER, cells[0].length);
+        
+        trueMaxWdith = width;
+        trueMaxHeight = height;
+        rowRange = (int) width / cells.length;
+        colRange = (int) height / cells[0].length;
+        
+        updateDimensions();
+    }
+
 
     /**
      * Constructor.
@@ -374,7 +477,7 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      */
     public CoordinatesMatrix(Collection<E> el) {
         this();
-        el.forEach(e -> place(new CoordinatesElement<>(e)));
+        placeAll(wrap(el));
     }
 
     /**
@@ -395,9 +498,7 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
     public CoordinatesMatrix(CoordinatesStructure<E> c) {
         this();
         
-        c.forEach(this::place);
-        minWidth.set(c.getMinimumWidth());
-        minHeight.set(c.getMinimumHeight());
+        placeAll(copyOf(c));
     }
 
     /**
@@ -413,9 +514,7 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
             m.maxRowNumber, m.maxColNumber
         );
         
-        m.forEach(this::place);
-        minWidth.set(m.getMinimumWidth());
-        minHeight.set(m.getMinimumHeight());
+        placeAll(m.allElements(0));
     }
     
     /**
@@ -444,7 +543,7 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
             maxRowNumber, maxColNumber
         );
         
-        el.forEach(e -> place(new CoordinatesElement<>(e)));
+        placeAll(wrap(el));
     }
 
     /**
@@ -472,9 +571,7 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
             maxRowNumber, maxColNumber
         );
 
-        el.forEach(this::place);
-        minWidth.set(el.getMinimumWidth());
-        minHeight.set(el.getMinimumHeight());
+        placeAll(copyOf(el));
     }
     
     /**
@@ -509,11 +606,51 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
     }
 
     
+    /**
+     * Wraps the given values in new elements.
+     * 
+     * @param el Values.
+     * @return List of elements.
+     */
+    private static <E> List<CoordinatesElement<E>> wrap(Collection<E> el) {
+        var l = new ArrayList<CoordinatesElement<E>>(el.size());
+        for(E e : el) {
+            l.add(new CoordinatesElement<>(e));
+        }
+        return l;
+    }
+
+    /**
+     * Copies the elements of the given structure in a list.
+     * 
+     * @param c Structure.
+     * @return List of the elements.
+     */
+    private static <E> List<CoordinatesElement<E>> copyOf(CoordinatesStructure<E> c) {
+        var l = new ArrayList<CoordinatesElement<E>>(c.size());
+        c.forEach(l::add);
+        return l;
+    }
+
+    /**
+     * Makes the given stream parallel if there are enough elements.
+     * 
+     * @param s Stream.
+     * @param n Number of elements.
+     * @return The stream.
+     */
+    private static IntStream parallelIfLarge(IntStream s, int n) {
+        return (n >= PARALLEL_THRESHOLD) ? s.parallel() : s;
+    }
+
     /**
      * Should be called whenever {@link #elements} is modified.
      */
     private void modified() {
         modCount++;
+        if(adaptive != null) {
+            adapt(adaptive.changed(size));
+        }
     }
     
     /**
@@ -552,6 +689,80 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         return new Point2D(i, j);
     }
     
+    /**
+     * Enables or disables the value index. When enabled, a hash index
+     * from values to elements is maintained on every modification,
+     * which makes {@link #coordinatesOf(Object)} and {@link #containsValue(Object)}
+     * constant time, at the cost of one map entry per element.
+     * 
+     * @param indexed Whether the values should be indexed.
+     */
+    public void setValueIndexed(boolean indexed) {
+        if(indexed && valueIndex == null) {
+            valueIndex = new ValueIndex<>(this);
+        }
+        else if(!indexed) {
+            valueIndex = null;
+        }
+    }
+
+    /**
+     * Whether the values are indexed.
+     * 
+     * @return {@code true} if the value index is enabled.
+     * @see #setValueIndexed(boolean) 
+     */
+    public boolean isValueIndexed() {
+        return valueIndex != null;
+    }
+
+    /**
+     * Enables or disables the adaptive mode, with {@link #DEFAULT_ELEMENTS_PER_CELL}
+     * and {@link ForkJoinPool#commonPool()}.
+     * 
+     * @param adaptive Whether the shape of the array should adapt.
+     * @see #setAdaptive(int, Executor) 
+     */
+    public void setAdaptive(boolean adaptive) {
+        if(adaptive) {
+            setAdaptive(DEFAULT_ELEMENTS_PER_CELL, ForkJoinPool.commonPool());
+        }
+        else {
+            this.adaptive = null;
+        }
+    }
+
+    /**
+     * Enables the adaptive mode. The occupancy of the cells and the size
+     * of the areas of the lookups are then sampled, and the array is
+     * progressively re-gridded so that the occupied cells hold about
+     * the given number of elements, without an average lookup having to visit
+     * more than a few dozen cells in each dimension. The maximum row and column 
+     * numbers given to the constructor are ignored by the adaptive mode.
+     * <p>
+     * The new arrays are bucketed on the given executor from a copy of the
+     * coordinates, and swapped in by the next lookup or modification
+     * of this structure. A new array is dropped if this structure was modified
+     * while it was bucketed, and is bucketed on the thread which modifies
+     * this structure if that happens several times in a row.
+     * 
+     * @param elementsPerCell Target number of elements per occupied cell, at least {@code 1}.
+     * @param executor        Executor on which the new arrays are bucketed.
+     */
+    public void setAdaptive(int elementsPerCell, Executor executor) {
+        adaptive = new AdaptiveGrid<>(elementsPerCell, executor);
+    }
+
+    /**
+     * Whether the adaptive mode is enabled.
+     * 
+     * @return {@code true} if the shape of the array adapts.
+     * @see #setAdaptive(int, Executor) 
+     */
+    public boolean isAdaptive() {
+        return adaptive != null;
+    }
+
     /**
      * Helper method which adds the given element 
      * to {@link #elements}.
@@ -560,16 +771,55 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      * @return {@code true} if it was added; {@code false} otherwise.
      */
     protected final boolean place(CoordinatesElement<E> c) {
+        regridIfReady();
         ensureSize(c.getX(), c.getY());
-        if(!getListAt(indexesOf(c)).add(c)) {
-            return false;
+        var l = getListAt(indexesOf(c));
+        slots.put(c, l.size());
+        l.add(c);
+        if(adaptive != null) {
+            adaptive.placed(l.size());
+        }
+        if(valueIndex != null) {
+            valueIndex.add(c);
         }
+        bounds.add(c);
         size++;
         setDimensionsIfOutside(c);
         modified();
         return true;
     }
 
+    /**
+     * Helper method which adds all the given elements to {@link #elements}
+     * at once. The existing and new elements are bucketed in a single 
+     * (possibly parallel) counting sort pass instead of being added one by one,
+     * which also resizes the array at most once.
+     * 
+     * @param c The elements to add.
+     * @return {@code true} if at least one element was added.
+     */
+    protected final boolean placeAll(Collection<CoordinatesElement<E>> c) {
+        if(c.isEmpty()) {
+            return false;
+        }
+        
+        regridIfReady();
+        c.forEach(bounds::add);
+        
+        var all = allElements(c.size());
+        all.addAll(c);
+        size = all.size();
+        // same margin as ensureSize
+        rebucket(bounds.maxX() + 1, bounds.maxY() + 1, all);
+        
+        if(valueIndex != null) {
+            c.forEach(valueIndex::add);
+        }
+        modified();
+        updateDimensions();
+        return true;
+    }
+    
     /**
      * Helper method which removes the given element 
      * from {@link #elements}.
@@ -578,9 +828,14 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      * @return {@code true} if it was removed; {@code false} otherwise.
      */
     protected final boolean delete(CoordinatesElement<E> c) {
-        if(!getListAt(indexesOf(c)).remove(c)) {
+        regridIfReady();
+        if(!unlink(c)) {
             return false;
         }
+        if(valueIndex != null) {
+            valueIndex.remove(c);
+        }
+        bounds.remove(c);
         size--;
         if(isOnBound(c)) {
             updateDimensions();
@@ -589,6 +844,128 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         return true;
     }
 
+    /**
+     * Helper method which removes all the given elements from {@link #elements}
+     * at once. The elements are first marked in their cell, then each cell
+     * which held one of them is compacted in a single pass, and the dimensions
+     * are only updated at the end.
+     *
+     * @param c The elements to remove.
+     * @return The elements which were removed.
+     */
+    protected final List<CoordinatesElement<E>> deleteAll(Collection<CoordinatesElement<E>> c) {
+        regridIfReady();
+        var removed = new ArrayList<CoordinatesElement<E>>(c.size());
+        Set<List<CoordinatesElement<E>>> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for(var e : c) {
+            var l = getListAt(indexesOf(e));
+            int slot = slots.get(e);
+            if(slot < 0 || slot >= l.size() || l.get(slot) != e) {
+                // not stored as is, e.g an equal copy
+                slot = l.indexOf(e);
+                if(slot < 0) {
+                    continue;
+                }
+            }
+
+            slots.remove(l.get(slot));
+            l.set(slot, null);
+            touched.add(l);
+            removed.add(e);
+        }
+
+        compact(touched);
+        unindex(removed);
+        return removed;
+    }
+
+    /**
+     * Helper method which removes all the elements which satisfy a condition
+     * from {@link #elements}. The condition is tested on all the elements
+     * before any is removed, then each cell which held one of them is
+     * compacted in a single pass and the dimensions are only updated at the end.
+     *
+     * @param condition The condition.
+     * @return The elements which were removed.
+     */
+    protected final List<CoordinatesElement<E>> deleteIf(Predicate<? super CoordinatesElement<E>> condition) {
+        regridIfReady();
+        var removed = new ArrayList<CoordinatesElement<E>>();
+        var touched = new ArrayList<List<CoordinatesElement<E>>>();
+
+        for(var t : elements) {
+            for(var cell : t) {
+                var l = (List<CoordinatesElement<E>>) cell;
+                int before = removed.size();
+                for(var e : l) {
+                    if(condition.test(e)) {
+                        removed.add(e);
+                    }
+                }
+                if(removed.size() > before) {
+                    touched.add(l);
+                }
+            }
+        }
+
+        // slots are still valid as nothing was removed yet
+        for(var e : removed) {
+            var l = getListAt(indexesOf(e));
+            l.set(slots.get(e), null);
+            slots.remove(e);
+        }
+
+        compact(touched);
+        unindex(removed);
+        return removed;
+    }
+
+    /**
+     * Removes the {@code null} slots left in cells by a bulk removal,
+     * and updates the slots of the elements which were shifted.
+     *
+     * @param touched The cells which hold {@code null} slots.
+     */
+    private void compact(Collection<List<CoordinatesElement<E>>> touched) {
+        for(var l : touched) {
+            int w = 0;
+            for(int k = 0; k < l.size(); k++) {
+                var e = l.get(k);
+                if(e != null) {
+                    if(w != k) {
+                        l.set(w, e);
+                        slots.put(e, w);
+                    }
+                    w++;
+                }
+            }
+            l.subList(w, l.size()).clear();
+        }
+    }
+
+    /**
+     * Removes elements which were taken out of their cells from
+     * the indexes and the bounds, then updates the dimensions.
+     *
+     * @param removed The removed elements.
+     */
+    private void unindex(List<CoordinatesElement<E>> removed) {
+        if(removed.isEmpty()) {
+            return;
+        }
+
+        for(var e : removed) {
+            if(valueIndex != null) {
+                valueIndex.remove(e);
+            }
+            bounds.remove(e);
+        }
+        size -= removed.size();
+        modified();
+        updateDimensions();
+    }
+
     /**
      * Helper method which an existing moves an element. 
      * Resizes the array if needed.
@@ -600,16 +977,30 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      * {@code false} otherwise.
      */
     protected final boolean move(CoordinatesElement<E> c, double x, double y) {
-        if(!getListAt(indexesOf(c)).remove(c)) {
+        regridIfReady();
+        if(!unlink(c)) {
             return false;
         }
+        // the removed element may only be equal to c
+        if(valueIndex != null) {
+            valueIndex.remove(c);
+        }
         
         ensureSize(x, y);
         boolean bound = isOnBound(c);
         
-        getListAt(indexesOf(x, y)).add(c);
+        var l = getListAt(indexesOf(x, y));
+        slots.put(c, l.size());
+        l.add(c);
+        if(adaptive != null) {
+            adaptive.placed(l.size());
+        }
+        bounds.move(c.getX(), c.getY(), x, y);
         c.setX(x);
         c.setY(y);
+        if(valueIndex != null) {
+            valueIndex.add(c);
+        }
         
         if(bound) {
             updateDimensions();
@@ -646,34 +1037,92 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         }
         
         size = 0;
+        slots.clear();
+        if(valueIndex != null) {
+            valueIndex.clear();
+        }
+        bounds.clear();
         modified();
         setDimensions(0d, 0d, 0d, 0d);
     }
 
+    /**
+     * Helper method which removes an element from its cell, by moving
+     * the last element of the cell to its slot.
+     * 
+     * @param c The element to remove.
+     * @return {@code true} if it was removed; {@code false} otherwise.
+     */
+    private boolean unlink(CoordinatesElement<E> c) {
+        var l = getListAt(indexesOf(c));
+        int slot = slots.get(c);
+        
+        if(slot < 0 || slot >= l.size() || l.get(slot) != c) {
+            // not stored as is, e.g an equal copy
+            slot = l.indexOf(c);
+            if(slot < 0) {
+                return false;
+            }
+        }
+        
+        slots.remove(l.get(slot));
+        int last = l.size() - 1;
+        if(slot != last) {
+            var moved = l.get(last);
+            l.set(slot, moved);
+            slots.put(moved, slot);
+        }
+        l.remove(last);
+        return true;
+    }
+
+    /**
+     * Indexes the slots of all the elements of {@link #elements}.
+     */
+    private void indexSlots() {
+        slots.clear();
+        indexSlots(slots, elements, size);
+    }
+
+    /**
+     * Indexes the slots of all the elements of an array.
+     * 
+     * @param slots The slot index.
+     * @param cells The array.
+     * @param n     Number of elements.
+     */
+    private static <E> void indexSlots(SlotIndex slots, Collection<CoordinatesElement<E>>[][] cells, int n) {
+        slots.ensureCapacity(n);
+        for(var t : cells) {
+            for(var c : t) {
+                var l = (List<CoordinatesElement<E>>) c;
+                for(int k = 0; k < l.size(); k++) {
+                    slots.put(l.get(k), k);
+                }
+            }
+        }
+    }
+
     /**
      * Helper method which gets a list from {@link #elements}.
      * 
      * @param p Coordinates.
      * @return The list.
      */
-    private Collection<CoordinatesElement<E>> getListAt(Point2D p) {
-        int x = Math.min((int) p.getX(), maxRowNumber - 1);
-        int y = Math.min((int) p.getY(), maxColNumber - 1);
-        return elements[Math.max(x, 0)][Math.max(y, 0)];
+    private List<CoordinatesElement<E>> getListAt(Point2D p) {
+        int x = Math.min((int) p.getX(), elements.length - 1);
+        int y = Math.min((int) p.getY(), elements[0].length - 1);
+        return (List<CoordinatesElement<E>>) elements[Math.max(x, 0)][Math.max(y, 0)];
     }
 
     /**
-     * Checks if an element is out of the current bounds
-     * described by the dimensions properties.
+     * Updates the dimensions properties after an element 
+     * was added or moved.
      *
      * @param c The element to check.
      */
     protected final void setDimensionsIfOutside(CoordinatesElement<E> c) {
-        double minW = Math.min(minWidth.get(), c.getX());
-        double minH = Math.min(minHeight.get(), c.getY());
-        double maxW = Math.max(maxWidth.get(), c.getX());
-        double maxH = Math.max(maxHeight.get(), c.getY());
-        setDimensions(minW, minH, maxW, maxH);
+        updateDimensions();
     }
 
     /**
@@ -697,6 +1146,9 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      * @param maxH Potential new max height.
      */
     protected final void setDimensions(double minW, double minH, double maxW, double maxH) {
+        if(batchDepth > 0) {
+            return;
+        }
         if(minW != minWidth.get()) {
             minWidth.set(minW);
         }
@@ -712,47 +1164,54 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
     }
 
     /**
-     * Update dimensions properties.
+     * Starts a batch. Until the matching {@link #endBatch()}, the dimension
+     * properties are not updated, so that they are only updated once
+     * no matter how many changes happen during the batch.
+     * <p>
+     * Batches can be nested, in which case only the outermost one matters.
      */
-    protected final void updateDimensions() {
-        if(isEmpty()) {
-            setDimensions(0d, 0d, 0d, 0d);
-            return;
-        }
+    protected final void beginBatch() {
+        batchDepth++;
+    }
 
-        double minW = Double.MAX_VALUE;
-        double minH = Double.MAX_VALUE;
-        double maxW = Double.MIN_VALUE;
-        double maxH = Double.MIN_VALUE;
-        
-        outer:
-        for(var t : elements) {
-            for(var l : t) {
-                if(!l.isEmpty()) {
-                    for(var c : l) {
-                        minW = Math.min(minW, c.getX());
-                        minH = Math.min(minH, c.getY());
-                    }
-                    break outer;
-                }
-            }
+    /**
+     * Ends a batch. When the outermost batch ends, the dimension
+     * properties are updated and {@link #batchEnded()} is called.
+     * 
+     * @throws IllegalStateException If there is no batch to end.
+     */
+    protected final void endBatch() {
+        if(batchDepth == 0) {
+            throw new IllegalStateException();
         }
-        
-        outer:
-        for(int i = elements.length - 1; i > -1; i--) {
-            for(int j = elements[i].length - 1; j > -1; j--) {
-                var l = elements[i][j];
-                if(!l.isEmpty()) {
-                    for(var c : l) {
-                        maxW = Math.max(maxW, c.getX());
-                        maxH = Math.max(maxH, c.getY());
-                    }
-                    break outer;
-                }
-            }
+        if(--batchDepth == 0) {
+            updateDimensions();
+            batchEnded();
         }
+    }
+
+    /**
+     * Whether a batch is in progress.
+     * 
+     * @return {@code true} if a batch was started and not ended yet.
+     */
+    protected final boolean inBatch() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Called when the outermost batch ends, after the dimension properties
+     * were updated. Does nothing by default.
+     */
+    protected void batchEnded() {
+        // to be overridden
+    }
 
-        setDimensions(minW, minH, maxW, maxH);
+    /**
+     * Update dimensions properties from the tracked bounds.
+     */
+    protected final void updateDimensions() {
+        setDimensions(bounds.minX(), bounds.minY(), bounds.maxX(), bounds.maxY());
     }
     
     /**
@@ -771,18 +1230,46 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
             return;
         }
         
-        double newWidth = Math.max(width, maxWidth.get());
-        double newHeight = Math.max(height, maxHeight.get());
-        
-        var newElements = newArray(newWidth, newHeight);
-        
-        for(var e : this) {
-            int i = (int) Math.min(newElements.length-1d, (e.getX() / newWidth * newElements.length));
-            int j = (int) Math.min(newElements[0].length-1d, (e.getY() / newHeight * newElements[0].length));
-            newElements[i][j].add(e);
+        rebucket(width, height, allElements(0));
+    }
+
+    /**
+     * Copies all the elements in a list.
+     * 
+     * @param extraCapacity Additional capacity of the list.
+     * @return List of all elements.
+     */
+    private List<CoordinatesElement<E>> allElements(int extraCapacity) {
+        var l = new ArrayList<CoordinatesElement<E>>(size + extraCapacity);
+        for(var t : elements) {
+            for(var c : t) {
+                l.addAll(c);
+            }
+        }
+        return l;
+    }
+
+    /**
+     * Replaces {@link #elements} with a new array which contains the given 
+     * elements, resizing it if the given dimensions do not fit.
+     * 
+     * @param width  Width which has to fit.
+     * @param height Height which has to fit.
+     * @param all    All the elements of the structure.
+     */
+    private void rebucket(double width, double height, List<CoordinatesElement<E>> all) {
+        if(width <= trueMaxWdith && height <= trueMaxHeight) {
+            elements = bucket(all, trueMaxWdith, trueMaxHeight, elements.length, elements[0].length);
+            indexSlots();
+            return;
         }
         
-        elements = newElements;
+        // a dimension which does not grow keeps its current size
+        double newWidth = Math.max(width, trueMaxWdith);
+        double newHeight = Math.max(height, trueMaxHeight);
+        
+        elements = newArray(newWidth, newHeight, all);
+        indexSlots();
         
         rowRange = (int) newWidth / elements.length;
         colRange = (int) newHeight / elements[0].length;
@@ -792,33 +1279,80 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
     }
 
     /**
-     * Whether to resize the width on row range.
+     * Number of rows of {@link #elements}.
      * 
-     * @param newWidth New total width.
-     * @return {@code true} if yes; {@code false} otherwise.
+     * @return The number of rows.
      */
-    private boolean resizeWidthOnRange(double newWidth) {
-        if(newWidth <= trueMaxWdith) {
-            return false;
-        }
+    final int rowNumber() {
+        return elements.length;
+    }
 
-        if(elements.length >= maxRowNumber) {
-            return true;
-        }
-        
-        return (int) (newWidth / elements.length) <= (int) (rowRange * maxRowRangeIncrease);
+    /**
+     * Number of columns of {@link #elements}.
+     *
+     * @return The number of columns.
+     */
+    final int colNumber() {
+        return elements[0].length;
     }
 
     /**
-     * Whether to resize the height on row range.
+     * Width covered by {@link #elements}.
      *
-     * @param newHeight New total width.
-     * @return {@code true} if yes; {@code false} otherwise.
+     * @return The width.
      */
-    private boolean resizeHeightOnRange(double newHeight) {
-        if(newHeight <= trueMaxHeight) {
-            return false;
-        }
+    final double gridWidth() {
+        return trueMaxWdith;
+    }
+
+    /**
+     * Height covered by {@link #elements}.
+     *
+     * @return The height.
+     */
+    final double gridHeight() {
+        return trueMaxHeight;
+    }
+
+    /**
+     * Elements of a cell of {@link #elements}.
+     * 
+     * @param i Row.
+     * @param j Column.
+     * @return The elements of the cell.
+     */
+    final Collection<CoordinatesElement<E>> cell(int i, int j) {
+        return elements[i][j];
+    }
+
+    /**
+     * Whether to resize the width on row range.
+     * 
+     * @param newWidth New total width.
+     * @return {@code true} if yes; {@code false} otherwise.
+     */
+    private boolean resizeWidthOnRange(double newWidth) {
+        if(newWidth <= trueMaxWdith) {
+            return false;
+        }
+
+        if(elements.length >= maxRowNumber) {
+            return true;
+        }
+        
+        return (int) (newWidth / elements.length) <= (int) (rowRange * maxRowRangeIncrease);
+    }
+
+    /**
+     * Whether to resize the height on row range.
+     *
+     * @param newHeight New total width.
+     * @return {@code true} if yes; {@code false} otherwise.
+     */
+    private boolean resizeHeightOnRange(double newHeight) {
+        if(newHeight <= trueMaxHeight) {
+            return false;
+        }
 
         if(elements[0].length >= maxColNumber) {
             return true;
@@ -832,31 +1366,259 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      * 
      * @param newWidth  New total width.
      * @param newHeight New total height.
+     * @param all       Elements to put in the array.
      * @return New array.
      */
-    @SuppressWarnings("unchecked")
-    private Collection<CoordinatesElement<E>>[][] newArray(double newWidth, double newHeight) {
+    private Collection<CoordinatesElement<E>>[][] newArray(double newWidth, double newHeight, 
+                                                           List<CoordinatesElement<E>> all) {
         int row = elements.length;
         int col = elements[0].length;
 
-        if(!resizeWidthOnRange(newWidth)) {
-            row = (int) Math.min(maxRowNumber, newWidth / rowRange);
+        if(newWidth > trueMaxWdith && !resizeWidthOnRange(newWidth)) {
+            row = (int) Math.max(1, Math.min(maxRowNumber, newWidth / rowRange));
         }
         
-        if(!resizeHeightOnRange(newHeight)) {
-            col = (int) Math.min(maxColNumber, newHeight / colRange);
+        if(newHeight > trueMaxHeight && !resizeHeightOnRange(newHeight)) {
+            col = (int) Math.max(1, Math.min(maxColNumber, newHeight / colRange));
         }
         
-        var p = (List<CoordinatesElement<E>>[][]) Array.newInstance(ArrayList.class, row, col);
+        return bucket(all, newWidth, newHeight, row, col);
+    }
+
+    /**
+     * Creates a new array with the given number of rows and columns 
+     * which contains the given elements.
+     * <p>
+     * Cells are computed in parallel for large structures, then elements 
+     * are counting sorted by cell so that each list is allocated with 
+     * its exact size and filled independently.
+     * 
+     * @param all    Elements to put in the array.
+     * @param width  Total width.
+     * @param height Total height.
+     * @param row    Number of rows.
+     * @param col    Number of columns.
+     * @return New array.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Collection<CoordinatesElement<E>>[][] bucket(List<CoordinatesElement<E>> all, 
+                                                            double width, double height, 
+                                                            int row, int col) {
+        int n = all.size();
+        int[] cells = new int[n];
         
-        for(var t : p) {
-            for(int i = 0; i < t.length; i++) {
-                t[i] = new ArrayList<>();
-            }
+        parallelIfLarge(IntStream.range(0, n), n).forEach(
+            k -> cells[k] = cellIndex(all.get(k).getX(), all.get(k).getY(), width, height, row, col)
+        );
+        
+        return bucket(all, cells, row, col);
+    }
+
+    /**
+     * Creates an array of cell lists.
+     *
+     * @param n   Length of the array.
+     * @param <E> Type of the elements.
+     * @return The array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> List<CoordinatesElement<E>>[] newCells(int n) {
+        return (List<CoordinatesElement<E>>[]) new List<?>[n];
+    }
+
+    /**
+     * Index of the cell, in row major order, which holds a pair of coordinates.
+     * 
+     * @param x      X coordinate.
+     * @param y      Y coordinate.
+     * @param width  Total width.
+     * @param height Total height.
+     * @param row    Number of rows.
+     * @param col    Number of columns.
+     * @return The index of the cell.
+     */
+    private static int cellIndex(double x, double y, double width, double height, int row, int col) {
+        int i = (int) Math.min(row - 1d, (x / width * row));
+        int j = (int) Math.min(col - 1d, (y / height * col));
+        return Math.max(i, 0) * col + Math.max(j, 0);
+    }
+
+    /**
+     * Creates a new array with the given number of rows and columns 
+     * which contains the given elements, whose cells are already computed.
+     * 
+     * @param all   Elements to put in the array.
+     * @param cells Index of the cell of each element, in row major order.
+     * @param row   Number of rows.
+     * @param col   Number of columns.
+     * @return New array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> Collection<CoordinatesElement<E>>[][] bucket(List<CoordinatesElement<E>> all, int[] cells,
+                                                                    int row, int col) {
+        int n = all.size();
+        int cellCount = row * col;
+        
+        // histogram then prefix sums: cell c is [start[c], start[c+1])
+        int[] start = new int[cellCount + 1];
+        for(int cell : cells) {
+            start[cell + 1]++;
+        }
+        for(int c = 0; c < cellCount; c++) {
+            start[c + 1] += start[c];
         }
         
+        int[] next = Arrays.copyOf(start, cellCount);
+        int[] order = new int[n];
+        for(int k = 0; k < n; k++) {
+            order[next[cells[k]]++] = k;
+        }
+        
+        var p = (Collection<CoordinatesElement<E>>[][]) Array.newInstance(ArrayList.class, row, col);
+        
+        parallelIfLarge(IntStream.range(0, cellCount), n).forEach(
+            c -> {
+                var l = new ArrayList<CoordinatesElement<E>>(start[c + 1] - start[c]);
+                for(int k = start[c]; k < start[c + 1]; k++) {
+                    l.add(all.get(order[k]));
+                }
+                p[c / col][c % col] = l;
+            }
+        );
+        
         return p;
     }
+
+    /**
+     * Buckets again a stale array of the adaptive mode, or samples the occupancy 
+     * of the cells and starts bucketing a new array if the adaptive mode 
+     * decides that it should change.
+     * 
+     * @param sample Whether the occupancy should be sampled.
+     */
+    private void adapt(boolean sample) {
+        var retry = adaptive.takeRetry();
+        if(retry != null) {
+            regrid(retry[0], retry[1]);
+            return;
+        }
+        if(!sample || !adaptive.schedule()) {
+            return;
+        }
+
+        int nonEmpty = 0;
+        for(var t : elements) {
+            for(var c : t) {
+                if(!c.isEmpty()) {
+                    nonEmpty++;
+                }
+            }
+        }
+
+        var shape = adaptive.shape(size, elements.length, elements[0].length, nonEmpty, trueMaxWdith, trueMaxHeight);
+        if(shape == null) {
+            adaptive.failed();
+            return;
+        }
+        regrid(shape[0], shape[1]);
+    }
+
+    /**
+     * Buckets a new array with the given number of rows and columns
+     * on the executor of the adaptive mode, from a copy of the coordinates.
+     * 
+     * @param row Number of rows.
+     * @param col Number of columns.
+     */
+    private void regrid(int row, int col) {
+        var a = adaptive;
+        var all = allElements(0);
+        int n = all.size();
+        double[] xy = new double[2 * n];
+        for(int k = 0; k < n; k++) {
+            xy[2 * k] = all.get(k).getX();
+            xy[2 * k + 1] = all.get(k).getY();
+        }
+        double width = trueMaxWdith;
+        double height = trueMaxHeight;
+        int expectedModCount = modCount;
+
+        try {
+            a.getExecutor().execute(
+                () -> {
+                    try {
+                        int[] cells = new int[n];
+                        parallelIfLarge(IntStream.range(0, n), n).forEach(
+                            k -> cells[k] = cellIndex(xy[2 * k], xy[2 * k + 1], width, height, row, col)
+                        );
+                        var grid = bucket(all, cells, row, col);
+                        var s = new SlotIndex();
+                        indexSlots(s, grid, n);
+                        a.done(new AdaptiveGrid.Regrid<>(grid, s, expectedModCount));
+                    } catch(RuntimeException | Error e) {
+                        a.failed();
+                        throw e;
+                    }
+                }
+            );
+        } catch(RejectedExecutionException e) {
+            a.failed();
+        }
+    }
+
+    /**
+     * Swaps in the array bucketed by the adaptive mode, if there is one
+     * and this structure was not modified since its coordinates were copied.
+     * <p>
+     * This does not count as a modification, as the cells of the old array are
+     * left as they are for the iterators and lookups which use them.
+     */
+    private void regridIfReady() {
+        if(adaptive == null) {
+            return;
+        }
+        var r = adaptive.take();
+        if(r == null) {
+            return;
+        }
+
+        if(r.modCount() == modCount) {
+            adaptive.fresh();
+            elements = r.cells();
+            slots = r.slots();
+        }
+        else if(adaptive.stale()) {
+            // modified while bucketing too many times in a row
+            elements = bucket(allElements(0), trueMaxWdith, trueMaxHeight, r.cells().length, r.cells()[0].length);
+            indexSlots();
+        }
+        else {
+            // the current modification is not over
+            adaptive.retry(r.cells().length, r.cells()[0].length);
+            return;
+        }
+
+        rowRange = (int) trueMaxWdith / elements.length;
+        colRange = (int) trueMaxHeight / elements[0].length;
+        summedCounts = null;
+    }
+
+    /**
+     * Records a lookup in the statistics of the adaptive mode, if enabled.
+     * 
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     */
+    private void observeQuery(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        if(adaptive == null) {
+            return;
+        }
+        
+        regridIfReady();
+        adapt(adaptive.queried(bottomRightX - topLeftX, bottomRightY - topLeftY));
+    }
   
     
     /**
@@ -871,12 +1633,13 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
     @Override
     public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY, 
                                                      double bottomRightX, double bottomRightY) {
+        observeQuery(topLeftX, topLeftY, bottomRightX, bottomRightY);
         List<CoordinatesElement<E>> l = new ArrayList<>();
 
         // fail fast 
         if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
             || topLeftX >= getMaximumWidth() || topLeftY >= getMaximumHeight()
-            || bottomRightX <= 0 || bottomRightY <= 0) {
+            || bottomRightX < getMinimumWidth() || bottomRightY < getMinimumHeight()) {
             return l;
         }
         
@@ -885,8 +1648,8 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         int minJ = Math.max(0, (int) p.getY());
 
         p = indexesOf(bottomRightX, bottomRightY);
-        int maxI = Math.min(elements.length, (int) p.getX());
-        int maxJ = Math.min(elements[0].length, (int) p.getY());
+        int maxI = Math.max(0, Math.min(elements.length - 1, (int) p.getX()));
+        int maxJ = Math.max(0, Math.min(elements[0].length - 1, (int) p.getY()));
         
         for(int i = minI; i < maxI+1; i++) {
             for(int j = minJ; j < maxJ+1; j++) {
@@ -906,6 +1669,43 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         return l;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The stream is backed by a spliterator over the cells which intersect 
+     * with the area, which only checks the coordinates of the elements
+     * of the cells on the border of the area.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return A sequential stream of all elements within the area.
+     */
+    @Override
+    public Stream<CoordinatesElement<E>> streamBetween(double topLeftX, double topLeftY,
+                                                       double bottomRightX, double bottomRightY) {
+        observeQuery(topLeftX, topLeftY, bottomRightX, bottomRightY);
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
+            || topLeftX >= getMaximumWidth() || topLeftY >= getMaximumHeight()
+            || bottomRightX < getMinimumWidth() || bottomRightY < getMinimumHeight()) {
+            return Stream.empty();
+        }
+
+        var p = indexesOf(topLeftX, topLeftY);
+        int minI = Math.max(0, (int) p.getX());
+        int minJ = Math.max(0, (int) p.getY());
+
+        p = indexesOf(bottomRightX, bottomRightY);
+        int maxI = Math.max(0, Math.min(elements.length - 1, (int) p.getX()));
+        int maxJ = Math.max(0, Math.min(elements[0].length - 1, (int) p.getY()));
+        
+        return StreamSupport.stream(
+            new CellSpliterator(minI, minJ, maxI, maxJ, topLeftX, topLeftY, bottomRightX, bottomRightY), 
+            false
+        );
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -920,25 +1720,28 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
     public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY, 
                                                      double bottomRightX, double bottomRightY, 
                                                      Predicate<E> condition) {
+        observeQuery(topLeftX, topLeftY, bottomRightX, bottomRightY);
         List<CoordinatesElement<E>> l = new ArrayList<>();
 
         if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
             || topLeftX >= maxWidth.get() || topLeftY >= maxHeight.get()
-            || bottomRightX <= 0 || bottomRightY <= 0) {
+            || bottomRightX < getMinimumWidth() || bottomRightY < getMinimumHeight()) {
             return l;
         }
 
+        // the condition may look up this structure, which may swap the array
+        var cells = elements;
         var p = indexesOf(topLeftX, topLeftY);
         int minI = Math.max(0, (int) p.getX());
         int minJ = Math.max(0, (int) p.getY());
 
         p = indexesOf(bottomRightX, bottomRightY);
-        int maxI = Math.min(elements.length, (int) p.getX());
-        int maxJ = Math.min(elements[0].length, (int) p.getY());
+        int maxI = Math.max(0, Math.min(cells.length - 1, (int) p.getX()));
+        int maxJ = Math.max(0, Math.min(cells[0].length - 1, (int) p.getY()));
 
         for(int i = minI; i < maxI+1; i++) {
             for(int j = minJ; j < maxJ+1; j++) {
-                for(var e : elements[i][j]) {
+                for(var e : cells[i][j]) {
                     if(e.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY) && condition.test(e.getElement())) {
                         l.add(e);
                     }
@@ -949,6 +1752,311 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         return l;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        observeQuery(topLeftX, topLeftY, bottomRightX, bottomRightY);
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
+            || topLeftX >= maxWidth.get() || topLeftY >= maxHeight.get()
+            || bottomRightX < getMinimumWidth() || bottomRightY < getMinimumHeight()) {
+            return;
+        }
+
+        // the action may look up this structure, which may swap the array
+        var cells = elements;
+        // same as indexesOf, without the Point2D
+        int minI = Math.max(0, (int) (topLeftX / trueMaxWdith * cells.length));
+        int minJ = Math.max(0, (int) (topLeftY / trueMaxHeight * cells[0].length));
+        int maxI = Math.max(0, Math.min(cells.length - 1, (int) (bottomRightX / trueMaxWdith * cells.length)));
+        int maxJ = Math.max(0, Math.min(cells[0].length - 1, (int) (bottomRightY / trueMaxHeight * cells[0].length)));
+
+        for(int i = minI; i < maxI + 1; i++) {
+            for(int j = minJ; j < maxJ + 1; j++) {
+                boolean inner = i != minI && i != maxI && j != minJ && j != maxJ;
+                for(var e : cells[i][j]) {
+                    if(inner || e.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                        action.accept(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the elements of the cells on the border of the area are checked,
+     * the number of elements of the other cells is read from a summed
+     * area table of the sizes of the cells.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return The number of elements within the area.
+     */
+    @Override
+    public int countBetween(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        observeQuery(topLeftX, topLeftY, bottomRightX, bottomRightY);
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
+            || topLeftX >= maxWidth.get() || topLeftY >= maxHeight.get()
+            || bottomRightX < getMinimumWidth() || bottomRightY < getMinimumHeight()) {
+            return 0;
+        }
+
+        int minI = Math.max(0, (int) (topLeftX / trueMaxWdith * elements.length));
+        int minJ = Math.max(0, (int) (topLeftY / trueMaxHeight * elements[0].length));
+        int maxI = Math.max(0, Math.min(elements.length - 1, (int) (bottomRightX / trueMaxWdith * elements.length)));
+        int maxJ = Math.max(0, Math.min(elements[0].length - 1, (int) (bottomRightY / trueMaxHeight * elements[0].length)));
+
+        int count = 0;
+        if(maxI - minI > 1 && maxJ - minJ > 1) {
+            count += countCells(minI + 1, minJ + 1, maxI - 1, maxJ - 1);
+        }
+        
+        for(int i = minI; i < maxI + 1; i++) {
+            boolean edge = i == minI || i == maxI;
+            for(int j = minJ; j < maxJ + 1; j = (edge || j == maxJ) ? j + 1 : maxJ) {
+                for(var e : elements[i][j]) {
+                    if(e.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The elements of a cell which is within a single bin are not checked,
+     * its size is added to the bin instead.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param columns      Number of bins along the X axis.
+     * @param rows         Number of bins along the Y axis.
+     * @return The number of elements in each bin, in row major order.
+     */
+    @Override
+    public int[] densityGrid(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                             int columns, int rows) {
+        if(columns < 1 || rows < 1) {
+            throw new IllegalArgumentException();
+        }
+        
+        int[] grid = new int[columns * rows];
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY
+            || topLeftX >= maxWidth.get() || topLeftY >= maxHeight.get()
+            || bottomRightX < getMinimumWidth() || bottomRightY < getMinimumHeight()) {
+            return grid;
+        }
+
+        int minI = Math.max(0, (int) (topLeftX / trueMaxWdith * elements.length));
+        int minJ = Math.max(0, (int) (topLeftY / trueMaxHeight * elements[0].length));
+        int maxI = Math.max(0, Math.min(elements.length - 1, (int) (bottomRightX / trueMaxWdith * elements.length)));
+        int maxJ = Math.max(0, Math.min(elements[0].length - 1, (int) (bottomRightY / trueMaxHeight * elements[0].length)));
+        
+        double width = bottomRightX - topLeftX;
+        double height = bottomRightY - topLeftY;
+        double cellWidth = trueMaxWdith / elements.length;
+        double cellHeight = trueMaxHeight / elements[0].length;
+        // so that rounding errors don't put a cell in a single bin when it is not
+        double marginX = cellWidth * 1e-9;
+        double marginY = cellHeight * 1e-9;
+
+        for(int i = minI; i < maxI + 1; i++) {
+            for(int j = minJ; j < maxJ + 1; j++) {
+                boolean inner = i != minI && i != maxI && j != minJ && j != maxJ;
+                
+                if(inner) {
+                    int column = Math.max(0, (int) ((i * cellWidth - marginX - topLeftX) / width * columns));
+                    int row = Math.max(0, (int) ((j * cellHeight - marginY - topLeftY) / height * rows));
+                    int lastColumn = Math.min(columns - 1, (int) (((i + 1) * cellWidth + marginX - topLeftX) / width * columns));
+                    int lastRow = Math.min(rows - 1, (int) (((j + 1) * cellHeight + marginY - topLeftY) / height * rows));
+                    
+                    if(column == lastColumn && row == lastRow) {
+                        grid[row * columns + column] += elements[i][j].size();
+                        continue;
+                    }
+                }
+                
+                for(var e : elements[i][j]) {
+                    if(inner || e.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                        int column = Math.min(columns - 1, (int) ((e.getX() - topLeftX) / width * columns));
+                        int row = Math.min(rows - 1, (int) ((e.getY() - topLeftY) / height * rows));
+                        grid[row * columns + column]++;
+                    }
+                }
+            }
+        }
+        
+        return grid;
+    }
+
+    /**
+     * Counts the elements of a range of cells.
+     *
+     * @param minI First row.
+     * @param minJ First column.
+     * @param maxI Last row.
+     * @param maxJ Last column.
+     * @return The number of elements of these cells.
+     */
+    private int countCells(int minI, int minJ, int maxI, int maxJ) {
+        int cols = elements[0].length + 1;
+        
+        if(summedCounts == null || summedCountsModCount != modCount) {
+            // t[(i + 1) * cols + j + 1] is the number of elements in [0, i] * [0, j]
+            int[] t = new int[(elements.length + 1) * cols];
+            for(int i = 0; i < elements.length; i++) {
+                for(int j = 0; j < elements[0].length; j++) {
+                    t[(i + 1) * cols + j + 1] = elements[i][j].size()
+                        + t[i * cols + j + 1] + t[(i + 1) * cols + j] - t[i * cols + j];
+                }
+            }
+            summedCounts = t;
+            summedCountsModCount = modCount;
+        }
+        
+        int[] t = summedCounts;
+        return t[(maxI + 1) * cols + maxJ + 1] - t[minI * cols + maxJ + 1]
+            - t[(maxI + 1) * cols + minJ] + t[minI * cols + minJ];
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cells are visited in rings of increasing size around the cell
+     * of the coordinates, until the distance to the next ring is greater
+     * than the distance to the farthest of the {@code k} nearest elements found.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param k Maximum number of elements.
+     * @return The nearest elements, sorted from the nearest to the farthest.
+     */
+    @Override
+    public List<CoordinatesElement<E>> kNearest(double x, double y, int k) {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(k == 0 || size == 0) {
+            return new ArrayList<>();
+        }
+        
+        var nearest = new NearestCollector<E>(x, y, k);
+        int rows = elements.length;
+        int cols = elements[0].length;
+        double cellWidth = trueMaxWdith / rows;
+        double cellHeight = trueMaxHeight / cols;
+        
+        // same as indexesOf & getListAt
+        int ci = Math.max(0, Math.min(rows - 1, (int) (x / trueMaxWdith * rows)));
+        int cj = Math.max(0, Math.min(cols - 1, (int) (y / trueMaxHeight * cols)));
+        int maxRing = Math.max(Math.max(ci, rows - 1 - ci), Math.max(cj, cols - 1 - cj));
+        
+        for(int r = 0; r <= maxRing; r++) {
+            if(r > 0 && ringDistance(x, y, ci, cj, r, cellWidth, cellHeight) > nearest.bound()) {
+                break;
+            }
+            
+            int minJ = Math.max(0, cj - r);
+            int maxJ = Math.min(cols - 1, cj + r);
+            for(int i = Math.max(0, ci - r); i <= Math.min(rows - 1, ci + r); i++) {
+                // first and last rows of the ring are full, the others only have both ends
+                if(i == ci - r || i == ci + r) {
+                    for(int j = minJ; j <= maxJ; j++) {
+                        offerCell(nearest, i, j, cellWidth, cellHeight);
+                    }
+                }
+                else {
+                    if(cj - r >= 0) {
+                        offerCell(nearest, i, cj - r, cellWidth, cellHeight);
+                    }
+                    if(cj + r < cols) {
+                        offerCell(nearest, i, cj + r, cellWidth, cellHeight);
+                    }
+                }
+            }
+        }
+        
+        return nearest.result();
+    }
+
+    /**
+     * Squared distance from the given coordinates to a ring of cells,
+     * i.e to the closest side of the block of cells it surrounds which
+     * has cells beyond it.
+     *
+     * @param x          X coordinate.
+     * @param y          Y coordinate.
+     * @param ci         Row of the coordinates.
+     * @param cj         Column of the coordinates.
+     * @param r          Ring.
+     * @param cellWidth  Width of a cell.
+     * @param cellHeight Height of a cell.
+     * @return The squared distance.
+     */
+    private double ringDistance(double x, double y, int ci, int cj, int r, double cellWidth, double cellHeight) {
+        double d = Double.POSITIVE_INFINITY;
+        if(ci - r >= 0) {
+            d = Math.min(d, x - (ci - r + 1) * cellWidth);
+        }
+        if(ci + r < elements.length) {
+            d = Math.min(d, (ci + r) * cellWidth - x);
+        }
+        if(cj - r >= 0) {
+            d = Math.min(d, y - (cj - r + 1) * cellHeight);
+        }
+        if(cj + r < elements[0].length) {
+            d = Math.min(d, (cj + r) * cellHeight - y);
+        }
+        d = Math.max(0d, d);
+        return d * d;
+    }
+
+    /**
+     * Gives the elements of a cell to a collector, unless the cell
+     * is farther than its farthest element.
+     *
+     * @param nearest    The collector.
+     * @param i          Row of the cell.
+     * @param j          Column of the cell.
+     * @param cellWidth  Width of a cell.
+     * @param cellHeight Height of a cell.
+     */
+    private void offerCell(NearestCollector<E> nearest, int i, int j, double cellWidth, double cellHeight) {
+        var l = elements[i][j];
+        if(l.isEmpty()) {
+            return;
+        }
+        
+        // the cells on the borders also hold the elements which are out of bounds
+        double x0 = (i == 0) ? Double.NEGATIVE_INFINITY : i * cellWidth;
+        double y0 = (j == 0) ? Double.NEGATIVE_INFINITY : j * cellHeight;
+        double x1 = (i == elements.length - 1) ? Double.POSITIVE_INFINITY : (i + 1) * cellWidth;
+        double y1 = (j == elements[0].length - 1) ? Double.POSITIVE_INFINITY : (j + 1) * cellHeight;
+        
+        if(nearest.distanceTo(x0, y0, x1, y1) <= nearest.bound()) {
+            nearest.offerAll(l);
+        }
+    }
+
     /**
      * Minimum width of this structure.
      *
@@ -1018,6 +2126,10 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
      */
     @Override
     public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        if(valueIndex != null) {
+            return Optional.ofNullable(valueIndex.first(element));
+        }
+        
         for(var c : this) {
             if(c.getElement().equals(element)) {
                 return Optional.of(c);
@@ -1057,6 +2169,19 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
         return new MatrixIterator();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The spliterator is split along the rows and cells, in halves which
+     * contain the same number of elements, and its size is exact.
+     *
+     * @return A spliterator over the elements of this structure.
+     */
+    @Override
+    public Spliterator<CoordinatesElement<E>> spliterator() {
+        return new CellSpliterator(0, 0, elements.length - 1, elements[0].length - 1);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -1095,6 +2220,264 @@ public class CoordinatesMatrix<E> implements CoordinatesStructure<E>, LocalizedS
     }
 
 
+    /**
+     * Spliterator over the elements of a range of cells.
+     * <p>
+     * The elements of the cells are numbered in row major order, and the
+     * spliterator covers a range of these numbers, so that it can be split
+     * in two halves of the same size whether the elements are spread
+     * over many cells or all in one.
+     */
+    private final class CellSpliterator implements Spliterator<CoordinatesElement<E>> {
+
+        /**
+         * Lists of the cells.
+         */
+        private final List<CoordinatesElement<E>>[] cells;
+
+        /**
+         * Number of the first element of each cell, followed by the total
+         * number of elements.
+         */
+        private final int[] start;
+
+        /**
+         * Whether the elements of each cell have to be checked against the area,
+         * or {@code null} if there is no area.
+         */
+        private final boolean[] border;
+
+        /**
+         * Area to which elements are restricted.
+         */
+        private final double topLeftX, topLeftY, bottomRightX, bottomRightY;
+
+        /**
+         * Number of the next element.
+         */
+        private int index;
+
+        /**
+         * Number of the element after the last one.
+         */
+        private final int fence;
+
+        /**
+         * Cell of the next element.
+         */
+        private int cell;
+
+        /**
+         * Expected modification count.
+         */
+        private final int expectedModCount;
+
+
+        /**
+         * Constructor for all the elements of a range of cells.
+         *
+         * @param minI First row.
+         * @param minJ First column.
+         * @param maxI Last row.
+         * @param maxJ Last column.
+         */
+        private CellSpliterator(int minI, int minJ, int maxI, int maxJ) {
+            this(minI, minJ, maxI, maxJ, false, 0d, 0d, 0d, 0d);
+        }
+
+        /**
+         * Constructor for the elements of a range of cells which are in an area.
+         *
+         * @param minI         First row.
+         * @param minJ         First column.
+         * @param maxI         Last row.
+         * @param maxJ         Last column.
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         */
+        private CellSpliterator(int minI, int minJ, int maxI, int maxJ,
+                                double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            this(minI, minJ, maxI, maxJ, true, topLeftX, topLeftY, bottomRightX, bottomRightY);
+        }
+
+        /**
+         * Constructor.
+         */
+        private CellSpliterator(int minI, int minJ, int maxI, int maxJ, boolean restricted,
+                                double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            int cols = maxJ - minJ + 1;
+            int count = (maxI - minI + 1) * cols;
+            cells = newCells(count);
+            start = new int[count + 1];
+            border = restricted ? new boolean[count] : null;
+            
+            for(int c = 0; c < count; c++) {
+                int i = minI + c / cols;
+                int j = minJ + c % cols;
+                cells[c] = (List<CoordinatesElement<E>>) elements[i][j];
+                start[c + 1] = start[c] + cells[c].size();
+                if(restricted) {
+                    border[c] = i == minI || i == maxI || j == minJ || j == maxJ;
+                }
+            }
+            
+            this.topLeftX = topLeftX;
+            this.topLeftY = topLeftY;
+            this.bottomRightX = bottomRightX;
+            this.bottomRightY = bottomRightY;
+            index = 0;
+            fence = start[count];
+            cell = 0;
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Constructor for the first half of a split.
+         *
+         * @param s     Spliterator which is split.
+         * @param fence Number of the element after the last one.
+         */
+        private CellSpliterator(CellSpliterator s, int fence) {
+            cells = s.cells;
+            start = s.start;
+            border = s.border;
+            topLeftX = s.topLeftX;
+            topLeftY = s.topLeftY;
+            bottomRightX = s.bottomRightX;
+            bottomRightY = s.bottomRightY;
+            index = s.index;
+            this.fence = fence;
+            cell = s.cell;
+            expectedModCount = s.expectedModCount;
+        }
+
+
+        /**
+         * Finds the cell which contains an element.
+         *
+         * @param k Number of the element.
+         * @return The last cell which starts at or before it.
+         */
+        private int cellOf(int k) {
+            int lo = 0;
+            int hi = cells.length - 1;
+            while(lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if(start[mid] <= k) {
+                    lo = mid;
+                }
+                else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Whether an element of a cell is given to the action.
+         *
+         * @param c The cell.
+         * @param e The element.
+         * @return {@code true} if the cell does not need to be checked or the element is in the area.
+         */
+        private boolean accepts(int c, CoordinatesElement<E> e) {
+            return border == null || !border[c] || e.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param action The action.
+         * @return {@code false} if no remaining elements existed.
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super CoordinatesElement<E>> action) {
+            while(index < fence) {
+                while(start[cell + 1] <= index) {
+                    cell++;
+                }
+                var e = cells[cell].get(index - start[cell]);
+                index++;
+                
+                if(accepts(cell, e)) {
+                    action.accept(e);
+                    if(expectedModCount != modCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param action The action.
+         */
+        @Override
+        public void forEachRemaining(Consumer<? super CoordinatesElement<E>> action) {
+            int k = index;
+            index = fence;
+            
+            for(int c = cell; k < fence; c++) {
+                var l = cells[c];
+                int to = Math.min(fence, start[c + 1]);
+                for(; k < to; k++) {
+                    var e = l.get(k - start[c]);
+                    if(accepts(c, e)) {
+                        action.accept(e);
+                    }
+                }
+            }
+            
+            if(expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The first half of the elements, or {@code null} if there is only one left.
+         */
+        @Override
+        public Spliterator<CoordinatesElement<E>> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if(mid <= index) {
+                return null;
+            }
+            
+            var s = new CellSpliterator(this, mid);
+            index = mid;
+            cell = cellOf(mid);
+            return s;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The number of remaining elements, or an upper bound if they are restricted to an area.
+         */
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return The characteristics.
+         */
+        @Override
+        public int characteristics() {
+            return (border == null) ? NONNULL | SIZED | SUBSIZED : NONNULL;
+        }
+    }
+
+
     /**
      * Wrapper over an arraylist iterator over {@link #elements}.
      */
@@ -0,0 +1,1205 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.Layout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+
+/**
+ * Coordinates structure backed by a point region quadtree.
+ * <p>
+ * Each node of the tree covers a square-ish area of the coordinates space.
+ * A leaf holds up to {@code nodeCapacity} elements, past which it is split
+ * into four children which evenly share its area. Conversely, when a node's
+ * subtree holds {@code nodeCapacity} elements or less, its children
+ * are merged back into it.
+ * <p>
+ * Unlike {@link CoordinatesMatrix}, whose cells have a fixed size once its
+ * maximum number of rows and columns is reached, the tree only subdivides
+ * where elements actually are. This keeps lookups logarithmic even when the
+ * elements are heavily clustered.
+ * <p>
+ * The root covers {@code [0, initialWidth) * [0, initialHeight)}
+ * (or whatever {@link #DEFAULT_WIDTH} and {@link #DEFAULT_HEIGHT} are)
+ * and is doubled towards any element placed outside of it, so negative
+ * coordinates are supported. A node is never split once its width or height
+ * is below {@link #MIN_NODE_SIZE}, so that many elements with (almost)
+ * identical coordinates don't cause endless splits.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see CoordinatesStructure
+ * @see CoordinatesElement
+ * @see CoordinatesMatrix
+ */
+public class CoordinatesQuadTree<E> implements CoordinatesStructure<E>, LocalizedStructure<E> {
+
+    /**
+     * Layoutable tree where {@link #repositionAllTo(Map)} doesn't check
+     * whether the structure already contains the elements.
+     * <p>
+     * It is only used for faster repositioning when creating a new tree
+     * with a layout (as all the elements are initially placed at [0, 0],
+     * which would put them all in the same leaf).
+     *
+     * @param <E> Type of elements.
+     */
+    private static final class UncheckedLayoutableQuadTree<E> extends LayoutableQuadTree<E> {
+
+        /**
+         * Layout constructor.
+         *
+         * @param el             Elements.
+         * @param layoutSupplier Initial layout.
+         */
+        private UncheckedLayoutableQuadTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+            super(el);
+            layoutSupplier.apply(this).apply();
+        }
+
+        /**
+         * Layout constructor.
+         *
+         * @param el             Elements.
+         * @param layoutSupplier Initial layout.
+         * @param initialWidth   Width.
+         * @param initialHeight  Height.
+         * @param nodeCapacity   Maximum number of elements in a leaf.
+         */
+        private UncheckedLayoutableQuadTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier,
+                                            double initialWidth, double initialHeight, int nodeCapacity) {
+            super(el, initialWidth, initialHeight, nodeCapacity);
+            layoutSupplier.apply(this).apply();
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param m Elements with their old coordinates mapped to
+         *          their new coordinates.
+         */
+        @Override
+        public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
+            emptyElements();
+            m.forEach(
+                (k, v) -> {
+                    k.setXY(v);
+                    place(k);
+                }
+            );
+            updateDimensions();
+        }
+    }
+
+
+    /**
+     * A node of the tree. Its area is {@code [x0, x1) * [y0, y1)}.
+     *
+     * @param <E> Type of elements.
+     */
+    private static final class Node<E> {
+
+        /**
+         * Left bound (inclusive).
+         */
+        private final double x0;
+
+        /**
+         * Top bound (inclusive).
+         */
+        private final double y0;
+
+        /**
+         * Right bound (exclusive).
+         */
+        private final double x1;
+
+        /**
+         * Bottom bound (exclusive).
+         */
+        private final double y1;
+
+        /**
+         * Elements of this node if it is a leaf; {@code null} otherwise.
+         */
+        private List<CoordinatesElement<E>> elements;
+
+        /**
+         * Children of this node if it is not a leaf; {@code null} otherwise.
+         * Ordered top left, top right, bottom left, bottom right.
+         */
+        private Node<E>[] children;
+
+        /**
+         * Number of elements in this node's subtree.
+         */
+        private int count;
+
+
+        /**
+         * Leaf constructor.
+         *
+         * @param x0 Left bound.
+         * @param y0 Top bound.
+         * @param x1 Right bound.
+         * @param y1 Bottom bound.
+         */
+        private Node(double x0, double y0, double x1, double y1) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            elements = new ArrayList<>();
+        }
+
+
+        /**
+         * Whether this node is a leaf.
+         *
+         * @return {@code true} if it is a leaf.
+         */
+        private boolean isLeaf() {
+            return children == null;
+        }
+
+        /**
+         * Whether this node's area contains the given coordinates.
+         *
+         * @param x X coordinate.
+         * @param y Y coordinate.
+         * @return {@code true} if the coordinates are within this node's area.
+         */
+        private boolean contains(double x, double y) {
+            return x >= x0 && x < x1 && y >= y0 && y < y1;
+        }
+
+        /**
+         * Index of the child whose area contains the given coordinates.
+         *
+         * @param x X coordinate.
+         * @param y Y coordinate.
+         * @return Index in {@link #children}.
+         */
+        private int childIndex(double x, double y) {
+            int i = (x < (x0 + x1) / 2d) ? 0 : 1;
+            return (y < (y0 + y1) / 2d) ? i : i + 2;
+        }
+
+        /**
+         * Whether this node's area is within the given area.
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @return {@code true} if this node is within the area.
+         */
+        private boolean isIn(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            return x0 >= topLeftX && x1 <= bottomRightX && y0 >= topLeftY && y1 <= bottomRightY;
+        }
+
+        /**
+         * Whether this node's area intersects with the given area.
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @return {@code true} if this node intersects with the area.
+         */
+        private boolean intersects(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            return x0 <= bottomRightX && x1 > topLeftX && y0 <= bottomRightY && y1 > topLeftY;
+        }
+    }
+
+
+    /**
+     * A node to visit during a nearest neighbours search.
+     *
+     * @param node     The node.
+     * @param distance Squared distance from the searched coordinates to the node.
+     * @param <E>      Type of elements.
+     */
+    private record Candidate<E>(Node<E> node, double distance) { }
+
+
+    /**
+     * Default initial width.
+     */
+    public static final double DEFAULT_WIDTH = 1_000d;
+
+    /**
+     * Default initial height.
+     */
+    public static final double DEFAULT_HEIGHT = 1_000d;
+
+    /**
+     * Default maximum number of elements in a leaf before it is split.
+     */
+    public static final int DEFAULT_NODE_CAPACITY = 16;
+
+    /**
+     * Minimum width or height of a node which can be split.
+     */
+    public static final double MIN_NODE_SIZE = 0.01d;
+
+
+    /**
+     * Root of the tree.
+     */
+    private Node<E> root;
+
+    /**
+     * Maximum number of elements in a leaf before it is split.
+     */
+    private final int nodeCapacity;
+
+    /**
+     * Minimum width in this structure.
+     */
+    private final DoubleProperty minWidth = new SimpleDoubleProperty();
+
+    /**
+     * Minimum height in this structure.
+     */
+    private final DoubleProperty minHeight = new SimpleDoubleProperty();
+
+    /**
+     * Maximum width in this structure.
+     */
+    private final DoubleProperty maxWidth = new SimpleDoubleProperty();
+
+    /**
+     * Maximum height in this structure.
+     */
+    private final DoubleProperty maxHeight = new SimpleDoubleProperty();
+
+    /**
+     * Concurrent modification checker for {@link QuadTreeIterator}.
+     */
+    private int modCount;
+
+    /**
+     * Depth of the current batch, {@code 0} if there is none.
+     * 
+     * @see #beginBatch() 
+     */
+    private int batchDepth;
+
+
+    /**
+     * Custom values fields setter constructor.
+     *
+     * @param initialWidth  Width.
+     * @param initialHeight Height.
+     * @param nodeCapacity  Maximum number of elements in a leaf.
+     */
+    private CoordinatesQuadTree(double initialWidth, double initialHeight, int nodeCapacity) {
+        if(initialWidth <= 0 || initialHeight <= 0 || nodeCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.nodeCapacity = nodeCapacity;
+        root = new Node<>(0d, 0d, initialWidth, initialHeight);
+
+        minWidth.set(0);
+        minHeight.set(0);
+        maxWidth.set(0);
+        maxHeight.set(0);
+    }
+
+    /**
+     * Shallow copy constructor.
+     *
+     * @param t       Tree to copy.
+     * @param ignored Ignored.
+     */
+    private CoordinatesQuadTree(CoordinatesQuadTree<E> t, boolean ignored) {
+        root = t.root;
+        nodeCapacity = t.nodeCapacity;
+        minWidth.set(t.getMinimumWidth());
+        minHeight.set(t.getMinimumHeight());
+        maxWidth.set(t.getMaximumWidth());
+        maxHeight.set(t.getMaximumHeight());
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param el Elements.
+     */
+    public CoordinatesQuadTree(Collection<E> el) {
+        this(el, DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     */
+    public CoordinatesQuadTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+        this(new UncheckedLayoutableQuadTree<>(el, layoutSupplier), true);
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c Structure to copy.
+     */
+    public CoordinatesQuadTree(CoordinatesStructure<E> c) {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_NODE_CAPACITY);
+
+        c.forEach(this::place);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param t Tree to copy.
+     */
+    public CoordinatesQuadTree(CoordinatesQuadTree<E> t) {
+        this(t.root.x1 - t.root.x0, t.root.y1 - t.root.y0, t.nodeCapacity);
+
+        t.forEach(this::place);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el            Elements.
+     * @param initialWidth  Width.
+     * @param initialHeight Height.
+     * @param nodeCapacity  Maximum number of elements in a leaf.
+     */
+    public CoordinatesQuadTree(Collection<E> el, double initialWidth, double initialHeight, int nodeCapacity) {
+        this(initialWidth, initialHeight, nodeCapacity);
+
+        el.forEach(e -> place(new CoordinatesElement<>(e)));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el            Elements.
+     * @param initialWidth  Width.
+     * @param initialHeight Height.
+     * @param nodeCapacity  Maximum number of elements in a leaf.
+     */
+    public CoordinatesQuadTree(CoordinatesStructure<E> el, double initialWidth, double initialHeight, int nodeCapacity) {
+        this(initialWidth, initialHeight, nodeCapacity);
+
+        el.forEach(this::place);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     * @param initialWidth   Width.
+     * @param initialHeight  Height.
+     * @param nodeCapacity   Maximum number of elements in a leaf.
+     */
+    public CoordinatesQuadTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier,
+                               double initialWidth, double initialHeight, int nodeCapacity) {
+        this(new UncheckedLayoutableQuadTree<>(el, layoutSupplier, initialWidth, initialHeight, nodeCapacity), true);
+    }
+
+
+    /**
+     * Should be called whenever the tree is modified.
+     */
+    private void modified() {
+        modCount++;
+    }
+
+    /**
+     * Helper method which adds the given element to the tree.
+     *
+     * @param c The element to place.
+     * @return {@code true} if it was added; {@code false} otherwise.
+     * @throws IllegalArgumentException If a coordinate is infinite or NaN.
+     */
+    protected final boolean place(CoordinatesElement<E> c) {
+        checkFinite(c.getX(), c.getY());
+        ensureContains(c.getX(), c.getY());
+        insert(root, c);
+        setDimensionsIfOutside(c);
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which removes the given element from the tree.
+     *
+     * @param c The element to remove.
+     * @return {@code true} if it was removed; {@code false} otherwise.
+     */
+    protected final boolean delete(CoordinatesElement<E> c) {
+        if(!root.contains(c.getX(), c.getY()) || !remove(root, c)) {
+            return false;
+        }
+
+        if(isOnBound(c)) {
+            updateDimensions();
+        }
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which moves an existing element.
+     *
+     * @param c The element to move.
+     * @param x New X coordinate.
+     * @param y New Y coordinate.
+     * @return {@code true} if the element was present and successfully moved;
+     * {@code false} otherwise.
+     * @throws IllegalArgumentException If a coordinate is infinite or NaN.
+     */
+    protected final boolean move(CoordinatesElement<E> c, double x, double y) {
+        checkFinite(x, y);
+        if(!root.contains(c.getX(), c.getY()) || !remove(root, c)) {
+            return false;
+        }
+
+        boolean bound = isOnBound(c);
+        c.setXY(x, y);
+        ensureContains(x, y);
+        insert(root, c);
+
+        if(bound) {
+            updateDimensions();
+        }
+        else {
+            setDimensionsIfOutside(c);
+        }
+
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which moves an existing element.
+     *
+     * @param c The element to move.
+     * @param p The new coordinates.
+     * @return {@code true} if the element was present and successfully moved;
+     * {@code false} otherwise.
+     * @throws IllegalArgumentException If a coordinate is infinite or NaN.
+     */
+    protected final boolean move(CoordinatesElement<E> c, Point2D p) {
+        return move(c, p.getX(), p.getY());
+    }
+
+    /**
+     * Empties the tree. Its root keeps its current area.
+     */
+    protected final void emptyElements() {
+        root = new Node<>(root.x0, root.y0, root.x1, root.y1);
+        modified();
+        setDimensions(0d, 0d, 0d, 0d);
+    }
+
+    /**
+     * Checks that a pair of coordinates can be stored, as the root
+     * could otherwise never grow enough to contain them.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @throws IllegalArgumentException If a coordinate is infinite or NaN.
+     */
+    private static void checkFinite(double x, double y) {
+        if(!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Grows the root until its area contains the given coordinates.
+     * The area is doubled towards the coordinates every time.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     */
+    @SuppressWarnings("unchecked")
+    private void ensureContains(double x, double y) {
+        while(!root.contains(x, y)) {
+            double w = root.x1 - root.x0;
+            double h = root.y1 - root.y0;
+            boolean left = x < root.x0;
+            boolean up = y < root.y0;
+
+            double nx0 = left ? root.x0 - w : root.x0;
+            double ny0 = up ? root.y0 - h : root.y0;
+            var n = new Node<E>(nx0, ny0, nx0 + 2 * w, ny0 + 2 * h);
+            n.count = root.count;
+
+            if(root.count == 0) {
+                root = n;
+                continue;
+            }
+
+            n.elements = null;
+            n.children = (Node<E>[]) new Node<?>[4];
+            double mx = nx0 + w;
+            double my = ny0 + h;
+            n.children[0] = new Node<>(nx0, ny0, mx, my);
+            n.children[1] = new Node<>(mx, ny0, n.x1, my);
+            n.children[2] = new Node<>(nx0, my, mx, n.y1);
+            n.children[3] = new Node<>(mx, my, n.x1, n.y1);
+            n.children[(left ? 1 : 0) + (up ? 2 : 0)] = root;
+            root = n;
+        }
+    }
+
+    /**
+     * Inserts an element in the given subtree, whose area
+     * has to contain the element's coordinates.
+     *
+     * @param n Subtree.
+     * @param c Element to insert.
+     */
+    private void insert(Node<E> n, CoordinatesElement<E> c) {
+        while(!n.isLeaf()) {
+            n.count++;
+            n = n.children[n.childIndex(c.getX(), c.getY())];
+        }
+
+        n.count++;
+        n.elements.add(c);
+
+        if(n.elements.size() > nodeCapacity && n.x1 - n.x0 > MIN_NODE_SIZE && n.y1 - n.y0 > MIN_NODE_SIZE) {
+            split(n);
+        }
+    }
+
+    /**
+     * Splits a leaf into four children.
+     *
+     * @param n The leaf to split.
+     */
+    @SuppressWarnings("unchecked")
+    private void split(Node<E> n) {
+        double mx = (n.x0 + n.x1) / 2d;
+        double my = (n.y0 + n.y1) / 2d;
+
+        n.children = (Node<E>[]) new Node<?>[4];
+        n.children[0] = new Node<>(n.x0, n.y0, mx, my);
+        n.children[1] = new Node<>(mx, n.y0, n.x1, my);
+        n.children[2] = new Node<>(n.x0, my, mx, n.y1);
+        n.children[3] = new Node<>(mx, my, n.x1, n.y1);
+
+        var l = n.elements;
+        n.elements = null;
+        n.count = 0;
+        for(var c : l) {
+            insert(n, c);
+        }
+    }
+
+    /**
+     * Removes an element from the given subtree, whose area has
+     * to contain the element's coordinates. Merges back nodes whose
+     * subtree no longer holds more than {@link #nodeCapacity} elements.
+     *
+     * @param n Subtree.
+     * @param c Element to remove.
+     * @return {@code true} if the element was removed.
+     */
+    private boolean remove(Node<E> n, CoordinatesElement<E> c) {
+        if(n.isLeaf()) {
+            if(!n.elements.remove(c)) {
+                return false;
+            }
+            n.count--;
+            return true;
+        }
+
+        if(!remove(n.children[n.childIndex(c.getX(), c.getY())], c)) {
+            return false;
+        }
+
+        n.count--;
+        if(n.count <= nodeCapacity) {
+            var l = new ArrayList<CoordinatesElement<E>>(nodeCapacity + 1);
+            collect(n, l::add);
+            n.children = null;
+            n.elements = l;
+        }
+        return true;
+    }
+
+    /**
+     * Gives all the elements of the given subtree to the given action.
+     *
+     * @param n      Subtree.
+     * @param action Action.
+     */
+    private void collect(Node<E> n, Consumer<? super CoordinatesElement<E>> action) {
+        if(n.isLeaf()) {
+            n.elements.forEach(action);
+            return;
+        }
+
+        for(var child : n.children) {
+            if(child.count > 0) {
+                collect(child, action);
+            }
+        }
+    }
+
+    /**
+     * Gives all the elements of the given subtree which are within
+     * the given area and match the given condition to the given action.
+     *
+     * @param n            Subtree.
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition, may be {@code null}.
+     * @param action       Action.
+     */
+    private void collect(Node<E> n, double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                         Predicate<E> condition, Consumer<? super CoordinatesElement<E>> action) {
+        if(n.count == 0 || !n.intersects(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+            return;
+        }
+
+        if(condition == null && n.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+            collect(n, action);
+            return;
+        }
+
+        if(!n.isLeaf()) {
+            for(var child : n.children) {
+                collect(child, topLeftX, topLeftY, bottomRightX, bottomRightY, condition, action);
+            }
+            return;
+        }
+
+        for(var c : n.elements) {
+            if(c.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)
+                && (condition == null || condition.test(c.getElement()))) {
+                action.accept(c);
+            }
+        }
+    }
+
+    /**
+     * Checks if an element is out of the current bounds
+     * described by the dimensions properties.
+     *
+     * @param c The element to check.
+     */
+    protected final void setDimensionsIfOutside(CoordinatesElement<E> c) {
+        if(size() == 1) {
+            // the properties still hold the dimensions of the empty tree
+            setDimensions(c.getX(), c.getY(), c.getX(), c.getY());
+            return;
+        }
+        double minW = Math.min(minWidth.get(), c.getX());
+        double minH = Math.min(minHeight.get(), c.getY());
+        double maxW = Math.max(maxWidth.get(), c.getX());
+        double maxH = Math.max(maxHeight.get(), c.getY());
+        setDimensions(minW, minH, maxW, maxH);
+    }
+
+    /**
+     * Checks if an element is on a bound.
+     *
+     * @param c The element to check.
+     * @return {@code true} if one of the element's coordinates is
+     * equal to one of the dimension properties.
+     */
+    protected final boolean isOnBound(CoordinatesElement<E> c) {
+        return c.getX() == minWidth.get()  || c.getX() == maxWidth.get()
+            || c.getY() == minHeight.get() || c.getY() == maxHeight.get();
+    }
+
+    /**
+     * Sets the dimensions.
+     *
+     * @param minW Potential new min width.
+     * @param minH Potential new min height.
+     * @param maxW Potential new max width.
+     * @param maxH Potential new max height.
+     */
+    protected final void setDimensions(double minW, double minH, double maxW, double maxH) {
+        if(batchDepth > 0) {
+            return;
+        }
+        if(minW != minWidth.get()) {
+            minWidth.set(minW);
+        }
+        if(minH != minHeight.get()) {
+            minHeight.set(minH);
+        }
+        if(maxW != maxWidth.get()) {
+            maxWidth.set(maxW);
+        }
+        if(maxH != maxHeight.get()) {
+            maxHeight.set(maxH);
+        }
+    }
+
+    /**
+     * Starts a batch. Until the matching {@link #endBatch()}, the dimension
+     * properties are not updated, so that they are only updated once
+     * no matter how many changes happen during the batch.
+     * <p>
+     * Batches can be nested, in which case only the outermost one matters.
+     */
+    protected final void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch. When the outermost batch ends, the dimension
+     * properties are updated and {@link #batchEnded()} is called.
+     * 
+     * @throws IllegalStateException If there is no batch to end.
+     */
+    protected final void endBatch() {
+        if(batchDepth == 0) {
+            throw new IllegalStateException();
+        }
+        if(--batchDepth == 0) {
+            updateDimensions();
+            batchEnded();
+        }
+    }
+
+    /**
+     * Whether a batch is in progress.
+     * 
+     * @return {@code true} if a batch was started and not ended yet.
+     */
+    protected final boolean inBatch() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Called when the outermost batch ends, after the dimension properties
+     * were updated. Does nothing by default.
+     */
+    protected void batchEnded() {
+        // to be overridden
+    }
+
+    /**
+     * Update dimensions properties. Subtrees which can not contain
+     * a new extreme value are skipped.
+     */
+    protected final void updateDimensions() {
+        if(isEmpty()) {
+            setDimensions(0d, 0d, 0d, 0d);
+            return;
+        }
+
+        double[] d = { Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        extremes(root, d);
+        setDimensions(d[0], d[1], d[2], d[3]);
+    }
+
+    /**
+     * Helper method which finds the extreme coordinates of the given subtree.
+     *
+     * @param n Subtree.
+     * @param d Current min x, min y, max x and max y.
+     */
+    private void extremes(Node<E> n, double[] d) {
+        if(n.count == 0
+            || (n.x0 >= d[0] && n.y0 >= d[1] && n.x1 <= d[2] && n.y1 <= d[3])) {
+            return;
+        }
+
+        if(n.isLeaf()) {
+            for(var c : n.elements) {
+                d[0] = Math.min(d[0], c.getX());
+                d[1] = Math.min(d[1], c.getY());
+                d[2] = Math.max(d[2], c.getX());
+                d[3] = Math.max(d[3], c.getY());
+            }
+            return;
+        }
+
+        for(var child : n.children) {
+            extremes(child, d);
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        // fail fast
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collect(root, topLeftX, topLeftY, bottomRightX, bottomRightY, null, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY,
+                                                     Predicate<E> condition) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collect(root, topLeftX, topLeftY, bottomRightX, bottomRightY, condition, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return;
+        }
+
+        collect(root, topLeftX, topLeftY, bottomRightX, bottomRightY, null, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The nodes are visited from the nearest to the farthest, until the next
+     * node is farther than the farthest of the {@code k} nearest elements found.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param k Maximum number of elements.
+     * @return The nearest elements, sorted from the nearest to the farthest.
+     */
+    @Override
+    public List<CoordinatesElement<E>> kNearest(double x, double y, int k) {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(k == 0 || root.count == 0) {
+            return new ArrayList<>();
+        }
+
+        var nearest = new NearestCollector<E>(x, y, k);
+        var queue = new PriorityQueue<Candidate<E>>(Comparator.comparingDouble(Candidate::distance));
+        queue.add(new Candidate<>(root, 0d));
+
+        while(!queue.isEmpty()) {
+            var c = queue.poll();
+            if(c.distance() > nearest.bound()) {
+                break;
+            }
+
+            var n = c.node();
+            if(n.isLeaf()) {
+                nearest.offerAll(n.elements);
+                continue;
+            }
+
+            for(var child : n.children) {
+                if(child.count > 0) {
+                    double d = nearest.distanceTo(child.x0, child.y0, child.x1, child.y1);
+                    if(d <= nearest.bound()) {
+                        queue.add(new Candidate<>(child, d));
+                    }
+                }
+            }
+        }
+
+        return nearest.result();
+    }
+
+    /**
+     * Minimum width of this structure.
+     *
+     * @return Min width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumWidth() {
+        return minWidth;
+    }
+
+    /**
+     * Minimum height of this structure.
+     *
+     * @return Min height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumHeight() {
+        return minHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this structure.
+     */
+    @Override
+    public int size() {
+        return root.count;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param c The element to check.
+     * @return {@code true} if it contains it; {@code false} otherwise.
+     */
+    @Override
+    public boolean containsCoordinates(CoordinatesElement<E> c) {
+        if(!root.contains(c.getX(), c.getY())) {
+            return false;
+        }
+
+        var n = root;
+        while(!n.isLeaf()) {
+            n = n.children[n.childIndex(c.getX(), c.getY())];
+        }
+
+        return n.elements.contains(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to find.
+     * @return The coordinates of the given element if it is in the structure.
+     */
+    @Override
+    public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        for(var c : this) {
+            if(c.getElement().equals(element)) {
+                return Optional.of(c);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The elements to find.
+     * @return The coordinates of the given elements that are in the structure.
+     */
+    @Override
+    public Map<E, CoordinatesElement<E>> coordinatesOf(Collection<E> elements) {
+        var m = new HashMap<E, CoordinatesElement<E>>();
+
+        for(var e : elements) {
+            coordinatesOf(e).ifPresent(
+                c -> m.put(e, c)
+            );
+        }
+
+        return m;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return an Iterator.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new QuadTreeIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action The action to be performed for each element
+     */
+    @Override
+    public void forEach(Consumer<? super CoordinatesElement<E>> action) {
+        collect(root, action);
+    }
+
+    @Override
+    public String toString() {
+        var l = new ArrayList<CoordinatesElement<E>>(size());
+        collect(root, l::add);
+        return l.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+
+        if(o instanceof CoordinatesQuadTree<?> t && t.size() == size()) {
+            @SuppressWarnings("unchecked")
+            var other = (CoordinatesQuadTree<E>) t;
+            for(var c : this) {
+                if(!other.containsCoordinates(c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for(var c : this) {
+            h += c.hashCode();
+        }
+        return h;
+    }
+
+
+    /**
+     * Wrapper over an arraylist iterator over a snapshot of the tree.
+     */
+    protected class QuadTreeIterator implements CoordinatesIterator<CoordinatesElement<E>> {
+
+        /**
+         * Current iterator.
+         */
+        private final Iterator<CoordinatesElement<E>> itr;
+
+        /**
+         * Expected modification count for concurrent modification.
+         */
+        private int expectedModCount;
+
+
+        /**
+         * Constructor.
+         */
+        protected QuadTreeIterator() {
+            expectedModCount = modCount;
+            var total = new ArrayList<CoordinatesElement<E>>(size());
+            collect(root, total::add);
+            itr = total.iterator();
+        }
+
+
+        /**
+         * Sets the expected mod count to the current mod count.
+         */
+        protected void updateExpectedModCount() {
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Concurrent modification checker.
+         */
+        protected void checkForComod() {
+            if(expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@code true} if the iteration has more elements
+         */
+        @Override
+        public boolean hasNext() {
+            checkForComod();
+            return itr.hasNext();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the next element in the iteration
+         * @throws NoSuchElementException if the iteration has no more elements
+         */
+        @Override
+        public CoordinatesElement<E> next() {
+            checkForComod();
+            return itr.next();
+        }
+    }
+}
@@ -0,0 +1,1507 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.Layout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.ExtentStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * Coordinates structure backed by an R-tree, which indexes the extents
+ * of its elements (see {@link io.github.vqnxiv.structure.SizedCoordinatesElement})
+ * and not only their coordinates.
+ * <p>
+ * Each node of the tree holds up to {@code nodeCapacity} entries (elements
+ * for a leaf, nodes otherwise) and keeps the bounding box of all of them.
+ * Unlike {@link CoordinatesQuadTree}, whose nodes partition the coordinates
+ * space, the boxes of sibling nodes may overlap, which is what allows an
+ * element to be stored in a single leaf while covering an area.
+ * <p>
+ * Elements are inserted in the leaf whose box needs the least enlargement,
+ * overflowing nodes are split with Guttman's quadratic split and underflowing
+ * nodes are dissolved and their elements inserted again. When the tree is
+ * empty, a whole collection of elements is bulk loaded by sort-tile-recursive
+ * packing instead, which builds fuller nodes with less overlap.
+ * <p>
+ * The maximum dimensions of this structure are the ones of the area covered
+ * by its elements, i.e they include the extents of the elements.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see ExtentStructure
+ * @see CoordinatesQuadTree
+ */
+public class CoordinatesRTree<E> implements ExtentStructure<E>, LocalizedStructure<E> {
+
+    /**
+     * Layoutable tree where {@link #repositionAllTo(Map)} doesn't check
+     * whether the structure already contains the elements.
+     * <p>
+     * It is only used for faster repositioning when creating a new tree
+     * with a layout (as all the elements are initially placed at [0, 0],
+     * which would put them all in the same leaf).
+     *
+     * @param <E> Type of elements.
+     */
+    private static final class UncheckedLayoutableRTree<E> extends LayoutableRTree<E> {
+
+        /**
+         * Layout constructor.
+         *
+         * @param el             Elements.
+         * @param layoutSupplier Initial layout.
+         */
+        private UncheckedLayoutableRTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+            super(el);
+            layoutSupplier.apply(this).apply();
+        }
+
+        /**
+         * Layout constructor.
+         *
+         * @param el             Elements.
+         * @param layoutSupplier Initial layout.
+         * @param nodeCapacity   Maximum number of entries in a node.
+         */
+        private UncheckedLayoutableRTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier,
+                                         int nodeCapacity) {
+            super(el, nodeCapacity);
+            layoutSupplier.apply(this).apply();
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param m Elements with their old coordinates mapped to
+         *          their new coordinates.
+         */
+        @Override
+        public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
+            emptyElements();
+            m.forEach(CoordinatesElement::setXY);
+            placeAll(m.keySet());
+        }
+    }
+
+
+    /**
+     * A node of the tree. Its bounding box is {@code [x0, x1] * [y0, y1]}.
+     *
+     * @param <E> Type of elements.
+     */
+    private static final class Node<E> {
+
+        /**
+         * Whether this node is a leaf.
+         */
+        private final boolean leaf;
+
+        /**
+         * Elements of this node if it is a leaf; {@code null} otherwise.
+         */
+        private final List<CoordinatesElement<E>> elements;
+
+        /**
+         * Children of this node if it is not a leaf; {@code null} otherwise.
+         */
+        private final List<Node<E>> children;
+
+        /**
+         * Parent of this node, {@code null} for the root.
+         */
+        private Node<E> parent;
+
+        /**
+         * Left bound of the box.
+         */
+        private double x0;
+
+        /**
+         * Top bound of the box.
+         */
+        private double y0;
+
+        /**
+         * Right bound of the box.
+         */
+        private double x1;
+
+        /**
+         * Bottom bound of the box.
+         */
+        private double y1;
+
+
+        /**
+         * Constructor. The node starts with an empty box.
+         *
+         * @param leaf Whether the node is a leaf.
+         */
+        private Node(boolean leaf) {
+            this.leaf = leaf;
+            elements = leaf ? new ArrayList<>() : null;
+            children = leaf ? null : new ArrayList<>();
+            resetBox();
+        }
+
+
+        /**
+         * Number of entries in this node.
+         *
+         * @return The number of elements or children.
+         */
+        private int size() {
+            return leaf ? elements.size() : children.size();
+        }
+
+        /**
+         * Empties the box of this node.
+         */
+        private void resetBox() {
+            x0 = Double.MAX_VALUE;
+            y0 = Double.MAX_VALUE;
+            x1 = -Double.MAX_VALUE;
+            y1 = -Double.MAX_VALUE;
+        }
+
+        /**
+         * Extends the box of this node to an area.
+         *
+         * @param ax0 Left bound.
+         * @param ay0 Top bound.
+         * @param ax1 Right bound.
+         * @param ay1 Bottom bound.
+         */
+        private void include(double ax0, double ay0, double ax1, double ay1) {
+            x0 = Math.min(x0, ax0);
+            y0 = Math.min(y0, ay0);
+            x1 = Math.max(x1, ax1);
+            y1 = Math.max(y1, ay1);
+        }
+
+        /**
+         * Extends the box of this node to an element.
+         *
+         * @param c The element.
+         */
+        private void include(CoordinatesElement<E> c) {
+            include(c.getX(), c.getY(), c.getX() + c.getWidth(), c.getY() + c.getHeight());
+        }
+
+        /**
+         * Extends the box of this node to another node.
+         *
+         * @param n The node.
+         */
+        private void include(Node<E> n) {
+            include(n.x0, n.y0, n.x1, n.y1);
+        }
+
+        /**
+         * Adds an element to this leaf.
+         *
+         * @param c The element.
+         */
+        private void addElement(CoordinatesElement<E> c) {
+            elements.add(c);
+            include(c);
+        }
+
+        /**
+         * Adds a child to this node.
+         *
+         * @param n The child.
+         */
+        private void addChild(Node<E> n) {
+            children.add(n);
+            n.parent = this;
+            include(n);
+        }
+
+        /**
+         * Computes the box of this node from its entries.
+         */
+        private void recomputeBox() {
+            resetBox();
+            if(leaf) {
+                elements.forEach(this::include);
+            }
+            else {
+                children.forEach(this::include);
+            }
+        }
+
+        /**
+         * Area of the box of this node.
+         *
+         * @return The area.
+         */
+        private double area() {
+            return (x1 - x0) * (y1 - y0);
+        }
+
+        /**
+         * How much the area of this node's box would grow if it was
+         * extended to the given area.
+         *
+         * @param ax0 Left bound.
+         * @param ay0 Top bound.
+         * @param ax1 Right bound.
+         * @param ay1 Bottom bound.
+         * @return The enlargement.
+         */
+        private double enlargement(double ax0, double ay0, double ax1, double ay1) {
+            return (Math.max(x1, ax1) - Math.min(x0, ax0)) * (Math.max(y1, ay1) - Math.min(y0, ay0)) - area();
+        }
+
+        /**
+         * Whether this node's box contains the given coordinates.
+         *
+         * @param x X coordinate.
+         * @param y Y coordinate.
+         * @return {@code true} if the coordinates are within the box.
+         */
+        private boolean contains(double x, double y) {
+            return x >= x0 && x <= x1 && y >= y0 && y <= y1;
+        }
+
+        /**
+         * Whether this node's box is within the given area.
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @return {@code true} if this node is within the area.
+         */
+        private boolean isIn(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            return x0 >= topLeftX && x1 <= bottomRightX && y0 >= topLeftY && y1 <= bottomRightY;
+        }
+
+        /**
+         * Whether this node's box intersects with the given area.
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @return {@code true} if this node intersects with the area.
+         */
+        private boolean intersects(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            return x0 <= bottomRightX && x1 >= topLeftX && y0 <= bottomRightY && y1 >= topLeftY;
+        }
+    }
+
+
+    /**
+     * A node to visit during a nearest neighbours search.
+     *
+     * @param node     The node.
+     * @param distance Squared distance from the searched coordinates to the node.
+     * @param <E>      Type of elements.
+     */
+    private record Candidate<E>(Node<E> node, double distance) { }
+
+
+    /**
+     * Default maximum number of entries in a node before it is split.
+     */
+    public static final int DEFAULT_NODE_CAPACITY = 16;
+
+
+    /**
+     * Root of the tree.
+     */
+    private Node<E> root;
+
+    /**
+     * Maximum number of entries in a node before it is split.
+     */
+    private final int nodeCapacity;
+
+    /**
+     * Minimum number of entries in a node other than the root
+     * before it is dissolved.
+     */
+    private final int minEntries;
+
+    /**
+     * Number of elements in the tree.
+     */
+    private int size;
+
+    /**
+     * Minimum width in this structure.
+     */
+    private final DoubleProperty minWidth = new SimpleDoubleProperty();
+
+    /**
+     * Minimum height in this structure.
+     */
+    private final DoubleProperty minHeight = new SimpleDoubleProperty();
+
+    /**
+     * Maximum width in this structure.
+     */
+    private final DoubleProperty maxWidth = new SimpleDoubleProperty();
+
+    /**
+     * Maximum height in this structure.
+     */
+    private final DoubleProperty maxHeight = new SimpleDoubleProperty();
+
+    /**
+     * Concurrent modification checker for {@link RTreeIterator}.
+     */
+    private int modCount;
+
+    /**
+     * Depth of the current batch, {@code 0} if there is none.
+     *
+     * @see #beginBatch()
+     */
+    private int batchDepth;
+
+
+    /**
+     * Custom values fields setter constructor.
+     *
+     * @param nodeCapacity Maximum number of entries in a node.
+     */
+    private CoordinatesRTree(int nodeCapacity) {
+        if(nodeCapacity < 2) {
+            throw new IllegalArgumentException();
+        }
+
+        this.nodeCapacity = nodeCapacity;
+        minEntries = Math.max(1, nodeCapacity * 2 / 5);
+        root = new Node<>(true);
+
+        minWidth.set(0);
+        minHeight.set(0);
+        maxWidth.set(0);
+        maxHeight.set(0);
+    }
+
+    /**
+     * Shallow copy constructor.
+     *
+     * @param t       Tree to copy.
+     * @param ignored Ignored.
+     */
+    private CoordinatesRTree(CoordinatesRTree<E> t, boolean ignored) {
+        root = t.root;
+        size = t.size;
+        nodeCapacity = t.nodeCapacity;
+        minEntries = t.minEntries;
+        minWidth.set(t.getMinimumWidth());
+        minHeight.set(t.getMinimumHeight());
+        maxWidth.set(t.getMaximumWidth());
+        maxHeight.set(t.getMaximumHeight());
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param el Elements.
+     */
+    public CoordinatesRTree(Collection<E> el) {
+        this(el, DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     */
+    public CoordinatesRTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+        this(new UncheckedLayoutableRTree<>(el, layoutSupplier), true);
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c Structure to copy.
+     */
+    public CoordinatesRTree(CoordinatesStructure<E> c) {
+        this(c, DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param t Tree to copy.
+     */
+    public CoordinatesRTree(CoordinatesRTree<E> t) {
+        this(t, t.nodeCapacity);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el           Elements.
+     * @param nodeCapacity Maximum number of entries in a node.
+     */
+    public CoordinatesRTree(Collection<E> el, int nodeCapacity) {
+        this(nodeCapacity);
+
+        var l = new ArrayList<CoordinatesElement<E>>(el.size());
+        el.forEach(e -> l.add(new CoordinatesElement<>(e)));
+        placeAll(l);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el           Elements.
+     * @param nodeCapacity Maximum number of entries in a node.
+     */
+    public CoordinatesRTree(CoordinatesStructure<E> el, int nodeCapacity) {
+        this(nodeCapacity);
+
+        var l = new ArrayList<CoordinatesElement<E>>(el.size());
+        el.forEach(l::add);
+        placeAll(l);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     * @param nodeCapacity   Maximum number of entries in a node.
+     */
+    public CoordinatesRTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier,
+                            int nodeCapacity) {
+        this(new UncheckedLayoutableRTree<>(el, layoutSupplier, nodeCapacity), true);
+    }
+
+
+    /**
+     * Should be called whenever the tree is modified.
+     */
+    private void modified() {
+        modCount++;
+    }
+
+    /**
+     * Helper method which adds the given element to the tree.
+     *
+     * @param c The element to place.
+     * @return {@code true} if it was added; {@code false} otherwise.
+     */
+    protected final boolean place(CoordinatesElement<E> c) {
+        insert(c);
+        size++;
+        updateDimensions();
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which adds all the given elements to the tree.
+     * They are bulk loaded if the tree is empty.
+     *
+     * @param c The elements to place.
+     */
+    protected final void placeAll(Collection<CoordinatesElement<E>> c) {
+        if(c.isEmpty()) {
+            return;
+        }
+
+        if(size == 0) {
+            root = pack(new ArrayList<>(c));
+        }
+        else {
+            c.forEach(this::insert);
+        }
+
+        size += c.size();
+        updateDimensions();
+        modified();
+    }
+
+    /**
+     * Helper method which removes the given element from the tree.
+     *
+     * @param c The element to remove.
+     * @return {@code true} if it was removed; {@code false} otherwise.
+     */
+    protected final boolean delete(CoordinatesElement<E> c) {
+        var leaf = findLeaf(root, c);
+        if(leaf == null) {
+            return false;
+        }
+
+        leaf.elements.remove(c);
+        size--;
+        condense(leaf);
+        updateDimensions();
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which moves an existing element. The element
+     * held by the tree is moved, which keeps its extents.
+     *
+     * @param c The element to move.
+     * @param x New X coordinate.
+     * @param y New Y coordinate.
+     * @return {@code true} if the element was present and successfully moved;
+     * {@code false} otherwise.
+     */
+    protected final boolean move(CoordinatesElement<E> c, double x, double y) {
+        var leaf = findLeaf(root, c);
+        if(leaf == null) {
+            return false;
+        }
+
+        var stored = leaf.elements.remove(leaf.elements.indexOf(c));
+        condense(leaf);
+        stored.setXY(x, y);
+        insert(stored);
+
+        updateDimensions();
+        modified();
+        return true;
+    }
+
+    /**
+     * Helper method which moves an existing element.
+     *
+     * @param c The element to move.
+     * @param p The new coordinates.
+     * @return {@code true} if the element was present and successfully moved;
+     * {@code false} otherwise.
+     */
+    protected final boolean move(CoordinatesElement<E> c, Point2D p) {
+        return move(c, p.getX(), p.getY());
+    }
+
+    /**
+     * Empties the tree.
+     */
+    protected final void emptyElements() {
+        root = new Node<>(true);
+        size = 0;
+        modified();
+        setDimensions(0d, 0d, 0d, 0d);
+    }
+
+    /**
+     * Inserts an element in the leaf whose box needs the least enlargement,
+     * then splits the nodes which overflow.
+     *
+     * @param c Element to insert.
+     */
+    private void insert(CoordinatesElement<E> c) {
+        double ax0 = c.getX();
+        double ay0 = c.getY();
+        double ax1 = ax0 + c.getWidth();
+        double ay1 = ay0 + c.getHeight();
+
+        var n = root;
+        while(!n.leaf) {
+            Node<E> best = null;
+            double bestEnlargement = Double.MAX_VALUE;
+            double bestArea = Double.MAX_VALUE;
+
+            for(var child : n.children) {
+                double e = child.enlargement(ax0, ay0, ax1, ay1);
+                double a = child.area();
+                if(e < bestEnlargement || (e == bestEnlargement && a < bestArea)) {
+                    best = child;
+                    bestEnlargement = e;
+                    bestArea = a;
+                }
+            }
+
+            n.include(ax0, ay0, ax1, ay1);
+            n = best;
+        }
+
+        n.addElement(c);
+        if(n.size() > nodeCapacity) {
+            split(n);
+        }
+    }
+
+    /**
+     * Splits an overflowing node in two, and its parent
+     * if it overflows as a result.
+     *
+     * @param n The node to split.
+     */
+    private void split(Node<E> n) {
+        var sibling = new Node<E>(n.leaf);
+        int count = n.size();
+        double[] boxes = new double[count * 4];
+
+        if(n.leaf) {
+            var l = new ArrayList<>(n.elements);
+            for(int i = 0; i < count; i++) {
+                var c = l.get(i);
+                boxes[4 * i] = c.getX();
+                boxes[4 * i + 1] = c.getY();
+                boxes[4 * i + 2] = c.getX() + c.getWidth();
+                boxes[4 * i + 3] = c.getY() + c.getHeight();
+            }
+
+            boolean[] groups = quadraticSplit(boxes, count);
+            n.elements.clear();
+            n.resetBox();
+            for(int i = 0; i < count; i++) {
+                (groups[i] ? sibling : n).addElement(l.get(i));
+            }
+        }
+        else {
+            var l = new ArrayList<>(n.children);
+            for(int i = 0; i < count; i++) {
+                var c = l.get(i);
+                boxes[4 * i] = c.x0;
+                boxes[4 * i + 1] = c.y0;
+                boxes[4 * i + 2] = c.x1;
+                boxes[4 * i + 3] = c.y1;
+            }
+
+            boolean[] groups = quadraticSplit(boxes, count);
+            n.children.clear();
+            n.resetBox();
+            for(int i = 0; i < count; i++) {
+                (groups[i] ? sibling : n).addChild(l.get(i));
+            }
+        }
+
+        if(n == root) {
+            var r = new Node<E>(false);
+            r.addChild(n);
+            r.addChild(sibling);
+            root = r;
+            return;
+        }
+
+        // the parent's box already covers the entries of both nodes
+        var p = n.parent;
+        p.children.add(sibling);
+        sibling.parent = p;
+        if(p.size() > nodeCapacity) {
+            split(p);
+        }
+    }
+
+    /**
+     * Guttman's quadratic split: the two entries which would waste the most area
+     * together start each group, then the entry with the strongest preference for
+     * one of the groups is assigned to it until all are assigned or one group needs
+     * all the remaining entries to reach {@link #minEntries}.
+     *
+     * @param boxes Boxes of the entries, as {@code x0, y0, x1, y1} for each entry.
+     * @param count Number of entries.
+     * @return For each entry, {@code true} if it goes to the second group.
+     */
+    private boolean[] quadraticSplit(double[] boxes, int count) {
+        int seed1 = 0;
+        int seed2 = 1;
+        double worst = -Double.MAX_VALUE;
+
+        for(int i = 0; i < count; i++) {
+            for(int j = i + 1; j < count; j++) {
+                double d = area(
+                    Math.min(boxes[4 * i], boxes[4 * j]), Math.min(boxes[4 * i + 1], boxes[4 * j + 1]),
+                    Math.max(boxes[4 * i + 2], boxes[4 * j + 2]), Math.max(boxes[4 * i + 3], boxes[4 * j + 3])
+                ) - area(boxes, i) - area(boxes, j);
+
+                if(d > worst) {
+                    worst = d;
+                    seed1 = i;
+                    seed2 = j;
+                }
+            }
+        }
+
+        boolean[] groups = new boolean[count];
+        boolean[] assigned = new boolean[count];
+        double[] g0 = { boxes[4 * seed1], boxes[4 * seed1 + 1], boxes[4 * seed1 + 2], boxes[4 * seed1 + 3] };
+        double[] g1 = { boxes[4 * seed2], boxes[4 * seed2 + 1], boxes[4 * seed2 + 2], boxes[4 * seed2 + 3] };
+        assigned[seed1] = true;
+        assigned[seed2] = true;
+        groups[seed2] = true;
+        int count0 = 1;
+        int count1 = 1;
+        int remaining = count - 2;
+
+        while(remaining > 0) {
+            boolean forced0 = count0 + remaining <= minEntries;
+            boolean forced1 = count1 + remaining <= minEntries;
+
+            int next = -1;
+            double nextD0 = 0;
+            double nextD1 = 0;
+            double preference = -1;
+
+            for(int i = 0; i < count; i++) {
+                if(assigned[i]) {
+                    continue;
+                }
+
+                double d0 = enlargement(g0, boxes, i);
+                double d1 = enlargement(g1, boxes, i);
+                if(Math.abs(d0 - d1) > preference) {
+                    preference = Math.abs(d0 - d1);
+                    next = i;
+                    nextD0 = d0;
+                    nextD1 = d1;
+                }
+            }
+
+            boolean second;
+            if(forced0 || forced1) {
+                second = forced1;
+            }
+            else if(nextD0 != nextD1) {
+                second = nextD1 < nextD0;
+            }
+            else if(area(g0, 0) != area(g1, 0)) {
+                second = area(g1, 0) < area(g0, 0);
+            }
+            else {
+                second = count1 < count0;
+            }
+
+            var g = second ? g1 : g0;
+            g[0] = Math.min(g[0], boxes[4 * next]);
+            g[1] = Math.min(g[1], boxes[4 * next + 1]);
+            g[2] = Math.max(g[2], boxes[4 * next + 2]);
+            g[3] = Math.max(g[3], boxes[4 * next + 3]);
+
+            groups[next] = second;
+            assigned[next] = true;
+            if(second) {
+                count1++;
+            }
+            else {
+                count0++;
+            }
+            remaining--;
+        }
+
+        return groups;
+    }
+
+    /**
+     * Area of a box.
+     *
+     * @param x0 Left bound.
+     * @param y0 Top bound.
+     * @param x1 Right bound.
+     * @param y1 Bottom bound.
+     * @return The area.
+     */
+    private static double area(double x0, double y0, double x1, double y1) {
+        return (x1 - x0) * (y1 - y0);
+    }
+
+    /**
+     * Area of a box in an array of boxes.
+     *
+     * @param boxes The boxes.
+     * @param i     Index of the box.
+     * @return The area.
+     */
+    private static double area(double[] boxes, int i) {
+        return area(boxes[4 * i], boxes[4 * i + 1], boxes[4 * i + 2], boxes[4 * i + 3]);
+    }
+
+    /**
+     * How much the area of a group's box would grow if it was
+     * extended to a box in an array of boxes.
+     *
+     * @param group The group's box.
+     * @param boxes The boxes.
+     * @param i     Index of the box.
+     * @return The enlargement.
+     */
+    private static double enlargement(double[] group, double[] boxes, int i) {
+        return area(
+            Math.min(group[0], boxes[4 * i]), Math.min(group[1], boxes[4 * i + 1]),
+            Math.max(group[2], boxes[4 * i + 2]), Math.max(group[3], boxes[4 * i + 3])
+        ) - area(group, 0);
+    }
+
+    /**
+     * Finds the leaf which holds the given element.
+     *
+     * @param n Subtree.
+     * @param c The element.
+     * @return The leaf, or {@code null} if the element is not in the subtree.
+     */
+    private Node<E> findLeaf(Node<E> n, CoordinatesElement<E> c) {
+        if(!n.contains(c.getX(), c.getY())) {
+            return null;
+        }
+
+        if(n.leaf) {
+            return n.elements.contains(c) ? n : null;
+        }
+
+        for(var child : n.children) {
+            var l = findLeaf(child, c);
+            if(l != null) {
+                return l;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Updates the boxes from a leaf which lost an element up to the root.
+     * Nodes which no longer have enough entries are removed from the tree
+     * and their elements are inserted again.
+     *
+     * @param leaf The leaf.
+     */
+    private void condense(Node<E> leaf) {
+        var orphans = new ArrayList<CoordinatesElement<E>>();
+
+        var n = leaf;
+        while(n != root) {
+            var p = n.parent;
+            if(n.size() < minEntries) {
+                p.children.remove(n);
+                collect(n, orphans::add);
+            }
+            else {
+                n.recomputeBox();
+            }
+            n = p;
+        }
+        root.recomputeBox();
+
+        while(!root.leaf && root.children.size() == 1) {
+            root = root.children.get(0);
+            root.parent = null;
+        }
+        if(!root.leaf && root.children.isEmpty()) {
+            root = new Node<>(true);
+        }
+
+        orphans.forEach(this::insert);
+    }
+
+    /**
+     * Builds a tree from the given elements with sort-tile-recursive packing:
+     * the elements are sorted in vertical slices, then in leaves within each
+     * slice, and the same is done with the nodes of each level until
+     * there is a single node left.
+     *
+     * @param l Elements, not empty.
+     * @return The root of the tree.
+     */
+    private Node<E> pack(List<CoordinatesElement<E>> l) {
+        var level = new ArrayList<Node<E>>();
+        for(var g : tiles(l, c -> c.getX() + c.getWidth() / 2d, c -> c.getY() + c.getHeight() / 2d)) {
+            var n = new Node<E>(true);
+            g.forEach(n::addElement);
+            level.add(n);
+        }
+
+        while(level.size() > 1) {
+            var next = new ArrayList<Node<E>>();
+            for(var g : tiles(level, c -> (c.x0 + c.x1) / 2d, c -> (c.y0 + c.y1) / 2d)) {
+                var n = new Node<E>(false);
+                g.forEach(n::addChild);
+                next.add(n);
+            }
+            level = next;
+        }
+
+        return level.get(0);
+    }
+
+    /**
+     * Groups entries in tiles of {@link #nodeCapacity} entries.
+     *
+     * @param l  The entries, which are sorted in place.
+     * @param cx Center X coordinate of an entry.
+     * @param cy Center Y coordinate of an entry.
+     * @param <T> Type of entries.
+     * @return The groups.
+     */
+    private <T> List<List<T>> tiles(List<T> l, ToDoubleFunction<T> cx, ToDoubleFunction<T> cy) {
+        int nodes = (l.size() + nodeCapacity - 1) / nodeCapacity;
+        int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * nodeCapacity;
+
+        l.sort(Comparator.comparingDouble(cx));
+
+        var groups = new ArrayList<List<T>>(nodes);
+        for(int i = 0; i < l.size(); i += sliceSize) {
+            var slice = l.subList(i, Math.min(i + sliceSize, l.size()));
+            slice.sort(Comparator.comparingDouble(cy));
+            for(int j = 0; j < slice.size(); j += nodeCapacity) {
+                groups.add(slice.subList(j, Math.min(j + nodeCapacity, slice.size())));
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * Gives all the elements of the given subtree to the given action.
+     *
+     * @param n      Subtree.
+     * @param action Action.
+     */
+    private void collect(Node<E> n, Consumer<? super CoordinatesElement<E>> action) {
+        if(n.leaf) {
+            n.elements.forEach(action);
+            return;
+        }
+
+        for(var child : n.children) {
+            collect(child, action);
+        }
+    }
+
+    /**
+     * Gives all the elements of the given subtree whose coordinates are within
+     * the given area and match the given condition to the given action.
+     *
+     * @param n            Subtree.
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition, may be {@code null}.
+     * @param action       Action.
+     */
+    private void collectBetween(Node<E> n, double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                                Predicate<E> condition, Consumer<? super CoordinatesElement<E>> action) {
+        if(!n.intersects(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+            return;
+        }
+
+        if(condition == null && n.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+            collect(n, action);
+            return;
+        }
+
+        if(!n.leaf) {
+            for(var child : n.children) {
+                collectBetween(child, topLeftX, topLeftY, bottomRightX, bottomRightY, condition, action);
+            }
+            return;
+        }
+
+        for(var c : n.elements) {
+            if(c.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)
+                && (condition == null || condition.test(c.getElement()))) {
+                action.accept(c);
+            }
+        }
+    }
+
+    /**
+     * Gives all the elements of the given subtree which intersect
+     * with the given area to the given action.
+     *
+     * @param n            Subtree.
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       Action.
+     */
+    private void collectIntersecting(Node<E> n, double topLeftX, double topLeftY,
+                                     double bottomRightX, double bottomRightY,
+                                     Consumer<? super CoordinatesElement<E>> action) {
+        if(!n.intersects(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+            return;
+        }
+
+        if(n.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+            collect(n, action);
+            return;
+        }
+
+        if(!n.leaf) {
+            for(var child : n.children) {
+                collectIntersecting(child, topLeftX, topLeftY, bottomRightX, bottomRightY, action);
+            }
+            return;
+        }
+
+        for(var c : n.elements) {
+            if(c.intersects(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                action.accept(c);
+            }
+        }
+    }
+
+    /**
+     * Sets the dimensions.
+     *
+     * @param minW Potential new min width.
+     * @param minH Potential new min height.
+     * @param maxW Potential new max width.
+     * @param maxH Potential new max height.
+     */
+    protected final void setDimensions(double minW, double minH, double maxW, double maxH) {
+        if(batchDepth > 0) {
+            return;
+        }
+        if(minW != minWidth.get()) {
+            minWidth.set(minW);
+        }
+        if(minH != minHeight.get()) {
+            minHeight.set(minH);
+        }
+        if(maxW != maxWidth.get()) {
+            maxWidth.set(maxW);
+        }
+        if(maxH != maxHeight.get()) {
+            maxHeight.set(maxH);
+        }
+    }
+
+    /**
+     * Starts a batch. Until the matching {@link #endBatch()}, the dimension
+     * properties are not updated, so that they are only updated once
+     * no matter how many changes happen during the batch.
+     * <p>
+     * Batches can be nested, in which case only the outermost one matters.
+     */
+    protected final void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch. When the outermost batch ends, the dimension
+     * properties are updated and {@link #batchEnded()} is called.
+     *
+     * @throws IllegalStateException If there is no batch to end.
+     */
+    protected final void endBatch() {
+        if(batchDepth == 0) {
+            throw new IllegalStateException();
+        }
+        if(--batchDepth == 0) {
+            updateDimensions();
+            batchEnded();
+        }
+    }
+
+    /**
+     * Whether a batch is in progress.
+     *
+     * @return {@code true} if a batch was started and not ended yet.
+     */
+    protected final boolean inBatch() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Called when the outermost batch ends, after the dimension properties
+     * were updated. Does nothing by default.
+     */
+    protected void batchEnded() {
+        // to be overridden
+    }
+
+    /**
+     * Update dimensions properties from the box of the root.
+     */
+    protected final void updateDimensions() {
+        if(size == 0) {
+            setDimensions(0d, 0d, 0d, 0d);
+            return;
+        }
+
+        setDimensions(root.x0, root.y0, root.x1, root.y1);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        // fail fast
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collectBetween(root, topLeftX, topLeftY, bottomRightX, bottomRightY, null, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY,
+                                                     Predicate<E> condition) {
+        List<CoordinatesElement<E>> l = new ArrayList<>();
+
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return l;
+        }
+
+        collectBetween(root, topLeftX, topLeftY, bottomRightX, bottomRightY, condition, l::add);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        if(topLeftX >= bottomRightX || topLeftY >= bottomRightY) {
+            return;
+        }
+
+        collectBetween(root, topLeftX, topLeftY, bottomRightX, bottomRightY, null, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The nodes are visited from the nearest to the farthest box, until the next
+     * box is farther than the farthest of the {@code k} nearest elements found.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param k Maximum number of elements.
+     * @return The nearest elements, sorted from the nearest to the farthest.
+     */
+    @Override
+    public List<CoordinatesElement<E>> kNearest(double x, double y, int k) {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(k == 0 || size == 0) {
+            return new ArrayList<>();
+        }
+
+        var nearest = new NearestCollector<E>(x, y, k);
+        var queue = new PriorityQueue<Candidate<E>>(Comparator.comparingDouble(Candidate::distance));
+        queue.add(new Candidate<>(root, 0d));
+
+        while(!queue.isEmpty()) {
+            var c = queue.poll();
+            if(c.distance() > nearest.bound()) {
+                break;
+            }
+
+            var n = c.node();
+            if(n.leaf) {
+                nearest.offerAll(n.elements);
+                continue;
+            }
+
+            for(var child : n.children) {
+                double d = nearest.distanceTo(child.x0, child.y0, child.x1, child.y1);
+                if(d <= nearest.bound()) {
+                    queue.add(new Candidate<>(child, d));
+                }
+            }
+        }
+
+        return nearest.result();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachIntersecting(double topLeftX, double topLeftY,
+                                    double bottomRightX, double bottomRightY,
+                                    Consumer<? super CoordinatesElement<E>> action) {
+        // a single point is a valid area here
+        if(topLeftX > bottomRightX || topLeftY > bottomRightY) {
+            return;
+        }
+
+        collectIntersecting(root, topLeftX, topLeftY, bottomRightX, bottomRightY, action);
+    }
+
+    /**
+     * Minimum width of this structure.
+     *
+     * @return Min width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumWidth() {
+        return minWidth;
+    }
+
+    /**
+     * Minimum height of this structure.
+     *
+     * @return Min height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumHeight() {
+        return minHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this structure.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param c The element to check.
+     * @return {@code true} if it contains it; {@code false} otherwise.
+     */
+    @Override
+    public boolean containsCoordinates(CoordinatesElement<E> c) {
+        return findLeaf(root, c) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to find.
+     * @return The coordinates of the given element if it is in the structure.
+     */
+    @Override
+    public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        for(var c : this) {
+            if(c.getElement().equals(element)) {
+                return Optional.of(c);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The elements to find.
+     * @return The coordinates of the given elements that are in the structure.
+     */
+    @Override
+    public Map<E, CoordinatesElement<E>> coordinatesOf(Collection<E> elements) {
+        var m = new HashMap<E, CoordinatesElement<E>>();
+
+        for(var e : elements) {
+            coordinatesOf(e).ifPresent(
+                c -> m.put(e, c)
+            );
+        }
+
+        return m;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return an Iterator.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new RTreeIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action The action to be performed for each element
+     */
+    @Override
+    public void forEach(Consumer<? super CoordinatesElement<E>> action) {
+        collect(root, action);
+    }
+
+    @Override
+    public String toString() {
+        var l = new ArrayList<CoordinatesElement<E>>(size());
+        collect(root, l::add);
+        return l.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+
+        if(o instanceof CoordinatesRTree<?> t && t.size() == size()) {
+            @SuppressWarnings("unchecked")
+            var other = (CoordinatesRTree<E>) t;
+            for(var c : this) {
+                if(!other.containsCoordinates(c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for(var c : this) {
+            h += c.hashCode();
+        }
+        return h;
+    }
+
+
+    /**
+     * Wrapper over an arraylist iterator over a snapshot of the tree.
+     */
+    protected class RTreeIterator implements CoordinatesIterator<CoordinatesElement<E>> {
+
+        /**
+         * Current iterator.
+         */
+        private final Iterator<CoordinatesElement<E>> itr;
+
+        /**
+         * Expected modification count for concurrent modification.
+         */
+        private int expectedModCount;
+
+
+        /**
+         * Constructor.
+         */
+        protected RTreeIterator() {
+            expectedModCount = modCount;
+            var total = new ArrayList<CoordinatesElement<E>>(size());
+            collect(root, total::add);
+            itr = total.iterator();
+        }
+
+
+        /**
+         * Sets the expected mod count to the current mod count.
+         */
+        protected void updateExpectedModCount() {
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Concurrent modification checker.
+         */
+        protected void checkForComod() {
+            if(expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@code true} if the iteration has more elements
+         */
+        @Override
+        public boolean hasNext() {
+            checkForComod();
+            return itr.hasNext();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the next element in the iteration
+         * @throws NoSuchElementException if the iteration has no more elements
+         */
+        @Override
+        public CoordinatesElement<E> next() {
+            checkForComod();
+            return itr.next();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+
+/**
+ * Binary snapshot of a laid out {@link CoordinatesStructure}, which can be
+ * loaded back as a {@link CoordinatesMatrix} without laying it out again.
+ * <p>
+ * A snapshot contains, in this order and in big endian:
+ * <ul>
+ *     <li>a header: {@link #MAGIC}, {@link #VERSION}, the number of elements {@code n},
+ *     the number of rows and columns of the cell index, the width and height it covers,
+ *     and the bounds of the elements (min X, min Y, max X, max Y);</li>
+ *     <li>the cell index: for each cell, in row major order, the index of its first
+ *     element, followed by {@code n};</li>
+ *     <li>the X and Y coordinates of each element, sorted by cell;</li>
+ *     <li>the offset of the payload of each element, followed by the total length
+ *     of the payloads;</li>
+ *     <li>the payloads, encoded by an {@link ElementCodec}.</li>
+ * </ul>
+ * The cell index is the one of the saved structure if it is a {@link CoordinatesMatrix},
+ * so that {@link #load(Path, ElementCodec)} can memory map the file and fill
+ * the cells of the new matrix directly from it, instead of placing
+ * each element. The sections of the file are mapped separately, so only
+ * the payloads are limited to {@link Integer#MAX_VALUE} bytes in total.
+ */
+public final class CoordinatesSnapshot {
+
+    /**
+     * Encodes and decodes the elements stored in a snapshot.
+     * <p>
+     * Elements are decoded in parallel for large snapshots, so
+     * {@link #decode(ByteBuffer)} should be thread safe.
+     *
+     * @param <E> Type of elements.
+     */
+    public interface ElementCodec<E> {
+
+        /**
+         * Encodes an element.
+         *
+         * @param element The element.
+         * @return Its payload.
+         */
+        byte[] encode(E element);
+
+        /**
+         * Decodes an element.
+         *
+         * @param payload Buffer whose remaining bytes are the payload of the element.
+         * @return The element.
+         */
+        E decode(ByteBuffer payload);
+
+        /**
+         * Codec for strings, encoded in UTF-8.
+         *
+         * @return The codec.
+         */
+        static ElementCodec<String> utf8() {
+            return new ElementCodec<>() {
+                @Override
+                public byte[] encode(String element) {
+                    return element.getBytes(StandardCharsets.UTF_8);
+                }
+
+                @Override
+                public String decode(ByteBuffer payload) {
+                    return StandardCharsets.UTF_8.decode(payload).toString();
+                }
+            };
+        }
+    }
+
+
+    /**
+     * First bytes of a snapshot.
+     */
+    public static final int MAGIC = 0x47565350;
+
+    /**
+     * Version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Number of elements from which they are decoded in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    /**
+     * Average number of elements per cell of the index created
+     * for structures which are not matrices.
+     */
+    private static final int ELEMENTS_PER_CELL = 16;
+
+    /**
+     * Size of the header, in bytes.
+     */
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + 6 * Double.BYTES;
+
+    /**
+     * Largest number of bytes mapped at once.
+     */
+    private static final int MAX_SECTION = 1 << 30;
+
+    /**
+     * Largest number of elements, so that their coordinates fit in an array.
+     */
+    private static final int MAX_ELEMENTS = (Integer.MAX_VALUE - 8) / 2;
+
+
+    /**
+     * Not instantiable.
+     */
+    private CoordinatesSnapshot() { }
+
+
+    /**
+     * Writes a snapshot of a structure.
+     *
+     * @param structure The structure.
+     * @param path      File to write to, replaced if it exists.
+     * @param codec     Codec of the elements.
+     * @param <E> Type of elements.
+     * @throws IOException If the file could not be written.
+     */
+    public static <E> void save(CoordinatesStructure<E> structure, Path path,
+                                ElementCodec<? super E> codec) throws IOException {
+        int rows;
+        int cols;
+        double width;
+        double height;
+        BiFunction<Integer, Integer, Collection<CoordinatesElement<E>>> cell;
+
+        if(structure instanceof CoordinatesMatrix<E> m) {
+            rows = m.rowNumber();
+            cols = m.colNumber();
+            width = m.gridWidth();
+            height = m.gridHeight();
+            cell = m::cell;
+        }
+        else {
+            var all = new ArrayList<CoordinatesElement<E>>(structure.size());
+            structure.forEach(all::add);
+
+            int side = (int) Math.ceil(Math.sqrt((double) all.size() / ELEMENTS_PER_CELL));
+            rows = Math.max(CoordinatesMatrix.DEFAULT_ROW_NUMBER, Math.min(CoordinatesMatrix.DEFAULT_MAX_ROW_NUMBER, side));
+            cols = Math.max(CoordinatesMatrix.DEFAULT_COL_NUMBER, Math.min(CoordinatesMatrix.DEFAULT_MAX_COL_NUMBER, side));
+            // same margin as the matrix
+            width = Math.max(CoordinatesMatrix.DEFAULT_MAX_WIDTH, structure.getMaximumWidth() + 1);
+            height = Math.max(CoordinatesMatrix.DEFAULT_MAX_HEIGHT, structure.getMaximumHeight() + 1);
+            // bucketed as the matrix which loads it would
+            var buckets = CoordinatesMatrix.bucket(all, width, height, rows, cols);
+            cell = (i, j) -> buckets[i][j];
+        }
+
+        List<CoordinatesElement<E>> sorted = new ArrayList<>(structure.size());
+        int[] start = new int[rows * cols + 1];
+        for(int i = 0; i < rows; i++) {
+            for(int j = 0; j < cols; j++) {
+                sorted.addAll(cell.apply(i, j));
+                start[i * cols + j + 1] = sorted.size();
+            }
+        }
+
+        int n = sorted.size();
+        var payloads = new byte[n][];
+        int[] offsets = new int[n + 1];
+        for(int k = 0; k < n; k++) {
+            payloads[k] = codec.encode(sorted.get(k).getElement());
+            offsets[k + 1] = Math.addExact(offsets[k], payloads[k].length);
+        }
+
+        try(var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeDouble(width);
+            out.writeDouble(height);
+            out.writeDouble(structure.getMinimumWidth());
+            out.writeDouble(structure.getMinimumHeight());
+            out.writeDouble(structure.getMaximumWidth());
+            out.writeDouble(structure.getMaximumHeight());
+
+            for(int s : start) {
+                out.writeInt(s);
+            }
+            for(var c : sorted) {
+                out.writeDouble(c.getX());
+                out.writeDouble(c.getY());
+            }
+            for(int o : offsets) {
+                out.writeInt(o);
+            }
+            for(var p : payloads) {
+                out.write(p);
+            }
+        }
+    }
+
+    /**
+     * Loads a snapshot written by {@link #save(CoordinatesStructure, Path, ElementCodec)}.
+     *
+     * @param path  The file.
+     * @param codec Codec of the elements.
+     * @param <E> Type of elements.
+     * @return A new matrix which contains the elements of the snapshot.
+     * @throws IOException If the file could not be read or is not a valid snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> CoordinatesMatrix<E> load(Path path, ElementCodec<? extends E> codec) throws IOException {
+        int n;
+        int rows;
+        int cols;
+        double width;
+        double height;
+        int[] start;
+        double[] coordinates;
+        int[] offsets;
+        ByteBuffer buffer;
+        
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a coordinates snapshot: " + path);
+            }
+            var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if(header.getInt() != MAGIC) {
+                throw new IOException("Not a coordinates snapshot: " + path);
+            }
+            if(header.getInt() != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + path);
+            }
+
+            n = header.getInt();
+            rows = header.getInt();
+            cols = header.getInt();
+            width = header.getDouble();
+            height = header.getDouble();
+            // bounds, recomputed from the coordinates
+
+            long cellsOffset = HEADER_SIZE;
+            long coordinatesOffset = cellsOffset + (long) Integer.BYTES * ((long) rows * cols + 1);
+            long offsetsOffset = coordinatesOffset + (long) Double.BYTES * 2 * n;
+            long payloadsOffset = offsetsOffset + (long) Integer.BYTES * (n + 1L);
+            if(n < 0 || n > MAX_ELEMENTS || rows < 1 || cols < 1 || (long) rows * cols >= Integer.MAX_VALUE
+                || payloadsOffset > channel.size()) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+
+            start = new int[rows * cols + 1];
+            readInts(channel, cellsOffset, start);
+            coordinates = new double[2 * n];
+            readDoubles(channel, coordinatesOffset, coordinates);
+            offsets = new int[n + 1];
+            readInts(channel, offsetsOffset, offsets);
+
+            if(start[0] != 0 || start[start.length - 1] != n
+                || offsets[0] != 0 || offsets[n] < 0 || payloadsOffset + offsets[n] > channel.size()) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+            // the elements are decoded from this section, whose length fits in an int
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, payloadsOffset, offsets[n]);
+        }
+
+        for(int c = 0; c < start.length - 1; c++) {
+            if(start[c] > start[c + 1]) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+        }
+        for(int k = 0; k < n; k++) {
+            if(offsets[k] > offsets[k + 1]) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+        }
+
+        var cells = (Collection<CoordinatesElement<E>>[][]) Array.newInstance(ArrayList.class, rows, cols);
+        var s = IntStream.range(0, rows * cols);
+        if(n >= PARALLEL_THRESHOLD) {
+            s = s.parallel();
+        }
+        s.forEach(
+            c -> {
+                var l = new ArrayList<CoordinatesElement<E>>(start[c + 1] - start[c]);
+                for(int k = start[c]; k < start[c + 1]; k++) {
+                    var payload = buffer.slice(offsets[k], offsets[k + 1] - offsets[k]);
+                    l.add(new CoordinatesElement<>(codec.decode(payload), coordinates[2 * k], coordinates[2 * k + 1]));
+                }
+                cells[c / cols][c % cols] = l;
+            }
+        );
+
+        return new CoordinatesMatrix<>(cells, width, height, new BoundsTracker(coordinates, n), n);
+    }
+
+    /**
+     * Reads ints from a file, mapping at most {@link #MAX_SECTION} bytes at once.
+     *
+     * @param channel The file.
+     * @param from    Offset of the first int.
+     * @param dst     Array which is filled.
+     * @throws IOException If the file could not be mapped.
+     */
+    private static void readInts(FileChannel channel, long from, int[] dst) throws IOException {
+        int step = MAX_SECTION / Integer.BYTES;
+        for(int k = 0; k < dst.length; k += step) {
+            int len = Math.min(step, dst.length - k);
+            channel.map(FileChannel.MapMode.READ_ONLY, from + (long) Integer.BYTES * k, (long) Integer.BYTES * len)
+                .asIntBuffer()
+                .get(dst, k, len);
+        }
+    }
+
+    /**
+     * Reads doubles from a file, mapping at most {@link #MAX_SECTION} bytes at once.
+     *
+     * @param channel The file.
+     * @param from    Offset of the first double.
+     * @param dst     Array which is filled.
+     * @throws IOException If the file could not be mapped.
+     */
+    private static void readDoubles(FileChannel channel, long from, double[] dst) throws IOException {
+        int step = MAX_SECTION / Double.BYTES;
+        for(int k = 0; k < dst.length; k += step) {
+            int len = Math.min(step, dst.length - k);
+            channel.map(FileChannel.MapMode.READ_ONLY, from + (long) Double.BYTES * k, (long) Double.BYTES * len)
+                .asDoubleBuffer()
+                .get(dst, k, len);
+        }
+    }
+}
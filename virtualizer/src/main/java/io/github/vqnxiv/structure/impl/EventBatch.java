@@ -0,0 +1,545 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Accumulates the changes which happen during a batch so that they
+ * can be dispatched as a single event of each kind once it ends.
+ * <p>
+ * Successive moves of an element are merged into a single move from its
+ * coordinates before the batch to its last coordinates. The moves of an
+ * element which was added during the same batch are folded into its addition,
+ * and the moves of a removed element are dropped, so that an element is only
+ * reported by one event: an element which is added then removed during the
+ * same batch is not reported at all.
+ * <p>
+ * Moves are kept as a list of elements and an array of coordinates (see
+ * {@link StructureChange#moved(LayoutableStructure, List, double[], Point2D, Point2D, boolean)}).
+ * When a batch only contains one move, e.g a single call to
+ * {@link LayoutableStructure#repositionAllTo(Map)}, they are given to the
+ * event as is; the index used to merge successive moves is only created
+ * when another change is recorded.
+ * <p>
+ * Pending additions and moves are indexed on the identity of their value
+ * with their latest coordinates, since the {@link CoordinatesElement} of an
+ * element may be a copy or be replaced by the structure when it moves.
+ * Two elements with the same value are told apart by their coordinates.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see LayoutableStructure#batch(Runnable)
+ */
+final class EventBatch<E> {
+
+    /**
+     * Area covered by changes.
+     */
+    private static final class Area {
+
+        /**
+         * Minimum X coordinate.
+         */
+        private double minX = Double.MAX_VALUE;
+
+        /**
+         * Minimum Y coordinate.
+         */
+        private double minY = Double.MAX_VALUE;
+
+        /**
+         * Maximum X coordinate.
+         */
+        private double maxX = -Double.MAX_VALUE;
+
+        /**
+         * Maximum Y coordinate.
+         */
+        private double maxY = -Double.MAX_VALUE;
+
+
+        /**
+         * Extends this area to the given one.
+         *
+         * @param topLeft     Top left corner.
+         * @param bottomRight Bottom right corner.
+         */
+        private void add(Point2D topLeft, Point2D bottomRight) {
+            minX = Math.min(minX, topLeft.getX());
+            minY = Math.min(minY, topLeft.getY());
+            maxX = Math.max(maxX, bottomRight.getX());
+            maxY = Math.max(maxY, bottomRight.getY());
+        }
+
+        /**
+         * Extends this area to the given coordinates.
+         *
+         * @param x X coordinate.
+         * @param y Y coordinate.
+         */
+        private void add(double x, double y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        /**
+         * Top left corner of this area.
+         *
+         * @return Top left corner.
+         */
+        private Point2D topLeft() {
+            return new Point2D(minX, minY);
+        }
+
+        /**
+         * Bottom right corner of this area.
+         *
+         * @return Bottom right corner.
+         */
+        private Point2D bottomRight() {
+            return new Point2D(maxX, maxY);
+        }
+
+        /**
+         * Resets this area.
+         */
+        private void reset() {
+            minX = Double.MAX_VALUE;
+            minY = Double.MAX_VALUE;
+            maxX = -Double.MAX_VALUE;
+            maxY = -Double.MAX_VALUE;
+        }
+    }
+
+
+    /**
+     * Moved elements, {@code null} for the moves which were cancelled
+     * by a later change, or {@code null} if nothing moved.
+     */
+    private List<CoordinatesElement<E>> moved;
+
+    /**
+     * Coordinates before the batch and latest coordinates of {@link #moved}.
+     */
+    private double[] movedCoordinates;
+
+    /**
+     * Number of non {@code null} elements in {@link #moved}.
+     */
+    private int movedCount;
+
+    /**
+     * Values of the moved elements mapped to their index in {@link #moved},
+     * or {@code null} if not created yet.
+     */
+    private Map<E, Integer> movedIndex;
+
+    /**
+     * Whether every element of the structure moved, i.e a move of every element
+     * was recorded, and no element was added nor moved back since.
+     */
+    private boolean movedAll;
+
+    /**
+     * Area of the moves.
+     */
+    private final Area movedArea = new Area();
+
+    /**
+     * Added elements, {@code null} for the additions which were
+     * cancelled by a removal.
+     */
+    private final List<CoordinatesElement<E>> added = new ArrayList<>();
+
+    /**
+     * Latest coordinates of {@link #added}.
+     */
+    private double[] addedCoordinates = new double[16];
+
+    /**
+     * Number of non {@code null} elements in {@link #added}.
+     */
+    private int addedCount;
+
+    /**
+     * Values of the added elements mapped to their index in {@link #added}.
+     */
+    private final Map<E, Integer> addedIndex = new IdentityHashMap<>();
+
+    /**
+     * Area of the additions.
+     */
+    private final Area addedArea = new Area();
+
+    /**
+     * Removed elements.
+     */
+    private final List<CoordinatesElement<E>> removed = new ArrayList<>();
+
+    /**
+     * Area of the removals.
+     */
+    private final Area removedArea = new Area();
+
+
+    /**
+     * Records a move.
+     *
+     * @param m           Elements with their old coordinates mapped to their new coordinates.
+     * @param topLeft     Top left corner of the change.
+     * @param bottomRight Bottom right corner of the change.
+     */
+    void moved(Map<CoordinatesElement<E>, Point2D> m, Point2D topLeft, Point2D bottomRight) {
+        var l = new ArrayList<CoordinatesElement<E>>(m.size());
+        double[] coordinates = new double[4 * m.size()];
+        
+        for(var e : m.entrySet()) {
+            if(e.getKey().getX() == e.getValue().getX() && e.getKey().getY() == e.getValue().getY()) {
+                continue;
+            }
+
+            int k = 4 * l.size();
+            coordinates[k] = e.getKey().getX();
+            coordinates[k + 1] = e.getKey().getY();
+            coordinates[k + 2] = e.getValue().getX();
+            coordinates[k + 3] = e.getValue().getY();
+            l.add(e.getKey());
+        }
+        
+        if(!l.isEmpty()) {
+            moved(l, coordinates, false, topLeft, bottomRight);
+        }
+    }
+
+    /**
+     * Records a move. The list and the array are not copied.
+     *
+     * @param l           Moved elements.
+     * @param coordinates Their old and new coordinates, see
+     *                    {@link StructureChange#moved(LayoutableStructure, List, double[], Point2D, Point2D, boolean)}.
+     * @param all         Whether every element of the structure moved.
+     * @param topLeft     Top left corner of the change.
+     * @param bottomRight Bottom right corner of the change.
+     */
+    void moved(List<CoordinatesElement<E>> l, double[] coordinates, boolean all,
+               Point2D topLeft, Point2D bottomRight) {
+        movedArea.add(topLeft, bottomRight);
+        movedAll |= all;
+        
+        if(moved == null && addedCount == 0) {
+            moved = l;
+            movedCoordinates = coordinates;
+            movedCount = l.size();
+            return;
+        }
+        
+        indexMoves();
+        for(int i = 0; i < l.size(); i++) {
+            int k = 4 * i;
+            merge(l.get(i), coordinates[k], coordinates[k + 1], coordinates[k + 2], coordinates[k + 3]);
+        }
+    }
+
+    /**
+     * Records a move event which was already dispatched.
+     *
+     * @param e The event.
+     */
+    void moved(StructureChange.Move<E> e) {
+        movedArea.add(e.topLeft(), e.bottomRight());
+        movedAll |= e.movedAll();
+        
+        indexMoves();
+        e.forEachMovedElement(this::merge);
+    }
+
+    /**
+     * Merges the move of an element with its previous changes.
+     *
+     * @param c    The element.
+     * @param oldX X coordinate before the move.
+     * @param oldY Y coordinate before the move.
+     * @param newX X coordinate after the move.
+     * @param newY Y coordinate after the move.
+     */
+    private void merge(CoordinatesElement<E> c, double oldX, double oldY, double newX, double newY) {
+        int a = indexOf(addedIndex, addedCoordinates, 2, 0, c.getElement(), oldX, oldY);
+        if(a > -1) {
+            // only the addition at the latest coordinates is reported
+            addedCoordinates[2 * a] = newX;
+            addedCoordinates[2 * a + 1] = newY;
+            added.set(a, c);
+            addedArea.add(newX, newY);
+            return;
+        }
+
+        int index = indexOf(movedIndex, movedCoordinates, 4, 2, c.getElement(), oldX, oldY);
+        if(index < 0) {
+            append(c, oldX, oldY, newX, newY);
+            return;
+        }
+
+        int j = 4 * index;
+        if(movedCoordinates[j] == newX && movedCoordinates[j + 1] == newY) {
+            // back to where it was before the batch
+            cancelMove(index);
+            movedAll = false;
+            return;
+        }
+        
+        movedCoordinates[j + 2] = newX;
+        movedCoordinates[j + 3] = newY;
+    }
+
+    /**
+     * Finds the pending change of an element.
+     *
+     * @param <E> Type of elements.
+     * @param index       Index of the changes.
+     * @param coordinates Coordinates of the changes.
+     * @param stride      Number of coordinates per change.
+     * @param offset      Offset of the latest coordinates of a change.
+     * @param element     The element.
+     * @param x           Its latest X coordinate.
+     * @param y           Its latest Y coordinate.
+     * @return The index of its change, or {@code -1} if it has none.
+     */
+    private static <E> int indexOf(Map<E, Integer> index, double[] coordinates, int stride, int offset,
+                                   E element, double x, double y) {
+        if(index.isEmpty()) {
+            return -1;
+        }
+        
+        Integer i = index.get(element);
+        if(i == null) {
+            return -1;
+        }
+
+        int k = stride * i + offset;
+        // another element with the same value
+        return (coordinates[k] == x && coordinates[k + 1] == y) ? i : -1;
+    }
+
+    /**
+     * Creates the index of the moved elements if needed, and copies the list
+     * and array of moves, which may be shared with their caller, before they
+     * are modified.
+     */
+    private void indexMoves() {
+        if(movedIndex != null) {
+            return;
+        }
+        
+        movedIndex = new IdentityHashMap<>();
+        if(moved == null) {
+            moved = new ArrayList<>();
+            movedCoordinates = new double[16];
+            return;
+        }
+        
+        moved = new ArrayList<>(moved);
+        movedCoordinates = Arrays.copyOf(movedCoordinates, movedCoordinates.length);
+        for(int i = 0; i < moved.size(); i++) {
+            movedIndex.putIfAbsent(moved.get(i).getElement(), i);
+        }
+    }
+
+    /**
+     * Appends a move.
+     *
+     * @param c    The element.
+     * @param oldX X coordinate before the move.
+     * @param oldY Y coordinate before the move.
+     * @param newX X coordinate after the move.
+     * @param newY Y coordinate after the move.
+     */
+    private void append(CoordinatesElement<E> c, double oldX, double oldY, double newX, double newY) {
+        int index = moved.size();
+        int k = 4 * index;
+        if(movedCoordinates.length < k + 4) {
+            movedCoordinates = Arrays.copyOf(movedCoordinates, Math.max(k + 4, movedCoordinates.length * 2));
+        }
+        
+        movedCoordinates[k] = oldX;
+        movedCoordinates[k + 1] = oldY;
+        movedCoordinates[k + 2] = newX;
+        movedCoordinates[k + 3] = newY;
+        moved.add(c);
+        movedCount++;
+        movedIndex.putIfAbsent(c.getElement(), index);
+    }
+
+    /**
+     * Cancels a pending move.
+     *
+     * @param index Its index in {@link #moved}.
+     */
+    private void cancelMove(int index) {
+        movedIndex.remove(moved.get(index).getElement(), index);
+        moved.set(index, null);
+        movedCount--;
+    }
+
+    /**
+     * Records an addition.
+     *
+     * @param l           Added elements.
+     * @param topLeft     Top left corner of the change.
+     * @param bottomRight Bottom right corner of the change.
+     */
+    void added(Collection<CoordinatesElement<E>> l, Point2D topLeft, Point2D bottomRight) {
+        int k = 2 * added.size();
+        if(addedCoordinates.length < k + 2 * l.size()) {
+            addedCoordinates = Arrays.copyOf(
+                addedCoordinates, Math.max(k + 2 * l.size(), addedCoordinates.length * 2)
+            );
+        }
+        
+        for(var c : l) {
+            addedCoordinates[k++] = c.getX();
+            addedCoordinates[k++] = c.getY();
+            addedIndex.putIfAbsent(c.getElement(), added.size());
+            added.add(c);
+        }
+        addedCount += l.size();
+        addedArea.add(topLeft, bottomRight);
+        movedAll = false;
+    }
+
+    /**
+     * Records a removal.
+     *
+     * @param l           Removed elements.
+     * @param topLeft     Top left corner of the change.
+     * @param bottomRight Bottom right corner of the change.
+     */
+    void removed(Collection<CoordinatesElement<E>> l, Point2D topLeft, Point2D bottomRight) {
+        if(moved != null) {
+            indexMoves();
+        }
+        
+        for(var c : l) {
+            int a = indexOf(addedIndex, addedCoordinates, 2, 0, c.getElement(), c.getX(), c.getY());
+            if(a > -1) {
+                addedIndex.remove(c.getElement(), a);
+                added.set(a, null);
+                addedCount--;
+                continue;
+            }
+            
+            if(moved != null) {
+                int index = indexOf(movedIndex, movedCoordinates, 4, 2, c.getElement(), c.getX(), c.getY());
+                if(index > -1) {
+                    // listeners never saw the move, so the element is removed from where it was
+                    double oldX = movedCoordinates[4 * index];
+                    double oldY = movedCoordinates[4 * index + 1];
+                    cancelMove(index);
+                    removedArea.add(oldX, oldY);
+                    removed.add(c.copyAt(oldX, oldY));
+                    continue;
+                }
+            }
+            removed.add(c);
+        }
+        removedArea.add(topLeft, bottomRight);
+    }
+
+    /**
+     * Creates the merged move event and resets the pending moves.
+     *
+     * @param structure Structure which was changed.
+     * @return The event, or {@code null} if nothing moved.
+     */
+    StructureChange.Move<E> takeMoved(LayoutableStructure<E> structure) {
+        StructureChange.Move<E> e = null;
+        
+        if(movedCount > 0) {
+            var l = moved;
+            double[] coordinates = movedCoordinates;
+            
+            // drops the cancelled moves
+            if(movedCount < moved.size()) {
+                l = new ArrayList<>(movedCount);
+                coordinates = new double[4 * movedCount];
+                for(int i = 0; i < moved.size(); i++) {
+                    if(moved.get(i) != null) {
+                        System.arraycopy(movedCoordinates, 4 * i, coordinates, 4 * l.size(), 4);
+                        l.add(moved.get(i));
+                    }
+                }
+            }
+            
+            e = StructureChange.moved(
+                structure, l, coordinates, movedArea.topLeft(), movedArea.bottomRight(), movedAll
+            );
+        }
+        
+        moved = null;
+        movedCoordinates = null;
+        movedCount = 0;
+        movedIndex = null;
+        movedAll = false;
+        movedArea.reset();
+        return e;
+    }
+
+    /**
+     * Creates the merged addition event and resets the pending additions.
+     *
+     * @param structure Structure which was changed.
+     * @return The event, or {@code null} if nothing was added.
+     */
+    StructureChange.Addition<E> takeAdded(MutableStructure<E> structure) {
+        StructureChange.Addition<E> e = null;
+        
+        if(addedCount > 0) {
+            var l = new ArrayList<CoordinatesElement<E>>(addedCount);
+            for(int i = 0; i < added.size(); i++) {
+                var c = added.get(i);
+                if(c == null) {
+                    continue;
+                }
+                
+                double x = addedCoordinates[2 * i];
+                double y = addedCoordinates[2 * i + 1];
+                // the element may since have been replaced, or given to the move as a copy
+                l.add((c.getX() == x && c.getY() == y) ? c : c.copyAt(x, y));
+            }
+            e = StructureChange.added(structure, l, addedArea.topLeft(), addedArea.bottomRight());
+        }
+        
+        added.clear();
+        addedCount = 0;
+        addedIndex.clear();
+        addedArea.reset();
+        return e;
+    }
+
+    /**
+     * Creates the merged removal event and resets the pending removals.
+     *
+     * @param structure Structure which was changed.
+     * @return The event, or {@code null} if nothing was removed.
+     */
+    StructureChange.Removal<E> takeRemoved(MutableStructure<E> structure) {
+        var e = removed.isEmpty() ? null
+            : StructureChange.removed(structure, removed, removedArea.topLeft(), removedArea.bottomRight());
+        removed.clear();
+        removedArea.reset();
+        return e;
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.vqnxiv.structure.impl;
+
+
+/**
+ * Uniform grid over a set of coordinates, in compressed form.
+ * <p>
+ * The coordinates are meant to be stored sorted by cell, so that the elements
+ * of cell {@code c} are at the indices {@code [cellStart[c], cellStart[c + 1])}.
+ * {@link #permutation()} gives, for each new index, the index in the original
+ * order of the element it holds.
+ * <p>
+ * Cells are numbered row by row: {@code c = row * cols + col}.
+ *
+ * @param cols        Number of columns.
+ * @param rows        Number of rows.
+ * @param minX        Minimum X coordinate.
+ * @param minY        Minimum Y coordinate.
+ * @param maxX        Maximum X coordinate.
+ * @param maxY        Maximum Y coordinate.
+ * @param cellStart   Start index of each cell, of length {@code cols * rows + 1}.
+ * @param permutation Original index of each element, sorted by cell.
+ */
+record GridIndex(int cols, int rows, double minX, double minY, double maxX, double maxY,
+                 int[] cellStart, int[] permutation) {
+
+    /**
+     * Builds the grid for the given coordinates. The grid is square (in number
+     * of cells) and has on average {@code cellCapacity} elements per cell.
+     *
+     * @param xs           X coordinates.
+     * @param ys           Y coordinates.
+     * @param n            Number of coordinates.
+     * @param cellCapacity Average number of elements per cell.
+     * @return The grid.
+     */
+    static GridIndex build(double[] xs, double[] ys, int n, int cellCapacity) {
+        if(cellCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        double minX = 0d;
+        double minY = 0d;
+        double maxX = 0d;
+        double maxY = 0d;
+
+        if(n > 0) {
+            minX = maxX = xs[0];
+            minY = maxY = ys[0];
+        }
+
+        for(int i = 1; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(n / (double) cellCapacity)));
+        var g = new GridIndex(side, side, minX, minY, maxX, maxY, new int[side * side + 1], new int[n]);
+
+        // counting sort on the cell of each element
+        int[] cells = new int[n];
+        for(int i = 0; i < n; i++) {
+            cells[i] = g.cellOf(xs[i], ys[i]);
+            g.cellStart[cells[i] + 1]++;
+        }
+        for(int c = 0; c < side * side; c++) {
+            g.cellStart[c + 1] += g.cellStart[c];
+        }
+
+        int[] next = new int[side * side];
+        System.arraycopy(g.cellStart, 0, next, 0, next.length);
+        for(int i = 0; i < n; i++) {
+            g.permutation[next[cells[i]]++] = i;
+        }
+
+        return g;
+    }
+
+
+    /**
+     * Number of cells.
+     *
+     * @return {@code cols * rows}.
+     */
+    int cellCount() {
+        return cols * rows;
+    }
+
+    /**
+     * Width of a column.
+     *
+     * @return Column width, or {@code 1} if all the X coordinates are the same.
+     */
+    double cellWidth() {
+        return (maxX > minX) ? (maxX - minX) / cols : 1d;
+    }
+
+    /**
+     * Height of a row.
+     *
+     * @return Row height, or {@code 1} if all the Y coordinates are the same.
+     */
+    double cellHeight() {
+        return (maxY > minY) ? (maxY - minY) / rows : 1d;
+    }
+
+    /**
+     * Column of the given X coordinate, clamped to the grid.
+     *
+     * @param x X coordinate.
+     * @return Column index.
+     */
+    int colOf(double x) {
+        int c = (int) ((x - minX) / cellWidth());
+        return Math.max(0, Math.min(cols - 1, c));
+    }
+
+    /**
+     * Row of the given Y coordinate, clamped to the grid.
+     *
+     * @param y Y coordinate.
+     * @return Row index.
+     */
+    int rowOf(double y) {
+        int r = (int) ((y - minY) / cellHeight());
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    /**
+     * Cell of the given coordinates, clamped to the grid.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Cell index.
+     */
+    int cellOf(double x, double y) {
+        return rowOf(y) * cols + colOf(x);
+    }
+}
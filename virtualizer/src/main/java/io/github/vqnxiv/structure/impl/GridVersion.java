@@ -0,0 +1,909 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+
+/**
+ * Immutable version of a {@link VersionedMatrix}.
+ * <p>
+ * The elements are bucketed in a uniform grid of immutable rows of immutable
+ * cells, each of which knows the bounds of its elements. Moving elements
+ * builds a new version which shares all the rows and cells it does not touch
+ * with this one, so that it costs about the number of rows and the size of the
+ * touched rows and cells instead of the number of elements. The grid covers
+ * the elements with some margin, and is only rebuilt when an element is
+ * moved out of it.
+ * <p>
+ * The elements held by a version are never modified nor handed out:
+ * lookups and iterators return copies of them.
+ *
+ * @param <E> Type of elements.
+ */
+final class GridVersion<E> implements LocalizedStructure<E> {
+
+    /**
+     * Cell of the grid.
+     *
+     * @param elements Elements of the cell.
+     * @param minX     Minimum X coordinate, {@code +Infinity} if empty.
+     * @param minY     Minimum Y coordinate, {@code +Infinity} if empty.
+     * @param maxX     Maximum X coordinate, {@code -Infinity} if empty.
+     * @param maxY     Maximum Y coordinate, {@code -Infinity} if empty.
+     * @param <E> Type of elements.
+     */
+    private record Cell<E>(CoordinatesElement<E>[] elements, double minX, double minY, double maxX, double maxY) {
+
+        /**
+         * Creates a cell and computes its bounds.
+         *
+         * @param elements Elements of the cell.
+         * @param <E> Type of elements.
+         * @return The cell.
+         */
+        private static <E> Cell<E> of(CoordinatesElement<E>[] elements) {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for(var c : elements) {
+                minX = Math.min(minX, c.getX());
+                minY = Math.min(minY, c.getY());
+                maxX = Math.max(maxX, c.getX());
+                maxY = Math.max(maxY, c.getY());
+            }
+            return new Cell<>(elements, minX, minY, maxX, maxY);
+        }
+
+        /**
+         * Whether the bounds of this cell intersect the given area.
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @return {@code false} if none of the elements can be within the area.
+         */
+        private boolean intersects(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            return minX <= bottomRightX && maxX >= topLeftX && minY <= bottomRightY && maxY >= topLeftY;
+        }
+    }
+
+    /**
+     * Row of the grid.
+     *
+     * @param cells Cells of the row, one per column.
+     * @param minX  Minimum X coordinate, {@code +Infinity} if empty.
+     * @param minY  Minimum Y coordinate, {@code +Infinity} if empty.
+     * @param maxX  Maximum X coordinate, {@code -Infinity} if empty.
+     * @param maxY  Maximum Y coordinate, {@code -Infinity} if empty.
+     * @param <E> Type of elements.
+     */
+    private record Row<E>(Cell<E>[] cells, double minX, double minY, double maxX, double maxY) {
+
+        /**
+         * Creates a row and computes its bounds from the bounds of its cells.
+         *
+         * @param cells Cells of the row.
+         * @param <E> Type of elements.
+         * @return The row.
+         */
+        private static <E> Row<E> of(Cell<E>[] cells) {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for(var c : cells) {
+                minX = Math.min(minX, c.minX());
+                minY = Math.min(minY, c.minY());
+                maxX = Math.max(maxX, c.maxX());
+                maxY = Math.max(maxY, c.maxY());
+            }
+            return new Row<>(cells, minX, minY, maxX, maxY);
+        }
+
+        /**
+         * Whether the bounds of this row intersect the given area.
+         *
+         * @param topLeftX     Top left corner X coordinate.
+         * @param topLeftY     Top left corner Y coordinate.
+         * @param bottomRightX Bottom right corner X coordinate.
+         * @param bottomRightY Bottom right corner Y coordinate.
+         * @return {@code false} if none of the elements can be within the area.
+         */
+        private boolean intersects(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+            return minX <= bottomRightX && maxX >= topLeftX && minY <= bottomRightY && maxY >= topLeftY;
+        }
+    }
+
+
+    /**
+     * Target number of elements per cell when the grid is built.
+     */
+    private static final int ELEMENTS_PER_CELL = 16;
+
+    /**
+     * Maximum number of cells.
+     */
+    private static final int MAX_CELLS = 1 << 16;
+
+
+    /**
+     * Version number.
+     */
+    private final long number;
+
+    /**
+     * Left bound of the grid.
+     */
+    private final double x0;
+
+    /**
+     * Top bound of the grid.
+     */
+    private final double y0;
+
+    /**
+     * Right bound of the grid.
+     */
+    private final double x1;
+
+    /**
+     * Bottom bound of the grid.
+     */
+    private final double y1;
+
+    /**
+     * Width of a cell.
+     */
+    private final double cellWidth;
+
+    /**
+     * Height of a cell.
+     */
+    private final double cellHeight;
+
+    /**
+     * Number of columns.
+     */
+    private final int cols;
+
+    /**
+     * The rows, from the top.
+     */
+    private final Row<E>[] rows;
+
+    /**
+     * Number of elements.
+     */
+    private final int size;
+
+    /**
+     * Minimum X coordinate of the elements.
+     */
+    private final double minX;
+
+    /**
+     * Minimum Y coordinate of the elements.
+     */
+    private final double minY;
+
+    /**
+     * Maximum X coordinate of the elements.
+     */
+    private final double maxX;
+
+    /**
+     * Maximum Y coordinate of the elements.
+     */
+    private final double maxY;
+
+
+    /**
+     * Constructor which builds a new grid around the given elements.
+     * The elements are not copied.
+     *
+     * @param elements The elements.
+     * @param number   Version number.
+     */
+    GridVersion(List<CoordinatesElement<E>> elements, long number) {
+        this.number = number;
+        size = elements.size();
+
+        double bMinX = Double.POSITIVE_INFINITY;
+        double bMinY = Double.POSITIVE_INFINITY;
+        double bMaxX = Double.NEGATIVE_INFINITY;
+        double bMaxY = Double.NEGATIVE_INFINITY;
+        for(var c : elements) {
+            bMinX = Math.min(bMinX, c.getX());
+            bMinY = Math.min(bMinY, c.getY());
+            bMaxX = Math.max(bMaxX, c.getX());
+            bMaxY = Math.max(bMaxY, c.getY());
+        }
+        if(elements.isEmpty()) {
+            bMinX = bMinY = bMaxX = bMaxY = 0d;
+        }
+
+        // half of the extent of the elements is added on each side
+        double w = Math.max(1d, bMaxX - bMinX);
+        double h = Math.max(1d, bMaxY - bMinY);
+        x0 = bMinX - w / 2;
+        y0 = bMinY - h / 2;
+        x1 = bMaxX + w / 2;
+        y1 = bMaxY + h / 2;
+
+        int count = Math.max(1, Math.min(MAX_CELLS, size / ELEMENTS_PER_CELL));
+        cols = (int) Math.max(1, Math.min(count, Math.round(Math.sqrt(count * w / h))));
+        int rowCount = Math.max(1, count / cols);
+        cellWidth = (x1 - x0) / cols;
+        cellHeight = (y1 - y0) / rowCount;
+
+        var buckets = new ArrayList<List<CoordinatesElement<E>>>(rowCount * cols);
+        for(int i = 0; i < rowCount * cols; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for(var c : elements) {
+            buckets.get(rowOf(c.getY(), rowCount) * cols + colOf(c.getX())).add(c);
+        }
+
+        rows = newRows(rowCount);
+        for(int r = 0; r < rowCount; r++) {
+            Cell<E>[] cells = newCells(cols);
+            for(int col = 0; col < cols; col++) {
+                cells[col] = Cell.of(buckets.get(r * cols + col).toArray(newElements(0)));
+            }
+            rows[r] = Row.of(cells);
+        }
+
+        double[] b = bounds(rows);
+        minX = b[0];
+        minY = b[1];
+        maxX = b[2];
+        maxY = b[3];
+    }
+
+    /**
+     * Constructor of a version which shares the grid of a previous one.
+     *
+     * @param previous The previous version.
+     * @param rows     The new rows.
+     */
+    private GridVersion(GridVersion<E> previous, Row<E>[] rows) {
+        number = previous.number + 1;
+        x0 = previous.x0;
+        y0 = previous.y0;
+        x1 = previous.x1;
+        y1 = previous.y1;
+        cellWidth = previous.cellWidth;
+        cellHeight = previous.cellHeight;
+        cols = previous.cols;
+        size = previous.size;
+        this.rows = rows;
+
+        double[] b = bounds(rows);
+        minX = b[0];
+        minY = b[1];
+        maxX = b[2];
+        maxY = b[3];
+    }
+
+
+    /**
+     * Creates an array of elements.
+     *
+     * @param n Length of the array.
+     * @param <E> Type of elements.
+     * @return The array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> CoordinatesElement<E>[] newElements(int n) {
+        return (CoordinatesElement<E>[]) new CoordinatesElement<?>[n];
+    }
+
+    /**
+     * Creates an array of cells.
+     *
+     * @param n Length of the array.
+     * @param <E> Type of elements.
+     * @return The array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> Cell<E>[] newCells(int n) {
+        return (Cell<E>[]) new Cell<?>[n];
+    }
+
+    /**
+     * Creates an array of rows.
+     *
+     * @param n Length of the array.
+     * @param <E> Type of elements.
+     * @return The array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> Row<E>[] newRows(int n) {
+        return (Row<E>[]) new Row<?>[n];
+    }
+
+    /**
+     * Bounds of the elements from the bounds of the rows.
+     *
+     * @param rows The rows.
+     * @param <E> Type of elements.
+     * @return Minimum X, minimum Y, maximum X and maximum Y coordinates,
+     * all {@code 0} if there are no elements.
+     */
+    private static <E> double[] bounds(Row<E>[] rows) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for(var r : rows) {
+            minX = Math.min(minX, r.minX());
+            minY = Math.min(minY, r.minY());
+            maxX = Math.max(maxX, r.maxX());
+            maxY = Math.max(maxY, r.maxY());
+        }
+
+        if(minX > maxX) {
+            return new double[4];
+        }
+        return new double[] { minX, minY, maxX, maxY };
+    }
+
+    /**
+     * Copies an element before handing it out.
+     *
+     * @param c The element.
+     * @param <E> Type of elements.
+     * @return The copy.
+     */
+    private static <E> CoordinatesElement<E> copy(CoordinatesElement<E> c) {
+        return c.copyAt(c.getX(), c.getY());
+    }
+
+
+    /**
+     * Getter for the version number.
+     *
+     * @return The version number.
+     */
+    long number() {
+        return number;
+    }
+
+    /**
+     * Whether the grid covers the given coordinates.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return {@code true} if it does.
+     */
+    private boolean covers(double x, double y) {
+        return x >= x0 && x <= x1 && y >= y0 && y <= y1;
+    }
+
+    /**
+     * Column of an X coordinate, clamped to the grid.
+     *
+     * @param x X coordinate.
+     * @return The column.
+     */
+    private int colOf(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) ((x - x0) / cellWidth)));
+    }
+
+    /**
+     * Row of a Y coordinate, clamped to the grid.
+     *
+     * @param y Y coordinate.
+     * @return The row.
+     */
+    private int rowOf(double y) {
+        return rowOf(y, rows.length);
+    }
+
+    /**
+     * Row of a Y coordinate, clamped to the grid.
+     *
+     * @param y        Y coordinate.
+     * @param rowCount Number of rows.
+     * @return The row.
+     */
+    private int rowOf(double y, int rowCount) {
+        return Math.max(0, Math.min(rowCount - 1, (int) ((y - y0) / cellHeight)));
+    }
+
+    /**
+     * Finds the element held by this version which is equal to the given one.
+     *
+     * @param c The element.
+     * @return The held element, or {@code null} if there is none.
+     */
+    CoordinatesElement<E> find(CoordinatesElement<E> c) {
+        if(!covers(c.getX(), c.getY())) {
+            return null;
+        }
+
+        for(var h : rows[rowOf(c.getY())].cells()[colOf(c.getX())].elements()) {
+            if(h.equals(c)) {
+                return h;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the next version, in which some elements are replaced.
+     * Only the touched rows and cells are copied, unless an element is moved
+     * out of the grid, in which case a new grid is built.
+     *
+     * @param from Elements held by this version, found with {@link #find(CoordinatesElement)}.
+     * @param to   The elements which replace them, at their new coordinates.
+     * @return The new version.
+     */
+    GridVersion<E> replace(List<CoordinatesElement<E>> from, List<CoordinatesElement<E>> to) {
+        for(var c : to) {
+            if(!covers(c.getX(), c.getY())) {
+                return rebuild(from, to);
+            }
+        }
+
+        // cell index mapped to the new content of the cell
+        var touched = new HashMap<Integer, List<CoordinatesElement<E>>>();
+        for(int i = 0; i < from.size(); i++) {
+            var f = from.get(i);
+            var src = cellContent(touched, rowOf(f.getY()) * cols + colOf(f.getX()));
+            for(int k = 0; k < src.size(); k++) {
+                if(src.get(k) == f) {
+                    src.remove(k);
+                    break;
+                }
+            }
+
+            var t = to.get(i);
+            cellContent(touched, rowOf(t.getY()) * cols + colOf(t.getX())).add(t);
+        }
+
+        var newRows = rows.clone();
+        var touchedRows = new HashMap<Integer, Cell<E>[]>();
+        touched.forEach((k, l) -> {
+            var cells = touchedRows.computeIfAbsent(k / cols, r -> rows[r].cells().clone());
+            cells[k % cols] = Cell.of(l.toArray(newElements(0)));
+        });
+        touchedRows.forEach((r, cells) -> newRows[r] = Row.of(cells));
+
+        return new GridVersion<>(this, newRows);
+    }
+
+    /**
+     * Gets the new content of a touched cell.
+     *
+     * @param touched Touched cells mapped to their new content.
+     * @param cell    Index of the cell.
+     * @return The new content of the cell, which can be modified.
+     */
+    private List<CoordinatesElement<E>> cellContent(Map<Integer, List<CoordinatesElement<E>>> touched, int cell) {
+        return touched.computeIfAbsent(
+            cell, k -> new ArrayList<>(List.of(rows[k / cols].cells()[k % cols].elements()))
+        );
+    }
+
+    /**
+     * Builds the next version with a new grid.
+     *
+     * @param from Elements held by this version.
+     * @param to   The elements which replace them.
+     * @return The new version.
+     */
+    private GridVersion<E> rebuild(List<CoordinatesElement<E>> from, List<CoordinatesElement<E>> to) {
+        var replaced = new IdentityHashMap<CoordinatesElement<E>, CoordinatesElement<E>>(from.size());
+        for(int i = 0; i < from.size(); i++) {
+            replaced.put(from.get(i), to.get(i));
+        }
+
+        var l = new ArrayList<CoordinatesElement<E>>(size);
+        forEachHeld(c -> l.add(replaced.getOrDefault(c, c)));
+        return new GridVersion<>(l, number + 1);
+    }
+
+    /**
+     * Gives all the held elements to an action.
+     *
+     * @param action The action.
+     */
+    private void forEachHeld(Consumer<CoordinatesElement<E>> action) {
+        for(var r : rows) {
+            for(var cell : r.cells()) {
+                for(var c : cell.elements()) {
+                    action.accept(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives all the held elements within an area to an action.
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action.
+     */
+    private void forEachHeldBetween(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY,
+                                    Consumer<CoordinatesElement<E>> action) {
+        if(topLeftX > maxX || bottomRightX < minX || topLeftY > maxY || bottomRightY < minY || size == 0) {
+            return;
+        }
+
+        int c0 = colOf(topLeftX);
+        int c1 = colOf(bottomRightX);
+        for(int r = rowOf(topLeftY); r <= rowOf(bottomRightY); r++) {
+            var row = rows[r];
+            if(!row.intersects(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                continue;
+            }
+            for(int col = c0; col <= c1; col++) {
+                var cell = row.cells()[col];
+                if(!cell.intersects(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                    continue;
+                }
+                for(var c : cell.elements()) {
+                    if(c.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY)) {
+                        action.accept(c);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return Copies of all the elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY) {
+        var l = new ArrayList<CoordinatesElement<E>>();
+        forEachHeldBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, c -> l.add(copy(c)));
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition.
+     * @return Copies of all the elements within the area which match the condition.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY,
+                                                     Predicate<E> condition) {
+        var l = new ArrayList<CoordinatesElement<E>>();
+        forEachHeldBetween(
+            topLeftX, topLeftY, bottomRightX, bottomRightY,
+            c -> {
+                if(condition.test(c.getElement())) {
+                    l.add(copy(c));
+                }
+            }
+        );
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform on copies of the elements.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        forEachHeldBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, c -> action.accept(copy(c)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return The number of elements within the area.
+     */
+    @Override
+    public int countBetween(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        int[] n = new int[1];
+        forEachHeldBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, c -> n[0]++);
+        return n[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cells and rows are skipped when the bounds of their elements are
+     * farther than the farthest element kept so far.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param k Maximum number of elements.
+     * @return Copies of the nearest elements, sorted from the nearest to the farthest.
+     */
+    @Override
+    public List<CoordinatesElement<E>> kNearest(double x, double y, int k) {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(k == 0 || size == 0) {
+            return new ArrayList<>();
+        }
+
+        var nearest = new NearestCollector<E>(x, y, k);
+        // the cell of the coordinates first, so that the others can be pruned
+        var start = rows[rowOf(y)].cells()[colOf(x)];
+        for(var c : start.elements()) {
+            nearest.offer(c);
+        }
+        for(var r : rows) {
+            if(nearest.distanceTo(r.minX(), r.minY(), r.maxX(), r.maxY()) > nearest.bound()) {
+                continue;
+            }
+            for(var cell : r.cells()) {
+                if(cell == start || nearest.distanceTo(cell.minX(), cell.minY(), cell.maxX(), cell.maxY()) > nearest.bound()) {
+                    continue;
+                }
+                for(var c : cell.elements()) {
+                    nearest.offer(c);
+                }
+            }
+        }
+
+        var l = nearest.result();
+        l.replaceAll(GridVersion::copy);
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The minimum X coordinate.
+     */
+    @Override
+    public double getMinimumWidth() {
+        return minX;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return A property which holds the minimum X coordinate of this version.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumWidth() {
+        return new SimpleDoubleProperty(minX);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The minimum Y coordinate.
+     */
+    @Override
+    public double getMinimumHeight() {
+        return minY;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return A property which holds the minimum Y coordinate of this version.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumHeight() {
+        return new SimpleDoubleProperty(minY);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The maximum X coordinate.
+     */
+    @Override
+    public double getMaximumWidth() {
+        return maxX;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return A property which holds the maximum X coordinate of this version.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumWidth() {
+        return new SimpleDoubleProperty(maxX);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The maximum Y coordinate.
+     */
+    @Override
+    public double getMaximumHeight() {
+        return maxY;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return A property which holds the maximum Y coordinate of this version.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumHeight() {
+        return new SimpleDoubleProperty(maxY);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this version.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to check.
+     * @return {@code true} if it contains it; {@code false} otherwise.
+     */
+    @Override
+    public boolean containsCoordinates(CoordinatesElement<E> element) {
+        return find(element) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to find.
+     * @return A copy of the element if it is in this version.
+     */
+    @Override
+    public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        for(var r : rows) {
+            for(var cell : r.cells()) {
+                for(var c : cell.elements()) {
+                    if(c.getElement().equals(element)) {
+                        return Optional.of(copy(c));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The elements to find.
+     * @return Copies of the given elements that are in this version.
+     */
+    @Override
+    public Map<E, CoordinatesElement<E>> coordinatesOf(Collection<E> elements) {
+        var wanted = new HashSet<>(elements);
+        var m = new HashMap<E, CoordinatesElement<E>>();
+        forEachHeld(c -> {
+            if(wanted.contains(c.getElement()) && !m.containsKey(c.getElement())) {
+                m.put(c.getElement(), copy(c));
+            }
+        });
+        return m;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return An iterator over copies of the elements, which can not reposition them.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new HeldIterator();
+    }
+
+    @Override
+    public String toString() {
+        var l = new ArrayList<CoordinatesElement<E>>(size);
+        forEachHeld(l::add);
+        return l.toString();
+    }
+
+
+    /**
+     * Iterator over copies of the elements, cell after cell.
+     */
+    private class HeldIterator implements CoordinatesIterator<CoordinatesElement<E>> {
+
+        /**
+         * Current row.
+         */
+        private int row = 0;
+
+        /**
+         * Current column.
+         */
+        private int col = 0;
+
+        /**
+         * Index of the next element in the current cell.
+         */
+        private int index = 0;
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@code true} if the iteration has more elements
+         */
+        @Override
+        public boolean hasNext() {
+            while(row < rows.length) {
+                var cells = rows[row].cells();
+                if(index < cells[col].elements().length) {
+                    return true;
+                }
+                index = 0;
+                if(++col == cells.length) {
+                    col = 0;
+                    row++;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return A copy of the next element in the iteration
+         */
+        @Override
+        public CoordinatesElement<E> next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return copy(rows[row].cells()[col].elements()[index++]);
+        }
+    }
+}
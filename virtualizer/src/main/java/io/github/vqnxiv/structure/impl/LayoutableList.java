@@ -35,6 +35,13 @@ public class LayoutableList<E> extends CoordinatesList<E> implements LayoutableS
      */
     private final Map<Object, List<Consumer<? super StructureChange.Move<E>>>> consumers = new HashMap<>();
 
+    /**
+     * Changes which happened during the current batch. The additions and 
+     * removals of the subclasses are recorded in it too, so that they can 
+     * be merged with the moves of the same elements.
+     */
+    private final EventBatch<E> batchedChanges = new EventBatch<>();
+
     /**
      * Modification counter for internalItr concurrent modification.
      */
@@ -86,11 +93,12 @@ public class LayoutableList<E> extends CoordinatesList<E> implements LayoutableS
         }
 
         // copy in case the given elt is the same as the one in the list
-        var cp = new CoordinatesElement<>(e);
+        var cp = e.copyAt(e.getX(), e.getY());
         // ...and in case it's another.
         var e2 = elements().get(i);
         e2.setX(p.getX());
         e2.setY(p.getY());
+        elementMoved(cp.getX(), cp.getY(), e2);
 
         if(isOnBound(cp)) {
             updateDimensions();
@@ -114,70 +122,150 @@ public class LayoutableList<E> extends CoordinatesList<E> implements LayoutableS
     // extremely slow because needs to check whether the element is in the list
     @Override
     public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
-        Map<CoordinatesElement<E>, Point2D> changed = new HashMap<>(m.size());
+        beginBatch();
+        try {
+            List<CoordinatesElement<E>> changed = new ArrayList<>(m.size());
+            double[] coordinates = new double[4 * m.size()];
         
-        // area which contains the changes
-        double minChangedX = Double.MAX_VALUE;
-        double minChangedY = Double.MAX_VALUE;
-        double maxChangedX = Double.MIN_VALUE;
-        double maxChangedY = Double.MIN_VALUE;
+            // area which contains the changes
+            double minChangedX = Double.MAX_VALUE;
+            double minChangedY = Double.MAX_VALUE;
+            double maxChangedX = -Double.MAX_VALUE;
+            double maxChangedY = -Double.MAX_VALUE;
         
-        boolean updateDimensions = false;
+            boolean updateDimensions = false;
         
-        for(var e : m.entrySet()) {
-            int i = elements().indexOf(e.getKey());
-            if(i < 0) {
-                continue;
-            }
+            for(var e : m.entrySet()) {
+                int i = elements().indexOf(e.getKey());
+                if(i < 0) {
+                    continue;
+                }
             
-            var cp = new CoordinatesElement<>(e.getKey());
-            var e2 = elements().get(i);
-
-            // checks old coordinates
-            minChangedX = Math.min(minChangedX, e2.getX());
-            minChangedY = Math.min(minChangedY, e2.getY());
-            maxChangedX = Math.max(maxChangedX, e2.getX());
-            maxChangedY = Math.max(maxChangedY, e2.getY());
+                var cp = e.getKey().copyAt(e.getKey().getX(), e.getKey().getY());
+                var e2 = elements().get(i);
+
+                // checks old coordinates
+                minChangedX = Math.min(minChangedX, e2.getX());
+                minChangedY = Math.min(minChangedY, e2.getY());
+                maxChangedX = Math.max(maxChangedX, e2.getX());
+                maxChangedY = Math.max(maxChangedY, e2.getY());
             
-            e2.setX(e.getValue().getX());
-            e2.setY(e.getValue().getY());
-
-            // checks new coordinates
-            minChangedX = Math.min(minChangedX, e2.getX());
-            minChangedY = Math.min(minChangedY, e2.getY());
-            maxChangedX = Math.max(maxChangedX, e2.getX());
-            maxChangedY = Math.max(maxChangedY, e2.getY());
+                e2.setX(e.getValue().getX());
+                e2.setY(e.getValue().getY());
+                elementMoved(cp.getX(), cp.getY(), e2);
+
+                // checks new coordinates
+                minChangedX = Math.min(minChangedX, e2.getX());
+                minChangedY = Math.min(minChangedY, e2.getY());
+                maxChangedX = Math.max(maxChangedX, e2.getX());
+                maxChangedY = Math.max(maxChangedY, e2.getY());
             
-            if(isOnBound(cp) || 
-               !e2.isIn(getMinimumWidth(), getMinimumHeight(), getMaximumWidth(), getMaximumHeight())
-            ) {
-                updateDimensions = true;
+                if(isOnBound(cp) || 
+                   !e2.isIn(getMinimumWidth(), getMinimumHeight(), getMaximumWidth(), getMaximumHeight())
+                ) {
+                    updateDimensions = true;
+                }
+                int k = 4 * changed.size();
+                coordinates[k] = cp.getX();
+                coordinates[k + 1] = cp.getY();
+                coordinates[k + 2] = e2.getX();
+                coordinates[k + 3] = e2.getY();
+                changed.add(e2);
+            }
+        
+            if(changed.isEmpty()) {
+                return;
+            }
+        
+            if(updateDimensions) {
+                updateDimensions();
             }
-            changed.put(cp, e2.getXY());
-        }
         
-        if(changed.isEmpty()) {
+            modified();
+            fireMoveEvent(
+                changed, coordinates, changed.size() == size(),
+                new Point2D(minChangedX, minChangedY), new Point2D(maxChangedX, maxChangedY)
+            );
+        }
+        finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action The changes to perform.
+     */
+    @Override
+    public void batch(Runnable action) {
+        beginBatch();
+        try {
+            action.run();
+        }
+        finally {
+            endBatch();
+        }
+    }
+
+    
+    /**
+     * Notifies all the consumers, or records the move 
+     * if a batch is in progress.
+     */
+    private void fireMoveEvent(Map<CoordinatesElement<E>, Point2D> m, Point2D topLeft, Point2D bottomRight) {
+        if(inBatch()) {
+            batchedChanges.moved(m, topLeft, bottomRight);
             return;
         }
         
-        if(updateDimensions) {
-            updateDimensions();
+        dispatchMoveEvent(StructureChange.moved(this, m, topLeft, bottomRight));
+    }
+
+    /**
+     * Notifies all the consumers, or records the moves 
+     * if a batch is in progress.
+     */
+    private void fireMoveEvent(List<CoordinatesElement<E>> l, double[] coordinates, boolean all,
+                               Point2D topLeft, Point2D bottomRight) {
+        if(inBatch()) {
+            batchedChanges.moved(l, coordinates, all, topLeft, bottomRight);
+            return;
         }
         
-        modified();
-        fireMoveEvent(changed, new Point2D(minChangedX, minChangedY), new Point2D(maxChangedX, maxChangedY));
+        dispatchMoveEvent(StructureChange.moved(this, l, coordinates, topLeft, bottomRight, all));
     }
 
-    
     /**
-     * Notifies all the consumers.
+     * Notifies all the consumers of the given event.
      */
-    private void fireMoveEvent(Map<CoordinatesElement<E>, Point2D> m, Point2D topLeft, Point2D bottomRight) {
-        var e = StructureChange.moved(this, m, topLeft, bottomRight);
+    private void dispatchMoveEvent(StructureChange.Move<E> e) {
         for(var l : consumers.values()) {
             l.forEach(c -> c.accept(e));
         }
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Notifies the consumers of the moves which happened during the batch.
+     */
+    @Override
+    protected void batchEnded() {
+        var e = batchedChanges.takeMoved(this);
+        if(e != null) {
+            dispatchMoveEvent(e);
+        }
+    }
+
+    /**
+     * Getter for the changes which happened during the current batch.
+     *
+     * @return The batched changes.
+     */
+    EventBatch<E> batchedChanges() {
+        return batchedChanges;
+    }
     
     /**
      * Increases the modification count.
@@ -31,6 +31,13 @@ public class LayoutableMatrix<E> extends CoordinatesMatrix<E> implements Layouta
      */
     private final Map<Object, List<Consumer<? super StructureChange.Move<E>>>> consumers = new HashMap<>();
 
+    /**
+     * Changes which happened during the current batch. The additions and 
+     * removals of the subclasses are recorded in it too, so that they can 
+     * be merged with the moves of the same elements.
+     */
+    private final EventBatch<E> batchedChanges = new EventBatch<>();
+
 
     /**
      * Constructor.
@@ -161,12 +168,12 @@ public class LayoutableMatrix<E> extends CoordinatesMatrix<E> implements Layouta
      */
     @Override
     public void repositionTo(CoordinatesElement<E> e, Point2D p) {
-        var cp = new CoordinatesElement<>(e);
+        var cp = e.copyAt(e.getX(), e.getY());
         if(!move(e, p)) {
             return;
         }
 
-        var pTL = new Point2D(Math.min(cp.getX(), p.getX()), Math.min(cp.getY(), p.getX()));
+        var pTL = new Point2D(Math.min(cp.getX(), p.getX()), Math.min(cp.getY(), p.getY()));
         var pBR = new Point2D(Math.max(cp.getX(), p.getX()), Math.max(cp.getY(), p.getY()));
         fireMoveEvent(Map.of(cp, p), pTL, pBR);
     }
@@ -179,50 +186,129 @@ public class LayoutableMatrix<E> extends CoordinatesMatrix<E> implements Layouta
      */
     @Override
     public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
-        Map<CoordinatesElement<E>, Point2D> changed = new HashMap<>(m.size());
+        beginBatch();
+        try {
+            List<CoordinatesElement<E>> changed = new ArrayList<>(m.size());
+            double[] coordinates = new double[4 * m.size()];
         
-        double minChangedX = maximumWidth().get();
-        double minChangedY = maximumHeight().get();
-        double maxChangedX = 0d;
-        double maxChangedY = 0d;
-        CoordinatesElement<E> cp;
+            double minChangedX = maximumWidth().get();
+            double minChangedY = maximumHeight().get();
+            double maxChangedX = 0d;
+            double maxChangedY = 0d;
         
-        for(var e : m.entrySet()) {
-            cp = new CoordinatesElement<>(e.getKey());
-            if(move(e.getKey(), e.getValue())) {
-
-                minChangedX = Math.min(minChangedX, cp.getX());
-                minChangedY = Math.min(minChangedY, cp.getY());
-                maxChangedX = Math.max(maxChangedX, cp.getX());
-                maxChangedY = Math.max(maxChangedY, cp.getY());
+            for(var e : m.entrySet()) {
+                double oldX = e.getKey().getX();
+                double oldY = e.getKey().getY();
+                if(move(e.getKey(), e.getValue())) {
+
+                    minChangedX = Math.min(minChangedX, oldX);
+                    minChangedY = Math.min(minChangedY, oldY);
+                    maxChangedX = Math.max(maxChangedX, oldX);
+                    maxChangedY = Math.max(maxChangedY, oldY);
                 
-                changed.put(cp, e.getValue());
+                    int k = 4 * changed.size();
+                    coordinates[k] = oldX;
+                    coordinates[k + 1] = oldY;
+                    coordinates[k + 2] = e.getValue().getX();
+                    coordinates[k + 3] = e.getValue().getY();
+                    changed.add(e.getKey());
+
+                    minChangedX = Math.min(minChangedX, e.getValue().getX());
+                    minChangedY = Math.min(minChangedY, e.getValue().getY());
+                    maxChangedX = Math.max(maxChangedX, e.getValue().getX());
+                    maxChangedY = Math.max(maxChangedY, e.getValue().getY());
+                }
+            }
 
-                minChangedX = Math.min(minChangedX, e.getValue().getX());
-                minChangedY = Math.min(minChangedY, e.getValue().getY());
-                maxChangedX = Math.max(maxChangedX, e.getValue().getX());
-                maxChangedY = Math.max(maxChangedY, e.getValue().getY());
+            if(changed.isEmpty()) {
+                return;
             }
+        
+            fireMoveEvent(
+                changed, coordinates, changed.size() == size(),
+                new Point2D(minChangedX, minChangedY), new Point2D(maxChangedX, maxChangedY)
+            );
+        }
+        finally {
+            endBatch();
         }
+    }
 
-        if(changed.isEmpty()) {
-            return;
+    /**
+     * {@inheritDoc}
+     *
+     * @param action The changes to perform.
+     */
+    @Override
+    public void batch(Runnable action) {
+        beginBatch();
+        try {
+            action.run();
+        }
+        finally {
+            endBatch();
         }
-        
-        fireMoveEvent(changed, new Point2D(minChangedX, minChangedY), new Point2D(maxChangedX, maxChangedY));
     }
     
     
     /**
-     * Notifies all the consumers.
+     * Notifies all the consumers, or records the move 
+     * if a batch is in progress.
      */
     private void fireMoveEvent(Map<CoordinatesElement<E>, Point2D> m, Point2D topLeft, Point2D bottomRight) {
-        var e = StructureChange.moved(this, m, topLeft, bottomRight);
+        if(inBatch()) {
+            batchedChanges.moved(m, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchMoveEvent(StructureChange.moved(this, m, topLeft, bottomRight));
+    }
+
+    /**
+     * Notifies all the consumers, or records the moves 
+     * if a batch is in progress.
+     */
+    private void fireMoveEvent(List<CoordinatesElement<E>> l, double[] coordinates, boolean all,
+                               Point2D topLeft, Point2D bottomRight) {
+        if(inBatch()) {
+            batchedChanges.moved(l, coordinates, all, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchMoveEvent(StructureChange.moved(this, l, coordinates, topLeft, bottomRight, all));
+    }
+
+    /**
+     * Notifies all the consumers of the given event.
+     */
+    private void dispatchMoveEvent(StructureChange.Move<E> e) {
         for(var l : consumers.values()) {
             l.forEach(c -> c.accept(e));
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Notifies the consumers of the moves which happened during the batch.
+     */
+    @Override
+    protected void batchEnded() {
+        var e = batchedChanges.takeMoved(this);
+        if(e != null) {
+            dispatchMoveEvent(e);
+        }
+    }
+
+    /**
+     * Getter for the changes which happened during the current batch.
+     *
+     * @return The batched changes.
+     */
+    EventBatch<E> batchedChanges() {
+        return batchedChanges;
+    }
+
 
     /**
      * {@inheritDoc}
@@ -0,0 +1,395 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.Layout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+
+/**
+ * Layoutable extension of {@link CoordinatesRTree}.
+ * <p>
+ * The areas of the move events include the extents of the moved elements.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see CoordinatesRTree
+ * @see LayoutableStructure
+ */
+public class LayoutableRTree<E> extends CoordinatesRTree<E> implements LayoutableStructure<E> {
+
+    /**
+     * On event consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Move<E>>>> consumers = new HashMap<>();
+
+    /**
+     * Changes which happened during the current batch. The additions and 
+     * removals of the subclasses are recorded in it too, so that they can 
+     * be merged with the moves of the same elements.
+     */
+    private final EventBatch<E> batchedChanges = new EventBatch<>();
+
+
+    /**
+     * Constructor.
+     *
+     * @param el Elements.
+     */
+    public LayoutableRTree(Collection<E> el) {
+        super(el);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     */
+    public LayoutableRTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+        super(el, layoutSupplier);
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c Structure to copy.
+     */
+    public LayoutableRTree(CoordinatesStructure<E> c) {
+        super(c);
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param t Tree to copy.
+     */
+    public LayoutableRTree(CoordinatesRTree<E> t) {
+        super(t);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el           Elements.
+     * @param nodeCapacity Maximum number of entries in a node.
+     */
+    public LayoutableRTree(Collection<E> el, int nodeCapacity) {
+        super(el, nodeCapacity);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param el           Elements.
+     * @param nodeCapacity Maximum number of entries in a node.
+     */
+    public LayoutableRTree(CoordinatesStructure<E> el, int nodeCapacity) {
+        super(el, nodeCapacity);
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     * @param nodeCapacity   Maximum number of entries in a node.
+     */
+    public LayoutableRTree(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier,
+                           int nodeCapacity) {
+        super(el, layoutSupplier, nodeCapacity);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param e The elements with its old coordinates.
+     * @param p The new coordinates for the element.
+     */
+    @Override
+    public void repositionTo(CoordinatesElement<E> e, Point2D p) {
+        var cp = e.copyAt(e.getX(), e.getY());
+        if(!move(e, p)) {
+            return;
+        }
+
+        var pTL = new Point2D(Math.min(cp.getX(), p.getX()), Math.min(cp.getY(), p.getY()));
+        var pBR = new Point2D(
+            Math.max(cp.getX(), p.getX()) + e.getWidth(), Math.max(cp.getY(), p.getY()) + e.getHeight()
+        );
+        fireMoveEvent(Map.of(cp, p), pTL, pBR);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param m Elements with their old coordinates mapped to
+     *          their new coordinates.
+     */
+    @Override
+    public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
+        beginBatch();
+        try {
+            List<CoordinatesElement<E>> changed = new ArrayList<>(m.size());
+            double[] coordinates = new double[4 * m.size()];
+
+            double minChangedX = Double.MAX_VALUE;
+            double minChangedY = Double.MAX_VALUE;
+            double maxChangedX = -Double.MAX_VALUE;
+            double maxChangedY = -Double.MAX_VALUE;
+
+            for(var e : m.entrySet()) {
+                double oldX = e.getKey().getX();
+                double oldY = e.getKey().getY();
+                if(move(e.getKey(), e.getValue())) {
+
+                    minChangedX = Math.min(minChangedX, oldX);
+                    minChangedY = Math.min(minChangedY, oldY);
+                    maxChangedX = Math.max(maxChangedX, oldX + e.getKey().getWidth());
+                    maxChangedY = Math.max(maxChangedY, oldY + e.getKey().getHeight());
+
+                    int k = 4 * changed.size();
+                    coordinates[k] = oldX;
+                    coordinates[k + 1] = oldY;
+                    coordinates[k + 2] = e.getValue().getX();
+                    coordinates[k + 3] = e.getValue().getY();
+                    changed.add(e.getKey());
+
+                    minChangedX = Math.min(minChangedX, e.getValue().getX());
+                    minChangedY = Math.min(minChangedY, e.getValue().getY());
+                    maxChangedX = Math.max(maxChangedX, e.getValue().getX() + e.getKey().getWidth());
+                    maxChangedY = Math.max(maxChangedY, e.getValue().getY() + e.getKey().getHeight());
+                }
+            }
+
+            if(changed.isEmpty()) {
+                return;
+            }
+
+            fireMoveEvent(
+                changed, coordinates, changed.size() == size(),
+                new Point2D(minChangedX, minChangedY), new Point2D(maxChangedX, maxChangedY)
+            );
+        }
+        finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action The changes to perform.
+     */
+    @Override
+    public void batch(Runnable action) {
+        beginBatch();
+        try {
+            action.run();
+        }
+        finally {
+            endBatch();
+        }
+    }
+
+
+    /**
+     * Notifies all the consumers, or records the move 
+     * if a batch is in progress.
+     */
+    private void fireMoveEvent(Map<CoordinatesElement<E>, Point2D> m, Point2D topLeft, Point2D bottomRight) {
+        if(inBatch()) {
+            batchedChanges.moved(m, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchMoveEvent(StructureChange.moved(this, m, topLeft, bottomRight));
+    }
+
+    /**
+     * Notifies all the consumers, or records the moves 
+     * if a batch is in progress.
+     */
+    private void fireMoveEvent(List<CoordinatesElement<E>> l, double[] coordinates, boolean all,
+                               Point2D topLeft, Point2D bottomRight) {
+        if(inBatch()) {
+            batchedChanges.moved(l, coordinates, all, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchMoveEvent(StructureChange.moved(this, l, coordinates, topLeft, bottomRight, all));
+    }
+
+    /**
+     * Notifies all the consumers of the given event.
+     */
+    private void dispatchMoveEvent(StructureChange.Move<E> e) {
+        for(var l : consumers.values()) {
+            l.forEach(c -> c.accept(e));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Notifies the consumers of the moves which happened during the batch.
+     */
+    @Override
+    protected void batchEnded() {
+        var e = batchedChanges.takeMoved(this);
+        if(e != null) {
+            dispatchMoveEvent(e);
+        }
+    }
+
+    /**
+     * Getter for the changes which happened during the current batch.
+     *
+     * @return The batched changes.
+     */
+    EventBatch<E> batchedChanges() {
+        return batchedChanges;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     */
+    @Override
+    public void addMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        consumers.computeIfAbsent(owner, o -> new ArrayList<>());
+        consumers.get(owner).add(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    @Override
+    public void removeMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        var l = consumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners(Object owner) {
+        var l =  consumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Move<E>>>();
+        consumers.values().forEach(l::addAll);
+        consumers.clear();
+        return l;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return an Iterator.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new LayoutableIterator();
+    }
+
+
+    /**
+     * Iterator extension which allows the reposition of elements.
+     */
+    protected class LayoutableIterator extends RTreeIterator {
+
+        /**
+         * Last seen element. {@code null} if {@link #reposition(double, double)}
+         * or {@link #remove()} were called.
+         */
+        private CoordinatesElement<E> last;
+
+
+        /**
+         * Constructor.
+         */
+        protected LayoutableIterator() {
+            super();
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the next element in the iteration
+         * @throws NoSuchElementException if the iteration has no more elements
+         */
+        @Override
+        public CoordinatesElement<E> next() {
+            last = super.next();
+            return last;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param x New X coordinate.
+         * @param y New Y coordinate.
+         */
+        @Override
+        public void reposition(double x, double y) {
+            if(last == null) {
+                throw new IllegalStateException();
+            }
+            repositionTo(last, x, y);
+            updateExpectedModCount();
+        }
+
+
+        /**
+         * Sets the the last element to null.
+         */
+        protected void nullLast() {
+            last = null;
+        }
+
+        /**
+         * Getter for the last seen element.
+         *
+         * @return The last seen element.
+         */
+        protected CoordinatesElement<E> getLast() {
+            return last;
+        }
+    }
+}
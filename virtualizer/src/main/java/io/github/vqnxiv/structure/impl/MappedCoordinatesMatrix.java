@@ -0,0 +1,389 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesStructure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Immutable structure whose coordinates and grid index live in a memory mapped
+ * file rather than on the heap, for structures which are too large to
+ * comfortably hold as {@link io.github.vqnxiv.structure.CoordinatesElement}.
+ * <p>
+ * Only an {@code int} id is stored per element: the values are resolved
+ * lazily with a user supplied {@link IntFunction}, when they are requested
+ * (e.g by iterating over the result of {@link #between(double, double, double, double)}).
+ * Everything else is paged in by the OS as it is accessed.
+ * <p>
+ * The file is written with {@link #write(Path, CoordinatesStructure, ToIntFunction)}.
+ * It contains, in little endian:
+ * <ul>
+ *     <li>a header: magic number, version, element count, column count, row count,
+ *     then min X, min Y, max X and max Y;</li>
+ *     <li>the start index of each cell ({@code cols * rows + 1} ints);</li>
+ *     <li>the id of each element, sorted by cell ({@code n} ints);</li>
+ *     <li>the X then Y coordinates, in the same order ({@code 2 * n} doubles).</li>
+ * </ul>
+ *
+ * @param <E> Type of elements.
+ *
+ * @see AbstractIndexedMatrix
+ * @see CompactCoordinatesMatrix
+ */
+public class MappedCoordinatesMatrix<E> extends AbstractIndexedMatrix<E> {
+
+    /**
+     * Content of the header of a file.
+     *
+     * @param size Number of elements.
+     * @param cols Number of columns.
+     * @param rows Number of rows.
+     * @param minX Minimum X coordinate.
+     * @param minY Minimum Y coordinate.
+     * @param maxX Maximum X coordinate.
+     * @param maxY Maximum Y coordinate.
+     */
+    private record Header(int size, int cols, int rows, double minX, double minY, double maxX, double maxY) {
+
+        /**
+         * Reads the header of a file.
+         *
+         * @param ch The file.
+         * @return The header.
+         * @throws IOException If the file could not be read or is not valid.
+         */
+        private static Header read(FileChannel ch) throws IOException {
+            var b = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            if(b.getInt() != MAGIC || b.getInt() != VERSION) {
+                throw new IOException("Not a coordinates file");
+            }
+
+            var h = new Header(b.getInt(), b.getInt(), b.getInt(), b.getDouble(), b.getDouble(), b.getDouble(), b.getDouble());
+            if(ch.size() < h.fileSize()) {
+                throw new IOException("Truncated coordinates file");
+            }
+            return h;
+        }
+
+        /**
+         * Writes this header.
+         *
+         * @param b The buffer.
+         */
+        private void write(ByteBuffer b) {
+            b.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(cols).putInt(rows)
+                .putDouble(minX).putDouble(minY).putDouble(maxX).putDouble(maxY);
+        }
+
+        /**
+         * Offset of the cell start section.
+         *
+         * @return Offset in bytes.
+         */
+        private long cellsOffset() {
+            return HEADER_SIZE;
+        }
+
+        /**
+         * Offset of the id section.
+         *
+         * @return Offset in bytes.
+         */
+        private long idsOffset() {
+            return cellsOffset() + ((long) cols * rows + 1) * Integer.BYTES;
+        }
+
+        /**
+         * Offset of the X coordinates section.
+         *
+         * @return Offset in bytes.
+         */
+        private long xsOffset() {
+            return idsOffset() + (long) size * Integer.BYTES;
+        }
+
+        /**
+         * Offset of the Y coordinates section.
+         *
+         * @return Offset in bytes.
+         */
+        private long ysOffset() {
+            return xsOffset() + (long) size * Double.BYTES;
+        }
+
+        /**
+         * Total size of the file.
+         *
+         * @return Size in bytes.
+         */
+        private long fileSize() {
+            return ysOffset() + (long) size * Double.BYTES;
+        }
+    }
+
+
+    /**
+     * Magic number at the start of a file.
+     */
+    private static final int MAGIC = 0x47564D43;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes.
+     */
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + 4 * Double.BYTES;
+
+
+    /**
+     * Resolves the values from their ids.
+     */
+    private final IntFunction<E> resolver;
+
+    /**
+     * Number of elements.
+     */
+    private final int size;
+
+    /**
+     * Start index of each cell.
+     */
+    private final IntBuffer cellStart;
+
+    /**
+     * Id of each element.
+     */
+    private final IntBuffer ids;
+
+    /**
+     * X coordinates.
+     */
+    private final DoubleBuffer xs;
+
+    /**
+     * Y coordinates.
+     */
+    private final DoubleBuffer ys;
+
+
+    /**
+     * Constructor.
+     *
+     * @param h        Header of the file.
+     * @param ch       The file.
+     * @param resolver Resolves the values from their ids.
+     * @throws IOException If the file could not be mapped.
+     */
+    private MappedCoordinatesMatrix(Header h, FileChannel ch, IntFunction<E> resolver) throws IOException {
+        super(h.cols(), h.rows(), h.minX(), h.minY(), h.maxX(), h.maxY());
+
+        this.resolver = resolver;
+        size = h.size();
+        cellStart = map(ch, h.cellsOffset(), h.idsOffset()).asIntBuffer();
+        ids = map(ch, h.idsOffset(), h.xsOffset()).asIntBuffer();
+        xs = map(ch, h.xsOffset(), h.ysOffset()).asDoubleBuffer();
+        ys = map(ch, h.ysOffset(), h.fileSize()).asDoubleBuffer();
+    }
+
+    /**
+     * Constructor. The file has to have been written with
+     * {@link #write(Path, CoordinatesStructure, ToIntFunction)}.
+     *
+     * @param path     Path of the file.
+     * @param resolver Resolves the values from their ids.
+     * @throws IOException If the file could not be read or mapped.
+     */
+    public MappedCoordinatesMatrix(Path path, IntFunction<E> resolver) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), resolver, true);
+    }
+
+    /**
+     * Constructor which closes the file once mapped.
+     *
+     * @param ch       The file.
+     * @param resolver Resolves the values from their ids.
+     * @param ignored  Ignored.
+     * @throws IOException If the file could not be read or mapped.
+     */
+    private MappedCoordinatesMatrix(FileChannel ch, IntFunction<E> resolver, boolean ignored) throws IOException {
+        this(Header.read(ch), ch, resolver);
+        // mappings stay valid once the channel is closed
+        ch.close();
+    }
+
+
+    /**
+     * Maps a section of a file.
+     *
+     * @param ch   The file.
+     * @param from Start offset.
+     * @param to   End offset.
+     * @return The mapped section.
+     * @throws IOException If the section could not be mapped.
+     */
+    private static ByteBuffer map(FileChannel ch, long from, long to) throws IOException {
+        if(to - from > Integer.MAX_VALUE) {
+            throw new IOException("Section too large to be mapped");
+        }
+        return ch.map(FileChannel.MapMode.READ_ONLY, from, to - from).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes a structure to a file which can then be opened with
+     * {@link #MappedCoordinatesMatrix(Path, IntFunction)}.
+     *
+     * @param path Path of the file.
+     * @param c    The structure.
+     * @param idOf Gives the id of a value.
+     * @param <E>  Type of elements.
+     * @throws IOException If the file could not be written.
+     */
+    public static <E> void write(Path path, CoordinatesStructure<E> c, ToIntFunction<E> idOf) throws IOException {
+        write(path, c, idOf, CompactCoordinatesMatrix.DEFAULT_CELL_CAPACITY);
+    }
+
+    /**
+     * Writes a structure to a file which can then be opened with
+     * {@link #MappedCoordinatesMatrix(Path, IntFunction)}.
+     *
+     * @param path         Path of the file.
+     * @param c            The structure.
+     * @param idOf         Gives the id of a value.
+     * @param cellCapacity Average number of elements per cell.
+     * @param <E>          Type of elements.
+     * @throws IOException If the file could not be written.
+     */
+    public static <E> void write(Path path, CoordinatesStructure<E> c, ToIntFunction<E> idOf,
+                                 int cellCapacity) throws IOException {
+        int n = c.size();
+        int[] id = new int[n];
+        double[] x = new double[n];
+        double[] y = new double[n];
+
+        int i = 0;
+        for(var e : c) {
+            id[i] = idOf.applyAsInt(e.getElement());
+            x[i] = e.getX();
+            y[i] = e.getY();
+            i++;
+        }
+
+        var g = GridIndex.build(x, y, n, cellCapacity);
+        var h = new Header(n, g.cols(), g.rows(), g.minX(), g.minY(), g.maxX(), g.maxY());
+
+        try(var ch = FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE
+        )) {
+            h.write(ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+
+            var cells = mapWritable(ch, h.cellsOffset(), h.idsOffset()).asIntBuffer();
+            cells.put(g.cellStart());
+
+            var ids = mapWritable(ch, h.idsOffset(), h.xsOffset()).asIntBuffer();
+            var xs = mapWritable(ch, h.xsOffset(), h.ysOffset()).asDoubleBuffer();
+            var ys = mapWritable(ch, h.ysOffset(), h.fileSize()).asDoubleBuffer();
+            for(int j : g.permutation()) {
+                ids.put(id[j]);
+                xs.put(x[j]);
+                ys.put(y[j]);
+            }
+        }
+    }
+
+    /**
+     * Maps a section of a file in write mode.
+     *
+     * @param ch   The file.
+     * @param from Start offset.
+     * @param to   End offset.
+     * @return The mapped section.
+     * @throws IOException If the section could not be mapped.
+     */
+    private static ByteBuffer mapWritable(FileChannel ch, long from, long to) throws IOException {
+        if(to - from > Integer.MAX_VALUE) {
+            throw new IOException("Section too large to be mapped");
+        }
+        return ch.map(FileChannel.MapMode.READ_WRITE, from, to - from).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    /**
+     * Getter for the id of an index.
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The id of the value.
+     */
+    public int getId(int index) {
+        return ids.get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The X coordinate.
+     */
+    @Override
+    public double getX(int index) {
+        return xs.get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The Y coordinate.
+     */
+    @Override
+    public double getY(int index) {
+        return ys.get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param index The index, between {@code 0} and {@link #size()}.
+     * @return The value.
+     */
+    @Override
+    public E getValue(int index) {
+        return resolver.apply(ids.get(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param cell The cell, between {@code 0} and {@code cols * rows}
+     *             (both inclusive).
+     * @return The first index of the cell.
+     */
+    @Override
+    protected int cellStart(int cell) {
+        return cellStart.get(cell);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this structure.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -81,6 +81,7 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
         if(!elements().add(element)) {
             return false;
         }
+        elementAdded(element);
 
         setDimensionsIfOutside(element);
         modified();
@@ -96,32 +97,39 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
      */
     @Override
     public boolean addAllCoordinates(Collection<CoordinatesElement<E>> coordinatesElements) {
-        var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
-
-        double minX = Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double maxY = Double.MIN_VALUE;
+        beginBatch();
+        try {
+            var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
+
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
         
-        for(var c : coordinatesElements) {
-            if(!elements().add(c)) {
-                continue;
+            for(var c : coordinatesElements) {
+                if(!elements().add(c)) {
+                    continue;
+                }
+                elementAdded(c);
+                l.add(c);
+                minX = Math.min(minX, c.getX());
+                maxX = Math.max(maxX, c.getX());
+                minY = Math.min(minY, c.getY());
+                maxY = Math.max(maxY, c.getY());
+                setDimensionsIfOutside(c);
             }
-            l.add(c);
-            minX = Math.min(minX, c.getX());
-            maxX = Math.max(maxX, c.getX());
-            minY = Math.min(minY, c.getY());
-            maxY = Math.max(maxY, c.getY());
-            setDimensionsIfOutside(c);
-        }
         
-        if(l.isEmpty()) {
-            return false;
-        }
+            if(l.isEmpty()) {
+                return false;
+            }
 
-        modified();
-        fireAddEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
-        return true;
+            modified();
+            fireAddEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
+            return true;
+        }
+        finally {
+            endBatch();
+        }
     }
 
     /**
@@ -133,19 +141,30 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
     @Override
     public boolean removeValue(E element) {
         CoordinatesElement<E> c = null;
-        int i = 0;
-        for(; i < elements().size(); i++) {
-            if(elements().get(i).getElement().equals(element)) {
-                c = elements().get(i);
-                break;
+        if(isValueIndexed()) {
+            // the index gives the element, which is removed in a single pass
+            c = coordinatesOf(element).orElse(null);
+            if(c == null || !elements().remove(c)) {
+                return false;
             }
         }
-
-        if(c == null) {
-            return false;
+        else {
+            var itr = elements().iterator();
+            while(itr.hasNext()) {
+                var next = itr.next();
+                if(next.getElement().equals(element)) {
+                    c = next;
+                    itr.remove();
+                    break;
+                }
+            }
+            
+            if(c == null) {
+                return false;
+            }
         }
         
-        elements().remove(i);
+        elementRemoved(c);
         if(isOnBound(c)) {
             updateDimensions();
         }
@@ -184,6 +203,7 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
         if(!elements().remove(element)) {
             return false;
         }
+        elementRemoved(element);
 
         if(isOnBound(element)) {
             updateDimensions();
@@ -201,39 +221,46 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
      */
     @Override
     public boolean removeAllCoordinates(Collection<CoordinatesElement<E>> coordinatesElements) {
-        var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
-
-        double minX = Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double maxY = Double.MIN_VALUE;
-
-        boolean updateDimensions = false;
-
-        for(var c : coordinatesElements) {
-            if(!elements().remove(c)) {
-                continue;
+        beginBatch();
+        try {
+            var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
+
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+
+            boolean updateDimensions = false;
+
+            for(var c : coordinatesElements) {
+                if(!elements().remove(c)) {
+                    continue;
+                }
+                elementRemoved(c);
+                l.add(c);
+                minX = Math.min(minX, c.getX());
+                maxX = Math.max(maxX, c.getX());
+                minY = Math.min(minY, c.getY());
+                maxY = Math.max(maxY, c.getY());
+                if(isOnBound(c)) {
+                    updateDimensions = true;
+                }
             }
-            l.add(c);
-            minX = Math.min(minX, c.getX());
-            maxX = Math.max(maxX, c.getX());
-            minY = Math.min(minY, c.getY());
-            maxY = Math.max(maxY, c.getY());
-            if(isOnBound(c)) {
-                updateDimensions = true;
+
+            if(l.isEmpty()) {
+                return false;
             }
-        }
 
-        if(l.isEmpty()) {
-            return false;
+            if(updateDimensions) {
+                updateDimensions();
+            }
+            modified();
+            fireRmEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
+            return true;
         }
-
-        if(updateDimensions) {
-            updateDimensions();
+        finally {
+            endBatch();
         }
-        modified();
-        fireRmEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
-        return true;
     }
 
     /**
@@ -276,6 +303,7 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
         var l = List.copyOf(elements());
         
         elements().clear();
+        elementsCleared();
 
         var p1 = new Point2D(getMinimumWidth(), getMinimumHeight());
         var p2 = new Point2D(getMaximumWidth(), getMaximumHeight());
@@ -288,25 +316,69 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
 
     
     /**
-     * Notifies all the addition consumers.
+     * Notifies all the addition consumers, or records the addition
+     * if a batch is in progress.
      */
     private void fireAddEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
-        var e = StructureChange.added(this, elts, topLeft, bottomRight);
+        if(inBatch()) {
+            batchedChanges().added(elts, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchAddEvent(StructureChange.added(this, elts, topLeft, bottomRight));
+    }
+
+    /**
+     * Notifies all the removal consumers, or records the removal
+     * if a batch is in progress.
+     */
+    private void fireRmEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
+        if(inBatch()) {
+            batchedChanges().removed(elts, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchRmEvent(StructureChange.removed(this, elts, topLeft, bottomRight));
+    }
+
+    /**
+     * Notifies all the addition consumers of the given event.
+     */
+    private void dispatchAddEvent(StructureChange.Addition<E> e) {
         for(var l : addConsumers.values()) {
             l.forEach(c -> c.accept(e));
         }
     }
 
     /**
-     * Notifies all the removal consumers.
+     * Notifies all the removal consumers of the given event.
      */
-    private void fireRmEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
-        var e = StructureChange.removed(this, elts, topLeft, bottomRight);
+    private void dispatchRmEvent(StructureChange.Removal<E> e) {
         for(var l : rmConsumers.values()) {
             l.forEach(c -> c.accept(e));
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Notifies the consumers of the moves, removals then additions
+     * which happened during the batch.
+     */
+    @Override
+    protected void batchEnded() {
+        super.batchEnded();
+        
+        var r = batchedChanges().takeRemoved(this);
+        if(r != null) {
+            dispatchRmEvent(r);
+        }
+        var a = batchedChanges().takeAdded(this);
+        if(a != null) {
+            dispatchAddEvent(a);
+        }
+    }
+
 
     /**
      * {@inheritDoc}
@@ -440,6 +512,10 @@ public class MutableList<E> extends LayoutableList<E> implements MutableStructur
         @Override
         public void remove() {
             internalItr().remove();
+            elementRemoved(getLast());
+            if(isOnBound(getLast())) {
+                updateDimensions();
+            }
             fireRmEvent(List.of(getLast()), getLast().getXY(), getLast().getXY());
             nullLast();
             updateExpectedModCount();
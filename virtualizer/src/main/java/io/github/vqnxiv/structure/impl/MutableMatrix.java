@@ -13,8 +13,10 @@ import javafx.geometry.Point2D;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -185,30 +187,36 @@ public class MutableMatrix<E> extends LayoutableMatrix<E> implements MutableStru
      */
     @Override
     public boolean addAllCoordinates(Collection<CoordinatesElement<E>> coordinatesElements) {
-        var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
-
-        double minX = Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double maxY = Double.MIN_VALUE;
+        beginBatch();
+        try {
+            var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
+
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+
+            for(var c : coordinatesElements) {
+                if(!place(c)) {
+                    continue;
+                }
+                l.add(c);
+                minX = Math.min(minX, c.getX());
+                maxX = Math.max(maxX, c.getX());
+                minY = Math.min(minY, c.getY());
+                maxY = Math.max(maxY, c.getY());
+            }
 
-        for(var c : coordinatesElements) {
-            if(!place(c)) {
-                continue;
+            if(l.isEmpty()) {
+                return false;
             }
-            l.add(c);
-            minX = Math.min(minX, c.getX());
-            maxX = Math.max(maxX, c.getX());
-            minY = Math.min(minY, c.getY());
-            maxY = Math.max(maxY, c.getY());
+        
+            fireAddEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
+            return true;
         }
-
-        if(l.isEmpty()) {
-            return false;
+        finally {
+            endBatch();
         }
-        
-        fireAddEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
-        return true;
     }
     
     /**
@@ -219,14 +227,7 @@ public class MutableMatrix<E> extends LayoutableMatrix<E> implements MutableStru
      */
     @Override
     public boolean removeValue(E element) {
-        CoordinatesElement<E> c = null;
-        
-        for(var c2 : this) {
-            if(c2.getElement().equals(element)) {
-                c = c2;
-                break;
-            }
-        }
+        var c = coordinatesOf(element).orElse(null);
         
         if(c == null) {
             return false;
@@ -245,15 +246,13 @@ public class MutableMatrix<E> extends LayoutableMatrix<E> implements MutableStru
      */
     @Override
     public boolean removeAllValues(Collection<E> elements) {
-        var l = new ArrayList<CoordinatesElement<E>>(elements.size());
-
-        for(var c : this) {
-            if(elements.contains(c.getElement())) {
-                l.add(c);
-            }
+        if(elements.isEmpty()) {
+            return false;
         }
-
-        return !(l.isEmpty()) && removeAllCoordinates(l);
+        
+        // contains may be linear, e.g on a list
+        Collection<E> values = (elements instanceof Set<E>) ? elements : new HashSet<>(elements);
+        return removeCoordinatesIf(c -> values.contains(c.getElement()));
     }
 
     /**
@@ -280,30 +279,7 @@ public class MutableMatrix<E> extends LayoutableMatrix<E> implements MutableStru
      */
     @Override
     public boolean removeAllCoordinates(Collection<CoordinatesElement<E>> coordinatesElements) {
-        var l = new ArrayList<CoordinatesElement<E>>(coordinatesElements.size());
-
-        double minX = Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double maxY = Double.MIN_VALUE;
-        
-        for(var c : coordinatesElements) {
-            if(!delete(c)) {
-                continue;
-            }
-            l.add(c);
-            minX = Math.min(minX, c.getX());
-            maxX = Math.max(maxX, c.getX());
-            minY = Math.min(minY, c.getY());
-            maxY = Math.max(maxY, c.getY());
-        }
-
-        if(l.isEmpty()) {
-            return false;
-        }
-
-        fireRmEvent(l, new Point2D(minX, minY), new Point2D(maxX, maxY));
-        return true;
+        return fireRmEvent(deleteAll(coordinatesElements));
     }
 
     /**
@@ -325,15 +301,7 @@ public class MutableMatrix<E> extends LayoutableMatrix<E> implements MutableStru
      */
     @Override
     public boolean removeCoordinatesIf(Predicate<? super CoordinatesElement<E>> condition) {
-        var l = new ArrayList<CoordinatesElement<E>>();
-
-        for(var c : this) {
-            if(condition.test(c)) {
-                l.add(c);
-            }
-        }
-
-        return !(l.isEmpty()) && removeAllCoordinates(l);
+        return fireRmEvent(deleteIf(condition));
     }
 
     /**
@@ -355,25 +323,97 @@ public class MutableMatrix<E> extends LayoutableMatrix<E> implements MutableStru
 
     
     /**
-     * Notifies all the addition consumers.
+     * Notifies all the addition consumers, or records the addition
+     * if a batch is in progress.
      */
     private void fireAddEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
-        var e = StructureChange.added(this, elts, topLeft, bottomRight);
+        if(inBatch()) {
+            batchedChanges().added(elts, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchAddEvent(StructureChange.added(this, elts, topLeft, bottomRight));
+    }
+
+    /**
+     * Notifies the removal consumers of elements removed in bulk,
+     * if there are any.
+     *
+     * @param elts The removed elements.
+     * @return {@code true} if there was at least one element.
+     */
+    private boolean fireRmEvent(List<CoordinatesElement<E>> elts) {
+        if(elts.isEmpty()) {
+            return false;
+        }
+        
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+
+        for(var c : elts) {
+            minX = Math.min(minX, c.getX());
+            maxX = Math.max(maxX, c.getX());
+            minY = Math.min(minY, c.getY());
+            maxY = Math.max(maxY, c.getY());
+        }
+
+        fireRmEvent(elts, new Point2D(minX, minY), new Point2D(maxX, maxY));
+        return true;
+    }
+
+    /**
+     * Notifies all the removal consumers, or records the removal
+     * if a batch is in progress.
+     */
+    private void fireRmEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
+        if(inBatch()) {
+            batchedChanges().removed(elts, topLeft, bottomRight);
+            return;
+        }
+        
+        dispatchRmEvent(StructureChange.removed(this, elts, topLeft, bottomRight));
+    }
+
+    /**
+     * Notifies all the addition consumers of the given event.
+     */
+    private void dispatchAddEvent(StructureChange.Addition<E> e) {
         for(var l : addConsumers.values()) {
             l.forEach(c -> c.accept(e));
         }
     }
 
     /**
-     * Notifies all the removal consumers.
+     * Notifies all the removal consumers of the given event.
      */
-    private void fireRmEvent(List<CoordinatesElement<E>> elts, Point2D topLeft, Point2D bottomRight) {
-        var e = StructureChange.removed(this, elts, topLeft, bottomRight);
+    private void dispatchRmEvent(StructureChange.Removal<E> e) {
         for(var l : rmConsumers.values()) {
             l.forEach(c -> c.accept(e));
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Notifies the consumers of the moves, removals then additions
+     * which happened during the batch.
+     */
+    @Override
+    protected void batchEnded() {
+        super.batchEnded();
+        
+        var r = batchedChanges().takeRemoved(this);
+        if(r != null) {
+            dispatchRmEvent(r);
+        }
+        var a = batchedChanges().takeAdded(this);
+        if(a != null) {
+            dispatchAddEvent(a);
+        }
+    }
+
 
     /**
      * {@inheritDoc}
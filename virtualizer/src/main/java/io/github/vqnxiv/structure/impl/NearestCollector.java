@@ -0,0 +1,220 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Keeps the {@code k} elements which are the nearest to a point
+ * among the elements it is given.
+ * <p>
+ * The elements are kept in a binary max heap on their squared distance
+ * to the point, so that the farthest of them can be compared to and
+ * replaced in {@code O(log k)}. {@link #bound()} is the squared distance
+ * beyond which an element can no longer be kept, which lets the
+ * structures prune the parts of their space that are farther than it.
+ *
+ * @param <E> Type of elements.
+ */
+final class NearestCollector<E> {
+
+    /**
+     * X coordinate of the point.
+     */
+    private final double x;
+
+    /**
+     * Y coordinate of the point.
+     */
+    private final double y;
+
+    /**
+     * Number of elements to keep.
+     */
+    private final int k;
+
+    /**
+     * Squared distances of the kept elements, in heap order.
+     */
+    private final double[] distances;
+
+    /**
+     * The kept elements, in heap order.
+     */
+    private final CoordinatesElement<E>[] elements;
+
+    /**
+     * Number of kept elements.
+     */
+    private int size;
+
+
+    /**
+     * Constructor.
+     *
+     * @param x X coordinate of the point.
+     * @param y Y coordinate of the point.
+     * @param k Number of elements to keep, at least {@code 1}.
+     */
+    NearestCollector(double x, double y, int k) {
+        this.x = x;
+        this.y = y;
+        this.k = k;
+        distances = new double[k];
+        elements = newElements(k);
+    }
+
+    /**
+     * Creates an array of elements.
+     *
+     * @param k   Length of the array.
+     * @param <E> Type of the elements.
+     * @return The array.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> CoordinatesElement<E>[] newElements(int k) {
+        return (CoordinatesElement<E>[]) new CoordinatesElement<?>[k];
+    }
+
+
+    /**
+     * Squared distance from the point to an area.
+     *
+     * @param x0 Left bound.
+     * @param y0 Top bound.
+     * @param x1 Right bound.
+     * @param y1 Bottom bound.
+     * @return The squared distance, {@code 0} if the point is within the area.
+     */
+    double distanceTo(double x0, double y0, double x1, double y1) {
+        double dx = Math.max(0d, Math.max(x0 - x, x - x1));
+        double dy = Math.max(0d, Math.max(y0 - y, y - y1));
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Squared distance beyond which an element would not be kept.
+     *
+     * @return The squared distance of the farthest kept element,
+     * or {@link Double#POSITIVE_INFINITY} if less than {@code k} are kept.
+     */
+    double bound() {
+        return (size < k) ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Gives an element to this collector, which keeps it if it is
+     * nearer than the farthest kept element.
+     *
+     * @param c The element.
+     */
+    void offer(CoordinatesElement<E> c) {
+        double dx = c.getX() - x;
+        double dy = c.getY() - y;
+        double d = dx * dx + dy * dy;
+
+        if(size < k) {
+            siftUp(size++, d, c);
+        }
+        else if(d < distances[0]) {
+            siftDown(d, c);
+        }
+    }
+
+    /**
+     * Gives elements to this collector.
+     *
+     * @param l The elements.
+     */
+    void offerAll(Iterable<CoordinatesElement<E>> l) {
+        for(var c : l) {
+            offer(c);
+        }
+    }
+
+    /**
+     * Inserts an element at the bottom of the heap.
+     *
+     * @param i Index of the new slot.
+     * @param d Squared distance of the element.
+     * @param c The element.
+     */
+    private void siftUp(int i, double d, CoordinatesElement<E> c) {
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(distances[parent] >= d) {
+                break;
+            }
+            distances[i] = distances[parent];
+            elements[i] = elements[parent];
+            i = parent;
+        }
+        distances[i] = d;
+        elements[i] = c;
+    }
+
+    /**
+     * Replaces the farthest element.
+     *
+     * @param d Squared distance of the element.
+     * @param c The element.
+     */
+    private void siftDown(double d, CoordinatesElement<E> c) {
+        int i = 0;
+        int half = size >>> 1;
+        while(i < half) {
+            int child = 2 * i + 1;
+            if(child + 1 < size && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if(d >= distances[child]) {
+                break;
+            }
+            distances[i] = distances[child];
+            elements[i] = elements[child];
+            i = child;
+        }
+        distances[i] = d;
+        elements[i] = c;
+    }
+
+    /**
+     * The kept elements.
+     *
+     * @return The kept elements, sorted from the nearest to the farthest.
+     */
+    List<CoordinatesElement<E>> result() {
+        Integer[] order = new Integer[size];
+        for(int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+
+        var l = new ArrayList<CoordinatesElement<E>>(size);
+        for(int i : order) {
+            l.add(elements[i]);
+        }
+        return l;
+    }
+
+    /**
+     * The nearest kept element.
+     *
+     * @return The nearest element, {@code null} if none was kept.
+     */
+    CoordinatesElement<E> nearest() {
+        CoordinatesElement<E> c = null;
+        double d = Double.POSITIVE_INFINITY;
+        for(int i = 0; i < size; i++) {
+            if(distances[i] < d || c == null) {
+                d = distances[i];
+                c = elements[i];
+            }
+        }
+        return c;
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Identity hash table from the elements stored in a structure to their
+ * slot, i.e their index in the list of the cell which holds them.
+ * <p>
+ * Elements are compared by identity, so their slot can be found in
+ * constant time no matter their coordinates or how their value
+ * implements {@code equals}, and the same element can be stored
+ * in several structures which each have their own index. Keys and slots
+ * are kept in two arrays with linear probing, so no object is created
+ * per element.
+ */
+final class SlotIndex {
+
+    /**
+     * Initial capacity of the table.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+
+    /**
+     * Keys, {@code null} for empty entries.
+     */
+    private Object[] keys;
+
+    /**
+     * Slots of the keys.
+     */
+    private int[] slots;
+
+    /**
+     * Number of keys.
+     */
+    private int size;
+
+
+    /**
+     * Constructor.
+     */
+    SlotIndex() {
+        keys = new Object[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY];
+    }
+
+
+    /**
+     * Index of a key in the table.
+     *
+     * @param key  The key.
+     * @param mask Size of the table minus one.
+     * @return The first index at which the key can be.
+     */
+    private static int hash(Object key, int mask) {
+        int h = System.identityHashCode(key) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Slot of an element.
+     *
+     * @param key The element.
+     * @return Its slot, or {@code -1} if it is not indexed.
+     */
+    int get(Object key) {
+        int mask = keys.length - 1;
+        for(int i = hash(key, mask); keys[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                return slots[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the slot of an element.
+     *
+     * @param key  The element.
+     * @param slot Its slot.
+     */
+    void put(Object key, int slot) {
+        int mask = keys.length - 1;
+        int i = hash(key, mask);
+        for(; keys[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                slots[i] = slot;
+                return;
+            }
+        }
+
+        keys[i] = key;
+        slots[i] = slot;
+        if(++size > keys.length / 2) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes an element.
+     *
+     * @param key The element.
+     */
+    void remove(Object key) {
+        int mask = keys.length - 1;
+        int i = hash(key, mask);
+        while(keys[i] != key) {
+            if(keys[i] == null) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // shifts back the following entries of the cluster
+        int hole = i;
+        for(int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = hash(keys[j], mask);
+            if(((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                slots[hole] = slots[j];
+                hole = j;
+            }
+        }
+        keys[hole] = null;
+        size--;
+    }
+
+    /**
+     * Removes all the elements.
+     */
+    void clear() {
+        if(keys.length > INITIAL_CAPACITY) {
+            keys = new Object[INITIAL_CAPACITY];
+            slots = new int[INITIAL_CAPACITY];
+        }
+        else {
+            Arrays.fill(keys, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Ensures that the given number of elements can be indexed
+     * without resizing.
+     *
+     * @param n The number of elements.
+     */
+    void ensureCapacity(int n) {
+        if(n > keys.length / 2) {
+            resize(Integer.highestOneBit(Math.max(n, 1)) * 4);
+        }
+    }
+
+    /**
+     * Resizes the table.
+     *
+     * @param capacity New capacity, a power of two.
+     */
+    private void resize(int capacity) {
+        var oldKeys = keys;
+        var oldSlots = slots;
+        keys = new Object[capacity];
+        slots = new int[capacity];
+
+        int mask = capacity - 1;
+        for(int k = 0; k < oldKeys.length; k++) {
+            if(oldKeys[k] != null) {
+                int i = hash(oldKeys[k], mask);
+                while(keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[k];
+                slots[i] = oldSlots[k];
+            }
+        }
+    }
+}
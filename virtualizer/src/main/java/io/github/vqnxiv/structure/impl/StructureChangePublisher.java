@@ -0,0 +1,496 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * {@link Flow.Publisher} of the changes of a structure.
+ * <p>
+ * The changes are given to each subscriber on an {@link Executor}, and
+ * only as much as it {@link Flow.Subscription#request(long) requested}.
+ * The changes it has not requested yet are kept in a buffer of bounded
+ * capacity, and what happens when that buffer is full depends on the
+ * {@link OverflowPolicy} of this publisher:
+ * <ul>
+ *     <li>{@link OverflowPolicy#DROP}: the change is not given to that subscriber;</li>
+ *     <li>{@link OverflowPolicy#COALESCE}: the change, and every following change until
+ *     the buffer is emptied, are merged into a single {@link StructureChange.DirtyRegion}
+ *     which covers all of their areas, and which is given after the buffered changes;</li>
+ *     <li>{@link OverflowPolicy#BLOCK}: the thread which modified the structure waits
+ *     until there is room in the buffer, or the subscription is cancelled.</li>
+ * </ul>
+ * Each subscriber has its own buffer, so a slow subscriber does not delay
+ * the other ones (except with {@link OverflowPolicy#BLOCK}).
+ * <p>
+ * With {@link OverflowPolicy#BLOCK}, the changes must not be delivered on the
+ * thread which modifies the structure, e.g an executor running on the JFX thread
+ * while the structure is modified on it, as the producer would then wait forever.
+ *
+ * @param <E> Type of elements.
+ */
+public class StructureChangePublisher<E> implements Flow.Publisher<StructureChange> {
+
+    /**
+     * What to do with a change when the buffer of a subscriber is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The change is dropped.
+         */
+        DROP,
+
+        /**
+         * The change is merged into a {@link StructureChange.DirtyRegion}.
+         */
+        COALESCE,
+
+        /**
+         * The producer waits for room in the buffer.
+         */
+        BLOCK
+    }
+
+
+    /**
+     * Default capacity of the buffer of each subscriber.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+
+    /**
+     * The structure.
+     */
+    private final CoordinatesStructure<E> structure;
+
+    /**
+     * Executor on which the changes are given to the subscribers.
+     */
+    private final Executor executor;
+
+    /**
+     * Capacity of the buffer of each subscriber.
+     */
+    private final int bufferSize;
+
+    /**
+     * Overflow policy.
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * Current subscriptions.
+     */
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Whether {@link #close()} was called.
+     */
+    private volatile boolean closed = false;
+
+
+    /**
+     * Constructor, with a buffer of {@link #DEFAULT_BUFFER_SIZE} changes
+     * and {@link OverflowPolicy#COALESCE}.
+     *
+     * @param structure The structure.
+     * @param executor  Executor on which the changes are given to the subscribers.
+     */
+    public StructureChangePublisher(CoordinatesStructure<E> structure, Executor executor) {
+        this(structure, executor, DEFAULT_BUFFER_SIZE, OverflowPolicy.COALESCE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param structure  The structure.
+     * @param executor   Executor on which the changes are given to the subscribers.
+     * @param bufferSize Capacity of the buffer of each subscriber, at least {@code 1}.
+     * @param policy     What to do with a change when a buffer is full.
+     */
+    public StructureChangePublisher(CoordinatesStructure<E> structure, Executor executor,
+                                    int bufferSize, OverflowPolicy policy) {
+        if(bufferSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.structure = structure;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.policy = policy;
+
+        if(structure instanceof LayoutableStructure<E> l) {
+            l.addMoveListener(this, this::publish);
+        }
+        if(structure instanceof MutableStructure<E> m) {
+            m.addAdditionListener(this, this::publish);
+            m.addRemovalListener(this, this::publish);
+        }
+    }
+
+
+    /**
+     * Getter for the structure.
+     *
+     * @return The structure.
+     */
+    public CoordinatesStructure<E> getStructure() {
+        return structure;
+    }
+
+    /**
+     * Getter for the capacity of the buffer of each subscriber.
+     *
+     * @return The capacity of the buffers.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Getter for the overflow policy.
+     *
+     * @return The overflow policy.
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Number of current subscribers.
+     *
+     * @return The number of subscribers.
+     */
+    public int getNumberOfSubscribers() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops listening to the structure. Each subscriber is completed
+     * once it has been given its buffered changes.
+     */
+    public void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+
+        if(structure instanceof LayoutableStructure<E> l) {
+            l.clearMoveListeners(this);
+        }
+        if(structure instanceof MutableStructure<E> m) {
+            m.clearAdditionListeners(this);
+            m.clearRemovalListeners(this);
+        }
+
+        for(var s : subscriptions) {
+            s.complete();
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param subscriber The subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super StructureChange> subscriber) {
+        var s = new Subscription(subscriber);
+        subscriber.onSubscribe(s);
+
+        if(closed) {
+            s.complete();
+        }
+        else {
+            subscriptions.add(s);
+            if(closed) {
+                // closed in between
+                s.complete();
+            }
+        }
+    }
+
+    /**
+     * Called when the structure changes.
+     *
+     * @param change The change.
+     */
+    private void publish(StructureChange change) {
+        for(var s : subscriptions) {
+            s.offer(change);
+        }
+    }
+
+
+    /**
+     * Subscription of a subscriber, which holds its buffer.
+     */
+    private final class Subscription implements Flow.Subscription {
+
+        /**
+         * The subscriber.
+         */
+        private final Flow.Subscriber<? super StructureChange> subscriber;
+
+        /**
+         * Buffered changes, guarded by this subscription.
+         */
+        private final ArrayDeque<StructureChange> buffer = new ArrayDeque<>();
+
+        /**
+         * Number of requested changes which were not given yet,
+         * guarded by this subscription.
+         */
+        private long demand = 0L;
+
+        /**
+         * Whether changes were coalesced into the dirty area,
+         * guarded by this subscription.
+         */
+        private boolean dirty = false;
+
+        /**
+         * Minimum X coordinate of the dirty area.
+         */
+        private double minX;
+
+        /**
+         * Minimum Y coordinate of the dirty area.
+         */
+        private double minY;
+
+        /**
+         * Maximum X coordinate of the dirty area.
+         */
+        private double maxX;
+
+        /**
+         * Maximum Y coordinate of the dirty area.
+         */
+        private double maxY;
+
+        /**
+         * Whether the subscriber should be completed once its buffer is empty,
+         * guarded by this subscription.
+         */
+        private boolean completing = false;
+
+        /**
+         * Error to signal to the subscriber, guarded by this subscription.
+         */
+        private Throwable error = null;
+
+        /**
+         * Whether the subscription is over, guarded by this subscription.
+         */
+        private boolean done = false;
+
+        /**
+         * Number of pending requests to drain the buffer, so that
+         * only one drain runs at a time.
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+
+        /**
+         * Constructor.
+         *
+         * @param subscriber The subscriber.
+         */
+        private Subscription(Flow.Subscriber<? super StructureChange> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+
+        /**
+         * Buffers a change, and applies the overflow policy if the buffer is full.
+         *
+         * @param change The change.
+         */
+        private void offer(StructureChange change) {
+            synchronized(this) {
+                if(policy == OverflowPolicy.BLOCK) {
+                    while(buffer.size() >= bufferSize && !done) {
+                        try {
+                            wait();
+                        } catch(InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+
+                if(done || completing) {
+                    return;
+                }
+
+                if(dirty) {
+                    // keeps the changes in order
+                    extendDirty(change);
+                }
+                else if(buffer.size() < bufferSize) {
+                    buffer.add(change);
+                }
+                else if(policy == OverflowPolicy.COALESCE) {
+                    dirty = true;
+                    minX = Double.MAX_VALUE;
+                    minY = Double.MAX_VALUE;
+                    maxX = -Double.MAX_VALUE;
+                    maxY = -Double.MAX_VALUE;
+                    extendDirty(change);
+                }
+                else {
+                    return;
+                }
+            }
+
+            signal();
+        }
+
+        /**
+         * Extends the dirty area to the area of a change.
+         *
+         * @param change The change.
+         */
+        private void extendDirty(StructureChange change) {
+            minX = Math.min(minX, change.topLeft().getX());
+            minY = Math.min(minY, change.topLeft().getY());
+            maxX = Math.max(maxX, change.bottomRight().getX());
+            maxY = Math.max(maxY, change.bottomRight().getY());
+        }
+
+        /**
+         * Completes the subscriber once its buffer is empty.
+         */
+        private void complete() {
+            synchronized(this) {
+                completing = true;
+            }
+            signal();
+        }
+
+        /**
+         * Schedules a drain, unless one is running.
+         */
+        private void signal() {
+            if(wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Gives the requested changes to the subscriber.
+         */
+        private void drain() {
+            int missed = 1;
+
+            do {
+                while(true) {
+                    StructureChange next = null;
+                    Throwable t = null;
+                    boolean finished = false;
+
+                    synchronized(this) {
+                        if(done) {
+                            break;
+                        }
+
+                        if(error != null) {
+                            t = error;
+                        }
+                        else if(demand > 0) {
+                            next = buffer.poll();
+                            if(next == null && dirty) {
+                                dirty = false;
+                                next = StructureChange.dirty(
+                                    structure, new Point2D(minX, minY), new Point2D(maxX, maxY)
+                                );
+                            }
+                        }
+
+                        if(next != null) {
+                            demand--;
+                            notifyAll();
+                        }
+                        else if(t != null || (completing && buffer.isEmpty() && !dirty)) {
+                            finished = true;
+                            end();
+                        }
+                    }
+
+                    if(next != null) {
+                        subscriber.onNext(next);
+                    }
+                    else {
+                        if(t != null) {
+                            subscriber.onError(t);
+                        }
+                        else if(finished) {
+                            subscriber.onComplete();
+                        }
+                        break;
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while(missed != 0);
+        }
+
+        /**
+         * Ends this subscription. Must be called while holding it.
+         */
+        private void end() {
+            done = true;
+            buffer.clear();
+            dirty = false;
+            notifyAll();
+            subscriptions.remove(this);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param n The number of changes to request.
+         */
+        @Override
+        public void request(long n) {
+            synchronized(this) {
+                if(done) {
+                    return;
+                }
+                if(n <= 0) {
+                    error = new IllegalArgumentException("non-positive request: " + n);
+                }
+                else {
+                    demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            signal();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void cancel() {
+            synchronized(this) {
+                if(!done) {
+                    end();
+                }
+            }
+        }
+    }
+}
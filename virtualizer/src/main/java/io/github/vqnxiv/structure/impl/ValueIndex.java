@@ -0,0 +1,114 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Hash index from values to the {@link CoordinatesElement} which
+ * hold them in a structure.
+ * <p>
+ * As structures may contain the same value multiple times, a key is
+ * mapped either to a single element (the usual case, which avoids one list
+ * per value) or to a list of elements.
+ *
+ * @param <E> Type of elements.
+ */
+final class ValueIndex<E> {
+
+    /**
+     * Values mapped to either a {@link CoordinatesElement} or
+     * a {@link List} of {@link CoordinatesElement}.
+     */
+    private final Map<E, Object> index;
+
+
+    /**
+     * Constructor.
+     *
+     * @param elements Initial elements.
+     */
+    ValueIndex(Iterable<CoordinatesElement<E>> elements) {
+        index = new HashMap<>();
+        elements.forEach(this::add);
+    }
+
+
+    /**
+     * Adds an element to the index.
+     *
+     * @param c The element.
+     */
+    @SuppressWarnings("unchecked")
+    void add(CoordinatesElement<E> c) {
+        index.merge(
+            c.getElement(), c,
+            (old, v) -> {
+                if(old instanceof List<?> l) {
+                    ((List<Object>) l).add(v);
+                    return l;
+                }
+                var l = new ArrayList<>(2);
+                l.add(old);
+                l.add(v);
+                return l;
+            }
+        );
+    }
+
+    /**
+     * Removes an element from the index. The first indexed element which
+     * is equal to the given one (i.e same value and coordinates) is removed.
+     *
+     * @param c The element.
+     */
+    void remove(CoordinatesElement<E> c) {
+        index.computeIfPresent(
+            c.getElement(),
+            (k, v) -> {
+                if(v instanceof List<?> l) {
+                    l.remove(c);
+                    return (l.size() == 1) ? l.get(0) : l;
+                }
+                return v.equals(c) ? null : v;
+            }
+        );
+    }
+
+    /**
+     * Gets an element which holds the given value.
+     *
+     * @param e The value.
+     * @return An element which holds the value, or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    CoordinatesElement<E> first(E e) {
+        var v = index.get(e);
+        if(v instanceof List<?> l) {
+            return (CoordinatesElement<E>) l.get(0);
+        }
+        return (CoordinatesElement<E>) v;
+    }
+
+    /**
+     * Whether there is an element which holds the given value.
+     *
+     * @param e The value.
+     * @return {@code true} if the value is indexed.
+     */
+    boolean contains(E e) {
+        return index.containsKey(e);
+    }
+
+    /**
+     * Clears the index.
+     */
+    void clear() {
+        index.clear();
+    }
+}
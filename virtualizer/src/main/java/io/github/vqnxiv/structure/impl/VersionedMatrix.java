@@ -0,0 +1,665 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.Layout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesIterator;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.LocalizedStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+
+/**
+ * Layoutable structure which is made of immutable versions, so that a
+ * layout can run on a background thread while the structure is displayed.
+ * <p>
+ * Lookups are delegated to the current version, which never changes: a
+ * {@link io.github.vqnxiv.view.NodeVirtualizer} refreshing its view always
+ * sees a consistent state, without locking. Repositioning elements builds
+ * a new version which shares the cells it does not touch with the current
+ * one, and publishes it in a single atomic swap, followed by a single
+ * {@link StructureChange.Move} event. The elements of a version are never
+ * modified nor handed out, lookups and iterators return copies of them,
+ * so a layout can iterate over {@link #snapshot()} for as long as it needs,
+ * and publish its result with {@link #repositionAllTo(Map)}.
+ * <p>
+ * Moves are optimistic: an element whose given coordinates no longer
+ * match the current version, e.g because it was moved by another thread in
+ * the meantime, is ignored. Writers are serialized while they build a version.
+ * During a {@link #batch(Runnable)}, the moves of the thread which runs it are
+ * collected and published once at the end of the batch, and the other
+ * writers are not blocked in the meantime.
+ * <p>
+ * Events and changes of the dimension properties are fired once the version
+ * is published, outside of the lock, and in the order of the versions: they
+ * are fired on the thread of one of the writers, which may not be the
+ * one which published the version.
+ *
+ * @param <E> Type of elements.
+ *
+ * @see CoordinatesMatrix
+ * @see LayoutableMatrix
+ */
+public class VersionedMatrix<E> implements LayoutableStructure<E>, LocalizedStructure<E> {
+
+    /**
+     * A published version and its event.
+     *
+     * @param version The version.
+     * @param event   The move which led to it.
+     * @param <E> Type of elements.
+     */
+    private record Published<E>(GridVersion<E> version, StructureChange.Move<E> event) { }
+
+
+    /**
+     * Current version.
+     */
+    private volatile GridVersion<E> current;
+
+    /**
+     * Serializes the writers.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Moves collected during the batch of each thread, {@code null} outside of batches.
+     */
+    private final ThreadLocal<Map<CoordinatesElement<E>, Point2D>> pending = new ThreadLocal<>();
+
+    /**
+     * Published versions whose events were not fired yet, in order.
+     * They are added while holding {@link #writeLock}.
+     */
+    private final Queue<Published<E>> published = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a writer is firing the events of {@link #published}.
+     */
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    /**
+     * Minimum width in this structure.
+     */
+    private final DoubleProperty minWidth = new SimpleDoubleProperty();
+
+    /**
+     * Minimum height in this structure.
+     */
+    private final DoubleProperty minHeight = new SimpleDoubleProperty();
+
+    /**
+     * Maximum width in this structure.
+     */
+    private final DoubleProperty maxWidth = new SimpleDoubleProperty();
+
+    /**
+     * Maximum height in this structure.
+     */
+    private final DoubleProperty maxHeight = new SimpleDoubleProperty();
+
+    /**
+     * On move consumers.
+     */
+    private final Map<Object, List<Consumer<? super StructureChange.Move<E>>>> moveConsumers = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor.
+     *
+     * @param el Elements.
+     */
+    public VersionedMatrix(Collection<E> el) {
+        var l = new ArrayList<CoordinatesElement<E>>(el.size());
+        el.forEach(e -> l.add(new CoordinatesElement<>(e)));
+        init(new GridVersion<>(l, 0L));
+    }
+
+    /**
+     * Layout constructor.
+     *
+     * @param el             Elements.
+     * @param layoutSupplier Initial layout.
+     */
+    public VersionedMatrix(Collection<E> el, Function<LayoutableStructure<E>, Layout<E>> layoutSupplier) {
+        this(el);
+        layoutSupplier.apply(this).apply();
+    }
+
+    /**
+     * Elements copy constructor.
+     *
+     * @param c Structure to copy.
+     */
+    public VersionedMatrix(CoordinatesStructure<E> c) {
+        var l = new ArrayList<CoordinatesElement<E>>(c.size());
+        c.forEach(e -> l.add(e.copyAt(e.getX(), e.getY())));
+        init(new GridVersion<>(l, 0L));
+    }
+
+
+    /**
+     * Sets the first version and the dimensions.
+     *
+     * @param v The first version.
+     */
+    private void init(GridVersion<E> v) {
+        current = v;
+        updateDimensions(v);
+    }
+
+    /**
+     * Sets the dimensions from a version.
+     *
+     * @param v The version.
+     */
+    private void updateDimensions(GridVersion<E> v) {
+        if(v.getMinimumWidth() != minWidth.get()) {
+            minWidth.set(v.getMinimumWidth());
+        }
+        if(v.getMinimumHeight() != minHeight.get()) {
+            minHeight.set(v.getMinimumHeight());
+        }
+        if(v.getMaximumWidth() != maxWidth.get()) {
+            maxWidth.set(v.getMaximumWidth());
+        }
+        if(v.getMaximumHeight() != maxHeight.get()) {
+            maxHeight.set(v.getMaximumHeight());
+        }
+    }
+
+    /**
+     * Builds and publishes a new version from the current one and the given
+     * moves, then notifies the listeners once the lock is released.
+     *
+     * @param m Elements of the current version mapped to their new coordinates.
+     * @throws IllegalArgumentException If a new coordinate is infinite or NaN.
+     */
+    private void publish(Map<CoordinatesElement<E>, Point2D> m) {
+        writeLock.lock();
+        try {
+            apply(m);
+        }
+        finally {
+            writeLock.unlock();
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Builds and publishes a new version from the current one and the given
+     * moves. The caller has to hold {@link #writeLock}.
+     *
+     * @param m Elements of the current version mapped to their new coordinates.
+     */
+    private void apply(Map<CoordinatesElement<E>, Point2D> m) {
+        var base = current;
+        var from = new ArrayList<CoordinatesElement<E>>(m.size());
+        var to = new ArrayList<CoordinatesElement<E>>(m.size());
+        List<CoordinatesElement<E>> changed = new ArrayList<>(m.size());
+        double[] coordinates = new double[4 * m.size()];
+
+        double minChangedX = Double.MAX_VALUE;
+        double minChangedY = Double.MAX_VALUE;
+        double maxChangedX = -Double.MAX_VALUE;
+        double maxChangedY = -Double.MAX_VALUE;
+
+        for(var e : m.entrySet()) {
+            var p = e.getValue();
+            if(!Double.isFinite(p.getX()) || !Double.isFinite(p.getY())) {
+                throw new IllegalArgumentException();
+            }
+
+            var c = base.find(e.getKey());
+            if(c == null || (p.getX() == c.getX() && p.getY() == c.getY())) {
+                continue;
+            }
+
+            from.add(c);
+            to.add(c.copyAt(p.getX(), p.getY()));
+            int k = 4 * changed.size();
+            coordinates[k] = c.getX();
+            coordinates[k + 1] = c.getY();
+            coordinates[k + 2] = p.getX();
+            coordinates[k + 3] = p.getY();
+            // the held element is not handed out to the listeners
+            changed.add(c.copyAt(c.getX(), c.getY()));
+            minChangedX = Math.min(minChangedX, Math.min(c.getX(), p.getX()));
+            minChangedY = Math.min(minChangedY, Math.min(c.getY(), p.getY()));
+            maxChangedX = Math.max(maxChangedX, Math.max(c.getX(), p.getX()));
+            maxChangedY = Math.max(maxChangedY, Math.max(c.getY(), p.getY()));
+        }
+
+        if(changed.isEmpty()) {
+            return;
+        }
+
+        var v = base.replace(from, to);
+        current = v;
+        published.add(new Published<>(v, StructureChange.moved(
+            this, changed, coordinates,
+            new Point2D(minChangedX, minChangedY), new Point2D(maxChangedX, maxChangedY),
+            changed.size() == base.size()
+        )));
+    }
+
+    /**
+     * Fires the events of the published versions. Only one writer fires
+     * them at a time, the others leave theirs to it.
+     */
+    private void dispatch() {
+        while(!published.isEmpty() && dispatching.compareAndSet(false, true)) {
+            try {
+                Published<E> p;
+                while((p = published.poll()) != null) {
+                    updateDimensions(p.version());
+                    fireMoveEvent(p.event());
+                }
+            }
+            finally {
+                dispatching.set(false);
+            }
+        }
+    }
+
+
+    /**
+     * The current version, which is never modified.
+     *
+     * @return The current version.
+     */
+    public CoordinatesStructure<E> snapshot() {
+        return current;
+    }
+
+    /**
+     * Number of the current version, which is incremented
+     * every time a new version is published.
+     *
+     * @return The current version number.
+     */
+    public long version() {
+        return current.number();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param e The elements with its old coordinates.
+     * @param p The new coordinates for the element.
+     */
+    @Override
+    public void repositionTo(CoordinatesElement<E> e, Point2D p) {
+        repositionAllTo(Map.of(e, p));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param m Elements with their old coordinates mapped to
+     *          their new coordinates.
+     */
+    @Override
+    public void repositionAllTo(Map<CoordinatesElement<E>, Point2D> m) {
+        var p = pending.get();
+        if(p != null) {
+            p.putAll(m);
+        }
+        else {
+            publish(m);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The moves of the calling thread are collected and published as a single
+     * version at the end of the outermost batch. Other writers are not blocked.
+     *
+     * @param action The changes to perform.
+     */
+    @Override
+    public void batch(Runnable action) {
+        if(pending.get() != null) {
+            action.run();
+            return;
+        }
+
+        var m = new HashMap<CoordinatesElement<E>, Point2D>();
+        pending.set(m);
+        try {
+            action.run();
+        }
+        finally {
+            pending.remove();
+            publish(m);
+        }
+    }
+
+
+    /**
+     * Notifies all the move consumers.
+     *
+     * @param e The event.
+     */
+    private void fireMoveEvent(StructureChange.Move<E> e) {
+        for(var l : moveConsumers.values()) {
+            l.forEach(c -> c.accept(e));
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to perform.
+     */
+    @Override
+    public void addMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        moveConsumers.computeIfAbsent(owner, o -> new CopyOnWriteArrayList<>()).add(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner  The listener owner.
+     * @param action The action to stop doing.
+     */
+    @Override
+    public void removeMoveListener(Object owner, Consumer<? super StructureChange.Move<E>> action) {
+        var l = moveConsumers.get(owner);
+        if(l != null) {
+            l.remove(action);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param owner The listeners owner.
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners(Object owner) {
+        var l = moveConsumers.remove(owner);
+        return (l != null) ? l : List.of();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The removed listeners.
+     */
+    @Override
+    public Collection<Consumer<? super StructureChange.Move<E>>> clearMoveListeners() {
+        var l = new ArrayList<Consumer<? super StructureChange.Move<E>>>();
+        moveConsumers.values().forEach(l::addAll);
+        moveConsumers.clear();
+        return l;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY) {
+        return current.between(topLeftX, topLeftY, bottomRightX, bottomRightY);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param condition    Filtering condition.
+     * @return Collection of all elements within the area.
+     */
+    @Override
+    public Collection<CoordinatesElement<E>> between(double topLeftX, double topLeftY,
+                                                     double bottomRightX, double bottomRightY,
+                                                     Predicate<E> condition) {
+        return current.between(topLeftX, topLeftY, bottomRightX, bottomRightY, condition);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @param action       The action to perform.
+     */
+    @Override
+    public void forEachBetween(double topLeftX, double topLeftY,
+                               double bottomRightX, double bottomRightY,
+                               Consumer<? super CoordinatesElement<E>> action) {
+        current.forEachBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param topLeftX     Top left corner X coordinate.
+     * @param topLeftY     Top left corner Y coordinate.
+     * @param bottomRightX Bottom right corner X coordinate.
+     * @param bottomRightY Bottom right corner Y coordinate.
+     * @return The number of elements within the area.
+     */
+    @Override
+    public int countBetween(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        return current.countBetween(topLeftX, topLeftY, bottomRightX, bottomRightY);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param k Maximum number of elements.
+     * @return The nearest elements of the current version, sorted from the nearest to the farthest.
+     */
+    @Override
+    public List<CoordinatesElement<E>> kNearest(double x, double y, int k) {
+        return current.kNearest(x, y, k);
+    }
+
+    /**
+     * Minimum width of this structure.
+     *
+     * @return Min width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumWidth() {
+        return minWidth;
+    }
+
+    /**
+     * Minimum height of this structure.
+     *
+     * @return Min height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty minimumHeight() {
+        return minHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max width property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return Max height property.
+     */
+    @Override
+    public ReadOnlyDoubleProperty maximumHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The number of elements in this structure.
+     */
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to check.
+     * @return {@code true} if it contains it; {@code false} otherwise.
+     */
+    @Override
+    public boolean containsCoordinates(CoordinatesElement<E> element) {
+        return current.containsCoordinates(element);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param element The element to find.
+     * @return The coordinates of the given element if it is in the structure.
+     */
+    @Override
+    public Optional<CoordinatesElement<E>> coordinatesOf(E element) {
+        return current.coordinatesOf(element);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param elements The elements to find.
+     * @return The coordinates of the given elements that are in the structure.
+     */
+    @Override
+    public Map<E, CoordinatesElement<E>> coordinatesOf(Collection<E> elements) {
+        return current.coordinatesOf(elements);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The iterator goes over copies of the elements of the version which was
+     * current when it was created. Repositioning through it publishes a new
+     * version (or adds to the current batch) but does not affect the iteration.
+     *
+     * @return an Iterator.
+     */
+    @Override
+    public CoordinatesIterator<CoordinatesElement<E>> iterator() {
+        return new VersionIterator(current.iterator());
+    }
+
+    @Override
+    public String toString() {
+        return current.toString();
+    }
+
+
+    /**
+     * Iterator over a version.
+     */
+    protected class VersionIterator implements CoordinatesIterator<CoordinatesElement<E>> {
+
+        /**
+         * Iterator of the version.
+         */
+        private final CoordinatesIterator<CoordinatesElement<E>> itr;
+
+        /**
+         * Last seen element.
+         */
+        private CoordinatesElement<E> last;
+
+
+        /**
+         * Constructor.
+         *
+         * @param itr Iterator of the version.
+         */
+        protected VersionIterator(CoordinatesIterator<CoordinatesElement<E>> itr) {
+            this.itr = itr;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@code true} if the iteration has more elements
+         */
+        @Override
+        public boolean hasNext() {
+            return itr.hasNext();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return the next element in the iteration
+         */
+        @Override
+        public CoordinatesElement<E> next() {
+            last = itr.next();
+            return last;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param x New X coordinate.
+         * @param y New Y coordinate.
+         */
+        @Override
+        public void reposition(double x, double y) {
+            if(last == null) {
+                throw new IllegalStateException();
+            }
+            repositionTo(last, x, y);
+        }
+    }
+}
@@ -44,6 +44,11 @@ public abstract class AbstractVirtualizer implements Virtualizer {
      */
     protected final BoundedDoubleProperty viewWidth = new BoundedDoubleProperty(0, Double.MAX_VALUE);
 
+    /**
+     * The scale at which the view is displayed.
+     */
+    protected final BoundedDoubleProperty scale = new BoundedDoubleProperty(1d, Double.MIN_NORMAL, Double.MAX_VALUE);
+
     /**
      * So we can fire only one abstract onChanged when setting both height and width
      */
@@ -62,6 +67,8 @@ public abstract class AbstractVirtualizer implements Virtualizer {
         
         viewWidth.addListener(obs -> updateView(viewWidth, totalWidth, widthOffset));
         viewHeight.addListener(obs -> updateView(viewHeight, totalHeight, heightOffset));
+        
+        scale.addListener(obs -> onScaleChanged());
     }
 
 
@@ -117,6 +124,13 @@ public abstract class AbstractVirtualizer implements Virtualizer {
      */
     protected abstract void onViewChanged();
 
+    /**
+     * Method called whenever the scale may have changed. Does nothing by default.
+     */
+    protected void onScaleChanged() {
+        // nothing
+    }
+
 
     /**
      * {@inheritDoc}
@@ -212,4 +226,14 @@ public abstract class AbstractVirtualizer implements Virtualizer {
     public DoubleProperty totalWidth() {
         return totalWidth;
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The scale property.
+     */
+    @Override
+    public DoubleProperty scale() {
+        return scale;
+    }
 }
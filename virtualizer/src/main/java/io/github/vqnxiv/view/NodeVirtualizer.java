@@ -5,10 +5,11 @@ import io.github.vqnxiv.node.DecoratedNode;
 import io.github.vqnxiv.node.DecoratedNodePool;
 import io.github.vqnxiv.structure.CoordinatesElement;
 import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.ExtentStructure;
+import io.github.vqnxiv.structure.LevelsOfDetail;
 import io.github.vqnxiv.structure.LocalizedStructure;
 import javafx.beans.Observable;
 import javafx.beans.binding.Bindings;
-import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.layout.AnchorPane;
 
@@ -17,7 +18,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.function.Consumer;
 
 
 /**
@@ -28,6 +29,16 @@ import java.util.Optional;
  * <br>
  * {@link #refreshView()} and {@link #refreshTo(double, double)} 
  * should only be called on the JFX thread.
+ * <p>
+ * Elements of an {@link ExtentStructure} are culled exactly against
+ * the view, i.e a node is displayed iff the area covered by its element
+ * intersects with the view. As the elements of other structures are only
+ * points, the {@link #lookAhead} value is used to guess how far from the
+ * view their nodes may still be visible.
+ * <p>
+ * Each structure is only displayed while the {@link #scale()} is within
+ * the range of its {@link StructureToPool}, which allows to display
+ * aggregated content on zoomed out views (see {@link #withLevelsOfDetail}).
  *           
  * @see ThrottledNodeVirtualizer
  */
@@ -39,12 +50,41 @@ public class NodeVirtualizer extends AbstractVirtualizer {
      * 
      * @param structure The structure.
      * @param pool      The pool.
+     * @param minScale  Smallest scale at which the structure is displayed, inclusive.
+     * @param maxScale  Scale from which the structure is no longer displayed, exclusive.
      * @param <T>       Type of element.
      */
     public record StructureToPool<T>(
         CoordinatesStructure<T> structure,
-        DecoratedNodePool<CoordinatesElement<T>> pool
-    ) {}
+        DecoratedNodePool<CoordinatesElement<T>> pool,
+        double minScale,
+        double maxScale
+    ) {
+
+        /**
+         * Constructor.
+         * 
+         * @param structure The structure.
+         * @param pool      The pool.
+         * @param minScale  Smallest scale at which the structure is displayed, inclusive.
+         * @param maxScale  Scale from which the structure is no longer displayed, exclusive.
+         */
+        public StructureToPool {
+            if(!(minScale >= 0) || !(maxScale > minScale)) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        /**
+         * Constructor for a structure which is displayed at any scale.
+         * 
+         * @param structure The structure.
+         * @param pool      The pool.
+         */
+        public StructureToPool(CoordinatesStructure<T> structure, DecoratedNodePool<CoordinatesElement<T>> pool) {
+            this(structure, pool, 0d, Double.POSITIVE_INFINITY);
+        }
+    }
     
     /**
      * Represents a link between a structure, a pool
@@ -53,21 +93,32 @@ public class NodeVirtualizer extends AbstractVirtualizer {
      * @param structure The structure.
      * @param pool      The pool.
      * @param nodes     The nodes.
+     * @param sink      Reusable action which gets a node from the pool
+     *                  for an element and displays it.
+     * @param exact     Whether the structure is an {@link ExtentStructure},
+     *                  whose elements are culled without look ahead.
+     * @param minScale  Smallest scale at which the structure is displayed, inclusive.
+     * @param maxScale  Scale from which the structure is no longer displayed, exclusive.
      * @param <T>       Type of element.
      */
     private record Triple<T>(
         CoordinatesStructure<T> structure,
         DecoratedNodePool<CoordinatesElement<T>> pool,
-        Map<Node, DecoratedNode<CoordinatesElement<T>>> nodes
+        Map<Node, DecoratedNode<CoordinatesElement<T>>> nodes,
+        Consumer<CoordinatesElement<T>> sink,
+        boolean exact,
+        double minScale,
+        double maxScale
     ) {
+
         /**
-         * Constructor from {@link StructureToPool} 
-         * and new empty map.
+         * Whether the structure is displayed at a scale.
          * 
-         * @param stp {@link StructureToPool}.
+         * @param scale The scale.
+         * @return {@code true} if the scale is within this triple's range.
          */
-        private Triple(StructureToPool<T> stp) {
-            this(stp.structure(), stp.pool(), new HashMap<>());
+        private boolean displayedAt(double scale) {
+            return scale >= minScale && scale < maxScale;
         }
     }
     
@@ -80,6 +131,8 @@ public class NodeVirtualizer extends AbstractVirtualizer {
      * on their dimensions, this avoids sudden 'pop-in' and 'pop-out'
      * of the nodes which are displayed in the view when they reach
      * the borders.
+     * <br>
+     * It is not used for the elements of an {@link ExtentStructure}.
      */
     public static final double DEFAULT_LOOK_AHEAD = 200d;
     
@@ -94,34 +147,76 @@ public class NodeVirtualizer extends AbstractVirtualizer {
      */
     private final List<Triple<?>> triples;
 
+    /**
+     * Whether each triple was displayed during the previous refresh.
+     */
+    private final boolean[] active;
+
+    /**
+     * Whether each triple started being displayed during the refresh in progress.
+     */
+    private final boolean[] activated;
+
     /**
      * Look ahead value for this virtualizer.
      */
     protected final double lookAhead;
 
     /**
-     * The current position of the top left corner.
+     * The current X coordinate of the top left corner.
+     */
+    private double topLeftX = 0d;
+
+    /**
+     * The current Y coordinate of the top left corner.
+     */
+    private double topLeftY = 0d;
+
+    /**
+     * The current X coordinate of the bottom right corner.
      */
-    private Point2D topLeft = new Point2D(0d, 0d);
+    private double bottomRightX = 0d;
 
     /**
-     * The current position of the bottom right corner.
+     * The current Y coordinate of the bottom right corner.
      */
-    private Point2D bottomRight = new Point2D(0d, 0d);
+    private double bottomRightY = 0d;
     
     /**
-     * The previous position of the top left corner, 
+     * The previous X coordinate of the top left corner, 
      * i.e the offset used in {@link #refreshTo(double, double)} 
      * minus the {@link #lookAhead} value.
      */
-    private Point2D previousTopLeft = new Point2D(0d, 0d);
+    private double previousTopLeftX = 0d;
+
+    /**
+     * The previous Y coordinate of the top left corner.
+     */
+    private double previousTopLeftY = 0d;
 
     /**
-     * The previous position of the bottom right corner,
+     * The previous X coordinate of the bottom right corner,
      * i.e the offset used in {@link #refreshTo(double, double)}
      * plus the width and height values.
      */
-    private Point2D previousBottomRight = new Point2D(-1d, -1d);
+    private double previousBottomRightX = -1d;
+
+    /**
+     * The previous Y coordinate of the bottom right corner.
+     */
+    private double previousBottomRightY = -1d;
+
+    /**
+     * Width offset of the refresh in progress, used by the sinks
+     * to relocate the nodes.
+     */
+    private double currentWidth;
+
+    /**
+     * Height offset of the refresh in progress, used by the sinks
+     * to relocate the nodes.
+     */
+    private double currentHeight;
     
     
     
@@ -152,7 +247,9 @@ public class NodeVirtualizer extends AbstractVirtualizer {
         this.lookAhead = lookAhead;
 
         triples = new ArrayList<>();
-        pairs.forEach(p -> triples.add(new Triple<>(p)));
+        pairs.forEach(p -> triples.add(newTriple(p)));
+        active = new boolean[triples.size()];
+        activated = new boolean[triples.size()];
         
         var mWidth = Bindings.createDoubleBinding(
             () -> {
@@ -201,6 +298,74 @@ public class NodeVirtualizer extends AbstractVirtualizer {
     }
     
     
+    /**
+     * Creates the triple of a {@link StructureToPool}, with a new
+     * empty map of nodes and its sink.
+     * 
+     * @param stp {@link StructureToPool}.
+     * @param <T> Type of element.
+     * @return The triple.
+     */
+    private <T> Triple<T> newTriple(StructureToPool<T> stp) {
+        Map<Node, DecoratedNode<CoordinatesElement<T>>> nodes = new HashMap<>();
+        var pool = stp.pool();
+        
+        return new Triple<>(
+            stp.structure(), pool, nodes,
+            c -> {
+                var opt = pool.get(c);
+                if(opt.isEmpty()) {
+                    return;
+                }
+                
+                var n = opt.get();
+                if(nodes.putIfAbsent(n.getNode(), n) != null) {
+                    pool.release(n);
+                    return;
+                }
+                
+                internal.getChildren().add(n.getNode());
+                if(n.getDecorator().isPresent()) {
+                    var d = n.getDecorator().get();
+                    n.getNode().relocate(d.getX() - currentWidth, d.getY() - currentHeight);
+                }
+            },
+            stp.structure() instanceof ExtentStructure<?>,
+            stp.minScale(), stp.maxScale()
+        );
+    }
+
+
+    /**
+     * Creates the pairs which display a structure at full detail from
+     * {@link LevelsOfDetail#getFullDetailScale()}, and the matching level
+     * of its levels of detail at smaller scales.
+     * 
+     * @param full        The structure and its pool, which scale range is ignored.
+     * @param pyramid     The levels of detail of the structure.
+     * @param clusterPool The pool for the aggregates of every level.
+     * @param <T>         Type of element.
+     * @param <A>         Type of the aggregates.
+     * @return The pairs, to give to the constructor.
+     */
+    public static <T, A> List<StructureToPool<?>> withLevelsOfDetail(StructureToPool<T> full, 
+                                                                     LevelsOfDetail<A> pyramid, 
+                                                                     DecoratedNodePool<CoordinatesElement<A>> clusterPool) {
+        var l = new ArrayList<StructureToPool<?>>();
+        l.add(new StructureToPool<>(
+            full.structure(), full.pool(), pyramid.getFullDetailScale(), Double.POSITIVE_INFINITY
+        ));
+        
+        for(int i = 0; i < pyramid.levelCount(); i++) {
+            l.add(new StructureToPool<>(
+                pyramid.level(i), clusterPool, pyramid.minScale(i), pyramid.maxScale(i)
+            ));
+        }
+        
+        return l;
+    }
+    
+    
     /**
      * Refreshes the view.
      */
@@ -209,6 +374,14 @@ public class NodeVirtualizer extends AbstractVirtualizer {
         refreshView();
     }
 
+    /**
+     * Refreshes the view, as the displayed structures may have changed.
+     */
+    @Override
+    protected void onScaleChanged() {
+        refreshView();
+    }
+
     /**
      * Does nothing.
      */
@@ -262,18 +435,30 @@ public class NodeVirtualizer extends AbstractVirtualizer {
      * @param height Height offset.
      */
     protected void refreshTo(double width, double height) {
-        topLeft = new Point2D( width - lookAhead, height - lookAhead);
-        bottomRight = new Point2D(width + getViewWidth(), height + getViewHeight());
+        topLeftX = width - lookAhead;
+        topLeftY = height - lookAhead;
+        bottomRightX = width + getViewWidth();
+        bottomRightY = height + getViewHeight();
+        
+        boolean scaleChanged = updateActive();
         
         // no change
-        if(topLeft.equals(previousTopLeft) && bottomRight.equals(previousBottomRight)) {
+        if(!scaleChanged && topLeftX == previousTopLeftX && topLeftY == previousTopLeftY 
+            && bottomRightX == previousBottomRightX && bottomRightY == previousBottomRightY) {
             return;
         }
+        
+        currentWidth = width;
+        currentHeight = height;
        
         if(isReduction()) {
             filterAndRelocateNodes(width, height);
-            previousTopLeft = topLeft;
-            previousBottomRight = bottomRight;
+            for(int i = 0; i < triples.size(); i++) {
+                if(activated[i]) {
+                    fetchAndUpdateNewNodes(triples.get(i), true);
+                }
+            }
+            savePrevious();
             return;
         }
         
@@ -281,18 +466,58 @@ public class NodeVirtualizer extends AbstractVirtualizer {
         
         if(noOverlap) {
             internal.getChildren().clear();
-            triples.forEach(this::clearNodes);
+            for(int i = 0; i < triples.size(); i++) {
+                clearNodes(triples.get(i));
+            }
         }
         else {
             filterAndRelocateNodes(width, height);
         }
 
-        triples.forEach(
-            t -> fetchAndUpdateNewNodes(t, noOverlap, width, height)
-        );
+        for(int i = 0; i < triples.size(); i++) {
+            if(active[i]) {
+                fetchAndUpdateNewNodes(triples.get(i), noOverlap || activated[i]);
+            }
+        }
+
+        savePrevious();
+    }
+
+    /**
+     * Updates which triples are displayed at the current scale. The nodes of
+     * the triples which are no longer displayed are removed and released.
+     * 
+     * @return {@code true} if any triple started or stopped being displayed.
+     */
+    private boolean updateActive() {
+        double s = getScale();
+        boolean changed = false;
+        
+        for(int i = 0; i < triples.size(); i++) {
+            var t = triples.get(i);
+            boolean now = t.displayedAt(s);
+            activated[i] = now && !active[i];
+            
+            if(active[i] && !now) {
+                internal.getChildren().removeAll(t.nodes().keySet());
+                clearNodes(t);
+            }
+            
+            changed |= active[i] != now;
+            active[i] = now;
+        }
+        
+        return changed;
+    }
 
-        previousTopLeft = topLeft;
-        previousBottomRight = bottomRight;
+    /**
+     * Saves the current corners as the previous ones.
+     */
+    private void savePrevious() {
+        previousTopLeftX = topLeftX;
+        previousTopLeftY = topLeftY;
+        previousBottomRightX = bottomRightX;
+        previousBottomRightY = bottomRightY;
     }
 
     /**
@@ -303,10 +528,10 @@ public class NodeVirtualizer extends AbstractVirtualizer {
      * is equal or less than the previous size.
      */
     private boolean isReduction() {
-        return topLeft.getX() >= previousTopLeft.getX()
-            && topLeft.getY() >= previousTopLeft.getY()
-            && bottomRight.getX() <= previousBottomRight.getX()
-            && bottomRight.getY() <= previousBottomRight.getY();
+        return topLeftX >= previousTopLeftX
+            && topLeftY >= previousTopLeftY
+            && bottomRightX <= previousBottomRightX
+            && bottomRightY <= previousBottomRightY;
     }
 
     /**
@@ -317,10 +542,10 @@ public class NodeVirtualizer extends AbstractVirtualizer {
      * does <u>not</u> overlap with the previous one.
      */
     private boolean noOverlap() {
-        return topLeft.getX() >= previousBottomRight.getX()
-            || topLeft.getY() >= previousBottomRight.getY()
-            || bottomRight.getX() <= previousTopLeft.getX()
-            || bottomRight.getY() <= previousTopLeft.getY();
+        return topLeftX >= previousBottomRightX
+            || topLeftY >= previousBottomRightY
+            || bottomRightX <= previousTopLeftX
+            || bottomRightY <= previousTopLeftY;
     }
 
     /**
@@ -337,15 +562,14 @@ public class NodeVirtualizer extends AbstractVirtualizer {
         while(itr.hasNext()) {
             var n = itr.next();
             
-            var opt = getTriple(n);
-            if(opt.isEmpty()) {
+            var t = getTriple(n);
+            if(t == null) {
                 itr.remove();
             }
             else {
-                var t = opt.get();
-                var dn = t.nodes().get(n);
-                if(dn.getDecorator().isPresent() && dn.getDecorator().get().isIn(topLeft, bottomRight)) {
-                    dn.getNode().relocate(dn.getDecorator().get().getX() - width, dn.getDecorator().get().getY() - height);
+                var d = t.nodes().get(n).getDecorator().orElse(null);
+                if(d != null && isVisible(t, d, width, height)) {
+                    n.relocate(d.getX() - width, d.getY() - height);
                 }
                 else {
                     itr.remove();
@@ -355,125 +579,123 @@ public class NodeVirtualizer extends AbstractVirtualizer {
         }
     }
 
+    /**
+     * Whether the node of an element should be displayed.
+     *
+     * @param t      The triple of the element.
+     * @param d      The element.
+     * @param width  Width offset.
+     * @param height Height offset.
+     * @return {@code true} if the element intersects with the view for an
+     * {@link ExtentStructure}, or is within the view extended by the look ahead otherwise.
+     */
+    private boolean isVisible(Triple<?> t, CoordinatesElement<?> d, double width, double height) {
+        if(t.exact()) {
+            return d.intersects(width, height, bottomRightX, bottomRightY);
+        }
+        return d.isIn(topLeftX, topLeftY, bottomRightX, bottomRightY);
+    }
+
     /**
      * Fetches and places new elements from structures
      * and new nodes from their respective pools.
      * 
      * @param triple    The triple to to update.
      * @param noOverlap Whether the current view overlaps with the previous.
-     * @param width     Width offset.
-     * @param height    Height offset.
      * @param <T>       Type of triple.
      */
-    private <T> void fetchAndUpdateNewNodes(Triple<T> triple, boolean noOverlap, double width, double height) {
-        var possible = (triple.structure() instanceof LocalizedStructure<?> && !noOverlap) ?
-            localizedGetFromPool(triple) :
-            triple.pool().getAll(
-                triple.structure()
-                    .between(topLeft.getX(), topLeft.getY(), bottomRight.getX(), bottomRight.getY())
-            );
-        
-        for(var n : possible) {
-            if(triple.nodes().putIfAbsent(n.getNode(), n) != null) {
-                triple.pool().release(n);
-                continue;
-            }
-            internal.getChildren().add(n.getNode());
-            n.getDecorator().ifPresent(
-                d -> n.getNode().relocate(d.getX() - width, d.getY() - height)
-            );
-            if(n.getDecorator().isEmpty()) {
-                // ?
-            }
+    private <T> void fetchAndUpdateNewNodes(Triple<T> triple, boolean noOverlap) {
+        // elements which are already displayed are skipped by the pool
+        if(triple.structure() instanceof ExtentStructure<T> s) {
+            s.forEachIntersecting(currentWidth, currentHeight, bottomRightX, bottomRightY, triple.sink());
+        }
+        else if(triple.structure() instanceof LocalizedStructure<?> && !noOverlap) {
+            localizedGetFromPool(triple);
+        }
+        else {
+            triple.structure().forEachBetween(topLeftX, topLeftY, bottomRightX, bottomRightY, triple.sink());
         }
     }
 
     /**
      * Helper method which does localized lookups, i.e parts of the current area
-     * that weren't in the previous area.
+     * that weren't in the previous area. The nodes retrieved from the triple's
+     * pool are given to its sink.
      * 
      * @param triple The triple to fetch from.
-     * @return       The nodes retrieved from the triple's pool.
      * @param <T>    Type of triple.
      */
-    private <T> Collection<DecoratedNode<CoordinatesElement<T>>> localizedGetFromPool(Triple<T> triple) {
-        
-        Collection<DecoratedNode<CoordinatesElement<T>>> possible = new ArrayList<>();
-        double xOffset = topLeft.getX() - previousTopLeft.getX();
-        double yOffset = topLeft.getY() - previousTopLeft.getY();
+    private <T> void localizedGetFromPool(Triple<T> triple) {
+        double xOffset = topLeftX - previousTopLeftX;
+        double yOffset = topLeftY - previousTopLeftY;
 
         double nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY;
         
         if(xOffset != 0) {
-            nTopLeftY = previousTopLeft.getY() + yOffset;
-            nBottomRightY = previousBottomRight.getY() + yOffset;
+            nTopLeftY = previousTopLeftY + yOffset;
+            nBottomRightY = previousBottomRightY + yOffset;
 
             if(xOffset > 0) {
-                nTopLeftX = previousBottomRight.getX();
-                nBottomRightX = previousBottomRight.getX() + xOffset;
+                nTopLeftX = previousBottomRightX;
+                nBottomRightX = previousBottomRightX + xOffset;
             }
             else {
-                nTopLeftX = previousTopLeft.getX() + xOffset;
-                nBottomRightX = previousTopLeft.getX();
+                nTopLeftX = previousTopLeftX + xOffset;
+                nBottomRightX = previousTopLeftX;
             }
 
-            var e = triple.structure().between(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY);
-            possible.addAll(triple.pool().getAll(e));
+            triple.structure().forEachBetween(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY, triple.sink());
         }
         // == 0 -> no changes; < 0 -> reduction
-        else if((xOffset = bottomRight.getX() - previousBottomRight.getX()) > 0) {
-            nTopLeftY = previousTopLeft.getY() + yOffset;
-            nTopLeftX = previousBottomRight.getX() + yOffset;
-            nBottomRightX = bottomRight.getX();
-            nBottomRightY = bottomRight.getY();
-
-            var e = triple.structure().between(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY);
-            possible.addAll(triple.pool().getAll(e));
+        else if((xOffset = bottomRightX - previousBottomRightX) > 0) {
+            nTopLeftY = previousTopLeftY + yOffset;
+            nTopLeftX = previousBottomRightX + yOffset;
+            nBottomRightX = bottomRightX;
+            nBottomRightY = bottomRightY;
+
+            triple.structure().forEachBetween(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY, triple.sink());
         }
 
         if(yOffset != 0) {
-            nTopLeftX = previousTopLeft.getX() + xOffset;
-            nBottomRightX = previousBottomRight.getX() + xOffset;
+            nTopLeftX = previousTopLeftX + xOffset;
+            nBottomRightX = previousBottomRightX + xOffset;
 
             if(yOffset > 0) {
-                nTopLeftY = previousBottomRight.getY();
-                nBottomRightY = previousBottomRight.getY() + yOffset;
+                nTopLeftY = previousBottomRightY;
+                nBottomRightY = previousBottomRightY + yOffset;
             }
             else {
-                nTopLeftY = previousTopLeft.getY() + yOffset;
-                nBottomRightY = previousTopLeft.getY();
+                nTopLeftY = previousTopLeftY + yOffset;
+                nBottomRightY = previousTopLeftY;
             }
 
-            var e = triple.structure().between(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY);
-            possible.addAll(triple.pool().getAll(e));
-        }
-        else if(bottomRight.getY() - previousBottomRight.getY() > 0) {
-            nTopLeftX = previousTopLeft.getX() + xOffset;
-            nTopLeftY = previousBottomRight.getY() + xOffset;
-            nBottomRightX = bottomRight.getX();
-            nBottomRightY = bottomRight.getY();
-
-            var e = triple.structure().between(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY);
-            possible.addAll(triple.pool().getAll(e));
+            triple.structure().forEachBetween(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY, triple.sink());
         }
+        else if(bottomRightY - previousBottomRightY > 0) {
+            nTopLeftX = previousTopLeftX + xOffset;
+            nTopLeftY = previousBottomRightY + xOffset;
+            nBottomRightX = bottomRightX;
+            nBottomRightY = bottomRightY;
 
-        return possible;
+            triple.structure().forEachBetween(nTopLeftX, nTopLeftY, nBottomRightX, nBottomRightY, triple.sink());
+        }
     }
 
     /**
      * Gets the triple the given node belongs to.
      * 
      * @param node The node to check.
-     * @return {@link Optional} of the triple this node belongs to.
+     * @return The triple this node belongs to, or {@code null}.
      */
-    private Optional<Triple<?>> getTriple(Node node) {
-        for(var t : triples) {
-            if(t.nodes().get(node) != null) {
-                return Optional.of(t);
+    private Triple<?> getTriple(Node node) {
+        for(int i = 0; i < triples.size(); i++) {
+            var t = triples.get(i);
+            if(t.nodes().containsKey(node)) {
+                return t;
             }
         }
         
-        return Optional.empty();
+        return null;
     }
 
     /**
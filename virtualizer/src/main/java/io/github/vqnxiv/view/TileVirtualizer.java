@@ -0,0 +1,548 @@
+package io.github.vqnxiv.view;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import io.github.vqnxiv.structure.ExtentStructure;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.beans.Observable;
+import javafx.beans.binding.Bindings;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+
+/**
+ * Virtualizer which draws its elements instead of placing
+ * one {@link Node} per element in the scene graph.
+ * <p>
+ * The coordinates space is cut in fixed size square tiles. Each tile
+ * is rendered once by calling the {@link ElementPainter} of each structure
+ * for the elements it contains, and the result is kept as a
+ * {@link WritableImage} in a least recently used cache. Shifting the view
+ * then only copies the cached images of the visible tiles onto the view
+ * {@link Canvas}, and a tile is only drawn again once it was evicted from the
+ * cache or invalidated by a {@link StructureChange} which covers it.
+ * <p>
+ * As with {@link NodeVirtualizer}, this implementation is <u>not</u> thread
+ * safe: {@link #refreshView()} and changes to the structures should only
+ * happen on the JFX thread.
+ *
+ * @see NodeVirtualizer
+ */
+public class TileVirtualizer extends AbstractVirtualizer {
+
+    /**
+     * Draws an element onto a tile.
+     *
+     * @param <T> Type of element.
+     */
+    @FunctionalInterface
+    public interface ElementPainter<T> {
+
+        /**
+         * Draws an element.
+         *
+         * @param gc      Graphics context of the tile.
+         * @param element The element to draw.
+         * @param x       X coordinate of the element in the tile.
+         * @param y       Y coordinate of the element in the tile.
+         */
+        void paint(GraphicsContext gc, CoordinatesElement<T> element, double x, double y);
+    }
+
+    /**
+     * Represents a link between a {@link CoordinatesStructure}
+     * and the {@link ElementPainter} used to draw its elements.
+     *
+     * @param structure The structure.
+     * @param painter   The painter.
+     * @param <T>       Type of element.
+     */
+    public record StructureToPainter<T>(
+        CoordinatesStructure<T> structure,
+        ElementPainter<T> painter
+    ) {}
+
+    /**
+     * A cached tile.
+     */
+    private static final class Tile {
+
+        /**
+         * Column of the tile.
+         */
+        private final int col;
+
+        /**
+         * Row of the tile.
+         */
+        private final int row;
+
+        /**
+         * Rendered image, or {@code null} if it was never rendered.
+         */
+        private WritableImage image;
+
+        /**
+         * Whether the image has to be rendered again.
+         */
+        private boolean dirty = true;
+
+        /**
+         * Last redraw during which the tile was displayed.
+         */
+        private long lastFrame = -1L;
+
+
+        /**
+         * Constructor.
+         *
+         * @param col Column of the tile.
+         * @param row Row of the tile.
+         */
+        private Tile(int col, int row) {
+            this.col = col;
+            this.row = row;
+        }
+    }
+
+
+    /**
+     * Default size of the tiles, in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /**
+     * Default maximum number of cached tiles.
+     */
+    public static final int DEFAULT_MAX_TILES = 128;
+
+    /**
+     * Default overdraw value.
+     * I.e the size of the area around a tile whose elements are also
+     * drawn on it, so that an element drawn larger than a point is not
+     * cut at the borders of the tile it is in.
+     */
+    public static final double DEFAULT_OVERDRAW = 32d;
+
+
+    /**
+     * Canvas on which the visible tiles are copied.
+     */
+    private final Canvas view;
+
+    /**
+     * Canvas on which a single tile is rendered before being snapshot.
+     */
+    private final Canvas tileCanvas;
+
+    /**
+     * Parameters of the tile snapshots.
+     */
+    private final SnapshotParameters snapshotParameters;
+
+    /**
+     * This virtualizer's structures & painters.
+     */
+    private final List<StructureToPainter<?>> pairs;
+
+    /**
+     * Cached tiles, from least to most recently used.
+     */
+    private final LinkedHashMap<Long, Tile> tiles;
+
+    /**
+     * Size of the tiles.
+     */
+    protected final int tileSize;
+
+    /**
+     * Maximum number of cached tiles, unless more are visible at once.
+     */
+    protected final int maxTiles;
+
+    /**
+     * Current maximum number of cached tiles, which is at least the
+     * number of visible tiles with a margin of one tile around the view,
+     * so that the tiles of a redraw don't evict each other.
+     */
+    private int capacity;
+
+    /**
+     * Overdraw value for this virtualizer.
+     */
+    protected final double overdraw;
+
+    /**
+     * Image of the last evicted tile, which can be reused.
+     */
+    private WritableImage spare;
+
+    /**
+     * Number of redraws so far.
+     */
+    private long frame = 0L;
+
+
+    /**
+     * Constructor with default tile size, cache size and overdraw.
+     * Drawing priority is determined by the iteration
+     * order of the given collection.
+     *
+     * @param pairs The structures and painters.
+     */
+    public TileVirtualizer(Collection<StructureToPainter<?>> pairs) {
+        this(pairs, DEFAULT_TILE_SIZE, DEFAULT_MAX_TILES, DEFAULT_OVERDRAW);
+    }
+
+    /**
+     * Constructor.
+     * Drawing priority is determined by the iteration
+     * order of the given collection.
+     *
+     * @param pairs    The structures and painters.
+     * @param tileSize Size of the tiles, in pixels.
+     * @param maxTiles Maximum number of cached tiles, exceeded while more are visible.
+     * @param overdraw Overdraw value.
+     */
+    public TileVirtualizer(Collection<StructureToPainter<?>> pairs, int tileSize, int maxTiles, double overdraw) {
+        super();
+
+        if(tileSize <= 0 || maxTiles <= 0 || overdraw < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.tileSize = tileSize;
+        this.maxTiles = maxTiles;
+        capacity = maxTiles;
+        this.overdraw = overdraw;
+        this.pairs = new ArrayList<>(pairs);
+
+        tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+                if(size() > capacity) {
+                    var t = eldest.getValue();
+                    // the view may still have to draw the image of a tile
+                    // displayed in the current redraw
+                    spare = (t.lastFrame == frame) ? null : t.image;
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        tileCanvas = new Canvas(tileSize, tileSize);
+        snapshotParameters = new SnapshotParameters();
+        snapshotParameters.setFill(Color.TRANSPARENT);
+
+        this.pairs.forEach(this::listen);
+
+        var mWidth = Bindings.createDoubleBinding(
+            () -> this.pairs.stream()
+                .map(StructureToPainter::structure)
+                .mapToDouble(CoordinatesStructure::getMaximumWidth)
+                .max()
+                .orElse(0d),
+            this.pairs.stream()
+                .map(StructureToPainter::structure)
+                .map(CoordinatesStructure::maximumWidth)
+                .toArray(Observable[]::new)
+        );
+
+        var mHeight = Bindings.createDoubleBinding(
+            () -> this.pairs.stream()
+                .map(StructureToPainter::structure)
+                .mapToDouble(CoordinatesStructure::getMaximumHeight)
+                .max()
+                .orElse(0d),
+            this.pairs.stream()
+                .map(StructureToPainter::structure)
+                .map(CoordinatesStructure::maximumHeight)
+                .toArray(Observable[]::new)
+        );
+
+        totalWidth().bind(mWidth);
+        totalHeight().bind(mHeight);
+
+        // last so that the dimension listeners don't draw before everything is set
+        view = new Canvas();
+    }
+
+
+    /**
+     * Registers the listeners which invalidate tiles on a structure.
+     *
+     * @param stp {@link StructureToPainter}.
+     * @param <T> Type of element.
+     */
+    private <T> void listen(StructureToPainter<T> stp) {
+        if(stp.structure() instanceof LayoutableStructure<T> l) {
+            l.addMoveListener(this, this::onStructureChanged);
+        }
+        if(stp.structure() instanceof MutableStructure<T> m) {
+            m.addAdditionListener(this, this::onStructureChanged);
+            m.addRemovalListener(this, this::onStructureChanged);
+        }
+    }
+
+    /**
+     * Unregisters the listeners of this virtualizer from its structures.
+     * The view is no longer updated when a structure is changed afterwards.
+     */
+    public void dispose() {
+        for(var p : pairs) {
+            if(p.structure() instanceof LayoutableStructure<?> l) {
+                l.clearMoveListeners(this);
+            }
+            if(p.structure() instanceof MutableStructure<?> m) {
+                m.clearAdditionListeners(this);
+                m.clearRemovalListeners(this);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the tiles covered by a change and redraws the
+     * view if one of them is visible.
+     *
+     * @param change The change.
+     */
+    private void onStructureChanged(StructureChange change) {
+        var tl = change.topLeft();
+        var br = change.bottomRight();
+
+        if(invalidate(tl.getX(), tl.getY(), br.getX(), br.getY())) {
+            redraw();
+        }
+    }
+
+
+    /**
+     * Redraws the view.
+     */
+    @Override
+    protected void onOffsetChanged() {
+        redraw();
+    }
+
+    /**
+     * Does nothing.
+     */
+    @Override
+    protected void onTotalChanged() {
+        // same as NodeVirtualizer, changes come through the offsets or the view
+    }
+
+    /**
+     * Resizes the view canvas and redraws the view.
+     */
+    @Override
+    protected void onViewChanged() {
+        if(view == null) {
+            return;
+        }
+
+        view.setWidth(getViewWidth());
+        view.setHeight(getViewHeight());
+        redraw();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All the cached tiles are rendered again.
+     */
+    @Override
+    public void refreshView() {
+        if(view == null) {
+            return;
+        }
+
+        for(var t : tiles.values()) {
+            t.dirty = true;
+        }
+        redraw();
+    }
+
+    /**
+     * Invalidates the tiles which contain any part of the given area,
+     * so that they are rendered again the next time they are displayed.
+     * Invalidated tiles which are currently visible are <u>not</u> redrawn
+     * by this method.
+     *
+     * @param topLeftX     Top left X coordinate.
+     * @param topLeftY     Top left Y coordinate.
+     * @param bottomRightX Bottom right X coordinate.
+     * @param bottomRightY Bottom right Y coordinate.
+     * @return {@code true} if a visible tile was invalidated.
+     */
+    public boolean invalidate(double topLeftX, double topLeftY, double bottomRightX, double bottomRightY) {
+        int minCol = tileIndex(topLeftX - overdraw);
+        int minRow = tileIndex(topLeftY - overdraw);
+        int maxCol = tileIndex(bottomRightX + overdraw);
+        int maxRow = tileIndex(bottomRightY + overdraw);
+
+        int firstCol = tileIndex(getWidthOffset());
+        int firstRow = tileIndex(getHeightOffset());
+        int lastCol = tileIndex(getWidthOffset() + getViewWidth());
+        int lastRow = tileIndex(getHeightOffset() + getViewHeight());
+
+        boolean visible = false;
+        // the cache is bounded while the area may cover any number of tiles
+        for(var t : tiles.values()) {
+            if(t.col < minCol || t.col > maxCol || t.row < minRow || t.row > maxRow) {
+                continue;
+            }
+
+            t.dirty = true;
+            if(t.col >= firstCol && t.col <= lastCol && t.row >= firstRow && t.row <= lastRow) {
+                visible = true;
+            }
+        }
+
+        return visible;
+    }
+
+
+    /**
+     * Copies the visible tiles onto the view, rendering the ones
+     * which are not cached or were invalidated.
+     */
+    private void redraw() {
+        // super sets property values before this object is completely initialized
+        if(view == null) {
+            return;
+        }
+
+        double width = getWidthOffset();
+        double height = getHeightOffset();
+        frame++;
+
+        var gc = view.getGraphicsContext2D();
+        gc.clearRect(0, 0, view.getWidth(), view.getHeight());
+
+        int firstCol = tileIndex(width);
+        int firstRow = tileIndex(height);
+        int lastCol = tileIndex(width + getViewWidth());
+        int lastRow = tileIndex(height + getViewHeight());
+        long visible = ((long) lastCol - firstCol + 3) * ((long) lastRow - firstRow + 3);
+        capacity = (int) Math.max(maxTiles, Math.min(Integer.MAX_VALUE, visible));
+
+        for(int row = firstRow; row <= lastRow; row++) {
+            for(int col = firstCol; col <= lastCol; col++) {
+                gc.drawImage(tileImage(col, row), (double) col * tileSize - width, (double) row * tileSize - height);
+            }
+        }
+    }
+
+    /**
+     * Gets the image of a tile, rendering it if needed.
+     *
+     * @param col Column of the tile.
+     * @param row Row of the tile.
+     * @return The image of the tile.
+     */
+    private WritableImage tileImage(int col, int row) {
+        long key = ((long) col << 32) | (row & 0xFFFFFFFFL);
+
+        var t = tiles.get(key);
+        if(t == null) {
+            t = new Tile(col, row);
+            tiles.put(key, t);
+        }
+
+        if(t.dirty) {
+            render(t);
+        }
+        t.lastFrame = frame;
+
+        return t.image;
+    }
+
+    /**
+     * Renders a tile.
+     *
+     * @param t The tile.
+     */
+    private void render(Tile t) {
+        double x = (double) t.col * tileSize;
+        double y = (double) t.row * tileSize;
+
+        tileCanvas.getGraphicsContext2D().clearRect(0, 0, tileSize, tileSize);
+        for(int i = 0; i < pairs.size(); i++) {
+            renderStructure(pairs.get(i), x, y);
+        }
+
+        var image = t.image;
+        if(image == null) {
+            image = spare;
+            spare = null;
+        }
+
+        // reuses the given image
+        t.image = tileCanvas.snapshot(snapshotParameters, image);
+        t.dirty = false;
+    }
+
+    /**
+     * Draws the elements of a structure on the tile canvas. The elements
+     * of an {@link ExtentStructure} are drawn if they intersect with the tile.
+     *
+     * @param stp {@link StructureToPainter}.
+     * @param x   X coordinate of the tile.
+     * @param y   Y coordinate of the tile.
+     * @param <T> Type of element.
+     */
+    private <T> void renderStructure(StructureToPainter<T> stp, double x, double y) {
+        var gc = tileCanvas.getGraphicsContext2D();
+        var painter = stp.painter();
+        Consumer<CoordinatesElement<T>> action = c -> painter.paint(gc, c, c.getX() - x, c.getY() - y);
+
+        if(stp.structure() instanceof ExtentStructure<T> s) {
+            s.forEachIntersecting(
+                x - overdraw, y - overdraw, x + tileSize + overdraw, y + tileSize + overdraw, action
+            );
+        }
+        else {
+            stp.structure().forEachBetween(
+                x - overdraw, y - overdraw, x + tileSize + overdraw, y + tileSize + overdraw, action
+            );
+        }
+    }
+
+    /**
+     * Gets the index of the column or row which contains a coordinate.
+     *
+     * @param d The coordinate.
+     * @return The index of the tile.
+     */
+    private int tileIndex(double d) {
+        return (int) Math.floor(d / tileSize);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return The virtualizer's view.
+     */
+    @Override
+    public Node getView() {
+        return view;
+    }
+}
@@ -172,5 +172,23 @@ public interface Virtualizer {
      * @return The total width property.
      */
     DoubleProperty totalWidth();
-}
 
+    /**
+     * Getter for the scale at which the view is displayed.
+     *
+     * @return The scale.
+     */
+    default double getScale() {
+        return scale().get();
+    }
+
+    /**
+     * Getter for the scale property, i.e the ratio between the size
+     * of the displayed nodes and their size in the structures.
+     * Implementations may use it to display less detailed content
+     * on zoomed out views.
+     *
+     * @return The scale property.
+     */
+    DoubleProperty scale();
+}
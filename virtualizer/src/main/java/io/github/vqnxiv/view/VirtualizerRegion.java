@@ -58,6 +58,7 @@ public class VirtualizerRegion extends AbstractAbleRegion {
         
         virtualizer.viewHeight().bind(heightProperty().divide(zoomProperty()));
         virtualizer.viewWidth().bind(widthProperty().divide(zoomProperty()));
+        virtualizer.scale().bind(zoomProperty());
 
         hBar.maxProperty().bind(virtualizer.totalWidth().subtract(virtualizer.viewWidth()));
         vBar.maxProperty().bind(virtualizer.totalHeight().subtract(virtualizer.viewHeight()));
@@ -1,5 +1,5 @@
 /**
  * All the view-related part: {@link io.github.vqnxiv.view.Virtualizer}
- * and its implementation, and {@link io.github.vqnxiv.view.VirtualizerRegion}.
+ * and its implementations, and {@link io.github.vqnxiv.view.VirtualizerRegion}.
  */
 package io.github.vqnxiv.view;
\ No newline at end of file
@@ -0,0 +1,151 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ClusterPyramidTest {
+
+
+    private record Pojo(String name) { }
+
+    Pojo one = new Pojo("one");
+    Pojo two = new Pojo("two");
+    Pojo three = new Pojo("three");
+
+    MutableMatrix<Pojo> matrix = new MutableMatrix<>(List.of());
+
+    {
+        matrix.addAllCoordinates(Map.of(
+            one, new Point2D(10d, 10d),
+            two, new Point2D(30d, 50d),
+            three, new Point2D(150d, 10d)
+        ));
+    }
+
+    ClusterPyramid<Pojo> pyramid = new ClusterPyramid<>(matrix, 100d, 3, 0.5d);
+
+    @Test
+    void aggregatesPerLevel() {
+        assertEquals(2, pyramid.level(0).size());
+        assertEquals(1, pyramid.level(1).size());
+        assertEquals(1, pyramid.level(2).size());
+
+        var c = pyramid.level(0).between(0d, 0d, 100d, 100d);
+        assertEquals(1, c.size());
+        var cluster = c.iterator().next();
+        assertEquals(2, cluster.getElement().count());
+        assertEquals(new Point2D(20d, 30d), cluster.getXY());
+        assertTrue(List.of(one, two).contains(cluster.getElement().representative()));
+        assertTrue(pyramid.level(0).containsCoordinates(cluster));
+        assertEquals(cluster, pyramid.level(0).coordinatesOf(cluster.getElement()).get());
+
+        assertEquals(3, pyramid.level(2).iterator().next().getElement().count());
+    }
+
+    @Test
+    void scales() {
+        assertEquals(-1, pyramid.levelFor(1d));
+        assertEquals(-1, pyramid.levelFor(0.5d));
+        assertEquals(0, pyramid.levelFor(0.4d));
+        assertEquals(1, pyramid.levelFor(0.2d));
+        assertEquals(2, pyramid.levelFor(0.1d));
+        assertEquals(2, pyramid.levelFor(0.001d));
+        assertEquals(0d, pyramid.minScale(2));
+    }
+
+    @Test
+    void followsMoves() {
+        var c = matrix.coordinatesOf(three).get();
+        matrix.repositionTo(c, new Point2D(50d, 50d));
+
+        assertEquals(1, pyramid.level(0).size());
+        var cluster = pyramid.level(0).iterator().next();
+        assertEquals(3, cluster.getElement().count());
+        assertEquals(new Point2D(30d, 110d / 3d), cluster.getXY());
+    }
+
+    @Test
+    void movesWithinCellsKeepClusters() {
+        var cluster = pyramid.level(0).between(0d, 0d, 100d, 100d).iterator().next().getElement();
+        var representative = cluster.representative();
+        matrix.repositionTo(matrix.coordinatesOf(one).get(), new Point2D(70d, 90d));
+
+        assertSame(cluster, pyramid.level(0).between(0d, 0d, 100d, 100d).iterator().next().getElement());
+        assertEquals(2, cluster.count());
+        assertEquals(representative, cluster.representative());
+        assertEquals(new Point2D(50d, 70d), pyramid.level(0).coordinatesOf(cluster).get().getXY());
+    }
+
+    @Test
+    void replacesRepresentativeWithoutSource() {
+        var cluster = pyramid.level(0).between(0d, 0d, 100d, 100d).iterator().next().getElement();
+        var representative = cluster.representative();
+        var other = representative.equals(one) ? two : one;
+        var c = matrix.coordinatesOf(representative).get();
+        var duplicate = new CoordinatesElement<>(representative, 20d, 20d);
+        matrix.addCoordinates(duplicate);
+
+        // the representative is still in the cell through its duplicate
+        matrix.removeCoordinates(c);
+        assertEquals(representative, cluster.representative());
+        matrix.removeCoordinates(duplicate);
+        assertEquals(other, cluster.representative());
+        assertEquals(1, cluster.count());
+    }
+
+    @Test
+    void followsAdditionsAndRemovals() {
+        matrix.addCoordinates(new Pojo("four"), new Point2D(500d, 500d));
+        assertEquals(3, pyramid.level(0).size());
+        assertEquals(2, pyramid.level(2).size());
+
+        matrix.removeValue(three);
+        assertEquals(2, pyramid.level(0).size());
+        assertTrue(pyramid.level(0).between(100d, 0d, 200d, 100d).isEmpty());
+
+        pyramid.dispose();
+        matrix.removeValue(one);
+        assertEquals(2, pyramid.level(0).size());
+    }
+
+    @Test
+    void replacesRemovedRepresentative() {
+        var cluster = pyramid.level(0).between(0d, 0d, 100d, 100d).iterator().next().getElement();
+        var removed = cluster.representative();
+        var other = removed.equals(one) ? two : one;
+        var p = matrix.coordinatesOf(other).get().getXY();
+        matrix.removeValue(removed);
+
+        assertEquals(1, cluster.count());
+        assertEquals(other, cluster.representative());
+        assertEquals(p, new Point2D(cluster.centerX(), cluster.centerY()));
+        assertEquals(new CoordinatesElement<>(cluster, p), pyramid.level(0).coordinatesOf(cluster).get());
+    }
+
+    @Test
+    void ignoresRemovalsOfElementsItDoesNotHold() {
+        pyramid.dispose();
+        var built = new ArrayList<ClusterPyramid<Pojo>>();
+        // the removal is dispatched once the pyramid was built without the element
+        matrix.batch(() -> {
+            matrix.removeValue(one);
+            built.add(new ClusterPyramid<>(matrix, 100d, 3, 0.5d));
+        });
+
+        var c = built.get(0).level(0).between(0d, 0d, 100d, 100d);
+        assertEquals(1, c.size());
+        var cluster = c.iterator().next().getElement();
+        assertEquals(1, cluster.count());
+        assertEquals(two, cluster.representative());
+        assertEquals(new Point2D(30d, 50d), new Point2D(cluster.centerX(), cluster.centerY()));
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CoalescingDispatcherTest {
+
+    private record Pojo(String name) { }
+
+    Pojo one = new Pojo("one");
+    Pojo two = new Pojo("two");
+
+    MutableMatrix<Pojo> matrix = new MutableMatrix<>(List.of());
+
+    List<Runnable> tasks = new ArrayList<>();
+
+    CoalescingDispatcher<Pojo> dispatcher = new CoalescingDispatcher<>(matrix, tasks::add);
+
+    List<StructureChange.Move<Pojo>> moves = new ArrayList<>();
+    List<StructureChange.Addition<Pojo>> additions = new ArrayList<>();
+    List<StructureChange.Removal<Pojo>> removals = new ArrayList<>();
+
+    {
+        dispatcher.addMoveListener(this, moves::add);
+        dispatcher.addAdditionListener(this, additions::add);
+        dispatcher.addRemovalListener(this, removals::add);
+    }
+
+
+    private void runTasks() {
+        var l = new ArrayList<>(tasks);
+        tasks.clear();
+        l.forEach(Runnable::run);
+    }
+
+    @Test
+    void mergesAdditions() {
+        for(int i = 0; i < 1_000; i++) {
+            matrix.addCoordinates(new Pojo(String.valueOf(i)), new Point2D(i, 2 * i));
+        }
+        assertTrue(additions.isEmpty());
+        assertEquals(1, tasks.size());
+
+        runTasks();
+        assertEquals(1, additions.size());
+        var e = additions.get(0);
+        assertEquals(1_000, e.elements().size());
+        assertSame(matrix, e.structure());
+        assertEquals(new Point2D(0d, 0d), e.topLeft());
+        assertEquals(new Point2D(999d, 1_998d), e.bottomRight());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void mergesMoves() {
+        matrix.addCoordinates(one, new Point2D(10d, 10d));
+        matrix.addCoordinates(two, new Point2D(20d, 20d));
+        runTasks();
+
+        var c1 = matrix.coordinatesOf(one).get();
+        var c2 = matrix.coordinatesOf(two).get();
+        matrix.repositionTo(c1, new Point2D(100d, 100d));
+        matrix.repositionTo(c1, new Point2D(200d, 50d));
+        matrix.repositionTo(c2, new Point2D(30d, 30d));
+        matrix.repositionTo(c2, new Point2D(20d, 20d));
+        assertTrue(moves.isEmpty());
+
+        runTasks();
+        assertEquals(1, moves.size());
+        var e = moves.get(0);
+        assertEquals(
+            Map.of(new CoordinatesElement<>(one, 10d, 10d), new Point2D(200d, 50d)),
+            e.elements()
+        );
+        assertEquals(new Point2D(10d, 10d), e.topLeft());
+        assertEquals(new Point2D(200d, 100d), e.bottomRight());
+    }
+
+    @Test
+    void cancelsAddedThenRemoved() {
+        matrix.addCoordinates(one, new Point2D(10d, 10d));
+        matrix.addCoordinates(two, new Point2D(20d, 20d));
+        matrix.removeValue(one);
+
+        runTasks();
+        assertTrue(removals.isEmpty());
+        assertEquals(1, additions.size());
+        assertEquals(List.of(new CoordinatesElement<>(two, 20d, 20d)), additions.get(0).elements());
+    }
+
+    @Test
+    void foldsMovesIntoAdditions() {
+        matrix.addCoordinates(one, new Point2D(10d, 10d));
+        matrix.repositionTo(matrix.coordinatesOf(one).get(), new Point2D(100d, 50d));
+
+        runTasks();
+        assertTrue(moves.isEmpty());
+        assertEquals(1, additions.size());
+        var e = additions.get(0);
+        assertEquals(List.of(new CoordinatesElement<>(one, 100d, 50d)), e.elements());
+        assertEquals(new Point2D(100d, 50d), e.bottomRight());
+    }
+
+    @Test
+    void dropsChangesOfRemovedElements() {
+        matrix.addCoordinates(two, new Point2D(20d, 20d));
+        runTasks();
+        additions.clear();
+        
+        matrix.addCoordinates(one, new Point2D(10d, 10d));
+        matrix.repositionTo(matrix.coordinatesOf(one).get(), new Point2D(100d, 50d));
+        matrix.repositionTo(matrix.coordinatesOf(two).get(), new Point2D(200d, 60d));
+        matrix.removeValue(one);
+        matrix.removeValue(two);
+
+        runTasks();
+        assertTrue(moves.isEmpty());
+        assertTrue(additions.isEmpty());
+        assertEquals(1, removals.size());
+        // the move was never dispatched
+        assertEquals(List.of(new CoordinatesElement<>(two, 20d, 20d)), removals.get(0).elements());
+    }
+
+    @Test
+    void removesMovedElementsFromWhereTheyWere() {
+        matrix.addCoordinates(one, new Point2D(10d, 10d));
+        runTasks();
+        additions.clear();
+        
+        matrix.repositionTo(matrix.coordinatesOf(one).get(), new Point2D(300d, 300d));
+        matrix.removeValue(one);
+
+        runTasks();
+        assertTrue(moves.isEmpty());
+        assertEquals(1, removals.size());
+        var e = removals.get(0);
+        assertEquals(List.of(new CoordinatesElement<>(one, 10d, 10d)), e.elements());
+        assertEquals(new Point2D(10d, 10d), e.topLeft());
+    }
+
+    @Test
+    void disposeStopsListening() {
+        dispatcher.dispose();
+        matrix.addCoordinates(one, new Point2D(10d, 10d));
+        assertTrue(tasks.isEmpty());
+
+        dispatcher.flush();
+        assertTrue(additions.isEmpty());
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.RandomLayout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CompactCoordinatesMatrixTest {
+
+    private record Pojo(String name) { }
+
+    List<Pojo> l = List.of(new Pojo("one"), new Pojo("two"), new Pojo("three"));
+
+    CompactCoordinatesMatrix<Pojo> matrix = new CompactCoordinatesMatrix<>(l);
+
+
+    @Test
+    void iteratorGetsAllElementsAndEnds() {
+        var l2 = new ArrayList<Pojo>();
+        var itr = matrix.iterator();
+        while(itr.hasNext()) {
+            l2.add(itr.next().getElement());
+        }
+
+        assertEquals(l.size(), l2.size());
+        assertTrue(l2.containsAll(l));
+        assertThrows(NoSuchElementException.class, itr::next);
+    }
+
+    @Test
+    void copiesStructure() {
+        var source = new CoordinatesMatrix<>(l, s -> new RandomLayout<>(s, 0d, 0d, 1000d, 1000d));
+        matrix = new CompactCoordinatesMatrix<>(source);
+
+        assertEquals(source.size(), matrix.size());
+        assertEquals(source.getMinimumWidth(), matrix.getMinimumWidth());
+        assertEquals(source.getMaximumHeight(), matrix.getMaximumHeight());
+        source.forEach(c -> assertTrue(matrix.containsCoordinates(c)));
+        assertFalse(matrix.containsCoordinates(new CoordinatesElement<>(new Pojo("one"), -1d, -1d)));
+    }
+
+    @Test
+    void betweenMatchesMatrix() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 2000; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        var source = new CoordinatesMatrix<>(l2, s -> new RandomLayout<>(s, 0d, 0d, 1000d, 1000d));
+        matrix = new CompactCoordinatesMatrix<>(source);
+
+        var expected = source.between(100d, 150d, 600d, 420d);
+        var actual = matrix.between(100d, 150d, 600d, 420d);
+
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+
+        var view = matrix.indicesBetween(100d, 150d, 600d, 420d);
+        for(int i = 0; i < view.size(); i++) {
+            int index = view.indexAt(i);
+            assertTrue(matrix.getX(index) >= 100d && matrix.getX(index) <= 600d);
+            assertTrue(matrix.getY(index) >= 150d && matrix.getY(index) <= 420d);
+        }
+
+        assertEquals(
+            source.between(0d, 0d, 1000d, 1000d, p -> p.name().startsWith("1")).size(),
+            matrix.between(0d, 0d, 1000d, 1000d, p -> p.name().startsWith("1")).size()
+        );
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ConcurrentMutableMatrixTest {
+
+
+    private record Pojo(String name) { }
+
+    List<Pojo> l = List.of(new Pojo("one"), new Pojo("two"), new Pojo("three"));
+
+    ConcurrentMutableMatrix<Pojo> matrix = new ConcurrentMutableMatrix<>(l);
+
+    @Test
+    void addAndRemove() {
+        var p = new Pojo("four");
+        var pC = new Point2D(500d, 500d);
+        matrix.addCoordinates(p, pC);
+
+        assertEquals(4, matrix.size());
+        assertTrue(matrix.containsCoordinates(new CoordinatesElement<>(p, pC)));
+        assertEquals(500d, matrix.maximumWidth().get());
+
+        assertTrue(matrix.removeValue(p));
+        assertFalse(matrix.removeValue(p));
+        assertEquals(3, matrix.size());
+        assertEquals(0d, matrix.maximumWidth().get());
+    }
+
+    @Test
+    void growsTowardsNegativeCoordinates() {
+        var far = new CoordinatesElement<>(new Pojo("far"), 25_000d, 1_000_000d);
+        var neg = new CoordinatesElement<>(new Pojo("neg"), -3_000d, -40d);
+        matrix.addCoordinates(far);
+        matrix.addCoordinates(neg);
+
+        assertEquals(5, matrix.size());
+        assertEquals(-3_000d, matrix.minimumWidth().get());
+        assertEquals(-40d, matrix.minimumHeight().get());
+        assertEquals(1_000_000d, matrix.maximumHeight().get());
+        assertEquals(List.of(neg), matrix.between(-3_500d, -50d, -2_000d, 0d));
+        assertEquals(List.of(far), matrix.between(20_000d, 900_000d, 30_000d, 1_100_000d));
+        assertEquals(3, matrix.between(0d, 0d, 1d, 1d).size());
+    }
+
+    @Test
+    void reposition() {
+        var c = matrix.coordinatesOf(l.get(0)).get();
+        var cp = new CoordinatesElement<>(c);
+        var ev = new AtomicReference<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, ev::set);
+
+        matrix.repositionTo(c, new Point2D(700d, 300d));
+        assertEquals(new Point2D(700d, 300d), matrix.coordinatesOf(l.get(0)).get().getXY());
+        assertFalse(matrix.containsCoordinates(cp));
+        assertEquals(1, matrix.between(650d, 250d, 750d, 350d).size());
+        assertNotNull(ev.get());
+        assertEquals(new Point2D(700d, 300d), ev.get().elements().get(cp));
+    }
+
+    @Test
+    void movesDoNotModifyReadElements() {
+        var c = matrix.coordinatesOf(l.get(0)).get();
+        var read = matrix.between(0d, 0d, 1d, 1d);
+
+        matrix.repositionTo(c, new Point2D(0.5d, 0.25d));
+        matrix.repositionTo(matrix.coordinatesOf(l.get(1)).get(), new Point2D(800d, 800d));
+        for(var r : read) {
+            assertEquals(0d, r.getX());
+            assertEquals(0d, r.getY());
+        }
+        assertEquals(new Point2D(0.5d, 0.25d), matrix.coordinatesOf(l.get(0)).get().getXY());
+        assertEquals(800d, matrix.maximumWidth().get());
+    }
+
+    @Test
+    void iteratorIsWeaklyConsistent() {
+        for(int i = 0; i < 50; i++) {
+            matrix.addCoordinates(new Pojo("p" + i), new Point2D(i * 20d, i * 20d));
+        }
+
+        int n = 0;
+        for(var it = matrix.iterator(); it.hasNext(); n++) {
+            var c = it.next();
+            matrix.addCoordinates(new Pojo("x" + n), new Point2D(-1d, -1d));
+            if(c.getElement().name().startsWith("p")) {
+                it.remove();
+            }
+        }
+
+        assertEquals(53, n);
+        assertEquals(3 + 50 + n - 50, matrix.size());
+        assertEquals(0, matrix.between(0d, 0d, 1_000d, 1_000d, p -> p.name().startsWith("p")).size());
+    }
+
+    @Test
+    void concurrentWritersAndReaders() throws Exception {
+        int writers = 4;
+        int perWriter = 2_000;
+        var pool = Executors.newFixedThreadPool(writers + 1);
+        var running = new AtomicBoolean(true);
+        var seen = new AtomicInteger();
+
+        try {
+            var reader = pool.submit(() -> {
+                while(running.get()) {
+                    for(var c : matrix.between(-5_000d, -5_000d, 5_000d, 5_000d)) {
+                        assertNotNull(c.getElement());
+                    }
+                    seen.incrementAndGet();
+                }
+            });
+
+            var futures = new ArrayList<Future<?>>();
+            for(int w = 0; w < writers; w++) {
+                int id = w;
+                futures.add(pool.submit(() -> {
+                    var mine = new ArrayList<CoordinatesElement<Pojo>>();
+                    for(int i = 0; i < perWriter; i++) {
+                        var c = new CoordinatesElement<>(new Pojo(id + "-" + i),
+                            (i * 37 % 4_000) - 2_000d, (i * 53 % 4_000) - 2_000d);
+                        matrix.addCoordinates(c);
+                        mine.add(c);
+                    }
+                    for(int i = 0; i < perWriter; i += 2) {
+                        var c = mine.get(i);
+                        matrix.repositionTo(c, new Point2D(-c.getX(), -c.getY()));
+                    }
+                    for(int i = 1; i < perWriter; i += 2) {
+                        assertTrue(matrix.removeCoordinates(mine.get(i)));
+                    }
+                }));
+            }
+
+            for(var f : futures) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            reader.get(30, TimeUnit.SECONDS);
+        }
+        finally {
+            shutdown(pool);
+        }
+
+        assertTrue(seen.get() > 0);
+        assertEquals(3 + writers * perWriter / 2, matrix.size());
+        assertEquals(matrix.size(), matrix.between(-5_000d, -5_000d, 5_000d, 5_000d).size());
+
+        double minX = 0d;
+        double maxY = 0d;
+        for(var c : matrix) {
+            minX = Math.min(minX, c.getX());
+            maxY = Math.max(maxY, c.getY());
+        }
+        assertEquals(minX, matrix.minimumWidth().get());
+        assertEquals(maxY, matrix.maximumHeight().get());
+    }
+
+
+    private static void shutdown(ExecutorService pool) throws InterruptedException {
+        pool.shutdownNow();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -8,6 +8,7 @@ import io.github.vqnxiv.structure.LayoutableStructure;
 import javafx.geometry.Point2D;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
@@ -76,4 +77,20 @@ class CoordinatesListTest {
         assertTrue(cList.containsValue(c2.getElement()));
         assertFalse(cList.containsCoordinates(c2));
     }
+
+    @Test
+    void forEachBetweenMatchesBetween() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 500; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        cList = new CoordinatesList<>(l2, s -> new RandomLayout<>(s, 0d, 0d, 1000d, 1000d));
+        
+        var expected = cList.between(120d, 80d, 640d, 390d);
+        var actual = new ArrayList<CoordinatesElement<Pojo>>();
+        cList.forEachBetween(120d, 80d, 640d, 390d, actual::add);
+
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+    }
 }
@@ -9,9 +9,12 @@ import javafx.geometry.Point2D;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -103,5 +106,122 @@ class CoordinatesMatrixTest {
         assertTrue(matrix.containsValue(c2.getElement()));
         assertFalse(matrix.containsCoordinates(c2));
     }
-    
+
+    @Test
+    void forEachBetweenMatchesBetween() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 500; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        matrix = new CoordinatesMatrix<>(l2, s -> new RandomLayout<>(s, 0d, 0d, 1000d, 1000d));
+        
+        var expected = matrix.between(120d, 80d, 640d, 390d);
+        var actual = new ArrayList<CoordinatesElement<Pojo>>();
+        matrix.forEachBetween(120d, 80d, 640d, 390d, actual::add);
+
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+    }
+
+    @Test
+    void bulkLoadMatchesList() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 20_000; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        matrix = new CoordinatesMatrix<>(l2, s -> new RandomLayout<>(s, 0d, 0d, 5000d, 5000d));
+        var list = new CoordinatesList<>(matrix);
+        
+        assertEquals(l2.size(), matrix.size());
+        list.forEach(c -> assertTrue(matrix.containsCoordinates(c)));
+        
+        var copy = new CoordinatesMatrix<>(matrix);
+        assertEquals(matrix.size(), copy.size());
+        
+        var expected = list.between(1200d, 800d, 3600d, 2900d);
+        var actual = copy.between(1200d, 800d, 3600d, 2900d);
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+    }
+
+    @Test
+    void spliteratorSplitsExactly() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 20_000; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        matrix = new CoordinatesMatrix<>(l2, s -> new RandomLayout<>(s, 0d, 0d, 5000d, 5000d));
+
+        var s1 = matrix.spliterator();
+        assertEquals(20_000, s1.getExactSizeIfKnown());
+        var s2 = s1.trySplit();
+        var s3 = s1.trySplit();
+        assertEquals(10_000, s2.getExactSizeIfKnown());
+        assertEquals(5_000, s3.getExactSizeIfKnown());
+        assertEquals(5_000, s1.getExactSizeIfKnown());
+
+        var seen = new HashSet<CoordinatesElement<Pojo>>();
+        s2.forEachRemaining(seen::add);
+        while(s3.tryAdvance(seen::add)) { }
+        s1.forEachRemaining(seen::add);
+        assertEquals(20_000, seen.size());
+
+        double sum = 0d;
+        for(var c : matrix) {
+            sum += c.getX();
+        }
+        assertEquals(sum, matrix.parallelStream().mapToDouble(CoordinatesElement::getX).sum(), 1e-6);
+        assertEquals(matrix.size(), matrix.parallelStream().distinct().count());
+    }
+
+    @Test
+    void streamBetweenMatchesBetween() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 20_000; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        matrix = new CoordinatesMatrix<>(l2, s -> new RandomLayout<>(s, 0d, 0d, 5000d, 5000d));
+
+        var expected = matrix.between(1200d, 800d, 3600d, 2900d);
+        var actual = matrix.streamBetween(1200d, 800d, 3600d, 2900d).parallel().collect(Collectors.toList());
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+        assertEquals(0, matrix.streamBetween(6000d, 6000d, 7000d, 7000d).count());
+
+        var list = new CoordinatesList<>(matrix);
+        assertEquals(expected.size(), list.streamBetween(1200d, 800d, 3600d, 2900d).count());
+        assertEquals(matrix.size(), list.parallelStream().count());
+    }
+
+    @Test
+    void countAndDensityMatchBetween() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 20_000; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        matrix = new CoordinatesMatrix<>(l2, s -> new RandomLayout<>(s, 0d, 0d, 5000d, 5000d));
+        var list = new CoordinatesList<>(matrix);
+
+        double[][] areas = {
+            { 1200d, 800d, 3600d, 2900d },
+            { -100d, -100d, 6000d, 6000d },
+            { 10d, 10d, 30d, 4000d },
+            { 6000d, 6000d, 7000d, 7000d }
+        };
+        for(var a : areas) {
+            assertEquals(matrix.between(a[0], a[1], a[2], a[3]).size(), matrix.countBetween(a[0], a[1], a[2], a[3]));
+            assertEquals(list.countBetween(a[0], a[1], a[2], a[3]), matrix.countBetween(a[0], a[1], a[2], a[3]));
+
+            for(int n : new int[] { 1, 3, 16, 100 }) {
+                assertArrayEquals(
+                    list.densityGrid(a[0], a[1], a[2], a[3], n, n + 1), 
+                    matrix.densityGrid(a[0], a[1], a[2], a[3], n, n + 1)
+                );
+            }
+        }
+        
+        int[] grid = matrix.densityGrid(new Point2D(0d, 0d), new Point2D(5000d, 5000d), 4, 2);
+        assertEquals(matrix.size(), Arrays.stream(grid).sum());
+        assertThrows(IllegalArgumentException.class, () -> matrix.densityGrid(0d, 0d, 1d, 1d, 0, 1));
+    }
 }
@@ -0,0 +1,144 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.AbstractLayout;
+import io.github.vqnxiv.layout.RandomLayout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CoordinatesQuadTreeTest {
+    
+    private record Pojo(String name) { }
+    
+    List<Pojo> l = List.of(new Pojo("one"), new Pojo("two"), new Pojo("three")); 
+    
+    CoordinatesQuadTree<Pojo> tree = new CoordinatesQuadTree<>(l);
+    
+    
+    private class PojoLayout extends AbstractLayout<Pojo> {
+
+        /**
+         * Constructor.
+         *
+         * @param s Structure.
+         */
+        protected PojoLayout(LayoutableStructure<Pojo> s) {
+            super(s);
+        }
+
+        /**
+         * Applies this layout to its structure.
+         */
+        @Override
+        public void apply() {
+            var m = new HashMap<CoordinatesElement<Pojo>, Point2D>();
+            for(var c : getStructure()) {
+                m.put(c, new Point2D(10d, 10d));
+            }
+            
+            getStructure().repositionAllTo(m);
+        }
+    }
+    
+    
+    @Test
+    void initialLayout() {
+        tree = new CoordinatesQuadTree<>(l, PojoLayout::new);
+        
+        assertEquals(10d, tree.getMinimumWidth());
+        assertEquals(10d, tree.getMinimumHeight());
+        assertEquals(10d, tree.getMaximumWidth());
+        assertEquals(10d, tree.getMaximumHeight());
+        
+        tree.forEach(
+            c -> assertEquals(c.getXY(), new Point2D(10d, 10d))
+        );
+    }
+    
+    @Test
+    void iteratorGetsAllElementsAndEnds() {
+        var l2 = new ArrayList<Pojo>();
+        for(var e : tree) {
+            l2.add(e.getElement());
+        }
+
+        assertEquals(l.size(), l2.size());
+        assertTrue(l.containsAll(l2));
+        assertTrue(l2.containsAll(l));
+    }
+    
+    @Test
+    void hasNext() {
+        var itr = tree.iterator();
+        
+        for(int i = 0; i < l.size(); i++) {
+            assertTrue(itr.hasNext());
+            assertDoesNotThrow(itr::next);
+        }
+        
+        assertFalse(itr.hasNext());
+        assertThrows(NoSuchElementException.class, itr::next);
+    }
+
+    @Test
+    void containsTest() {
+        tree = new CoordinatesQuadTree<>(l, RandomLayout::new);
+        var c = tree.iterator().next();
+        var c2 = new CoordinatesElement<>(c);
+        c2.setX(c.getX() / 2);
+
+        assertTrue(tree.containsCoordinates(c));
+        assertTrue(tree.containsValue(c2.getElement()));
+        assertFalse(tree.containsCoordinates(c2));
+    }
+
+    @Test
+    void splitsAndFindsBetween() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 500; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        tree = new CoordinatesQuadTree<>(l2, 1000d, 1000d, 4);
+        var m = new LayoutableQuadTree<>(tree);
+        
+        var itr = m.iterator();
+        int i = 0;
+        while(itr.hasNext()) {
+            itr.next();
+            itr.reposition(i % 50 * 10d, i / 50 * 10d);
+            i++;
+        }
+
+        assertEquals(500, m.size());
+        assertEquals(0d, m.getMinimumWidth());
+        assertEquals(490d, m.getMaximumWidth());
+        assertEquals(90d, m.getMaximumHeight());
+        
+        var b = m.between(95d, 15d, 205d, 35d);
+        assertEquals(11 * 2, b.size());
+        b.forEach(c -> assertTrue(c.isIn(95d, 15d, 205d, 35d)));
+    }
+    
+    @Test
+    void growsTowardsNegativeCoordinates() {
+        var m = new LayoutableQuadTree<>(l);
+        var c = m.iterator().next();
+        m.repositionTo(c, -2500d, -40d);
+
+        assertEquals(-2500d, m.getMinimumWidth());
+        assertEquals(-40d, m.getMinimumHeight());
+        assertTrue(m.containsCoordinates(new CoordinatesElement<>(c.getElement(), -2500d, -40d)));
+        assertEquals(1, m.between(-3000d, -50d, -1000d, 0d).size());
+        assertEquals(3, m.between(-3000d, -50d, 10d, 10d).size());
+    }
+}
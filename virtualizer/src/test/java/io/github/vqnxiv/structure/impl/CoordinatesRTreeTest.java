@@ -0,0 +1,213 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.AbstractLayout;
+import io.github.vqnxiv.layout.RandomLayout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.LayoutableStructure;
+import io.github.vqnxiv.structure.SizedCoordinatesElement;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CoordinatesRTreeTest {
+    
+    private record Pojo(String name) { }
+    
+    List<Pojo> l = List.of(new Pojo("one"), new Pojo("two"), new Pojo("three")); 
+    
+    CoordinatesRTree<Pojo> tree = new CoordinatesRTree<>(l);
+    
+    
+    private class PojoLayout extends AbstractLayout<Pojo> {
+
+        /**
+         * Constructor.
+         *
+         * @param s Structure.
+         */
+        protected PojoLayout(LayoutableStructure<Pojo> s) {
+            super(s);
+        }
+
+        /**
+         * Applies this layout to its structure.
+         */
+        @Override
+        public void apply() {
+            var m = new HashMap<CoordinatesElement<Pojo>, Point2D>();
+            for(var c : getStructure()) {
+                m.put(c, new Point2D(10d, 10d));
+            }
+            
+            getStructure().repositionAllTo(m);
+        }
+    }
+    
+    
+    @Test
+    void initialLayout() {
+        tree = new CoordinatesRTree<>(l, PojoLayout::new);
+        
+        assertEquals(10d, tree.getMinimumWidth());
+        assertEquals(10d, tree.getMinimumHeight());
+        assertEquals(10d, tree.getMaximumWidth());
+        assertEquals(10d, tree.getMaximumHeight());
+        
+        tree.forEach(
+            c -> assertEquals(c.getXY(), new Point2D(10d, 10d))
+        );
+    }
+    
+    @Test
+    void iteratorGetsAllElementsAndEnds() {
+        var l2 = new ArrayList<Pojo>();
+        for(var e : tree) {
+            l2.add(e.getElement());
+        }
+
+        assertEquals(l.size(), l2.size());
+        assertTrue(l.containsAll(l2));
+        assertTrue(l2.containsAll(l));
+    }
+    
+    @Test
+    void hasNext() {
+        var itr = tree.iterator();
+        
+        for(int i = 0; i < l.size(); i++) {
+            assertTrue(itr.hasNext());
+            assertDoesNotThrow(itr::next);
+        }
+        
+        assertFalse(itr.hasNext());
+        assertThrows(NoSuchElementException.class, itr::next);
+    }
+
+    @Test
+    void containsTest() {
+        tree = new CoordinatesRTree<>(l, RandomLayout::new);
+        var c = tree.iterator().next();
+        var c2 = new CoordinatesElement<>(c);
+        c2.setX(c.getX() / 2);
+
+        assertTrue(tree.containsCoordinates(c));
+        assertTrue(tree.containsValue(c2.getElement()));
+        assertFalse(tree.containsCoordinates(c2));
+    }
+
+    @Test
+    void splitsAndFindsBetween() {
+        var l2 = new ArrayList<Pojo>();
+        for(int i = 0; i < 500; i++) {
+            l2.add(new Pojo(String.valueOf(i)));
+        }
+        tree = new CoordinatesRTree<>(l2, 4);
+        var m = new LayoutableRTree<>(tree);
+        
+        var itr = m.iterator();
+        int i = 0;
+        while(itr.hasNext()) {
+            itr.next();
+            itr.reposition(i % 50 * 10d, i / 50 * 10d);
+            i++;
+        }
+
+        assertEquals(500, m.size());
+        assertEquals(0d, m.getMinimumWidth());
+        assertEquals(490d, m.getMaximumWidth());
+        assertEquals(90d, m.getMaximumHeight());
+        
+        var b = m.between(95d, 15d, 205d, 35d);
+        assertEquals(11 * 2, b.size());
+        b.forEach(c -> assertTrue(c.isIn(95d, 15d, 205d, 35d)));
+    }
+    
+    @Test
+    void negativeCoordinates() {
+        var m = new LayoutableRTree<>(l);
+        var c = m.iterator().next();
+        m.repositionTo(c, -2500d, -40d);
+
+        assertEquals(-2500d, m.getMinimumWidth());
+        assertEquals(-40d, m.getMinimumHeight());
+        assertTrue(m.containsCoordinates(new CoordinatesElement<>(c.getElement(), -2500d, -40d)));
+        assertEquals(1, m.between(-3000d, -50d, -1000d, 0d).size());
+        assertEquals(3, m.between(-3000d, -50d, 10d, 10d).size());
+    }
+    
+    @Test
+    void findsIntersectingExtents() {
+        var m = new MutableRTree<>(List.<Pojo>of(), 4);
+        var wide = new SizedCoordinatesElement<>(new Pojo("wide"), 0d, 0d, 500d, 10d);
+        var tall = new SizedCoordinatesElement<>(new Pojo("tall"), 900d, 0d, 10d, 500d);
+        m.addCoordinates(wide);
+        m.addCoordinates(tall);
+        for(int i = 0; i < 100; i++) {
+            m.addCoordinates(new Pojo(String.valueOf(i)), new Point2D(i * 10d, 700d));
+        }
+
+        // corners are outside of the area, only the extents are in it
+        assertEquals(List.of(wide), new ArrayList<>(m.intersecting(400d, 5d, 450d, 100d)));
+        assertEquals(List.of(tall), new ArrayList<>(m.intersecting(850d, 200d, 950d, 300d)));
+        assertTrue(m.between(400d, 5d, 450d, 100d).isEmpty());
+        assertEquals(6, m.intersecting(480d, 0d, 520d, 700d).size());
+        m.intersecting(480d, 0d, 520d, 700d).forEach(c -> assertTrue(c.intersects(480d, 0d, 520d, 700d)));
+
+        assertEquals(990d, m.getMaximumWidth());
+        assertEquals(700d, m.getMaximumHeight());
+        
+        m.repositionTo(wide, 0d, 200d);
+        assertTrue(m.intersecting(400d, 5d, 450d, 100d).isEmpty());
+        assertEquals(1, m.intersecting(400d, 205d, 450d, 205d).size());
+        assertEquals(500d, m.intersecting(400d, 205d, 450d, 205d).iterator().next().getWidth());
+    }
+    
+    @Test
+    void staysConsistentThroughRemovals() {
+        var m = new MutableRTree<>(List.<Pojo>of(), 4);
+        var added = new ArrayList<CoordinatesElement<Pojo>>();
+        for(int i = 0; i < 400; i++) {
+            added.add(new SizedCoordinatesElement<>(new Pojo(String.valueOf(i)), i % 20 * 50d, i / 20 * 50d, 30d, 30d));
+        }
+        m.addAllCoordinates(added);
+        
+        for(int i = 0; i < added.size(); i += 2) {
+            assertTrue(m.removeCoordinates(added.get(i)));
+        }
+
+        assertEquals(200, m.size());
+        for(int i = 0; i < added.size(); i++) {
+            assertEquals(i % 2 == 1, m.containsCoordinates(added.get(i)));
+        }
+        // even indices are the even columns
+        assertEquals(50, m.intersecting(0d, 0d, 480d, 480d).size());
+        assertEquals(50d, m.getMinimumWidth());
+        assertEquals(980d, m.getMaximumWidth());
+    }
+    
+    @Test
+    void moveEventsKeepExtents() {
+        var m = new MutableRTree<>(List.<Pojo>of(), 4);
+        var wide = new SizedCoordinatesElement<>(new Pojo("wide"), 0d, 0d, 500d, 10d);
+        m.addCoordinates(wide);
+        AtomicReference<StructureChange.Move<Pojo>> ev = new AtomicReference<>();
+        m.addMoveListener(this, ev::set);
+        
+        m.repositionTo(wide, 100d, 200d);
+        var old = ev.get().elements().keySet().iterator().next();
+        assertInstanceOf(SizedCoordinatesElement.class, old);
+        assertEquals(0d, old.getX());
+        assertEquals(500d, old.getWidth());
+        assertEquals(10d, old.getHeight());
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.RandomLayout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.CoordinatesStructure;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CoordinatesSnapshotTest {
+
+    private record Pojo(String name) { }
+
+    CoordinatesSnapshot.ElementCodec<Pojo> codec = new CoordinatesSnapshot.ElementCodec<>() {
+        @Override
+        public byte[] encode(Pojo element) {
+            return element.name().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Pojo decode(ByteBuffer payload) {
+            return new Pojo(StandardCharsets.UTF_8.decode(payload).toString());
+        }
+    };
+
+    @TempDir
+    Path dir;
+
+
+    private List<Pojo> pojos(int n) {
+        var l = new ArrayList<Pojo>(n);
+        for(int i = 0; i < n; i++) {
+            l.add(new Pojo(String.valueOf(i)));
+        }
+        return l;
+    }
+
+    private void assertSameContent(CoordinatesStructure<Pojo> expected, CoordinatesMatrix<Pojo> actual) {
+        assertEquals(expected.size(), actual.size());
+        var s = new HashSet<CoordinatesElement<Pojo>>();
+        actual.forEach(s::add);
+        expected.forEach(c -> assertTrue(s.contains(c)));
+        assertEquals(expected.getMinimumWidth(), actual.getMinimumWidth());
+        assertEquals(expected.getMinimumHeight(), actual.getMinimumHeight());
+        assertEquals(expected.getMaximumWidth(), actual.getMaximumWidth());
+        assertEquals(expected.getMaximumHeight(), actual.getMaximumHeight());
+
+        var b = expected.between(100d, 150d, 600d, 420d);
+        var a = actual.between(100d, 150d, 600d, 420d);
+        assertEquals(b.size(), a.size());
+        assertTrue(a.containsAll(b));
+    }
+
+    @Test
+    void roundTripsMatrix() throws IOException {
+        var source = new CoordinatesMatrix<>(pojos(20_000), s -> new RandomLayout<>(s, 0d, 0d, 1000d, 1000d));
+        var file = dir.resolve("matrix.snapshot");
+
+        CoordinatesSnapshot.save(source, file, codec);
+        var loaded = CoordinatesSnapshot.load(file, codec);
+
+        assertSameContent(source, loaded);
+        assertEquals(source.rowNumber(), loaded.rowNumber());
+        assertEquals(source.colNumber(), loaded.colNumber());
+    }
+
+    @Test
+    void roundTripsOtherStructures() throws IOException {
+        var source = new MutableQuadTree<>(pojos(2_000));
+        new RandomLayout<>(source, 0d, 0d, 5000d, 3000d).apply();
+        source.addCoordinates(new Pojo("negative"), new Point2D(-50d, -20d));
+        var file = dir.resolve("tree.snapshot");
+
+        CoordinatesSnapshot.save(source, file, codec);
+        var loaded = CoordinatesSnapshot.load(file, codec);
+
+        assertSameContent(source, loaded);
+        assertEquals(new CoordinatesElement<>(new Pojo("negative"), -50d, -20d), loaded.coordinatesOf(new Pojo("negative")).get());
+    }
+
+    @Test
+    void roundTripsEmptyStructure() throws IOException {
+        var file = dir.resolve("empty.snapshot");
+        CoordinatesSnapshot.save(new CoordinatesMatrix<>(List.<String>of()), file, CoordinatesSnapshot.ElementCodec.utf8());
+        var loaded = CoordinatesSnapshot.load(file, CoordinatesSnapshot.ElementCodec.utf8());
+
+        assertEquals(0, loaded.size());
+        assertTrue(loaded.between(0d, 0d, 1000d, 1000d).isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidFiles() throws IOException {
+        var file = dir.resolve("invalid.snapshot");
+        Files.write(file, new byte[] { 1, 2, 3 });
+        assertThrows(IOException.class, () -> CoordinatesSnapshot.load(file, codec));
+
+        var source = new CoordinatesMatrix<>(pojos(100), s -> new RandomLayout<>(s, 0d, 0d, 1000d, 1000d));
+        CoordinatesSnapshot.save(source, file, codec);
+        var bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertThrows(IOException.class, () -> CoordinatesSnapshot.load(file, codec));
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
@@ -192,4 +193,71 @@ class LayoutableMatrixTest {
         matrix.repositionTo(p, 200d, 200d);
         assertNull(cRef.get());
     }
+
+    @Test
+    void relayoutEventIsCompact() {
+        var events = new ArrayList<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, events::add);
+
+        var m = new HashMap<CoordinatesElement<Pojo>, Point2D>();
+        var old = new HashMap<Pojo, Point2D>();
+        for(var c : matrix) {
+            old.put(c.getElement(), c.getXY());
+            m.put(c, new Point2D(c.getX() + 10d, c.getY() + 20d));
+        }
+        matrix.repositionAllTo(m);
+
+        assertEquals(1, events.size());
+        var e = events.get(0);
+        assertTrue(e.movedAll());
+        assertEquals(3, e.size());
+
+        var seen = new ArrayList<Pojo>();
+        e.forEachMoved((p, oldX, oldY, newX, newY) -> {
+            seen.add(p);
+            assertEquals(old.get(p), new Point2D(oldX, oldY));
+            assertEquals(new Point2D(oldX + 10d, oldY + 20d), new Point2D(newX, newY));
+        });
+        assertTrue(seen.containsAll(l));
+
+        for(var entry : e.elements().entrySet()) {
+            assertEquals(old.get(entry.getKey().getElement()), entry.getKey().getXY());
+        }
+    }
+
+    @Test
+    void batchMergesCompactMoves() {
+        var events = new ArrayList<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, events::add);
+        var p = matrix.coordinatesOf(l.get(0)).get();
+        var p2 = matrix.coordinatesOf(l.get(1)).get();
+        var origin = p2.getXY();
+
+        matrix.batch(() -> {
+            matrix.repositionAllTo(Map.of(p, new Point2D(100d, 100d), p2, new Point2D(200d, 200d)));
+            matrix.repositionAllTo(Map.of(p, new Point2D(300d, 300d)));
+            matrix.repositionTo(p2, origin);
+        });
+
+        assertEquals(1, events.size());
+        var e = events.get(0);
+        assertFalse(e.movedAll());
+        assertEquals(1, e.size());
+        assertEquals(Map.of(new CoordinatesElement<>(l.get(0), 0d, 0d), new Point2D(300d, 300d)), e.elements());
+    }
+
+    @Test
+    void moveAreaCoversBothPositions() {
+        var events = new ArrayList<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, events::add);
+        var p = matrix.coordinatesOf(l.get(0)).get();
+        matrix.repositionTo(p, new Point2D(900d, 500d));
+        
+        // moved up, so the new Y coordinate is the top of the area
+        matrix.repositionTo(p, new Point2D(900d, 100d));
+        
+        var e = events.get(1);
+        assertEquals(new Point2D(900d, 100d), e.topLeft());
+        assertEquals(new Point2D(900d, 500d), e.bottomRight());
+    }
 }
@@ -0,0 +1,79 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.RandomLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class MappedCoordinatesMatrixTest {
+
+    private record Pojo(int id) { }
+
+    @TempDir
+    Path dir;
+
+
+    @Test
+    void writeThenMap() throws IOException {
+        var l = new ArrayList<Pojo>();
+        for(int i = 0; i < 3000; i++) {
+            l.add(new Pojo(i));
+        }
+        var source = new CoordinatesMatrix<>(l, s -> new RandomLayout<>(s, 0d, 0d, 1000d, 1000d));
+
+        var p = dir.resolve("coordinates.bin");
+        MappedCoordinatesMatrix.write(p, source, Pojo::id);
+        var matrix = new MappedCoordinatesMatrix<>(p, l::get);
+
+        assertEquals(source.size(), matrix.size());
+        source.forEach(
+            c -> assertTrue(c.isIn(
+                matrix.getMinimumWidth(), matrix.getMinimumHeight(),
+                matrix.getMaximumWidth(), matrix.getMaximumHeight()
+            ))
+        );
+        source.forEach(c -> assertTrue(matrix.containsCoordinates(c)));
+
+        var expected = source.between(200d, 100d, 450d, 700d);
+        var actual = matrix.between(200d, 100d, 450d, 700d);
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+    }
+
+    @Test
+    void resolvesLazily() throws IOException {
+        var l = List.of(new Pojo(0), new Pojo(1), new Pojo(2));
+        var p = dir.resolve("coordinates.bin");
+        MappedCoordinatesMatrix.write(p, new CoordinatesMatrix<>(l), Pojo::id);
+
+        var resolved = new ArrayList<Integer>();
+        var matrix = new MappedCoordinatesMatrix<>(
+            p, i -> {
+                resolved.add(i);
+                return l.get(i);
+            }
+        );
+
+        assertTrue(resolved.isEmpty());
+        assertEquals(3, matrix.between(0d, 0d, 0d, 0d).size());
+        assertTrue(resolved.isEmpty());
+        assertTrue(matrix.containsValue(new Pojo(1)));
+        assertFalse(resolved.isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidFile() throws IOException {
+        var p = dir.resolve("invalid.bin");
+        Files.write(p, new byte[64]);
+        assertThrows(IOException.class, () -> new MappedCoordinatesMatrix<Pojo>(p, i -> null));
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import java.util.List;
+
+
+class MutableHashGridTest extends MutableStructureContract<MutableHashGrid<MutableStructureContract.Pojo>> {
+
+    @Override
+    MutableHashGrid<Pojo> create(List<Pojo> l) {
+        return new MutableHashGrid<>(l);
+    }
+}
@@ -7,6 +7,7 @@ import io.github.vqnxiv.structure.StructureChange;
 import javafx.geometry.Point2D;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Map;
@@ -305,4 +306,108 @@ class MutableListTest {
         assertEquals(br, m.bottomRight());
     }
     
+
+    @Test
+    void valueIndexStaysInSync() {
+        cList.setValueIndexed(true);
+        assertTrue(cList.isValueIndexed());
+        l.forEach(p -> assertTrue(cList.containsValue(p)));
+        
+        var p = new Pojo("four");
+        cList.addCoordinates(p, new Point2D(100d, 100d));
+        assertEquals(new Point2D(100d, 100d), cList.coordinatesOf(p).get().getXY());
+        
+        cList.repositionTo(cList.coordinatesOf(p).get(), new Point2D(300d, 200d));
+        assertEquals(new Point2D(300d, 200d), cList.coordinatesOf(p).get().getXY());
+        
+        assertTrue(cList.removeValue(p));
+        assertFalse(cList.containsValue(p));
+        assertFalse(cList.removeValue(p));
+        
+        cList.clear();
+        l.forEach(p2 -> assertFalse(cList.containsValue(p2)));
+        
+        cList.setValueIndexed(false);
+        cList.addValue(p);
+        assertTrue(cList.containsValue(p));
+    }
+
+    @Test
+    void batchDispatchesOnce() {
+        cList.clear();
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 10d, 10d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 20d, 20d);
+        cList.addAllCoordinates(List.of(p1, p2));
+        
+        var moves = new ArrayList<StructureChange.Move<Pojo>>();
+        var additions = new ArrayList<StructureChange.Addition<Pojo>>();
+        int[] invalidations = { 0 };
+        cList.addMoveListener(this, moves::add);
+        cList.addAdditionListener(this, additions::add);
+        cList.maximumWidth().addListener(o -> invalidations[0]++);
+        cList.maximumWidth().get();
+        
+        var p3 = new CoordinatesElement<>(new Pojo("c"), 30d, 30d);
+        cList.batch(
+            () -> {
+                cList.repositionTo(new CoordinatesElement<>(p1), new Point2D(100d, 100d));
+                cList.repositionTo(new CoordinatesElement<>(p1.getElement(), 100d, 100d), new Point2D(200d, 150d));
+                cList.repositionTo(new CoordinatesElement<>(p2), new Point2D(300d, 20d));
+                cList.addCoordinates(p3);
+                assertTrue(moves.isEmpty());
+                assertTrue(additions.isEmpty());
+            }
+        );
+        
+        assertEquals(1, moves.size());
+        var m = moves.get(0).elements();
+        assertEquals(2, m.size());
+        assertEquals(new Point2D(200d, 150d), m.get(new CoordinatesElement<>(new Pojo("a"), 10d, 10d)));
+        assertEquals(new Point2D(300d, 20d), m.get(new CoordinatesElement<>(new Pojo("b"), 20d, 20d)));
+        
+        assertEquals(1, additions.size());
+        assertEquals(List.of(p3), additions.get(0).elements());
+        
+        assertEquals(1, invalidations[0]);
+        assertEquals(300d, cList.getMaximumWidth());
+    }
+
+    @Test
+    void findsNegativeCoordinates() {
+        var p = new Pojo("negative");
+        cList.addCoordinates(p, new Point2D(-50d, -20d));
+
+        assertEquals(-50d, cList.getMinimumWidth());
+        var b = cList.between(-60d, -30d, -10d, -10d);
+        assertEquals(1, b.size());
+        assertEquals(p, b.iterator().next().getElement());
+        assertTrue(cList.between(-60d, -30d, -55d, -10d).isEmpty());
+    }
+
+    @Test
+    void nearestNeighbours() {
+        for(int i = 0; i < 500; i++) {
+            cList.addCoordinates(new Pojo("n" + i), new Point2D((i * 7_919 % 2_003) - 500d, (i * 104_729 % 1_999) - 200d));
+        }
+        cList.addCoordinates(new Pojo("far"), new Point2D(50_000d, -30_000d));
+
+        for(var q : List.of(new Point2D(0d, 0d), new Point2D(733.3d, 412.7d), new Point2D(-4_000d, 9_000d), new Point2D(60_000d, -20_000d))) {
+            var all = new ArrayList<Double>();
+            cList.forEach(c -> all.add(q.distance(c.getXY())));
+            all.sort(null);
+
+            var k = cList.kNearest(q, 5);
+            assertEquals(5, k.size());
+            for(int i = 0; i < 5; i++) {
+                assertEquals(all.get(i), q.distance(k.get(i).getXY()));
+            }
+            assertEquals(all.get(0), q.distance(cList.nearest(q).get().getXY()));
+
+            double r = all.get(10);
+            assertEquals(all.stream().filter(d -> d <= r).count(), cList.within(q, r).size());
+        }
+
+        assertEquals(cList.size(), cList.kNearest(0d, 0d, 10_000).size());
+        assertTrue(cList.kNearest(0d, 0d, 0).isEmpty());
+    }
 }
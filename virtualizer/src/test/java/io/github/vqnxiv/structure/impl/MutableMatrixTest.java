@@ -7,9 +7,13 @@ import io.github.vqnxiv.structure.StructureChange;
 import javafx.geometry.Point2D;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -314,4 +318,457 @@ class MutableMatrixTest {
         assertEquals(tl, m.topLeft());
         assertEquals(br, m.bottomRight());
     }
+
+    @Test
+    void growsInOneDimension() {
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 90_000d, 10d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 10d, 90_000d);
+        var p3 = new CoordinatesElement<>(new Pojo("c"), 95_000d, 20d);
+        matrix.addCoordinates(p1);
+        matrix.addCoordinates(p2);
+        matrix.addCoordinates(p3);
+        
+        assertEquals(l.size() + 3, matrix.size());
+        assertTrue(matrix.containsAllCoordinates(List.of(p1, p2, p3)));
+        assertEquals(3, matrix.between(0d, 0d, 100_000d, 100_000d, p -> p.name().length() == 1).size());
+    }
+
+    @Test
+    void exactBounds() {
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 10d, 900d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 900d, 10d);
+        matrix.addCoordinates(p1);
+        matrix.addCoordinates(p2);
+        matrix.removeCoordinates(p1);
+        
+        double minW = Double.MAX_VALUE;
+        double minH = Double.MAX_VALUE;
+        double maxW = -Double.MAX_VALUE;
+        double maxH = -Double.MAX_VALUE;
+        for(var c : matrix) {
+            minW = Math.min(minW, c.getX());
+            minH = Math.min(minH, c.getY());
+            maxW = Math.max(maxW, c.getX());
+            maxH = Math.max(maxH, c.getY());
+        }
+        
+        assertEquals(minW, matrix.getMinimumWidth());
+        assertEquals(minH, matrix.getMinimumHeight());
+        assertEquals(maxW, matrix.getMaximumWidth());
+        assertEquals(maxH, matrix.getMaximumHeight());
+        
+        assertEquals(matrix.size(), matrix.between(0d, 0d, 1e9, 1e9).size());
+        assertEquals(matrix.size(), matrix.between(0d, 0d, 1e9, 1e9, p -> true).size());
+    }
+
+    @Test
+    void valueIndexStaysInSync() {
+        matrix.setValueIndexed(true);
+        assertTrue(matrix.isValueIndexed());
+        l.forEach(p -> assertTrue(matrix.containsValue(p)));
+        
+        var p = new Pojo("four");
+        matrix.addCoordinates(p, new Point2D(100d, 100d));
+        assertEquals(new Point2D(100d, 100d), matrix.coordinatesOf(p).get().getXY());
+        
+        matrix.repositionTo(matrix.coordinatesOf(p).get(), new Point2D(300d, 200d));
+        assertEquals(new Point2D(300d, 200d), matrix.coordinatesOf(p).get().getXY());
+        
+        assertTrue(matrix.removeValue(p));
+        assertFalse(matrix.containsValue(p));
+        assertFalse(matrix.removeValue(p));
+        
+        matrix.clear();
+        l.forEach(p2 -> assertFalse(matrix.containsValue(p2)));
+        
+        matrix.setValueIndexed(false);
+        matrix.addValue(p);
+        assertTrue(matrix.containsValue(p));
+    }
+
+    @Test
+    void boundsFollowRemovalsAndMoves() {
+        matrix.clear();
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 10d, 900d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 600d, 20d);
+        var p3 = new CoordinatesElement<>(new Pojo("c"), 300d, 400d);
+        matrix.addAllCoordinates(List.of(p1, p2, p3));
+        
+        assertEquals(10d, matrix.getMinimumWidth());
+        assertEquals(20d, matrix.getMinimumHeight());
+        assertEquals(600d, matrix.getMaximumWidth());
+        assertEquals(900d, matrix.getMaximumHeight());
+        
+        matrix.removeCoordinates(p1);
+        assertEquals(300d, matrix.getMinimumWidth());
+        assertEquals(400d, matrix.getMaximumHeight());
+        
+        matrix.repositionTo(p2, 200d, 250d);
+        assertEquals(200d, matrix.getMinimumWidth());
+        assertEquals(250d, matrix.getMinimumHeight());
+        assertEquals(300d, matrix.getMaximumWidth());
+        assertEquals(400d, matrix.getMaximumHeight());
+    }
+
+    @Test
+    void boundsIgnoreTheSignOfZero() {
+        matrix.clear();
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 0d, 5d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 10d, 10d);
+        matrix.addAllCoordinates(List.of(p1, p2));
+        
+        matrix.repositionTo(p1, new Point2D(-0d, 5d));
+        matrix.repositionTo(p1, new Point2D(5d, 5d));
+        assertEquals(5d, matrix.getMinimumWidth());
+    }
+
+    @Test
+    void batchDispatchesOnce() {
+        matrix.clear();
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 10d, 10d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 20d, 20d);
+        matrix.addAllCoordinates(List.of(p1, p2));
+        
+        var moves = new ArrayList<StructureChange.Move<Pojo>>();
+        var additions = new ArrayList<StructureChange.Addition<Pojo>>();
+        int[] invalidations = { 0 };
+        matrix.addMoveListener(this, moves::add);
+        matrix.addAdditionListener(this, additions::add);
+        matrix.maximumWidth().addListener(o -> invalidations[0]++);
+        matrix.maximumWidth().get();
+        
+        var p3 = new CoordinatesElement<>(new Pojo("c"), 30d, 30d);
+        matrix.batch(
+            () -> {
+                matrix.repositionTo(new CoordinatesElement<>(p1), new Point2D(100d, 100d));
+                matrix.repositionTo(new CoordinatesElement<>(p1.getElement(), 100d, 100d), new Point2D(200d, 150d));
+                matrix.repositionTo(new CoordinatesElement<>(p2), new Point2D(300d, 20d));
+                matrix.addCoordinates(p3);
+                assertTrue(moves.isEmpty());
+                assertTrue(additions.isEmpty());
+            }
+        );
+        
+        assertEquals(1, moves.size());
+        var m = moves.get(0).elements();
+        assertEquals(2, m.size());
+        assertEquals(new Point2D(200d, 150d), m.get(new CoordinatesElement<>(new Pojo("a"), 10d, 10d)));
+        assertEquals(new Point2D(300d, 20d), m.get(new CoordinatesElement<>(new Pojo("b"), 20d, 20d)));
+        
+        assertEquals(1, additions.size());
+        assertEquals(List.of(p3), additions.get(0).elements());
+        
+        assertEquals(1, invalidations[0]);
+        assertEquals(300d, matrix.getMaximumWidth());
+    }
+
+    @Test
+    void batchDropsChangesOfRemovedElements() {
+        matrix.clear();
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 10d, 10d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 20d, 20d);
+        matrix.addAllCoordinates(List.of(p1, p2));
+        
+        var moves = new ArrayList<StructureChange.Move<Pojo>>();
+        var additions = new ArrayList<StructureChange.Addition<Pojo>>();
+        var removals = new ArrayList<StructureChange.Removal<Pojo>>();
+        matrix.addMoveListener(this, moves::add);
+        matrix.addAdditionListener(this, additions::add);
+        matrix.addRemovalListener(this, removals::add);
+        
+        var p3 = new CoordinatesElement<>(new Pojo("c"), 30d, 30d);
+        matrix.batch(() -> {
+            matrix.repositionAllTo(Map.of(p1, new Point2D(100d, 100d), p2, new Point2D(200d, 200d)));
+            matrix.removeCoordinates(p1);
+            matrix.addCoordinates(p3);
+            matrix.removeCoordinates(p3);
+        });
+        
+        assertEquals(1, moves.size());
+        assertEquals(
+            Map.of(new CoordinatesElement<>(p2.getElement(), 20d, 20d), new Point2D(200d, 200d)), 
+            moves.get(0).elements()
+        );
+        assertEquals(1, removals.size());
+        assertEquals(List.of(new CoordinatesElement<>(p1.getElement(), 10d, 10d)), removals.get(0).elements());
+        assertTrue(additions.isEmpty());
+    }
+
+    @Test
+    void findsNegativeCoordinates() {
+        var p = new Pojo("negative");
+        matrix.addCoordinates(p, new Point2D(-50d, -20d));
+
+        assertEquals(-50d, matrix.getMinimumWidth());
+        var b = matrix.between(-60d, -30d, -10d, -10d);
+        assertEquals(1, b.size());
+        assertEquals(p, b.iterator().next().getElement());
+        assertTrue(matrix.between(-60d, -30d, -55d, -10d).isEmpty());
+        
+        // more than one cell away from the origin
+        var far = new Pojo("far");
+        matrix.addCoordinates(far, new Point2D(-2_000d, -2_000d));
+        var c = new CoordinatesElement<>(far, -2_000d, -2_000d);
+        assertEquals(List.of(c), List.copyOf(matrix.between(-2_100d, -2_100d, -1_900d, -1_900d)));
+        assertEquals(List.of(c), List.copyOf(matrix.between(-2_100d, -2_100d, -1_900d, -1_900d, e -> true)));
+        assertEquals(List.of(c), matrix.streamBetween(-2_100d, -2_100d, -1_900d, -1_900d).toList());
+        var l = new ArrayList<CoordinatesElement<Pojo>>();
+        matrix.forEachBetween(-2_100d, -2_100d, -1_900d, -1_900d, l::add);
+        assertEquals(List.of(c), l);
+        assertEquals(1, matrix.countBetween(-2_100d, -2_100d, -1_900d, -1_900d));
+        assertArrayEquals(new int[] { 1 }, matrix.densityGrid(-2_100d, -2_100d, -1_900d, -1_900d, 1, 1));
+    }
+
+    @Test
+    void nearestNeighbours() {
+        for(int i = 0; i < 500; i++) {
+            matrix.addCoordinates(new Pojo("n" + i), new Point2D((i * 7_919 % 2_003) - 500d, (i * 104_729 % 1_999) - 200d));
+        }
+        matrix.addCoordinates(new Pojo("far"), new Point2D(50_000d, -30_000d));
+
+        for(var q : List.of(new Point2D(0d, 0d), new Point2D(733.3d, 412.7d), new Point2D(-4_000d, 9_000d), new Point2D(60_000d, -20_000d))) {
+            var all = new ArrayList<Double>();
+            matrix.forEach(c -> all.add(q.distance(c.getXY())));
+            all.sort(null);
+
+            var k = matrix.kNearest(q, 5);
+            assertEquals(5, k.size());
+            for(int i = 0; i < 5; i++) {
+                assertEquals(all.get(i), q.distance(k.get(i).getXY()));
+            }
+            assertEquals(all.get(0), q.distance(matrix.nearest(q).get().getXY()));
+
+            double r = all.get(10);
+            assertEquals(all.stream().filter(d -> d <= r).count(), matrix.within(q, r).size());
+        }
+
+        assertEquals(matrix.size(), matrix.kNearest(0d, 0d, 10_000).size());
+        assertTrue(matrix.kNearest(0d, 0d, 0).isEmpty());
+    }
+
+    @Test
+    void batchRemovesMovedElementsFromWhereTheyWere() {
+        matrix.clear();
+        var p = new CoordinatesElement<>(new Pojo("a"), 10d, 10d);
+        matrix.addCoordinates(p);
+        
+        var moves = new ArrayList<StructureChange.Move<Pojo>>();
+        var removals = new ArrayList<StructureChange.Removal<Pojo>>();
+        matrix.addMoveListener(this, moves::add);
+        matrix.addRemovalListener(this, removals::add);
+        
+        matrix.batch(() -> {
+            matrix.repositionTo(p, new Point2D(300d, 300d));
+            matrix.removeValue(p.getElement());
+        });
+        
+        assertTrue(moves.isEmpty());
+        assertEquals(1, removals.size());
+        var e = removals.get(0);
+        assertEquals(List.of(new CoordinatesElement<>(p.getElement(), 10d, 10d)), e.elements());
+        assertEquals(new Point2D(10d, 10d), e.topLeft());
+    }
+
+    @Test
+    void movedAllIsGivenByTheMove() {
+        var events = new ArrayList<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, events::add);
+        var itr = matrix.iterator();
+        var p = itr.next();
+        var p2 = itr.next();
+        var p3 = itr.next();
+        
+        // every element left moved, but not in a single move
+        matrix.batch(() -> {
+            matrix.repositionAllTo(Map.of(p, new Point2D(10d, 10d), p2, new Point2D(20d, 20d)));
+            matrix.removeCoordinates(p3);
+        });
+        assertEquals(1, events.size());
+        assertFalse(events.get(0).movedAll());
+        
+        matrix.repositionAllTo(Map.of(p, new Point2D(30d, 30d), p2, new Point2D(40d, 40d)));
+        assertTrue(events.get(1).movedAll());
+        
+        matrix.batch(() -> {
+            matrix.repositionAllTo(Map.of(p, new Point2D(50d, 50d), p2, new Point2D(60d, 60d)));
+            matrix.addCoordinates(new Pojo("four"), new Point2D(70d, 70d));
+        });
+        assertFalse(events.get(2).movedAll());
+    }
+
+    @Test
+    void denseCellRemovalsAndMoves() {
+        matrix.clear();
+        var added = new ArrayList<CoordinatesElement<Pojo>>();
+        for(int i = 0; i < 2_000; i++) {
+            var c = new CoordinatesElement<>(new Pojo("d" + i), i % 10, i % 7);
+            matrix.addCoordinates(c);
+            added.add(c);
+        }
+        var set = new HashSet<>(added);
+        assertEquals(2_000, matrix.countBetween(-1d, -1d, 5_000d, 5_000d));
+
+        for(int i = 0; i < added.size(); i += 3) {
+            assertTrue(matrix.removeCoordinates(added.get(i)));
+            assertFalse(matrix.containsCoordinates(added.get(i)));
+        }
+        for(int i = 1; i < added.size(); i += 3) {
+            matrix.repositionTo(added.get(i), new Point2D(i, i));
+        }
+        // an equal copy is removed as well
+        assertTrue(matrix.removeCoordinates(new CoordinatesElement<>(added.get(2).getElement(), 2d % 10, 2d % 7)));
+
+        assertEquals(2_000 - 667 - 1, matrix.size());
+        for(int i = 0; i < added.size(); i++) {
+            assertEquals(i % 3 != 0 && i != 2, matrix.containsCoordinates(added.get(i)));
+            // hash codes don't change with the coordinates
+            assertTrue(set.contains(added.get(i)));
+        }
+        assertEquals(matrix.size(), matrix.between(-1d, -1d, 5_000d, 5_000d).size());
+        assertEquals(matrix.size(), matrix.countBetween(-1d, -1d, 5_000d, 5_000d));
+        assertEquals(matrix.between(100d, 100d, 1_500d, 1_500d).size(), matrix.countBetween(100d, 100d, 1_500d, 1_500d));
+    }
+
+    @Test
+    void bulkRemovals() {
+        matrix.clear();
+        matrix.setValueIndexed(true);
+        var added = new ArrayList<CoordinatesElement<Pojo>>();
+        for(int i = 0; i < 3_000; i++) {
+            var c = new CoordinatesElement<>(new Pojo("b" + i), i % 13, (i % 50) * 20d);
+            matrix.addCoordinates(c);
+            added.add(c);
+        }
+        var removals = new ArrayList<StructureChange.Removal<Pojo>>();
+        matrix.addRemovalListener(this, removals::add);
+
+        // duplicates and equal copies
+        var targets = new ArrayList<CoordinatesElement<Pojo>>();
+        for(int i = 0; i < added.size(); i += 2) {
+            targets.add(added.get(i));
+        }
+        targets.add(added.get(0));
+        targets.add(new CoordinatesElement<>(added.get(1).getElement(), added.get(1).getX(), added.get(1).getY()));
+        assertTrue(matrix.removeAllCoordinates(targets));
+        assertEquals(1, removals.size());
+        assertEquals(1_501, removals.get(0).elements().size());
+        assertEquals(3_000 - 1_501, matrix.size());
+        assertFalse(matrix.removeAllCoordinates(List.of(added.get(0))));
+
+        var values = new ArrayList<Pojo>();
+        for(int i = 3; i < added.size(); i += 4) {
+            values.add(added.get(i).getElement());
+        }
+        assertTrue(matrix.removeAllValues(values));
+        assertEquals(3_000 - 1_501 - 750, matrix.size());
+        assertEquals(2, removals.size());
+
+        // nothing is removed if the condition throws
+        int size = matrix.size();
+        assertThrows(IllegalStateException.class, () -> matrix.removeCoordinatesIf(c -> {
+            if(c.getElement().name().equals("b1001")) {
+                throw new IllegalStateException();
+            }
+            return c.getY() < 100d;
+        }));
+        assertEquals(size, matrix.size());
+        assertEquals(2, removals.size());
+        assertTrue(matrix.removeCoordinatesIf(c -> c.getY() < 100d));
+        assertTrue(matrix.between(-1d, -1d, 5_000d, 99d).isEmpty());
+        assertEquals(100d, matrix.getMinimumHeight());
+
+        for(var c : added) {
+            boolean kept = matrix.containsCoordinates(c);
+            assertEquals(kept, matrix.coordinatesOf(c.getElement()).isPresent());
+            if(kept) {
+                assertTrue(matrix.removeCoordinates(c));
+            }
+        }
+        assertEquals(0, matrix.size());
+    }
+
+    private int maxCellSize(CoordinatesMatrix<?> m) {
+        int max = 0;
+        for(int i = 0; i < m.rowNumber(); i++) {
+            for(int j = 0; j < m.colNumber(); j++) {
+                max = Math.max(max, m.cell(i, j).size());
+            }
+        }
+        return max;
+    }
+
+    @Test
+    void adaptiveGridSplitsCrowdedCells() {
+        matrix.clear();
+        matrix.setAdaptive(4, Runnable::run);
+        var random = new Random(42);
+        var added = new ArrayList<CoordinatesElement<Pojo>>();
+        for(int i = 0; i < 20_000; i++) {
+            var c = new CoordinatesElement<>(new Pojo("a" + i), random.nextDouble() * 50d, random.nextDouble() * 50d);
+            matrix.addCoordinates(c);
+            added.add(c);
+        }
+        assertTrue(matrix.rowNumber() * matrix.colNumber() > 25);
+        assertTrue(maxCellSize(matrix) < 2_000);
+
+        for(int k = 0; k < 20; k++) {
+            double x = random.nextDouble() * 50d;
+            double y = random.nextDouble() * 50d;
+            var expected = added.stream().filter(c -> c.isIn(x, y, x + 10d, y + 10d)).count();
+            assertEquals(expected, matrix.between(x, y, x + 10d, y + 10d).size());
+            assertEquals(expected, matrix.countBetween(x, y, x + 10d, y + 10d));
+        }
+
+        assertTrue(matrix.removeAllCoordinates(added.subList(0, 10_000)));
+        for(int i = 10_000; i < 10_100; i++) {
+            matrix.repositionTo(added.get(i), new Point2D(900d, 900d));
+        }
+        for(int i = 0; i < added.size(); i += 97) {
+            assertEquals(i >= 10_000, matrix.containsCoordinates(added.get(i)));
+        }
+        assertEquals(100, matrix.between(899d, 899d, 901d, 901d).size());
+    }
+
+    @Test
+    void adaptiveGridFollowsLookups() {
+        matrix.clear();
+        matrix.setAdaptive(1, Runnable::run);
+        var random = new Random(42);
+        for(int i = 0; i < 20_000; i++) {
+            matrix.addCoordinates(new Pojo("a" + i), new Point2D(random.nextDouble() * 999d, random.nextDouble() * 999d));
+        }
+        assertTrue(matrix.rowNumber() > 48);
+
+        // lookups of the whole area: cells smaller than a 32th of it are useless
+        for(int k = 0; k < 5_000; k++) {
+            assertEquals(20_000, matrix.countBetween(-1d, -1d, 1_000d, 1_000d));
+        }
+        assertTrue(matrix.rowNumber() <= 48);
+        assertTrue(matrix.colNumber() <= 48);
+    }
+
+    @Test
+    void adaptiveGridDropsStaleGrids() {
+        matrix.clear();
+        var tasks = new ArrayDeque<Runnable>();
+        matrix.setAdaptive(4, tasks::add);
+        for(int i = 0; i < 200; i++) {
+            matrix.addCoordinates(new Pojo("s" + i), new Point2D(i % 20, i / 20d));
+        }
+        int rows = matrix.rowNumber();
+        assertEquals(1, tasks.size());
+
+        // bucketed from the coordinates of the 64th element
+        tasks.poll().run();
+        assertEquals(200, matrix.countBetween(-1d, -1d, 100d, 100d));
+        assertEquals(rows, matrix.rowNumber());
+        assertEquals(1, tasks.size());
+
+        tasks.poll().run();
+        assertEquals(200, matrix.countBetween(-1d, -1d, 100d, 100d));
+        assertTrue(matrix.rowNumber() > rows);
+        assertEquals(200, matrix.between(-1d, -1d, 100d, 100d).size());
+        assertTrue(matrix.removeValue(new Pojo("s0")));
+        assertEquals(199, matrix.size());
+    }
 }
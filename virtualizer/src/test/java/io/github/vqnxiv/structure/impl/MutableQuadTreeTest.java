@@ -0,0 +1,34 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.CoordinatesElement;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class MutableQuadTreeTest extends MutableStructureContract<MutableQuadTree<MutableStructureContract.Pojo>> {
+
+    @Override
+    MutableQuadTree<Pojo> create(List<Pojo> l) {
+        return new MutableQuadTree<>(l);
+    }
+
+    @Test
+    void rejectsNonFiniteCoordinates() {
+        int size = structure.size();
+        
+        assertThrows(IllegalArgumentException.class, () -> structure.addCoordinates(new Pojo("a"), new Point2D(Double.NaN, 10d)));
+        assertThrows(IllegalArgumentException.class, () -> structure.addCoordinates(new Pojo("b"), new Point2D(10d, Double.POSITIVE_INFINITY)));
+        assertEquals(size, structure.size());
+        
+        var c = structure.iterator().next();
+        var p = new CoordinatesElement<>(c.getElement(), c.getX(), c.getY());
+        assertThrows(IllegalArgumentException.class, () -> structure.repositionTo(c, new Point2D(Double.NEGATIVE_INFINITY, 0d)));
+        assertTrue(structure.containsCoordinates(p));
+        assertEquals(size, structure.size());
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import java.util.List;
+
+
+class MutableRTreeTest extends MutableStructureContract<MutableRTree<MutableStructureContract.Pojo>> {
+
+    @Override
+    MutableRTree<Pojo> create(List<Pojo> l) {
+        return new MutableRTree<>(l);
+    }
+}
@@ -0,0 +1,427 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.RandomLayout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.MutableStructure;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Tests which every {@link MutableStructure} implementation has to pass.
+ * Implementations only provide the structure through {@link #create(List)}.
+ *
+ * @param <S> Type of the tested structure.
+ */
+abstract class MutableStructureContract<S extends MutableStructure<MutableStructureContract.Pojo>> {
+    
+    
+    record Pojo(String name) { }
+
+    List<Pojo> l = List.of(new Pojo("one"), new Pojo("two"), new Pojo("three"));
+
+    S structure = create(l);
+
+    /**
+     * Creates the tested structure.
+     *
+     * @param l Elements of the structure.
+     * @return The structure.
+     */
+    abstract S create(List<Pojo> l);
+
+    @Test
+    void add() {
+        int size = structure.size();
+        assertNotEquals(0, size);
+        
+        var p = new Pojo("four");
+        structure.addValue(p);
+        
+        assertEquals(size + 1, structure.size());
+        assertTrue(structure.containsValue(p));
+    }
+
+    @Test
+    void addAll() {
+        int size = structure.size();
+        
+        var p1 = new Pojo("four");
+        var p2 = new Pojo("five");
+        var p3 = new Pojo("six");
+        var l2 = List.of(p1, p2, p3);
+        
+        structure.addAllValues(l2);
+        assertEquals(size + l2.size(), structure.size());
+        l2.forEach(c -> assertTrue(structure.containsValue(c)));
+    }
+
+    @Test
+    void addAt() {
+        int size = structure.size();
+        
+        var p = new Pojo("four");
+        var pC = new Point2D(500d, 500d);
+        structure.addCoordinates(p, pC);
+        
+        assertEquals(size + 1, structure.size());
+        assertTrue(structure.containsValue(p));
+        assertTrue(structure.containsCoordinates(new CoordinatesElement<>(p, pC)));
+        assertEquals(pC, structure.coordinatesOf(p).get().getXY());
+    }
+
+    @Test
+    void testAddAt() {
+        int size = structure.size();
+
+        var p = new Pojo("four");
+        var pC = new Point2D(500d, 500d);
+        structure.addCoordinates(new CoordinatesElement<>(p, pC));
+
+        assertEquals(size + 1, structure.size());
+        assertTrue(structure.containsValue(p));
+        assertTrue(structure.containsCoordinates(new CoordinatesElement<>(p, pC)));
+        assertEquals(pC, structure.coordinatesOf(p).get().getXY());
+    }
+
+    @Test
+    void addAllAt() {
+        int size = structure.size();
+
+        var p1 = new Pojo("four");
+        var p2 = new Pojo("five");
+        var p3 = new Pojo("six");
+        var m = Map.of(
+            p1, new Point2D(10, 10),
+            p2, new Point2D(20, 20),
+            p3, new Point2D(30, 30)
+        );
+
+        structure.addAllCoordinates(m);
+        assertEquals(size + m.size(), structure.size());
+        m.forEach(
+            (k, v) -> {
+                assertTrue(structure.containsValue(k));
+                assertEquals(v, structure.coordinatesOf(k).get().getXY());
+            }
+        );
+    }
+
+    @Test
+    void testAddAllAt() {
+        int size = structure.size();
+
+        var p1 = new Pojo("four");
+        var p2 = new Pojo("five");
+        var p3 = new Pojo("six");
+        var m = Map.of(
+            p1, new Point2D(10, 10),
+            p2, new Point2D(20, 20),
+            p3, new Point2D(30, 30)
+        );
+        
+        var l2 = m.entrySet()
+            .stream()
+            .map(e -> new CoordinatesElement<>(e.getKey(), e.getValue()))
+            .toList();
+        
+        structure.addAllCoordinates(l2);
+        assertEquals(size + m.size(), structure.size());
+        m.forEach(
+            (k, v) -> {
+                assertTrue(structure.containsValue(k));
+                assertEquals(v, structure.coordinatesOf(k).get().getXY());
+            }
+        );
+        l2.forEach(c -> assertTrue(structure.containsCoordinates(c)));
+    }
+    
+    
+    @Test
+    void remove() {
+        int size = structure.size();
+        
+        var p = new Pojo("one");
+        structure.removeValue(p);
+
+        assertEquals(size - 1, structure.size());
+        assertFalse(structure.containsValue(p));
+    }
+
+    @Test
+    void removeAll() {
+        int size = structure.size();
+
+        var p1 = new Pojo("one");
+        var p2 = new Pojo("two");
+        var p3 = new Pojo("three");
+        var l2 = List.of(p1, p2, p3);
+
+        structure.removeAllValues(l2);
+        assertEquals(size - l2.size(), structure.size());
+        l2.forEach(c -> assertFalse(structure.containsValue(c)));
+    }
+
+    @Test
+    void removeAt() {
+        var p = structure.iterator().next();
+
+        int size = structure.size();
+        structure.removeCoordinates(p);
+
+        assertEquals(size - 1, structure.size());
+        assertFalse(structure.containsCoordinates(p));
+    }
+
+    @Test
+    void removeAllAt() {
+        var itr = structure.iterator();
+        var l2 = List.of(itr.next(), itr.next());
+
+        int size = structure.size();
+        structure.removeAllCoordinates(l2);
+
+        assertEquals(size - l2.size(), structure.size());
+        l2.forEach(c -> assertFalse(structure.containsCoordinates(c)));
+    }
+
+    @Test
+    void removeIf() {
+        structure.removeValuesIf(p -> p.name().equals("one"));
+        assertFalse(structure.containsValue(new Pojo("one")));
+    }
+
+    @Test
+    void removeCoordinatesIf() {
+        var p = new Pojo("one");
+        assertTrue(structure.containsValue(p));
+        structure.removeCoordinatesIf(c -> c.getElement().equals(p));
+        assertFalse(structure.containsValue(p));
+    }
+
+    @Test
+    void clear() {
+        assertFalse(structure.isEmpty());
+        assertNotEquals(0, structure.size());
+        assertTrue(structure.containsValue(new Pojo("one")));
+        
+        structure.clear();
+        assertTrue(structure.isEmpty());
+        assertEquals(0, structure.size());
+        assertFalse(structure.containsValue(new Pojo("one")));
+        assertEquals(0d, structure.getMinimumWidth());
+        assertEquals(0d, structure.getMinimumHeight());
+        assertEquals(0d, structure.getMaximumWidth());
+        assertEquals(0d, structure.getMaximumHeight());
+    }
+
+
+    @Test
+    void exactBoundsAfterClear() {
+        structure.clear();
+        structure.addCoordinates(new Pojo("four"), new Point2D(4_988.5d, 3_638d));
+
+        assertEquals(4_988.5d, structure.getMinimumWidth());
+        assertEquals(3_638d, structure.getMinimumHeight());
+        assertEquals(4_988.5d, structure.getMaximumWidth());
+        assertEquals(3_638d, structure.getMaximumHeight());
+
+        structure.addCoordinates(new Pojo("five"), new Point2D(5_000d, 100d));
+        assertEquals(4_988.5d, structure.getMinimumWidth());
+        assertEquals(100d, structure.getMinimumHeight());
+    }
+
+    @Test
+    void correctPropertyValues() {
+        assertEquals(0d, structure.getMinimumWidth());
+        assertEquals(0d, structure.getMinimumHeight());
+        assertEquals(0d, structure.getMaximumWidth());
+        assertEquals(0d, structure.getMaximumHeight());
+
+        var itr = structure.iterator();
+        var p = itr.next();
+        var p2 = itr.next();
+        var p3 = itr.next();
+        var p4 = new CoordinatesElement<>(new Pojo("four"), 100d, 80d);
+        
+        structure.addCoordinates(p4);
+
+        assertEquals(0d, structure.getMinimumWidth());
+        assertEquals(0d, structure.getMinimumHeight());
+        assertEquals(100d, structure.getMaximumWidth());
+        assertEquals(80d, structure.getMaximumHeight());
+
+        structure.removeAllCoordinates(List.of(p, p2, p3));
+
+        assertEquals(100d, structure.getMinimumWidth());
+        assertEquals(80d, structure.getMinimumHeight());
+        assertEquals(100d, structure.getMaximumWidth());
+        assertEquals(80d, structure.getMaximumHeight());
+    }
+    
+    @Test
+    void removeThroughItr() {
+        var itr = structure.iterator();
+        var p = itr.next();
+        assertTrue(structure.containsCoordinates(p));
+        itr.remove();
+        assertFalse(structure.containsCoordinates(p));
+        assertDoesNotThrow(itr::next);
+    }
+    
+    @Test
+    void itrThrowsOnComod() {
+        var itr = structure.iterator();
+        itr.next();
+        structure.addValue(new Pojo("four"));
+        assertThrows(ConcurrentModificationException.class, itr::next);
+    }
+    
+    @Test
+    void doubleItrRemoveThrows() {
+        var itr = structure.iterator();
+        itr.next();
+        itr.remove();
+        assertThrows(IllegalStateException.class, itr::remove);
+    }
+
+    @Test
+    void addListenerTest() {
+        AtomicReference<StructureChange.Addition<?>> aRef = new AtomicReference<>();
+        structure.addAdditionListener(this, aRef::set);
+        
+        var cp = new CoordinatesElement<>(new Pojo("four"), new Point2D(100d, 100d));
+        var cp2 = new CoordinatesElement<>(new Pojo("four"), new Point2D(10d, 10d));
+        structure.addAllCoordinates(List.of(cp, cp2));
+
+        var m = aRef.get();
+        assertEquals(structure, m.structure());
+        assertEquals(2, m.elements().size());
+        assertTrue(m.elements().contains(cp));
+        assertTrue(m.elements().contains(cp2));
+        assertEquals(cp2.getXY(), m.topLeft());
+        assertEquals(cp.getXY(), m.bottomRight());
+    }
+
+    @Test
+    void rmListenerTest() {
+        AtomicReference<StructureChange.Removal<?>> rRef = new AtomicReference<>();
+        structure.addRemovalListener(this, rRef::set);
+        
+        var rl = new RandomLayout<>(structure); 
+        rl.apply();
+
+        var itr = structure.iterator();
+        var p = itr.next();
+        var p2 = itr.next();
+        
+        var tl = new Point2D(
+            Math.min(p.getX(), p2.getX()),
+            Math.min(p.getY(), p2.getY())
+        );
+        
+        var br = new Point2D(
+            Math.max(p.getX(), p2.getX()),
+            Math.max(p.getY(), p2.getY())
+        );
+        
+        structure.removeAllCoordinates(List.of(p, p2));
+        
+        var m = rRef.get();
+        assertEquals(structure, m.structure());
+        assertEquals(2, m.elements().size());
+        assertTrue(m.elements().contains(p));
+        assertTrue(m.elements().contains(p2));
+        assertEquals(tl, m.topLeft());
+        assertEquals(br, m.bottomRight());
+    }
+
+    @Test
+    void batchDispatchesOnce() {
+        structure.clear();
+        var p1 = new CoordinatesElement<>(new Pojo("a"), 10d, 10d);
+        var p2 = new CoordinatesElement<>(new Pojo("b"), 20d, 20d);
+        structure.addAllCoordinates(List.of(p1, p2));
+        
+        var moves = new ArrayList<StructureChange.Move<Pojo>>();
+        var additions = new ArrayList<StructureChange.Addition<Pojo>>();
+        int[] invalidations = { 0 };
+        structure.addMoveListener(this, moves::add);
+        structure.addAdditionListener(this, additions::add);
+        structure.maximumWidth().addListener(o -> invalidations[0]++);
+        structure.maximumWidth().get();
+        
+        var p3 = new CoordinatesElement<>(new Pojo("c"), 30d, 30d);
+        structure.batch(
+            () -> {
+                structure.repositionTo(new CoordinatesElement<>(p1), new Point2D(100d, 100d));
+                structure.repositionTo(new CoordinatesElement<>(p1.getElement(), 100d, 100d), new Point2D(200d, 150d));
+                structure.repositionTo(new CoordinatesElement<>(p2), new Point2D(300d, 20d));
+                structure.addCoordinates(p3);
+                assertTrue(moves.isEmpty());
+                assertTrue(additions.isEmpty());
+            }
+        );
+        
+        assertEquals(1, moves.size());
+        var m = moves.get(0).elements();
+        assertEquals(2, m.size());
+        assertEquals(new Point2D(200d, 150d), m.get(new CoordinatesElement<>(new Pojo("a"), 10d, 10d)));
+        assertEquals(new Point2D(300d, 20d), m.get(new CoordinatesElement<>(new Pojo("b"), 20d, 20d)));
+        
+        assertEquals(1, additions.size());
+        assertEquals(List.of(p3), additions.get(0).elements());
+        
+        assertEquals(1, invalidations[0]);
+        assertEquals(300d, structure.getMaximumWidth());
+    }
+
+    @Test
+    void findsNegativeCoordinates() {
+        var p = new Pojo("negative");
+        structure.addCoordinates(p, new Point2D(-50d, -20d));
+
+        assertEquals(-50d, structure.getMinimumWidth());
+        var b = structure.between(-60d, -30d, -10d, -10d);
+        assertEquals(1, b.size());
+        assertEquals(p, b.iterator().next().getElement());
+        assertTrue(structure.between(-60d, -30d, -55d, -10d).isEmpty());
+    }
+
+    @Test
+    void nearestNeighbours() {
+        for(int i = 0; i < 500; i++) {
+            structure.addCoordinates(new Pojo("n" + i), new Point2D((i * 7_919 % 2_003) - 500d, (i * 104_729 % 1_999) - 200d));
+        }
+        structure.addCoordinates(new Pojo("far"), new Point2D(50_000d, -30_000d));
+
+        for(var q : List.of(new Point2D(0d, 0d), new Point2D(733.3d, 412.7d), new Point2D(-4_000d, 9_000d), new Point2D(60_000d, -20_000d))) {
+            var all = new ArrayList<Double>();
+            structure.forEach(c -> all.add(q.distance(c.getXY())));
+            all.sort(null);
+
+            var k = structure.kNearest(q, 5);
+            assertEquals(5, k.size());
+            for(int i = 0; i < 5; i++) {
+                assertEquals(all.get(i), q.distance(k.get(i).getXY()));
+            }
+            assertEquals(all.get(0), q.distance(structure.nearest(q).get().getXY()));
+
+            double r = all.get(10);
+            assertEquals(all.stream().filter(d -> d <= r).count(), structure.within(q, r).size());
+        }
+
+        assertEquals(structure.size(), structure.kNearest(0d, 0d, 10_000).size());
+        assertTrue(structure.kNearest(0d, 0d, 0).isEmpty());
+    }
+}
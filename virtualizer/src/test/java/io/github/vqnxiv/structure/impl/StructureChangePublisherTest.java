@@ -0,0 +1,169 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class StructureChangePublisherTest {
+
+    private record Pojo(String name) { }
+
+    private static class Recorder implements Flow.Subscriber<StructureChange> {
+
+        final List<StructureChange> received = new CopyOnWriteArrayList<>();
+        volatile Flow.Subscription subscription;
+        volatile boolean completed = false;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(StructureChange item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    MutableMatrix<Pojo> matrix = new MutableMatrix<>(List.of());
+
+    Recorder recorder = new Recorder();
+
+
+    private void add(int i) {
+        matrix.addCoordinates(new Pojo(String.valueOf(i)), new Point2D(10d * i, 10d * i));
+    }
+
+    @Test
+    void deliversRequestedChanges() {
+        var publisher = new StructureChangePublisher<>(matrix, Runnable::run);
+        publisher.subscribe(recorder);
+        assertEquals(1, publisher.getNumberOfSubscribers());
+
+        recorder.subscription.request(1);
+        add(0);
+        add(1);
+        add(2);
+        assertEquals(1, recorder.received.size());
+        assertTrue(recorder.received.get(0) instanceof StructureChange.Addition<?>);
+
+        recorder.subscription.request(5);
+        assertEquals(3, recorder.received.size());
+
+        add(3);
+        assertEquals(4, recorder.received.size());
+    }
+
+    @Test
+    void dropsOnOverflow() {
+        var publisher = new StructureChangePublisher<>(
+            matrix, Runnable::run, 2, StructureChangePublisher.OverflowPolicy.DROP
+        );
+        publisher.subscribe(recorder);
+
+        for(int i = 0; i < 5; i++) {
+            add(i);
+        }
+        recorder.subscription.request(10);
+        assertEquals(2, recorder.received.size());
+    }
+
+    @Test
+    void coalescesOnOverflow() {
+        var publisher = new StructureChangePublisher<>(
+            matrix, Runnable::run, 2, StructureChangePublisher.OverflowPolicy.COALESCE
+        );
+        publisher.subscribe(recorder);
+
+        for(int i = 0; i < 5; i++) {
+            add(i);
+        }
+        recorder.subscription.request(10);
+        assertEquals(3, recorder.received.size());
+        assertEquals(
+            StructureChange.dirty(matrix, new Point2D(20d, 20d), new Point2D(40d, 40d)),
+            recorder.received.get(2)
+        );
+
+        // back to normal once the buffer is empty
+        add(5);
+        assertTrue(recorder.received.get(3) instanceof StructureChange.Addition<?>);
+    }
+
+    @Test
+    void blocksProducerOnOverflow() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            var publisher = new StructureChangePublisher<>(
+                matrix, executor, 1, StructureChangePublisher.OverflowPolicy.BLOCK
+            );
+            publisher.subscribe(recorder);
+
+            var producer = CompletableFuture.runAsync(() -> {
+                for(int i = 0; i < 3; i++) {
+                    add(i);
+                }
+            });
+            assertThrows(TimeoutException.class, () -> producer.get(200, TimeUnit.MILLISECONDS));
+
+            recorder.subscription.request(Long.MAX_VALUE);
+            producer.get(5, TimeUnit.SECONDS);
+            publisher.close();
+            executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+            assertEquals(3, recorder.received.size());
+            assertTrue(recorder.completed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void closeCompletesAfterBuffer() {
+        var publisher = new StructureChangePublisher<>(matrix, Runnable::run);
+        publisher.subscribe(recorder);
+        add(0);
+        publisher.close();
+        assertFalse(recorder.completed);
+
+        recorder.subscription.request(1);
+        assertEquals(1, recorder.received.size());
+        assertTrue(recorder.completed);
+        assertEquals(0, publisher.getNumberOfSubscribers());
+
+        add(1);
+        assertEquals(1, recorder.received.size());
+    }
+
+    @Test
+    void nonPositiveRequestFails() {
+        var publisher = new StructureChangePublisher<>(matrix, Runnable::run);
+        publisher.subscribe(recorder);
+        recorder.subscription.request(0);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertEquals(0, publisher.getNumberOfSubscribers());
+    }
+}
@@ -0,0 +1,198 @@
+package io.github.vqnxiv.structure.impl;
+
+
+import io.github.vqnxiv.layout.RandomLayout;
+import io.github.vqnxiv.structure.CoordinatesElement;
+import io.github.vqnxiv.structure.StructureChange;
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class VersionedMatrixTest {
+
+
+    private record Pojo(String name) { }
+
+    List<Pojo> l = IntStream.range(0, 100).mapToObj(i -> new Pojo("p" + i)).toList();
+
+    VersionedMatrix<Pojo> matrix = new VersionedMatrix<>(l, s -> new RandomLayout<>(s, 0, 0, 500, 500));
+
+    @Test
+    void snapshotIsNeverModified() {
+        var before = matrix.snapshot();
+        long version = matrix.version();
+        var copy = new ArrayList<CoordinatesElement<Pojo>>();
+        before.forEach(c -> copy.add(new CoordinatesElement<>(c)));
+
+        new RandomLayout<>(matrix, 0, 0, 500, 500).apply();
+
+        assertEquals(version + 1, matrix.version());
+        assertNotSame(before, matrix.snapshot());
+        var after = new ArrayList<CoordinatesElement<Pojo>>();
+        before.forEach(after::add);
+        assertEquals(copy, after);
+        assertEquals(100, matrix.size());
+    }
+
+    @Test
+    void publishesSingleEvent() {
+        var events = new ArrayList<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, events::add);
+
+        var m = new HashMap<CoordinatesElement<Pojo>, Point2D>();
+        for(var c : matrix) {
+            m.put(c, new Point2D(c.getX() + 1d, c.getY()));
+        }
+        matrix.repositionAllTo(m);
+
+        assertEquals(1, events.size());
+        assertEquals(100, events.get(0).elements().size());
+        m.forEach((c, p) -> assertFalse(matrix.containsCoordinates(c)));
+        assertEquals(m.size(), matrix.coordinatesOf(l).size());
+    }
+
+    @Test
+    void batchPublishesOnce() {
+        var events = new ArrayList<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, events::add);
+        long version = matrix.version();
+
+        matrix.batch(() -> {
+            for(var it = matrix.iterator(); it.hasNext(); ) {
+                var c = it.next();
+                it.reposition(600d, c.getY());
+            }
+            assertEquals(version, matrix.version());
+        });
+
+        assertEquals(version + 1, matrix.version());
+        assertEquals(1, events.size());
+        assertEquals(600d, matrix.getMinimumWidth());
+        assertEquals(600d, matrix.getMaximumWidth());
+    }
+
+    @Test
+    void handsOutCopies() {
+        var c = matrix.coordinatesOf(l.get(0)).get();
+        var p = c.getXY();
+        c.setXY(-1d, -1d);
+        matrix.snapshot().forEach(e -> e.setXY(-2d, -2d));
+        matrix.between(0d, 0d, 500d, 500d).forEach(e -> e.setXY(-3d, -3d));
+
+        assertEquals(p, matrix.coordinatesOf(l.get(0)).get().getXY());
+        assertEquals(100, matrix.between(0d, 0d, 500d, 500d).size());
+        assertEquals(0, matrix.countBetween(-5d, -5d, -0.5d, -0.5d));
+    }
+
+    @Test
+    void movesOutOfTheGrid() {
+        var c = matrix.coordinatesOf(l.get(0)).get();
+        matrix.repositionTo(c, new Point2D(1_000_000d, -1_000_000d));
+
+        assertEquals(1_000_000d, matrix.getMaximumWidth());
+        assertEquals(-1_000_000d, matrix.getMinimumHeight());
+        assertEquals(1, matrix.between(999_999d, -1_000_001d, 1_000_001d, -999_999d).size());
+        assertEquals(99, matrix.between(0d, 0d, 500d, 500d).size());
+        assertEquals(l.get(0), matrix.kNearest(1_000_000d, -1_000_000d, 1).get(0).getElement());
+        assertThrows(IllegalArgumentException.class, () -> matrix.repositionTo(
+            matrix.coordinatesOf(l.get(1)).get(), new Point2D(Double.NaN, 0d)
+        ));
+    }
+
+    @Test
+    void listenersCanPublish() {
+        var events = new ArrayList<StructureChange.Move<Pojo>>();
+        matrix.addMoveListener(this, e -> {
+            events.add(e);
+            if(events.size() == 1) {
+                matrix.repositionTo(matrix.coordinatesOf(l.get(1)).get(), new Point2D(2d, 2d));
+                assertEquals(1, events.size());
+            }
+        });
+
+        matrix.repositionTo(matrix.coordinatesOf(l.get(0)).get(), new Point2D(1d, 1d));
+        assertEquals(2, events.size());
+        assertEquals(new Point2D(1d, 1d), events.get(0).elements().values().iterator().next());
+        assertEquals(new Point2D(2d, 2d), events.get(1).elements().values().iterator().next());
+    }
+
+    @Test
+    void batchDoesNotBlockOtherWriters() {
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            matrix.batch(() -> {
+                matrix.repositionTo(matrix.coordinatesOf(l.get(0)).get(), new Point2D(1d, 1d));
+                var other = pool.submit(() ->
+                    matrix.repositionTo(matrix.coordinatesOf(l.get(1)).get(), new Point2D(2d, 2d))
+                );
+                assertDoesNotThrow(() -> other.get(10, TimeUnit.SECONDS));
+                assertEquals(new Point2D(2d, 2d), matrix.coordinatesOf(l.get(1)).get().getXY());
+                assertNotEquals(new Point2D(1d, 1d), matrix.coordinatesOf(l.get(0)).get().getXY());
+            });
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(new Point2D(1d, 1d), matrix.coordinatesOf(l.get(0)).get().getXY());
+    }
+
+    @Test
+    void staleMovesAreIgnored() {
+        var c = matrix.coordinatesOf(l.get(0)).get();
+        matrix.repositionTo(c, new Point2D(10d, 10d));
+        long version = matrix.version();
+
+        matrix.repositionTo(c, new Point2D(20d, 20d));
+        assertEquals(version, matrix.version());
+        assertEquals(new Point2D(10d, 10d), matrix.coordinatesOf(l.get(0)).get().getXY());
+    }
+
+    @Test
+    void readersNeverSeePartialLayouts() throws Exception {
+        long initial = matrix.version();
+        var pool = Executors.newSingleThreadExecutor();
+        var started = new CountDownLatch(1);
+
+        try {
+            var writer = pool.submit(() -> {
+                started.countDown();
+                for(int i = 1; i <= 200; i++) {
+                    double x = i;
+                    Map<CoordinatesElement<Pojo>, Point2D> m = new HashMap<>();
+                    matrix.snapshot().forEach(c -> m.put(c, new Point2D(x, c.getY())));
+                    matrix.repositionAllTo(m);
+                }
+            });
+
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            while(!writer.isDone()) {
+                if(matrix.version() == initial) {
+                    continue;
+                }
+                var xs = matrix.between(0d, 0d, 1_000d, 1_000d).stream()
+                    .mapToDouble(CoordinatesElement::getX)
+                    .distinct()
+                    .count();
+                assertTrue(xs <= 1);
+            }
+            writer.get(10, TimeUnit.SECONDS);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(200d, matrix.getMaximumWidth());
+    }
+}